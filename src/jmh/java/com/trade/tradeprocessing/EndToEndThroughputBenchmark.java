@@ -0,0 +1,89 @@
+package com.trade.tradeprocessing;
+
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.services.BenchmarkFixtures;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer -> tradeQueue -> consumers -> in-memory H2, for 1, 5, 10 and one-per-core workers (0).
+ * Each invocation publishes a batch and waits until every trade in it has been processed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class EndToEndThroughputBenchmark {
+
+    private static final int BATCH = 5_000;
+
+    @Param({"1", "5", "10", "0"})
+    public int workers;
+
+    private ConfigurableApplicationContext context;
+    private TradePublisher tradePublisher;
+    private TradeProcessingService tradeProcessingService;
+    private final Random random = new Random(11);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int consumers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        context = new SpringApplicationBuilder(TradeProcessingApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "trades.consumers=" + consumers,
+                        "trades.executor.max-pool-size=" + (consumers + 1),
+                        // The worker count is the parameter under test, so it must not be resized
+                        "trades.adaptive.enabled=false",
+                        "trades.generator.enabled=false",
+                        // Keep the run away from ./journal and ./archive, and from replaying a dev run's trades
+                        "trades.journal.enabled=false",
+                        "trades.shutdown.warm-restart=false",
+                        "trades.archive.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:bench" + consumers,
+                        "logging.file.name=",
+                        "logging.level.root=WARN")
+                .run();
+        tradePublisher = context.getBean(TradePublisher.class);
+        tradeProcessingService = context.getBean(TradeProcessingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long publishAndDrain() throws InterruptedException {
+        long target = tradeProcessingService.getProcessedCount() + BATCH;
+        for (int i = 0; i < BATCH; i++) {
+            tradePublisher.publish(BenchmarkFixtures.randomTrade(random));
+        }
+        while (tradeProcessingService.getProcessedCount() < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+}
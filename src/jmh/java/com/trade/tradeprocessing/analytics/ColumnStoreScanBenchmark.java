@@ -0,0 +1,81 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.services.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel group-by scans over the column store, heap and off-heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ColumnStoreScanBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private TradeColumnStore store;
+    private AnalyticsFilter lastWeek;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new TradeColumnStore(BenchmarkFixtures.referenceData(), 65536, offHeap, rows);
+        Random random = new Random(11);
+        LocalDate today = LocalDate.now();
+        // One trade object is enough: append copies every field into the columns
+        Trade trade = BenchmarkFixtures.randomTrade(random);
+        for (int i = 0; i < rows; i++) {
+            Trade next = BenchmarkFixtures.randomTrade(random);
+            trade.setInstrument(next.getInstrument());
+            trade.setCounterparty(next.getCounterparty());
+            trade.setCurrency(next.getCurrency());
+            trade.setSide(next.getSide());
+            trade.setQuantity(next.getQuantity());
+            trade.setPrice(next.getPrice());
+            trade.setNotionalUsd(next.getQuantity().multiply(next.getPrice()));
+            trade.setTradeDate(today.minusDays(random.nextInt(30)));
+            // New strings, so the ids have to be looked up again
+            trade.setInstrumentId(SymbolDictionary.NO_ID);
+            store.append(trade);
+        }
+        lastWeek = new AnalyticsFilter(null, null, null, today.minusDays(6), today);
+    }
+
+    @Benchmark
+    public AggregationResult notionalByCounterparty() {
+        return store.aggregate(new AnalyticsFilter(null, null, null, null, null), GroupBy.COUNTERPARTY, Measure.NOTIONAL_USD);
+    }
+
+    @Benchmark
+    public AggregationResult netQuantityByInstrumentLastWeek() {
+        return store.aggregate(lastWeek, GroupBy.INSTRUMENT, Measure.NET_QUANTITY);
+    }
+
+    @Benchmark
+    public AggregationResult netNotionalByDateForOneInstrument() {
+        return store.aggregate(new AnalyticsFilter("AAPL", null, null, null, null), GroupBy.TRADE_DATE, Measure.NET_NOTIONAL_USD);
+    }
+}
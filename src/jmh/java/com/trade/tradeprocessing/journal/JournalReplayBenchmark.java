@@ -0,0 +1,111 @@
+package com.trade.tradeprocessing.journal;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.services.BenchmarkFixtures;
+import com.trade.tradeprocessing.services.PositionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup replay of a journal with no checkpoint: every INGEST and COMPLETE record is read back from
+ * the segments. Records per second is {@code 2 * trades} divided by the reported time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class JournalReplayBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int trades;
+
+    private final PositionService positionService = BenchmarkFixtures.positionService();
+    private Path source;
+    private TradeJournal writer;
+    private Path copy;
+    private TradeJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = Files.createTempDirectory("journal-replay");
+        writer = journal(source);
+        writer.open();
+        List<Trade> written = BenchmarkFixtures.randomTrades(trades, 5);
+        for (Trade trade : written) {
+            writer.appendIngest(trade);
+        }
+        // All but the last 1% complete, so replay also rebuilds the shadow book and the pending set
+        for (Trade trade : written.subList(0, trades - trades / 100)) {
+            trade.setStatus(Status.Done);
+            trade.setNotionalUsd(trade.getQuantity().multiply(trade.getPrice()));
+            writer.appendCompletion(trade);
+        }
+        // The writer stays open: closing it would checkpoint and delete the segments
+    }
+
+    // Replay on a fresh copy each time; the copy is read from the page cache, not the disk
+    @Setup(Level.Invocation)
+    public void copySegments() throws IOException {
+        copy = Files.createTempDirectory("journal-replay");
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, copy.resolve(file.getFileName()));
+            }
+        }
+        journal = journal(copy);
+    }
+
+    @Benchmark
+    public int replay() throws IOException {
+        journal.open();
+        return journal.recoveredTrades().size();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCopy() throws Exception {
+        journal.close();
+        delete(copy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        writer.close();
+        delete(source);
+    }
+
+    private TradeJournal journal(Path directory) {
+        return new TradeJournal(positionService, BenchmarkFixtures.absent(TradePublisher.class),
+                directory.toString(), 64, "async", 5);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
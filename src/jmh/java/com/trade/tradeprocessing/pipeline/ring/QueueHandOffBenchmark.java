@@ -0,0 +1,87 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import com.trade.tradeprocessing.models.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer/consumer hand-off: the 1000-slot LinkedBlockingQueue used by queue mode against the ring buffer.
+ * Non-blocking offer/poll so a thread can never be left parked when an iteration ends.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueueHandOffBenchmark {
+
+    private final Trade trade = Trade.builder().instrument("AAPL").build();
+    private LinkedBlockingQueue<Trade> queue;
+    private TradeRingBuffer ring;
+    private Sequence consumed;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        queue = new LinkedBlockingQueue<>(1000);
+        ring = new TradeRingBuffer(1024, WaitStrategy.BUSY_SPIN);
+        consumed = new Sequence(-1);
+        ring.setGatingSequence(consumed);
+    }
+
+    @Benchmark
+    @Group("linkedBlockingQueue")
+    @GroupThreads(1)
+    public boolean queueOffer() {
+        return queue.offer(trade);
+    }
+
+    @Benchmark
+    @Group("linkedBlockingQueue")
+    @GroupThreads(1)
+    public Trade queuePoll() {
+        return queue.poll();
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(1)
+    public boolean ringPublish() {
+        long sequence = ring.tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        ring.get(sequence).trade = trade;
+        ring.publish(sequence);
+        return true;
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(1)
+    public Trade ringConsume() {
+        long next = consumed.get() + 1;
+        if (ring.highestPublished(next) < next) {
+            return null;
+        }
+        TradeEvent event = ring.get(next);
+        Trade taken = event.trade;
+        event.clear();
+        consumed.set(next);
+        return taken;
+    }
+}
@@ -0,0 +1,123 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.enrichment.AsyncFxEnricher;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One worker pushing trades that all miss the FX cache through the pipeline, against a rate source
+ * with a fixed round-trip time. "blocking" fetches each rate on the worker, as the pipeline used to;
+ * "async" defers the trade to {@link AsyncFxEnricher}. Time is per trade, until every trade is DONE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class AsyncEnrichmentBenchmark {
+
+    private static final int TRADES = 200;
+
+    @Param({"1", "5", "20"})
+    public long latencyMs;
+
+    @Param({"blocking", "async"})
+    public String mode;
+
+    private final AtomicInteger finished = new AtomicInteger();
+    private RandomFxRateSource fxRateSource;
+    private TradeProcessingService tradeProcessingService;
+    private List<Trade> trades;
+    private ThreadPoolTaskExecutor fetchExecutor;
+    private ThreadPoolTaskExecutor completionExecutor;
+    private AsyncFxEnricher enricher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fxRateSource = new RandomFxRateSource(latencyMs);
+        MarketDataService marketData = BenchmarkFixtures.marketData(fxRateSource, -1);
+        TradePersister countingPersister = new TradePersister(null, null, null, BenchmarkFixtures.pipelineMetrics(), 1, 1, 1, 0) {
+            @Override
+            public void save(Trade trade) {
+                if (Status.Done.equals(trade.getStatus()) || Status.Failed.equals(trade.getStatus())) {
+                    finished.incrementAndGet();
+                }
+            }
+        };
+        fetchExecutor = executor("Fx-Fetch-", 4);
+        completionExecutor = executor("Fx-Completion-", 2);
+        enricher = new AsyncFxEnricher(marketData, fxRateSource, fetchExecutor, completionExecutor, 2, 10_000, 10_000);
+        tradeProcessingService = BenchmarkFixtures.tradeProcessingService(BenchmarkFixtures.positionService(),
+                countingPersister, marketData,
+                "async".equals(mode) ? BenchmarkFixtures.present(AsyncFxEnricher.class, enricher) : BenchmarkFixtures.absent(AsyncFxEnricher.class));
+        trades = BenchmarkFixtures.randomTrades(TRADES, 5);
+        trades.forEach(BenchmarkFixtures.referenceData()::intern);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        enricher.stop();
+        fetchExecutor.shutdown();
+        completionExecutor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES)
+    public int processAll() {
+        finished.set(0);
+        for (Trade trade : trades) {
+            if ("async".equals(mode)) {
+                tradeProcessingService.processTradePipeline(trade);
+            } else {
+                processBlocking(trade);
+            }
+        }
+        while (finished.get() < TRADES) {
+            LockSupport.parkNanos(50_000);
+        }
+        return finished.get();
+    }
+
+    // The old shape: the worker waits for the rate itself
+    private void processBlocking(Trade trade) {
+        if (!tradeProcessingService.beginProcessing(trade)) {
+            return;
+        }
+        String currencyPair = trade.getCurrency() + "USD";
+        FxQuote quote = "USDUSD".equals(currencyPair) ? new FxQuote(currencyPair, BigDecimal.ONE, 0)
+                : new FxQuote(currencyPair, fxRateSource.fetchRate(currencyPair), System.currentTimeMillis());
+        tradeProcessingService.enrichTrade(trade, quote);
+        tradeProcessingService.complete(trade);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+}
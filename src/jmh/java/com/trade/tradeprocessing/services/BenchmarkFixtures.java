@@ -0,0 +1,122 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.analytics.ExposureCube;
+import com.trade.tradeprocessing.analytics.TradeColumnStore;
+import com.trade.tradeprocessing.configurations.FxCacheProperties;
+import com.trade.tradeprocessing.enrichment.AsyncFxEnricher;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Builds the processing services without Spring or a database, so the hot path can be measured on its own.
+ */
+public final class BenchmarkFixtures {
+
+    private static final String[] INSTRUMENTS = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "FB", "NFLX", "NVDA", "BABA", "INTC"};
+    private static final String[] COUNTERPARTIES = {"JP Morgan", "Goldman Sachs", "Morgan Stanley", "Citibank", "Bank of America"};
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "AUD"};
+
+    // Shared, as in the application, so every fixture sees the same ids
+    private static final ReferenceData REFERENCE_DATA = new ReferenceData();
+
+    private BenchmarkFixtures() {
+    }
+
+    public static ReferenceData referenceData() {
+        return REFERENCE_DATA;
+    }
+
+    public static List<Trade> randomTrades(int count, long seed) {
+        Random random = new Random(seed);
+        List<Trade> trades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            trades.add(randomTrade(random));
+        }
+        return trades;
+    }
+
+    public static Trade randomTrade(Random random) {
+        return Trade.builder()
+                .status(Status.Queued)
+                .tradeDate(LocalDate.now())
+                .counterparty(COUNTERPARTIES[random.nextInt(COUNTERPARTIES.length)])
+                .createdAt(Instant.now())
+                .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .side(random.nextBoolean() ? "BUY" : "SELL")
+                .quantity(new BigDecimal(1 + random.nextInt(10000)))
+                .price(new BigDecimal(1 + random.nextInt(500)))
+                .instrument(INSTRUMENTS[random.nextInt(INSTRUMENTS.length)])
+                .build();
+    }
+
+    /**
+     * A persister that drops every write, so benchmarks measure processing and not the database.
+     */
+    public static TradePersister discardingPersister() {
+        return new TradePersister(null, null, null, pipelineMetrics(), 1, 1, 1, 0) {
+            @Override
+            public void save(Trade trade) {
+            }
+        };
+    }
+
+    public static MarketDataService warmMarketData() {
+        return marketData(new RandomFxRateSource(0), Long.MAX_VALUE);
+    }
+
+    // A negative maxStalenessMs makes every cached quote too old, so every trade is a cache miss
+    public static MarketDataService marketData(FxRateSource fxRateSource, long maxStalenessMs) {
+        FxCacheProperties properties = new FxCacheProperties(
+                List.of("EURUSD", "GBPUSD", "JPYUSD", "AUDUSD"), 100, Long.MAX_VALUE, maxStalenessMs, Map.of(), Map.of(), 0, 0);
+        MarketDataService marketDataService = new MarketDataService(fxRateSource, properties, REFERENCE_DATA);
+        marketDataService.warmUp();
+        return marketDataService;
+    }
+
+    public static PipelineMetrics pipelineMetrics() {
+        return new PipelineMetrics(null, null, "queue", "platform");
+    }
+
+    public static PositionService positionService() {
+        return new PositionService(null, REFERENCE_DATA);
+    }
+
+    // Optional collaborators (journal, column store) switched off
+    public static <T> ObjectProvider<T> absent(Class<T> type) {
+        return new StaticListableBeanFactory().getBeanProvider(type);
+    }
+
+    public static <T> ObjectProvider<T> present(Class<T> type, T bean) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean(type.getSimpleName(), bean);
+        return beans.getBeanProvider(type);
+    }
+
+    public static TradeProcessingService tradeProcessingService(PositionService positionService) {
+        return tradeProcessingService(positionService, discardingPersister(), warmMarketData(), absent(AsyncFxEnricher.class));
+    }
+
+    public static TradeProcessingService tradeProcessingService(PositionService positionService, TradePersister tradePersister,
+                                                                MarketDataService marketDataService,
+                                                                ObjectProvider<AsyncFxEnricher> asyncFxEnricher) {
+        return new TradeProcessingService(tradePersister, new LinkedBlockingQueue<>(), new SyncTaskExecutor(),
+                marketDataService, positionService, REFERENCE_DATA, pipelineMetrics(),
+                absent(TradeJournal.class), absent(TradeColumnStore.class), absent(ExposureCube.class), asyncFxEnricher,
+                "queue", "platform", 1, 1, false);
+    }
+}
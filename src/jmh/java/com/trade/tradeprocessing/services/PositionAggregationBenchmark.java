@@ -0,0 +1,58 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-rescan aggregation versus the incremental book, over the same trades.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PositionAggregationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int tradeCount;
+
+    private PositionService positionService;
+    private List<Trade> trades;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        positionService = BenchmarkFixtures.positionService();
+        trades = BenchmarkFixtures.randomTrades(tradeCount, 7);
+        trades.forEach(trade -> trade.setNotionalUsd(trade.getQuantity().multiply(trade.getPrice())));
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> calculateNetQuantities() {
+        return positionService.calculateNetQuantities(trades);
+    }
+
+    @Benchmark
+    public PositionService applyTradeIncrementally() {
+        for (Trade trade : trades) {
+            positionService.applyTrade(trade);
+        }
+        return positionService;
+    }
+}
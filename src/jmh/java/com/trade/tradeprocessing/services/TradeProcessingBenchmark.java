@@ -0,0 +1,71 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-trade cost of the individual processing steps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TradeProcessingBenchmark {
+
+    private static final int TRADES = 1024;
+
+    private TradeProcessingService tradeProcessingService;
+    private List<Trade> trades;
+    private FxQuote fxQuote;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tradeProcessingService = BenchmarkFixtures.tradeProcessingService(BenchmarkFixtures.positionService());
+        trades = BenchmarkFixtures.randomTrades(TRADES, 42);
+        trades.forEach(BenchmarkFixtures.referenceData()::intern);
+        trades.forEach(tradeProcessingService::toFixedPoint);
+        fxQuote = new FxQuote("EURUSD", new BigDecimal("1.0873"), System.currentTimeMillis());
+    }
+
+    private Trade nextTrade() {
+        Trade trade = trades.get(next);
+        next = (next + 1) & (TRADES - 1);
+        return trade;
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return tradeProcessingService.isValid(nextTrade());
+    }
+
+    @Benchmark
+    public BigDecimal enrichTrade() {
+        Trade trade = nextTrade();
+        tradeProcessingService.enrichTrade(trade, fxQuote);
+        return trade.getNotionalUsd();
+    }
+
+    @Benchmark
+    public String processTradePipeline() {
+        Trade trade = nextTrade();
+        tradeProcessingService.processTradePipeline(trade);
+        return trade.getStatus();
+    }
+}
@@ -0,0 +1,17 @@
+package com.trade.tradeprocessing.analytics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Group-by sums, keyed by group label, plus how much was scanned to get them. rowsEvicted is the
+ * number of trades the store had already aged out; when it is non-zero the sums are partial.
+ */
+public record AggregationResult(GroupBy groupBy,
+                                Measure measure,
+                                long rowsScanned,
+                                long rowsMatched,
+                                long rowsEvicted,
+                                long elapsedMicros,
+                                Map<String, BigDecimal> groups) {
+}
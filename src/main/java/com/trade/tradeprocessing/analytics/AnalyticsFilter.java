@@ -0,0 +1,13 @@
+package com.trade.tradeprocessing.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filters for column store aggregations; null fields don't filter. The trade date range is inclusive.
+ */
+public record AnalyticsFilter(String instrument,
+                              String counterparty,
+                              String currency,
+                              LocalDate fromDate,
+                              LocalDate toDate) {
+}
@@ -0,0 +1,213 @@
+package com.trade.tradeprocessing.analytics;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A fixed number of trades stored column by column. Each column is one contiguous block of
+ * primitives inside a single buffer, on the heap or off it.
+ * <p>
+ * There is one writer at a time (the store's append lock). Rows below {@link #size()} are complete
+ * and safe to read from any thread, since size is published after the row is written.
+ */
+final class ColumnChunk {
+
+    // 4 int columns, 1 byte column, 4 long columns
+    static final int BYTES_PER_ROW = 4 * Integer.BYTES + 1 + 4 * Long.BYTES;
+    // Positions within a row's exact values
+    static final int EXACT_QUANTITY = 0;
+    static final int EXACT_PRICE = 1;
+    static final int EXACT_NOTIONAL = 2;
+    private static final int EXACT_WIDTH = 3;
+
+    private final int capacity;
+    private final ByteBuffer data;
+    private final int instrumentOffset;
+    private final int counterpartyOffset;
+    private final int currencyOffset;
+    private final int tradeDayOffset;
+    private final int sideOffset;
+    private final int quantityOffset;
+    private final int priceOffset;
+    private final int notionalOffset;
+    private final int processedAtOffset;
+    // Values that have no fixed-point form, for the few rows whose column holds NOT_REPRESENTABLE.
+    // exactSlots maps row to slot + 1 (0 for none) and is only allocated for the first such row;
+    // exactValues holds EXACT_WIDTH entries per slot and grows by doubling. Both are published
+    // before size, like dayBuffer.
+    private volatile int[] exactSlots;
+    private volatile BigDecimal[] exactValues;
+    private int exactCount;
+
+    private volatile int size;
+    // Trade date range in this chunk, so a date-filtered scan can skip it; only grows
+    private volatile int minDay = Integer.MAX_VALUE;
+    private volatile int maxDay = Integer.MIN_VALUE;
+    // Distinct trade days in this chunk (not NO_DAY), in arrival order; the buffer grows by doubling
+    // and is published before the count, so readers see at least dayCount entries in it
+    private volatile int[] dayBuffer = new int[4];
+    private volatile int dayCount;
+    // Writer side only
+    private final Set<Integer> daySet = new HashSet<>();
+    private int lastDay = TradeColumnStore.NO_DAY;
+
+    ColumnChunk(int capacity, boolean offHeap) {
+        this.capacity = capacity;
+        int bytes = capacity * BYTES_PER_ROW;
+        this.data = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        int offset = 0;
+        instrumentOffset = offset;
+        offset += capacity * Integer.BYTES;
+        counterpartyOffset = offset;
+        offset += capacity * Integer.BYTES;
+        currencyOffset = offset;
+        offset += capacity * Integer.BYTES;
+        tradeDayOffset = offset;
+        offset += capacity * Integer.BYTES;
+        quantityOffset = offset;
+        offset += capacity * Long.BYTES;
+        priceOffset = offset;
+        offset += capacity * Long.BYTES;
+        notionalOffset = offset;
+        offset += capacity * Long.BYTES;
+        processedAtOffset = offset;
+        offset += capacity * Long.BYTES;
+        sideOffset = offset;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int minDay() {
+        return minDay;
+    }
+
+    int maxDay() {
+        return maxDay;
+    }
+
+    /**
+     * The distinct trade days of the rows so far, unordered.
+     */
+    int[] days() {
+        int count = dayCount;
+        return Arrays.copyOf(dayBuffer, count);
+    }
+
+    long bytes() {
+        return data.capacity();
+    }
+
+    boolean isOffHeap() {
+        return data.isDirect();
+    }
+
+    void append(int instrument, int counterparty, int currency, int tradeDay, boolean buy,
+                long quantityUnits, long priceUnits, long notionalUnits, long processedAtMillis, BigDecimal[] exact) {
+        int row = size;
+        data.putInt(instrumentOffset + row * Integer.BYTES, instrument);
+        data.putInt(counterpartyOffset + row * Integer.BYTES, counterparty);
+        data.putInt(currencyOffset + row * Integer.BYTES, currency);
+        data.putInt(tradeDayOffset + row * Integer.BYTES, tradeDay);
+        data.put(sideOffset + row, (byte) (buy ? 1 : 0));
+        data.putLong(quantityOffset + row * Long.BYTES, quantityUnits);
+        data.putLong(priceOffset + row * Long.BYTES, priceUnits);
+        data.putLong(notionalOffset + row * Long.BYTES, notionalUnits);
+        data.putLong(processedAtOffset + row * Long.BYTES, processedAtMillis);
+        if (exact != null) {
+            putExact(row, exact);
+        }
+        if (tradeDay != lastDay && tradeDay != TradeColumnStore.NO_DAY && daySet.add(tradeDay)) {
+            int count = dayCount;
+            int[] buffer = dayBuffer;
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, count * 2);
+            }
+            buffer[count] = tradeDay;
+            dayBuffer = buffer;
+            dayCount = count + 1;
+        }
+        lastDay = tradeDay;
+        if (tradeDay < minDay) {
+            minDay = tradeDay;
+        }
+        if (tradeDay > maxDay) {
+            maxDay = tradeDay;
+        }
+        size = row + 1;
+        if (row + 1 == capacity) {
+            daySet.clear();
+        }
+    }
+
+    int instrument(int row) {
+        return data.getInt(instrumentOffset + row * Integer.BYTES);
+    }
+
+    int counterparty(int row) {
+        return data.getInt(counterpartyOffset + row * Integer.BYTES);
+    }
+
+    int currency(int row) {
+        return data.getInt(currencyOffset + row * Integer.BYTES);
+    }
+
+    int tradeDay(int row) {
+        return data.getInt(tradeDayOffset + row * Integer.BYTES);
+    }
+
+    boolean isBuy(int row) {
+        return data.get(sideOffset + row) != 0;
+    }
+
+    long quantityUnits(int row) {
+        return data.getLong(quantityOffset + row * Long.BYTES);
+    }
+
+    long priceUnits(int row) {
+        return data.getLong(priceOffset + row * Long.BYTES);
+    }
+
+    long notionalUnits(int row) {
+        return data.getLong(notionalOffset + row * Long.BYTES);
+    }
+
+    long processedAtMillis(int row) {
+        return data.getLong(processedAtOffset + row * Long.BYTES);
+    }
+
+    /**
+     * One of {@link #EXACT_QUANTITY}, {@link #EXACT_PRICE} or {@link #EXACT_NOTIONAL} as given at
+     * append time, for a row holding NOT_REPRESENTABLE; null for any other row.
+     */
+    BigDecimal exactValue(int row, int field) {
+        int[] slots = exactSlots;
+        if (slots == null || slots[row] == 0) {
+            return null;
+        }
+        return exactValues[(slots[row] - 1) * EXACT_WIDTH + field];
+    }
+
+    private void putExact(int row, BigDecimal[] exact) {
+        int[] slots = exactSlots;
+        BigDecimal[] values = exactValues;
+        if (slots == null) {
+            slots = new int[capacity];
+            values = new BigDecimal[4 * EXACT_WIDTH];
+        } else if ((exactCount + 1) * EXACT_WIDTH > values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        System.arraycopy(exact, 0, values, exactCount * EXACT_WIDTH, EXACT_WIDTH);
+        slots[row] = ++exactCount;
+        exactValues = values;
+        exactSlots = slots;
+    }
+}
@@ -0,0 +1,15 @@
+package com.trade.tradeprocessing.analytics;
+
+/**
+ * Size of the column store. evictedRows counts trades aged out at the row limit; once it is
+ * non-zero, aggregations only cover the most recent trades.
+ */
+public record ColumnStoreStats(long rows,
+                               long evictedRows,
+                               int chunks,
+                               long bytes,
+                               boolean offHeap,
+                               int instruments,
+                               int counterparties,
+                               int currencies) {
+}
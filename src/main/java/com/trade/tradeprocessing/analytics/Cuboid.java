@@ -0,0 +1,89 @@
+package com.trade.tradeprocessing.analytics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Cells of one cuboid, by packed key, in an open-addressing table with primitive keys, so a lookup
+ * neither boxes nor allocates.
+ * <p>
+ * Lookups are lock-free. Adding a cell takes the cuboid's lock; when the table would be more than
+ * half full it is rehashed into one twice the size, which is then published. A reader still on the
+ * old table may miss a cell added since, and then looks again under the lock.
+ */
+final class Cuboid {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<ExposureCell> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // Guarded by this
+    private int size;
+
+    ExposureCell get(long key) {
+        return find(table, key);
+    }
+
+    ExposureCell getOrAdd(long key) {
+        ExposureCell cell = find(table, key);
+        return cell != null ? cell : add(key);
+    }
+
+    void forEach(Consumer<ExposureCell> consumer) {
+        AtomicReferenceArray<ExposureCell> cells = table;
+        for (int slot = 0; slot < cells.length(); slot++) {
+            ExposureCell cell = cells.get(slot);
+            if (cell != null) {
+                consumer.accept(cell);
+            }
+        }
+    }
+
+    private synchronized ExposureCell add(long key) {
+        AtomicReferenceArray<ExposureCell> cells = table;
+        ExposureCell cell = find(cells, key);
+        if (cell != null) {
+            return cell;
+        }
+        cell = new ExposureCell(key);
+        if ((size + 1) * 2 > cells.length()) {
+            AtomicReferenceArray<ExposureCell> grown = new AtomicReferenceArray<>(cells.length() * 2);
+            for (int slot = 0; slot < cells.length(); slot++) {
+                ExposureCell existing = cells.get(slot);
+                if (existing != null) {
+                    insert(grown, existing);
+                }
+            }
+            insert(grown, cell);
+            table = grown;
+        } else {
+            insert(cells, cell);
+        }
+        size++;
+        return cell;
+    }
+
+    private static ExposureCell find(AtomicReferenceArray<ExposureCell> cells, long key) {
+        int mask = cells.length() - 1;
+        // Never more than half full, so the probe always reaches an empty slot
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            ExposureCell cell = cells.get(slot);
+            if (cell == null || cell.key() == key) {
+                return cell;
+            }
+        }
+    }
+
+    private static void insert(AtomicReferenceArray<ExposureCell> cells, ExposureCell cell) {
+        int mask = cells.length() - 1;
+        int slot = slot(cell.key(), mask);
+        while (cells.get(slot) != null) {
+            slot = (slot + 1) & mask;
+        }
+        cells.set(slot, cell);
+    }
+
+    // Keys differ mostly in their low bits within each field, so spread them before masking
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,16 @@
+package com.trade.tradeprocessing.analytics;
+
+import java.math.BigDecimal;
+
+/**
+ * One cell of the exposure cube. A null coordinate means that dimension is rolled up (all values).
+ * Gross notional adds BUY and SELL alike; net quantity and net notional count SELL negative.
+ */
+public record Exposure(String instrument,
+                       String counterparty,
+                       String currency,
+                       long tradeCount,
+                       BigDecimal netQuantity,
+                       BigDecimal grossNotionalUsd,
+                       BigDecimal netNotionalUsd) {
+}
@@ -0,0 +1,85 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one cube cell. Each total is a {@link LongAdder} of fixed-point units, so
+ * workers updating the same hot cell hit different stripes instead of one contended word.
+ * Values with no fixed-point form go to a BigDecimal side total under the cell's lock.
+ * <p>
+ * The four totals are read one after the other, so a read racing with an update may see the trade
+ * in some of them and not yet in others.
+ */
+final class ExposureCell {
+
+    // Packed key of the cell within its cuboid
+    private final long key;
+    private final LongAdder tradeCount = new LongAdder();
+    private final LongAdder netQuantityUnits = new LongAdder();
+    private final LongAdder grossNotionalUnits = new LongAdder();
+    private final LongAdder netNotionalUnits = new LongAdder();
+    // Null until a value without a fixed-point form arrives
+    private BigDecimal netQuantityExact;
+    private BigDecimal grossNotionalExact;
+    private BigDecimal netNotionalExact;
+
+    ExposureCell(long key) {
+        this.key = key;
+    }
+
+    long key() {
+        return key;
+    }
+
+    void add(boolean buy, long quantityUnits, BigDecimal quantity, long notionalUnits, BigDecimal notional) {
+        tradeCount.increment();
+        if (quantityUnits != FixedPoint.NOT_REPRESENTABLE) {
+            netQuantityUnits.add(buy ? quantityUnits : -quantityUnits);
+        } else {
+            addExactQuantity(buy ? quantity : quantity.negate());
+        }
+        if (notionalUnits != FixedPoint.NOT_REPRESENTABLE) {
+            grossNotionalUnits.add(Math.abs(notionalUnits));
+            netNotionalUnits.add(buy ? notionalUnits : -notionalUnits);
+        } else {
+            addExactNotional(notional.abs(), buy ? notional : notional.negate());
+        }
+    }
+
+    long tradeCount() {
+        return tradeCount.sum();
+    }
+
+    BigDecimal netQuantity() {
+        BigDecimal sum = FixedPoint.toBigDecimal(netQuantityUnits.sum(), FixedPoint.QUANTITY_SCALE);
+        synchronized (this) {
+            return netQuantityExact == null ? sum : sum.add(netQuantityExact);
+        }
+    }
+
+    BigDecimal grossNotionalUsd() {
+        BigDecimal sum = FixedPoint.toBigDecimal(grossNotionalUnits.sum(), FixedPoint.NOTIONAL_SCALE);
+        synchronized (this) {
+            return grossNotionalExact == null ? sum : sum.add(grossNotionalExact);
+        }
+    }
+
+    BigDecimal netNotionalUsd() {
+        BigDecimal sum = FixedPoint.toBigDecimal(netNotionalUnits.sum(), FixedPoint.NOTIONAL_SCALE);
+        synchronized (this) {
+            return netNotionalExact == null ? sum : sum.add(netNotionalExact);
+        }
+    }
+
+    private synchronized void addExactQuantity(BigDecimal signed) {
+        netQuantityExact = netQuantityExact == null ? signed : netQuantityExact.add(signed);
+    }
+
+    private synchronized void addExactNotional(BigDecimal gross, BigDecimal signed) {
+        grossNotionalExact = grossNotionalExact == null ? gross : grossNotionalExact.add(gross);
+        netNotionalExact = netNotionalExact == null ? signed : netNotionalExact.add(signed);
+    }
+}
@@ -0,0 +1,165 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.utils.FixedPoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Exposure by instrument x counterparty x currency, kept up to date one DONE trade at a time.
+ * <p>
+ * All eight rollups (every subset of the three dimensions, down to the grand total) are maintained
+ * eagerly: each trade adds to one cell in each of them. Any slice is then a single map lookup in the
+ * cuboid for its fixed dimensions, however many trades went into it.
+ * <p>
+ * A cell key packs the three reference data ids, plus one, into 21 bits each; 0 means rolled up.
+ * A trade's key in any cuboid is then its full key with the rolled-up fields masked out.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.exposure.enabled", havingValue = "true", matchIfMissing = true)
+public class ExposureCube {
+
+    private static final int CODE_BITS = 21;
+    private static final int MAX_CODES = (1 << CODE_BITS) - 1;
+    private static final ExposureDimension[] DIMENSIONS = ExposureDimension.values();
+    private static final int CUBOIDS = 1 << DIMENSIONS.length;
+    // Indexed by cuboid mask: the key bits of the dimensions that cuboid keeps
+    private static final long[] KEPT_BITS = new long[CUBOIDS];
+
+    static {
+        for (int mask = 0; mask < CUBOIDS; mask++) {
+            for (ExposureDimension dimension : DIMENSIONS) {
+                if ((mask & dimension.bit()) != 0) {
+                    KEPT_BITS[mask] |= (long) MAX_CODES << shift(dimension.ordinal());
+                }
+            }
+        }
+    }
+
+    private final ReferenceData referenceData;
+    // Indexed by dimension ordinal
+    private final SymbolDictionary[] dictionaries;
+    // Indexed by the mask of dimensions the cuboid keeps
+    private final Cuboid[] cuboids = new Cuboid[CUBOIDS];
+
+    public ExposureCube(ReferenceData referenceData) {
+        this.referenceData = referenceData;
+        this.dictionaries = new SymbolDictionary[]{
+                referenceData.instruments(), referenceData.counterparties(), referenceData.currencies()
+        };
+        for (int mask = 0; mask < CUBOIDS; mask++) {
+            cuboids[mask] = new Cuboid();
+        }
+    }
+
+    /**
+     * Adds a DONE trade to every rollup.
+     */
+    public void add(Trade trade) {
+        referenceData.intern(trade);
+        long key = field(ExposureDimension.INSTRUMENT, trade.getInstrumentId())
+                | field(ExposureDimension.COUNTERPARTY, trade.getCounterpartyId())
+                | field(ExposureDimension.CURRENCY, trade.getCurrencyId());
+        boolean buy = trade.getSideCode() == Side.BUY;
+        long quantityUnits = trade.getQuantityUnits();
+        if (quantityUnits == FixedPoint.NOT_REPRESENTABLE) {
+            quantityUnits = FixedPoint.toUnits(trade.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        }
+        BigDecimal notional = trade.getNotionalUsd() == null ? BigDecimal.ZERO : trade.getNotionalUsd();
+        long notionalUnits = trade.getNotionalUsd() == null ? 0 : trade.getNotionalUsdUnits();
+        if (notionalUnits == FixedPoint.NOT_REPRESENTABLE) {
+            notionalUnits = FixedPoint.toUnits(notional, FixedPoint.NOTIONAL_SCALE);
+        }
+
+        for (int mask = 0; mask < CUBOIDS; mask++) {
+            cuboids[mask].getOrAdd(key & KEPT_BITS[mask])
+                    .add(buy, quantityUnits, trade.getQuantity(), notionalUnits, notional);
+        }
+    }
+
+    /**
+     * Exposure for one slice; a null argument rolls that dimension up. A name never traded gives zeros.
+     */
+    public Exposure exposure(String instrument, String counterparty, String currency) {
+        String[] values = {instrument, counterparty, currency};
+        int mask = 0;
+        long key = 0;
+        for (int i = 0; i < DIMENSIONS.length; i++) {
+            if (values[i] != null) {
+                int code = dictionaries[i].lookup(values[i]);
+                if (code == SymbolDictionary.NO_ID) {
+                    return toExposure(values, null);
+                }
+                mask |= DIMENSIONS[i].bit();
+                key |= (code + 1L) << shift(i);
+            }
+        }
+        return toExposure(values, cuboids[mask].get(key));
+    }
+
+    /**
+     * The slice broken down by one more dimension, largest gross notional first. Walks only the
+     * cells of one cuboid, never the trades.
+     */
+    public List<Exposure> breakdown(ExposureDimension by, String instrument, String counterparty, String currency) {
+        String[] values = {instrument, counterparty, currency};
+        if (values[by.ordinal()] != null) {
+            throw new IllegalArgumentException("Cannot break down by " + by + " and filter on it at the same time");
+        }
+        // The cells wanted are those whose filtered fields equal the filter's
+        int filterMask = 0;
+        long filterKey = 0;
+        for (int i = 0; i < DIMENSIONS.length; i++) {
+            if (values[i] != null) {
+                int code = dictionaries[i].lookup(values[i]);
+                if (code == SymbolDictionary.NO_ID) {
+                    return List.of();
+                }
+                filterMask |= DIMENSIONS[i].bit();
+                filterKey |= (code + 1L) << shift(i);
+            }
+        }
+        long filterBits = KEPT_BITS[filterMask];
+        long wanted = filterKey;
+        int byShift = shift(by.ordinal());
+        SymbolDictionary byDictionary = dictionaries[by.ordinal()];
+        List<Exposure> result = new ArrayList<>();
+        cuboids[filterMask | by.bit()].forEach(cell -> {
+            if ((cell.key() & filterBits) == wanted) {
+                String[] labels = values.clone();
+                labels[by.ordinal()] = byDictionary.symbol((int) ((cell.key() >>> byShift) & MAX_CODES) - 1);
+                result.add(toExposure(labels, cell));
+            }
+        });
+        result.sort(Comparator.comparing(Exposure::grossNotionalUsd).reversed());
+        return result;
+    }
+
+    // The dimension's field of a key, holding the code plus one
+    private static long field(ExposureDimension dimension, int code) {
+        if (code >= MAX_CODES) {
+            throw new IllegalStateException("Too many distinct " + dimension + " values for the exposure cube");
+        }
+        return (code + 1L) << shift(dimension.ordinal());
+    }
+
+    private static int shift(int dimension) {
+        return dimension * CODE_BITS;
+    }
+
+    private static Exposure toExposure(String[] labels, ExposureCell cell) {
+        if (cell == null) {
+            return new Exposure(labels[0], labels[1], labels[2], 0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        return new Exposure(labels[0], labels[1], labels[2], cell.tradeCount(),
+                cell.netQuantity(), cell.grossNotionalUsd(), cell.netNotionalUsd());
+    }
+}
@@ -0,0 +1,14 @@
+package com.trade.tradeprocessing.analytics;
+
+/**
+ * Dimensions of the exposure cube. A cuboid is identified by the set of dimensions it keeps, as a bit mask.
+ */
+public enum ExposureDimension {
+    INSTRUMENT,
+    COUNTERPARTY,
+    CURRENCY;
+
+    int bit() {
+        return 1 << ordinal();
+    }
+}
@@ -0,0 +1,11 @@
+package com.trade.tradeprocessing.analytics;
+
+/**
+ * Column an aggregation groups by.
+ */
+public enum GroupBy {
+    INSTRUMENT,
+    COUNTERPARTY,
+    CURRENCY,
+    TRADE_DATE
+}
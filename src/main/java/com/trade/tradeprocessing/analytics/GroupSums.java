@@ -0,0 +1,81 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.math.BigDecimal;
+
+/**
+ * Per-group running sums for one scan, indexed by dense group number. Sums are fixed-point units in
+ * a long; whenever a sum would overflow, what it has so far is moved into a BigDecimal carry.
+ */
+final class GroupSums {
+
+    private final int scale;
+    private final long[] units;
+    private final long[] rows;
+    private BigDecimal[] carry;
+
+    GroupSums(int groups, int scale) {
+        this.scale = scale;
+        this.units = new long[groups];
+        this.rows = new long[groups];
+    }
+
+    void add(int group, long value) {
+        long sum = units[group] + value;
+        if (((units[group] ^ sum) & (value ^ sum)) < 0) {
+            addCarry(group, FixedPoint.toBigDecimal(units[group], scale));
+            sum = value;
+        }
+        units[group] = sum;
+        rows[group]++;
+    }
+
+    // For rows whose value has no fixed-point form
+    void addExact(int group, BigDecimal value) {
+        addCarry(group, value);
+        rows[group]++;
+    }
+
+    GroupSums merge(GroupSums other) {
+        for (int group = 0; group < units.length; group++) {
+            if (other.rows[group] == 0) {
+                continue;
+            }
+            add(group, other.units[group]);
+            rows[group] += other.rows[group] - 1;
+            if (other.carry != null && other.carry[group] != null) {
+                addCarry(group, other.carry[group]);
+            }
+        }
+        return this;
+    }
+
+    int groups() {
+        return units.length;
+    }
+
+    long rows(int group) {
+        return rows[group];
+    }
+
+    long totalRows() {
+        long total = 0;
+        for (long count : rows) {
+            total += count;
+        }
+        return total;
+    }
+
+    BigDecimal sum(int group) {
+        BigDecimal sum = FixedPoint.toBigDecimal(units[group], scale);
+        return carry == null || carry[group] == null ? sum : sum.add(carry[group]);
+    }
+
+    private void addCarry(int group, BigDecimal value) {
+        if (carry == null) {
+            carry = new BigDecimal[units.length];
+        }
+        carry[group] = carry[group] == null ? value : carry[group].add(value);
+    }
+}
@@ -0,0 +1,24 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+/**
+ * What an aggregation sums per group. Net measures count BUY positive and SELL negative.
+ */
+public enum Measure {
+    TRADE_COUNT(0),
+    NET_QUANTITY(FixedPoint.QUANTITY_SCALE),
+    NOTIONAL_USD(FixedPoint.NOTIONAL_SCALE),
+    NET_NOTIONAL_USD(FixedPoint.NOTIONAL_SCALE);
+
+    private final int scale;
+
+    Measure(int scale) {
+        this.scale = scale;
+    }
+
+    // Decimal places of the fixed-point units being summed
+    int scale() {
+        return scale;
+    }
+}
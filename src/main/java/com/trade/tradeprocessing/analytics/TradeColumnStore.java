@@ -0,0 +1,275 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.utils.FixedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory columnar copy of every DONE trade, for analytical queries that would otherwise walk
+ * full entities. Trades go into fixed-size {@link ColumnChunk}s; instrument, counterparty and
+ * currency are stored as their reference data ids, and quantities, prices and notionals are fixed-point units.
+ * <p>
+ * Aggregations snapshot the chunk list and each chunk's size, then scan the chunks in parallel,
+ * each into its own {@link GroupSums}, and merge the partial sums at the end.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.analytics.enabled", havingValue = "true", matchIfMissing = true)
+public class TradeColumnStore {
+
+    // Trade date of a row that has none; never matches a date filter
+    static final int NO_DAY = Integer.MIN_VALUE;
+    // Filter code meaning "no filter"; distinct from SymbolDictionary.NO_ID
+    private static final int ANY = -2;
+    private static final String NO_DATE_LABEL = "NONE";
+
+    private final Logger log = LoggerFactory.getLogger(TradeColumnStore.class);
+    private final int chunkSize;
+    private final boolean offHeap;
+    private final int maxChunks;
+    private final ReferenceData referenceData;
+    private final SymbolDictionary instruments;
+    private final SymbolDictionary counterparties;
+    private final SymbolDictionary currencies;
+    private final List<ColumnChunk> chunks = new CopyOnWriteArrayList<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private ColumnChunk current;
+    // Rows dropped with the oldest chunks once the store hit its row limit; written under appendLock
+    private volatile long evictedRows;
+
+    public TradeColumnStore(ReferenceData referenceData,
+                            @Value("${trades.analytics.chunk-size:65536}") int chunkSize,
+                            @Value("${trades.analytics.off-heap:false}") boolean offHeap,
+                            @Value("${trades.analytics.max-rows:0}") long maxRows) {
+        this.referenceData = referenceData;
+        this.instruments = referenceData.instruments();
+        this.counterparties = referenceData.counterparties();
+        this.currencies = referenceData.currencies();
+        this.chunkSize = chunkSize;
+        this.offHeap = offHeap;
+        long rowLimit = maxRows > 0 ? maxRows : defaultMaxRows();
+        this.maxChunks = (int) Math.max(1, rowLimit / chunkSize);
+        log.info("Column store keeps up to {} rows ({} MB).", (long) maxChunks * chunkSize,
+                (long) maxChunks * chunkSize * ColumnChunk.BYTES_PER_ROW / (1024 * 1024));
+    }
+
+    // A quarter of the maximum heap, whether the chunks are on the heap or off it
+    private static long defaultMaxRows() {
+        return Runtime.getRuntime().maxMemory() / 4 / ColumnChunk.BYTES_PER_ROW;
+    }
+
+    /**
+     * Adds a DONE trade. Uses the fixed-point units the pipeline already computed where it can.
+     */
+    public void append(Trade trade) {
+        referenceData.intern(trade);
+        boolean buy = trade.getSideCode() == Side.BUY;
+        long quantityUnits = unitsOf(trade.getQuantityUnits(), trade.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        long priceUnits = unitsOf(trade.getPriceUnits(), trade.getPrice(), FixedPoint.PRICE_SCALE);
+        long notionalUnits = unitsOf(trade.getNotionalUsdUnits(), trade.getNotionalUsd(), FixedPoint.NOTIONAL_SCALE);
+        BigDecimal[] exact = null;
+        if (quantityUnits == FixedPoint.NOT_REPRESENTABLE || priceUnits == FixedPoint.NOT_REPRESENTABLE
+                || notionalUnits == FixedPoint.NOT_REPRESENTABLE) {
+            exact = new BigDecimal[]{trade.getQuantity(), trade.getPrice(), trade.getNotionalUsd()};
+        }
+        int tradeDay = trade.getTradeDate() == null ? NO_DAY : (int) trade.getTradeDate().toEpochDay();
+        long processedAt = trade.getTimeProcessed() == null ? 0 : trade.getTimeProcessed().toEpochMilli();
+        int instrument = trade.getInstrumentId();
+        int counterparty = trade.getCounterpartyId();
+        int currency = trade.getCurrencyId();
+
+        appendLock.lock();
+        try {
+            if (current == null || current.isFull()) {
+                current = new ColumnChunk(chunkSize, offHeap);
+                chunks.add(current);
+                if (chunks.size() > maxChunks) {
+                    // Oldest trades age out once the store is at its row limit
+                    evictedRows += chunks.remove(0).size();
+                }
+            }
+            current.append(instrument, counterparty, currency, tradeDay, buy,
+                    quantityUnits, priceUnits, notionalUnits, processedAt, exact);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Sums the measure per group over the trades matching the filter.
+     */
+    public AggregationResult aggregate(AnalyticsFilter filter, GroupBy groupBy, Measure measure) {
+        long started = System.nanoTime();
+        // 1. Fix what this query sees: the chunks and how many rows of each
+        List<ColumnChunk> snapshot = new ArrayList<>(chunks);
+        long rowsEvicted = evictedRows;
+        int[] limits = new int[snapshot.size()];
+        long rowsScanned = 0;
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = snapshot.get(i).size();
+            rowsScanned += limits[i];
+        }
+
+        // 2. Resolve filters to codes; a value never seen matches nothing
+        int instrument = code(instruments, filter.instrument());
+        int counterparty = code(counterparties, filter.counterparty());
+        int currency = code(currencies, filter.currency());
+        if (instrument == SymbolDictionary.NO_ID || counterparty == SymbolDictionary.NO_ID
+                || currency == SymbolDictionary.NO_ID) {
+            return new AggregationResult(groupBy, measure, 0, 0, rowsEvicted, elapsedMicros(started), Map.of());
+        }
+        int fromDay = filter.fromDate() == null ? Integer.MIN_VALUE + 1 : (int) filter.fromDate().toEpochDay();
+        int toDay = filter.toDate() == null ? Integer.MAX_VALUE : (int) filter.toDate().toEpochDay();
+
+        // 3. Dense group numbers: reference data ids, or the index among the days actually present
+        // (plus one slot for no date), so far-apart dates do not blow up the group count
+        int[] days = groupBy == GroupBy.TRADE_DATE ? daysPresent(snapshot, fromDay, toDay) : null;
+        int groups = switch (groupBy) {
+            case INSTRUMENT -> instruments.size();
+            case COUNTERPARTY -> counterparties.size();
+            case CURRENCY -> currencies.size();
+            case TRADE_DATE -> days.length + 1;
+        };
+        Scan scan = new Scan(instrument, counterparty, currency, fromDay, toDay, groupBy, measure, days, groups);
+
+        // 4. Scan chunks in parallel and merge
+        List<Integer> indexes = new ArrayList<>(limits.length);
+        for (int i = 0; i < limits.length; i++) {
+            indexes.add(i);
+        }
+        GroupSums sums = indexes.parallelStream()
+                .map(i -> scan.run(snapshot.get(i), limits[i]))
+                .reduce(GroupSums::merge)
+                .orElseGet(() -> new GroupSums(groups, measure.scale()));
+
+        Map<String, BigDecimal> labelled = new TreeMap<>();
+        for (int group = 0; group < sums.groups(); group++) {
+            if (sums.rows(group) > 0) {
+                labelled.put(label(groupBy, group, days, groups), sums.sum(group));
+            }
+        }
+        AggregationResult result = new AggregationResult(groupBy, measure, rowsScanned, sums.totalRows(),
+                rowsEvicted, elapsedMicros(started), labelled);
+        log.debug("Aggregated {} by {} over {} rows in {} us.", measure, groupBy, rowsScanned, result.elapsedMicros());
+        return result;
+    }
+
+    public ColumnStoreStats stats() {
+        long rows = 0;
+        long bytes = 0;
+        List<ColumnChunk> snapshot = new ArrayList<>(chunks);
+        for (ColumnChunk chunk : snapshot) {
+            rows += chunk.size();
+            bytes += chunk.bytes();
+        }
+        return new ColumnStoreStats(rows, evictedRows, snapshot.size(), bytes, offHeap,
+                instruments.size(), counterparties.size(), currencies.size());
+    }
+
+    // Sorted distinct trade days within [fromDay, toDay] across the chunks
+    private static int[] daysPresent(List<ColumnChunk> snapshot, int fromDay, int toDay) {
+        return snapshot.stream()
+                .flatMapToInt(chunk -> Arrays.stream(chunk.days()))
+                .filter(day -> day >= fromDay && day <= toDay)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private String label(GroupBy groupBy, int group, int[] days, int groups) {
+        return switch (groupBy) {
+            case INSTRUMENT -> instruments.symbol(group);
+            case COUNTERPARTY -> counterparties.symbol(group);
+            case CURRENCY -> currencies.symbol(group);
+            case TRADE_DATE -> group == groups - 1 ? NO_DATE_LABEL : LocalDate.ofEpochDay(days[group]).toString();
+        };
+    }
+
+    private static int code(SymbolDictionary dictionary, String value) {
+        return value == null ? ANY : dictionary.lookup(value);
+    }
+
+    private static long unitsOf(long units, BigDecimal value, int scale) {
+        // Units are only missing for trades that skipped the pipeline's conversion
+        return units != FixedPoint.NOT_REPRESENTABLE || value == null ? units : FixedPoint.toUnits(value, scale);
+    }
+
+    private static long elapsedMicros(long started) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+    }
+
+    /**
+     * One query's filters and grouping, applied to one chunk at a time.
+     */
+    private record Scan(int instrument, int counterparty, int currency, int fromDay, int toDay,
+                        GroupBy groupBy, Measure measure, int[] days, int groups) {
+
+        GroupSums run(ColumnChunk chunk, int limit) {
+            GroupSums sums = new GroupSums(groups, measure.scale());
+            boolean dateFiltered = fromDay != Integer.MIN_VALUE + 1 || toDay != Integer.MAX_VALUE;
+            if (dateFiltered && (chunk.maxDay() < fromDay || chunk.minDay() > toDay)) {
+                return sums;
+            }
+            for (int row = 0; row < limit; row++) {
+                if (instrument != ANY && chunk.instrument(row) != instrument
+                        || counterparty != ANY && chunk.counterparty(row) != counterparty
+                        || currency != ANY && chunk.currency(row) != currency) {
+                    continue;
+                }
+                int day = chunk.tradeDay(row);
+                if (dateFiltered && (day == NO_DAY || day < fromDay || day > toDay)) {
+                    continue;
+                }
+                int group = switch (groupBy) {
+                    case INSTRUMENT -> chunk.instrument(row);
+                    case COUNTERPARTY -> chunk.counterparty(row);
+                    case CURRENCY -> chunk.currency(row);
+                    case TRADE_DATE -> day == NO_DAY ? groups - 1 : Arrays.binarySearch(days, day);
+                };
+                if (group < 0 || group >= groups) {
+                    // A code or day that appeared after this query started
+                    continue;
+                }
+                addRow(sums, chunk, row, group);
+            }
+            return sums;
+        }
+
+        private void addRow(GroupSums sums, ColumnChunk chunk, int row, int group) {
+            boolean buy = chunk.isBuy(row);
+            long units = switch (measure) {
+                case TRADE_COUNT -> 1;
+                case NET_QUANTITY -> chunk.quantityUnits(row);
+                case NOTIONAL_USD, NET_NOTIONAL_USD -> chunk.notionalUnits(row);
+            };
+            boolean signed = measure == Measure.NET_QUANTITY || measure == Measure.NET_NOTIONAL_USD;
+            if (units != FixedPoint.NOT_REPRESENTABLE) {
+                sums.add(group, signed && !buy ? -units : units);
+                return;
+            }
+            BigDecimal value = chunk.exactValue(row,
+                    measure == Measure.NET_QUANTITY ? ColumnChunk.EXACT_QUANTITY : ColumnChunk.EXACT_NOTIONAL);
+            if (value == null) {
+                value = BigDecimal.ZERO;
+            }
+            sums.addExact(group, signed && !buy ? value.negate() : value);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.trade.tradeprocessing.archive;
+
+import com.trade.tradeprocessing.dedup.ScalableBloomFilter;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One immutable archive file: completed trades of a single trade date, sorted by id and written in
+ * deflate-compressed blocks. The header carries the segment's min/max indexes (id range, processed
+ * time range, and the distinct instruments, counterparties and statuses in it) plus a directory of
+ * blocks with their own id ranges, so a query can skip whole segments, then whole blocks, before
+ * anything is decompressed.
+ * <pre>
+ * magic, version, epoch day (or NO_DAY), rows, minId, maxId, minProcessedAt, maxProcessedAt,
+ * instruments, counterparties, statuses (count + UTF each),
+ * block count, then per block: rows, minId, maxId, compressed length, CRC32 of the compressed bytes
+ * [block bytes ...]
+ * </pre>
+ */
+final class ArchiveSegment {
+
+    static final String SUFFIX = ".tseg";
+    static final long NO_DAY = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x54534547; // "TSEG"
+    private static final int VERSION = 1;
+    private static final TradeFilter ALL = new TradeFilter(null, null, null, null, null);
+    private static final double CLIENT_ID_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path path;
+    private final long epochDay;
+    private final int rows;
+    private final long minId;
+    private final long maxId;
+    private final long minProcessedAt;
+    private final long maxProcessedAt;
+    private final Set<String> instruments;
+    private final Set<String> counterparties;
+    private final Set<String> statuses;
+    private final List<Block> blocks;
+    private final long headerBytes;
+    private final long fileBytes;
+    // In-memory bloom filter over the segment's clientTradeIds, built from the rows on first use
+    private volatile ScalableBloomFilter clientTradeIds;
+
+    private record Block(int rows, long minId, long maxId, int length, long crc, long offset) {
+    }
+
+    private ArchiveSegment(Path path, long epochDay, int rows, long minId, long maxId, long minProcessedAt,
+                           long maxProcessedAt, Set<String> instruments, Set<String> counterparties,
+                           Set<String> statuses, List<Block> blocks, long headerBytes, long fileBytes) {
+        this.path = path;
+        this.epochDay = epochDay;
+        this.rows = rows;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.minProcessedAt = minProcessedAt;
+        this.maxProcessedAt = maxProcessedAt;
+        this.instruments = instruments;
+        this.counterparties = counterparties;
+        this.statuses = statuses;
+        this.blocks = blocks;
+        this.headerBytes = headerBytes;
+        this.fileBytes = fileBytes;
+    }
+
+    /**
+     * Writes trades of one trade date, already sorted by id, to the given file and forces it to disk.
+     */
+    static ArchiveSegment write(Path file, List<Trade> trades, int blockRows) throws IOException {
+        long epochDay = trades.get(0).getTradeDate() == null ? NO_DAY : trades.get(0).getTradeDate().toEpochDay();
+        Set<String> instruments = new TreeSet<>();
+        Set<String> counterparties = new TreeSet<>();
+        Set<String> statuses = new TreeSet<>();
+        long minProcessedAt = Long.MAX_VALUE;
+        long maxProcessedAt = Long.MIN_VALUE;
+        for (Trade trade : trades) {
+            add(instruments, trade.getInstrument());
+            add(counterparties, trade.getCounterparty());
+            add(statuses, trade.getStatus());
+            long processedAt = trade.getTimeProcessed() == null ? 0 : trade.getTimeProcessed().toEpochMilli();
+            minProcessedAt = Math.min(minProcessedAt, processedAt);
+            maxProcessedAt = Math.max(maxProcessedAt, processedAt);
+        }
+
+        // 1. Compress the blocks in memory, so the header can list them
+        List<byte[]> compressed = new ArrayList<>();
+        List<Block> blocks = new ArrayList<>();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            for (int from = 0; from < trades.size(); from += blockRows) {
+                List<Trade> block = trades.subList(from, Math.min(trades.size(), from + blockRows));
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                deflater.reset();
+                try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+                    for (Trade trade : block) {
+                        TradeRowCodec.write(out, trade);
+                    }
+                }
+                byte[] data = bytes.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                compressed.add(data);
+                blocks.add(new Block(block.size(), block.get(0).getId(), block.get(block.size() - 1).getId(),
+                        data.length, crc.getValue(), 0));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        // 2. Header, then the blocks
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(epochDay);
+            out.writeInt(trades.size());
+            out.writeLong(trades.get(0).getId());
+            out.writeLong(trades.get(trades.size() - 1).getId());
+            out.writeLong(minProcessedAt);
+            out.writeLong(maxProcessedAt);
+            writeSet(out, instruments);
+            writeSet(out, counterparties);
+            writeSet(out, statuses);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeInt(block.rows());
+                out.writeLong(block.minId());
+                out.writeLong(block.maxId());
+                out.writeInt(block.length());
+                out.writeLong(block.crc());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(header.toByteArray()));
+            for (byte[] data : compressed) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        ArchiveSegment segment = open(file);
+        ScalableBloomFilter index = newClientTradeIdIndex(trades.size());
+        for (Trade trade : trades) {
+            if (trade.getClientTradeId() != null) {
+                index.add(trade.getClientTradeId());
+            }
+        }
+        segment.clientTradeIds = index;
+        return segment;
+    }
+
+    /**
+     * Reads just the header of an existing segment.
+     */
+    static ArchiveSegment open(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            long epochDay = in.readLong();
+            int rows = in.readInt();
+            long minId = in.readLong();
+            long maxId = in.readLong();
+            long minProcessedAt = in.readLong();
+            long maxProcessedAt = in.readLong();
+            Set<String> instruments = readSet(in);
+            Set<String> counterparties = readSet(in);
+            Set<String> statuses = readSet(in);
+            int blockCount = in.readInt();
+            long headerBytes = 4 + 4 + 8 + 4 + 8 + 8 + 8 + 8 + setBytes(instruments) + setBytes(counterparties)
+                    + setBytes(statuses) + 4 + blockCount * (4 + 8 + 8 + 4 + 8L);
+            List<Block> blocks = new ArrayList<>(blockCount);
+            long offset = headerBytes;
+            for (int i = 0; i < blockCount; i++) {
+                Block block = new Block(in.readInt(), in.readLong(), in.readLong(), in.readInt(), in.readLong(), offset);
+                blocks.add(block);
+                offset += block.length();
+            }
+            return new ArchiveSegment(file, epochDay, rows, minId, maxId, minProcessedAt, maxProcessedAt,
+                    instruments, counterparties, statuses, blocks, headerBytes, Files.size(file));
+        }
+    }
+
+    /**
+     * False when the header alone shows no trade after afterId can match the filter.
+     */
+    boolean mayContain(TradeFilter filter, Long afterId) {
+        if (afterId != null && maxId <= afterId) {
+            return false;
+        }
+        if (filter.fromDate() != null || filter.toDate() != null) {
+            if (epochDay == NO_DAY
+                    || filter.fromDate() != null && epochDay < filter.fromDate().toEpochDay()
+                    || filter.toDate() != null && epochDay > filter.toDate().toEpochDay()) {
+                return false;
+            }
+        }
+        return (filter.instrument() == null || instruments.contains(filter.instrument()))
+                && (filter.counterparty() == null || counterparties.contains(filter.counterparty()))
+                && (filter.status() == null || statuses.contains(filter.status()));
+    }
+
+    /**
+     * Hands every trade after afterId that matches the filter to the visitor, in id order,
+     * decompressing only the blocks whose id range reaches past afterId. Stops, returning false,
+     * as soon as the visitor returns false.
+     */
+    boolean scan(TradeFilter filter, Long afterId, Predicate<Trade> visitor) throws IOException {
+        if (!mayContain(filter, afterId)) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Block block : blocks) {
+                if (afterId != null && block.maxId() <= afterId) {
+                    continue;
+                }
+                ByteBuffer data = ByteBuffer.allocate(block.length());
+                while (data.hasRemaining()) {
+                    if (channel.read(data, block.offset() + data.position()) < 0) {
+                        throw new IOException("Truncated archive segment " + path);
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data.array());
+                if (crc.getValue() != block.crc()) {
+                    throw new IOException("Corrupt block at offset " + block.offset() + " in " + path);
+                }
+                try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data.array())))) {
+                    for (int row = 0; row < block.rows(); row++) {
+                        Trade trade = TradeRowCodec.read(in);
+                        if ((afterId == null || trade.getId() > afterId) && matches(filter, trade)
+                                && !visitor.test(trade)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ids of every trade in the segment.
+     */
+    List<Long> ids() throws IOException {
+        List<Long> ids = new ArrayList<>(rows);
+        scan(ALL, null, trade -> ids.add(trade.getId()));
+        return ids;
+    }
+
+    /**
+     * Hands every clientTradeId in the segment to the consumer, building the segment's id index on the way.
+     */
+    void forEachClientTradeId(Consumer<String> consumer) throws IOException {
+        ScalableBloomFilter index = newClientTradeIdIndex(rows);
+        scan(ALL, null, trade -> {
+            if (trade.getClientTradeId() != null) {
+                index.add(trade.getClientTradeId());
+                consumer.accept(trade.getClientTradeId());
+            }
+            return true;
+        });
+        clientTradeIds = index;
+    }
+
+    /**
+     * Whether a trade in the segment has the given clientTradeId. The id index rules out most
+     * segments without decompressing anything; only a positive reads the rows.
+     */
+    boolean containsClientTradeId(String clientTradeId) throws IOException {
+        ScalableBloomFilter index = clientTradeIds;
+        if (index == null) {
+            forEachClientTradeId(id -> {
+            });
+            index = clientTradeIds;
+        }
+        if (!index.mightContain(clientTradeId)) {
+            return false;
+        }
+        return !scan(ALL, null, trade -> !clientTradeId.equals(trade.getClientTradeId()));
+    }
+
+    private static ScalableBloomFilter newClientTradeIdIndex(int rows) {
+        return new ScalableBloomFilter(Math.max(rows, 1), CLIENT_ID_FALSE_POSITIVE_RATE);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    LocalDate tradeDate() {
+        return epochDay == NO_DAY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long minId() {
+        return minId;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    long fileBytes() {
+        return fileBytes;
+    }
+
+    private static boolean matches(TradeFilter filter, Trade trade) {
+        if (filter.instrument() != null && !filter.instrument().equals(trade.getInstrument())
+                || filter.status() != null && !filter.status().equals(trade.getStatus())
+                || filter.counterparty() != null && !filter.counterparty().equals(trade.getCounterparty())) {
+            return false;
+        }
+        LocalDate date = trade.getTradeDate();
+        if (filter.fromDate() != null && (date == null || date.isBefore(filter.fromDate()))) {
+            return false;
+        }
+        return filter.toDate() == null || date != null && !date.isAfter(filter.toDate());
+    }
+
+    private static void add(Set<String> set, String value) {
+        if (value != null) {
+            set.add(value);
+        }
+    }
+
+    private static void writeSet(DataOutputStream out, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readSet(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Set<String> values = new TreeSet<>();
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    // Bytes writeSet produced for these values
+    private static long setBytes(Set<String> values) {
+        long bytes = 4;
+        for (String value : values) {
+            bytes += 2 + modifiedUtf8Length(value);
+        }
+        return bytes;
+    }
+
+    private static int modifiedUtf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+}
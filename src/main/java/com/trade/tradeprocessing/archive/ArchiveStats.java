@@ -0,0 +1,20 @@
+package com.trade.tradeprocessing.archive;
+
+import java.time.LocalDate;
+
+/**
+ * What the archive holds, and what the archiver has moved out of the trades table since startup.
+ * bytesPerRow is the compressed size on disk; oldest and newest are trade dates (null when none are dated).
+ */
+public record ArchiveStats(int segments,
+                           int partitions,
+                           long rows,
+                           long bytes,
+                           double bytesPerRow,
+                           LocalDate oldestTradeDate,
+                           LocalDate newestTradeDate,
+                           long archivedSinceStart,
+                           long lastRunRows,
+                           long lastRunMillis,
+                           int pendingSegments) {
+}
@@ -0,0 +1,264 @@
+package com.trade.tradeprocessing.archive;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for completed trades: immutable segment files under {@code <dir>/<trade date>/}, one
+ * directory per trade date ({@code undated} for trades without one). The catalog of segments is
+ * an immutable list sorted by first id, replaced whole when a segment is added, so readers never lock.
+ * <p>
+ * A segment is written to a {@code .tmp} file and forced to disk, then a {@code .pending} marker
+ * is created next to it before it is renamed into place. The marker stays until the archiver has
+ * deleted the segment's rows from the trades table, so a crash in between is finished at startup.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.archive.enabled", havingValue = "true")
+public class TradeArchive {
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final String UNDATED = "undated";
+
+    private final Logger log = LoggerFactory.getLogger(TradeArchive.class);
+    private final Path directory;
+    private final int blockRows;
+    private final Object writeLock = new Object();
+    private volatile List<ArchiveSegment> segments = List.of();
+
+    private final AtomicLong archivedSinceStart = new AtomicLong();
+    private volatile long lastRunRows;
+    private volatile long lastRunMillis;
+
+    public TradeArchive(@Value("${trades.archive.dir:archive}") String directory,
+                        @Value("${trades.archive.block-rows:4096}") int blockRows) {
+        this.directory = Paths.get(directory);
+        this.blockRows = blockRows;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<ArchiveSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    // Never made it into place
+                    Files.delete(file);
+                } else if (name.endsWith(PENDING_SUFFIX) && !Files.exists(segmentFor(file))) {
+                    Files.delete(file);
+                } else if (name.endsWith(ArchiveSegment.SUFFIX)) {
+                    loaded.add(ArchiveSegment.open(file));
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(ArchiveSegment::minId));
+        segments = List.copyOf(loaded);
+        log.info("Opened trade archive in {}: {} segments, {} trades.", directory.toAbsolutePath(),
+                loaded.size(), loaded.stream().mapToLong(ArchiveSegment::rows).sum());
+    }
+
+    /**
+     * Writes trades of one trade date, sorted by id, as a new segment and adds it to the catalog.
+     * The segment stays pending until {@link #complete(ArchiveSegment)}.
+     */
+    ArchiveSegment append(List<Trade> trades) throws IOException {
+        LocalDate tradeDate = trades.get(0).getTradeDate();
+        Path partition = directory.resolve(tradeDate == null ? UNDATED : tradeDate.toString());
+        Files.createDirectories(partition);
+        String name = "seg-" + trades.get(0).getId() + "-" + trades.get(trades.size() - 1).getId();
+        Path tmp = partition.resolve(name + TMP_SUFFIX);
+        Path file = partition.resolve(name + ArchiveSegment.SUFFIX);
+
+        ArchiveSegment.write(tmp, trades, blockRows);
+        Files.createFile(partition.resolve(name + PENDING_SUFFIX));
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        ArchiveSegment segment = ArchiveSegment.open(file);
+        synchronized (writeLock) {
+            List<ArchiveSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            updated.sort(Comparator.comparingLong(ArchiveSegment::minId));
+            segments = List.copyOf(updated);
+        }
+        return segment;
+    }
+
+    /**
+     * Marks the segment's rows as gone from the trades table.
+     */
+    void complete(ArchiveSegment segment) throws IOException {
+        Files.deleteIfExists(pendingMarker(segment));
+    }
+
+    /**
+     * Segments whose rows may still be in the trades table.
+     */
+    List<ArchiveSegment> pendingSegments() {
+        return segments.stream().filter(segment -> Files.exists(pendingMarker(segment))).toList();
+    }
+
+    void recordRun(long rows, long millis) {
+        archivedSinceStart.addAndGet(rows);
+        lastRunRows = rows;
+        lastRunMillis = millis;
+    }
+
+    /**
+     * Lowest archived trade id, or 0 when the archive is empty.
+     */
+    public long minId() {
+        List<ArchiveSegment> snapshot = segments;
+        return snapshot.isEmpty() ? 0 : snapshot.get(0).minId();
+    }
+
+    /**
+     * Highest archived trade id, or 0 when the archive is empty.
+     */
+    public long maxId() {
+        return segments.stream().mapToLong(ArchiveSegment::maxId).max().orElse(0);
+    }
+
+    /**
+     * Up to limit archived trades after afterId that match the filter, in id order.
+     * Segments are visited by first id, so once the page is full the first segment starting past
+     * its last id ends the search.
+     */
+    public List<Trade> findPage(TradeFilter filter, Long afterId, int limit) {
+        TreeMap<Long, Trade> page = new TreeMap<>();
+        for (ArchiveSegment segment : segments) {
+            if (page.size() == limit && segment.minId() > page.lastKey()) {
+                break;
+            }
+            try {
+                segment.scan(filter, afterId, trade -> {
+                    if (page.size() < limit) {
+                        page.put(trade.getId(), trade);
+                        return true;
+                    }
+                    if (trade.getId() > page.lastKey()) {
+                        // Ids only go up from here in this segment
+                        return false;
+                    }
+                    page.put(trade.getId(), trade);
+                    page.pollLastEntry();
+                    return true;
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new ArrayList<>(page.values());
+    }
+
+    /**
+     * Hands every archived trade with an id in [fromId, toId] that matches the filter to the consumer.
+     * In id order within a segment, but not across segments.
+     */
+    public void scanRange(TradeFilter filter, long fromId, long toId, Consumer<Trade> consumer) {
+        for (ArchiveSegment segment : segments) {
+            if (segment.minId() > toId) {
+                break;
+            }
+            if (segment.maxId() < fromId) {
+                continue;
+            }
+            try {
+                segment.scan(filter, fromId - 1, trade -> {
+                    if (trade.getId() > toId) {
+                        return false;
+                    }
+                    consumer.accept(trade);
+                    return true;
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Hands the clientTradeId of every archived trade to the consumer, e.g. to seed duplicate detection.
+     */
+    public void forEachClientTradeId(Consumer<String> consumer) {
+        for (ArchiveSegment segment : segments) {
+            try {
+                segment.forEachClientTradeId(consumer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Whether an archived trade has the given clientTradeId. Each segment keeps an in-memory bloom
+     * filter of its ids, so only segments that may hold it are read.
+     */
+    public boolean containsClientTradeId(String clientTradeId) {
+        for (ArchiveSegment segment : segments) {
+            try {
+                if (segment.containsClientTradeId(clientTradeId)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return false;
+    }
+
+    public ArchiveStats stats() {
+        List<ArchiveSegment> snapshot = segments;
+        long rows = 0;
+        long bytes = 0;
+        Set<LocalDate> partitions = new HashSet<>();
+        LocalDate oldest = null;
+        LocalDate newest = null;
+        for (ArchiveSegment segment : snapshot) {
+            rows += segment.rows();
+            bytes += segment.fileBytes();
+            LocalDate date = segment.tradeDate();
+            partitions.add(date);
+            if (date != null) {
+                oldest = oldest == null || date.isBefore(oldest) ? date : oldest;
+                newest = newest == null || date.isAfter(newest) ? date : newest;
+            }
+        }
+        return new ArchiveStats(snapshot.size(), partitions.size(), rows, bytes,
+                rows == 0 ? 0 : (double) bytes / rows, oldest, newest,
+                archivedSinceStart.get(), lastRunRows, lastRunMillis, pendingSegments().size());
+    }
+
+    private static Path pendingMarker(ArchiveSegment segment) {
+        String name = segment.path().getFileName().toString();
+        return segment.path().resolveSibling(name.substring(0, name.length() - ArchiveSegment.SUFFIX.length()) + PENDING_SUFFIX);
+    }
+
+    private static Path segmentFor(Path pendingMarker) {
+        String name = pendingMarker.getFileName().toString();
+        return pendingMarker.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()) + ArchiveSegment.SUFFIX);
+    }
+}
@@ -0,0 +1,174 @@
+package com.trade.tradeprocessing.archive;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves DONE and FAILED trades older than the minimum age from the trades table into the
+ * {@link TradeArchive}, on its own thread so neither the pipeline workers nor the shared
+ * scheduler wait on it. Each run drains the backlog in batches: select by id, write one segment
+ * per trade date, then delete the rows. Readers see an archived trade in both tiers for a moment,
+ * never in neither.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.archive.enabled", havingValue = "true")
+public class TradeArchiver {
+
+    private static final String SELECT_JPQL =
+            "select t from Trade t where t.status in :statuses and t.timeProcessed < :cutoff order by t.id";
+    private static final String DELETE_SQL = "delete from trades where id = ?";
+    private static final String SEQUENCE_SQL =
+            "select base_value from information_schema.sequences where sequence_name = 'TRADES_SEQ'";
+    // Trade.id's sequence allocationSize: the pooled optimizer hands out the block below each value it reads
+    private static final int ID_BLOCK = 500;
+    private static final int DELETE_BATCH = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(TradeArchiver.class);
+    private final TradeArchive tradeArchive;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long minAgeSeconds;
+    private final long intervalMs;
+    private final int batchSize;
+    private ScheduledExecutorService runner;
+
+    public TradeArchiver(TradeArchive tradeArchive,
+                         EntityManager entityManager,
+                         JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${trades.archive.min-age-seconds:3600}") long minAgeSeconds,
+                         @Value("${trades.archive.interval-ms:60000}") long intervalMs,
+                         @Value("${trades.archive.batch-size:100000}") int batchSize) {
+        this.tradeArchive = tradeArchive;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minAgeSeconds = minAgeSeconds;
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+    }
+
+    // Before anything is saved: finish interrupted runs and keep new ids clear of archived ones
+    @PostConstruct
+    public void start() throws IOException {
+        for (ArchiveSegment segment : tradeArchive.pendingSegments()) {
+            deleteRows(segment.ids());
+            tradeArchive.complete(segment);
+            log.info("Completed interrupted archive segment {}.", segment.path());
+        }
+        advanceIdSequence(tradeArchive.maxId());
+
+        runner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Trade-Archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        runner.scheduleWithFixedDelay(this::run, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        runner.shutdown();
+        runner.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Archives everything that is old enough, batch by batch. Returns the number of trades moved.
+     */
+    public long archiveNow() throws IOException {
+        long started = System.nanoTime();
+        long moved = 0;
+        int selected;
+        do {
+            Instant cutoff = Instant.now().minusSeconds(minAgeSeconds);
+            List<Trade> trades = readOnlyTransaction.execute(status -> entityManager.createQuery(SELECT_JPQL, Trade.class)
+                    .setParameter("statuses", List.of(Status.Done, Status.Failed))
+                    .setParameter("cutoff", cutoff)
+                    .setMaxResults(batchSize)
+                    .getResultList());
+            selected = trades.size();
+            moved += archive(trades);
+        } while (selected == batchSize && !runner.isShutdown());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        tradeArchive.recordRun(moved, elapsedMillis);
+        if (moved > 0) {
+            log.info("Archived {} trades in {} ms.", moved, elapsedMillis);
+        }
+        return moved;
+    }
+
+    private void run() {
+        try {
+            archiveNow();
+        } catch (IOException | DataAccessException e) {
+            // Rows stay in the trades table; the next run tries again
+            log.error("Trade archiving failed.", e);
+        }
+    }
+
+    private long archive(List<Trade> trades) throws IOException {
+        // Already in id order, so each date's list is too
+        Map<LocalDate, List<Trade>> byDate = new LinkedHashMap<>();
+        for (Trade trade : trades) {
+            byDate.computeIfAbsent(trade.getTradeDate(), date -> new ArrayList<>()).add(trade);
+        }
+        long moved = 0;
+        for (List<Trade> partition : byDate.values()) {
+            ArchiveSegment segment = tradeArchive.append(partition);
+            deleteRows(partition.stream().map(Trade::getId).toList());
+            tradeArchive.complete(segment);
+            moved += partition.size();
+        }
+        return moved;
+    }
+
+    private void deleteRows(List<Long> ids) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(DELETE_SQL, ids, DELETE_BATCH, (statement, id) -> statement.setLong(1, id)));
+    }
+
+    /**
+     * With an in-memory database the sequence starts again at 1 after a restart, so it is moved
+     * past the archived ids before anything is saved.
+     */
+    private void advanceIdSequence(long maxArchivedId) {
+        if (maxArchivedId == 0) {
+            return;
+        }
+        try {
+            Long next = jdbcTemplate.queryForObject(SEQUENCE_SQL, Long.class);
+            if (next != null && next - ID_BLOCK <= maxArchivedId) {
+                jdbcTemplate.execute("alter sequence trades_seq restart with " + (maxArchivedId + ID_BLOCK + 1));
+                log.info("Moved trade id sequence past the last archived id {}.", maxArchivedId);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not check the trade id sequence against the archive.", e);
+        }
+    }
+}
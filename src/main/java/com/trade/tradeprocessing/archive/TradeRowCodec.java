@@ -0,0 +1,120 @@
+package com.trade.tradeprocessing.archive;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One archived trade as a row inside a segment block:
+ * <pre>
+ * id, tradeDate (epoch day), createdAt (epoch second, nanos), timeProcessed (epoch second, nanos),
+ * clientTradeId, instrument, side, currency, counterparty, status, quantity, price, notionalUsd
+ * </pre>
+ * Strings are a presence byte plus modified UTF-8. Decimals are a tag byte, then either fixed-point
+ * units at the field's scale or, for values with no long form, their text.
+ */
+final class TradeRowCodec {
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final byte DECIMAL_NULL = 0;
+    private static final byte DECIMAL_UNITS = 1;
+    private static final byte DECIMAL_TEXT = 2;
+
+    private TradeRowCodec() {
+    }
+
+    static void write(DataOutput out, Trade trade) throws IOException {
+        out.writeLong(trade.getId());
+        out.writeLong(trade.getTradeDate() == null ? NO_VALUE : trade.getTradeDate().toEpochDay());
+        writeInstant(out, trade.getCreatedAt());
+        writeInstant(out, trade.getTimeProcessed());
+        writeString(out, trade.getClientTradeId());
+        writeString(out, trade.getInstrument());
+        writeString(out, trade.getSide());
+        writeString(out, trade.getCurrency());
+        writeString(out, trade.getCounterparty());
+        writeString(out, trade.getStatus());
+        writeDecimal(out, trade.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        writeDecimal(out, trade.getPrice(), FixedPoint.PRICE_SCALE);
+        writeDecimal(out, trade.getNotionalUsd(), FixedPoint.NOTIONAL_SCALE);
+    }
+
+    static Trade read(DataInput in) throws IOException {
+        Trade trade = new Trade();
+        trade.setId(in.readLong());
+        long epochDay = in.readLong();
+        trade.setTradeDate(epochDay == NO_VALUE ? null : LocalDate.ofEpochDay(epochDay));
+        trade.setCreatedAt(readInstant(in));
+        trade.setTimeProcessed(readInstant(in));
+        trade.setClientTradeId(readString(in));
+        trade.setInstrument(readString(in));
+        trade.setSide(readString(in));
+        trade.setCurrency(readString(in));
+        trade.setCounterparty(readString(in));
+        trade.setStatus(readString(in));
+        trade.setQuantity(readDecimal(in, FixedPoint.QUANTITY_SCALE));
+        trade.setPrice(readDecimal(in, FixedPoint.PRICE_SCALE));
+        trade.setNotionalUsd(readDecimal(in, FixedPoint.NOTIONAL_SCALE));
+        return trade;
+    }
+
+    private static void writeInstant(DataOutput out, Instant instant) throws IOException {
+        out.writeLong(instant == null ? NO_VALUE : instant.getEpochSecond());
+        out.writeInt(instant == null ? 0 : instant.getNano());
+    }
+
+    private static Instant readInstant(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return seconds == NO_VALUE ? null : Instant.ofEpochSecond(seconds, nanos);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value, int scale) throws IOException {
+        if (value == null) {
+            out.writeByte(DECIMAL_NULL);
+            return;
+        }
+        long units = FixedPoint.toUnits(value, scale);
+        // Only exact when the value has no more decimals than the scale
+        if (units != FixedPoint.NOT_REPRESENTABLE && value.scale() <= scale) {
+            out.writeByte(DECIMAL_UNITS);
+            out.writeLong(units);
+            out.writeByte(value.scale());
+        } else {
+            out.writeByte(DECIMAL_TEXT);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in, int scale) throws IOException {
+        byte tag = in.readByte();
+        if (tag == DECIMAL_NULL) {
+            return null;
+        }
+        if (tag == DECIMAL_UNITS) {
+            long units = in.readLong();
+            int valueScale = in.readByte();
+            // Back to the scale the value was stored with, so it reads back exactly as it was served
+            return FixedPoint.toBigDecimal(units, scale).setScale(valueScale);
+        }
+        return new BigDecimal(in.readUTF());
+    }
+}
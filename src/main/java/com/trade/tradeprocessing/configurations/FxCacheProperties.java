@@ -0,0 +1,40 @@
+package com.trade.tradeprocessing.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FX rate cache settings (marketdata.fx.*). TTL is when a quote is due for refresh,
+ * max staleness is when it is no longer used for enrichment. Both can be overridden per pair.
+ * Configured pairs are always kept warm; pairs picked up from cache misses are capped at
+ * maxTrackedPairs and dropped once nobody has asked for them for trackedPairIdleMs.
+ */
+@ConfigurationProperties(prefix = "marketdata.fx")
+public record FxCacheProperties(List<String> pairs,
+                                long refreshIntervalMs,
+                                long defaultTtlMs,
+                                long defaultMaxStalenessMs,
+                                Map<String, Long> ttlMs,
+                                Map<String, Long> maxStalenessMs,
+                                int maxTrackedPairs,
+                                long trackedPairIdleMs) {
+
+    public FxCacheProperties {
+        pairs = pairs == null ? List.of() : pairs;
+        refreshIntervalMs = refreshIntervalMs <= 0 ? 100 : refreshIntervalMs;
+        maxTrackedPairs = maxTrackedPairs <= 0 ? 64 : maxTrackedPairs;
+        trackedPairIdleMs = trackedPairIdleMs <= 0 ? 60_000 : trackedPairIdleMs;
+        ttlMs = ttlMs == null ? Map.of() : ttlMs;
+        maxStalenessMs = maxStalenessMs == null ? Map.of() : maxStalenessMs;
+    }
+
+    public long ttlFor(String currencyPair) {
+        return ttlMs.getOrDefault(currencyPair, defaultTtlMs);
+    }
+
+    public long maxStalenessFor(String currencyPair) {
+        return maxStalenessMs.getOrDefault(currencyPair, defaultMaxStalenessMs);
+    }
+}
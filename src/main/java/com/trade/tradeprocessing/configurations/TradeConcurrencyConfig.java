@@ -1,8 +1,15 @@
 package com.trade.tradeprocessing.configurations;
 
 import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.QueueTradePublisher;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.pipeline.lanes.PriorityLaneQueue;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -14,21 +21,80 @@ public class TradeConcurrencyConfig {
 
     // 1. Thread-Safe Queue (The Buffer)
     @Bean
-    public BlockingQueue<Trade> tradeQueue() {
+    @ConditionalOnProperty(name = "trades.lanes.enabled", havingValue = "false", matchIfMissing = true)
+    public BlockingQueue<Trade> tradeQueue(@Value("${trades.queue.capacity:1000}") int capacity) {
         // LinkedBlockingQueue is a good choice for a FIFO queue
-        // Capacity can be set here, e.g., 1000, to prevent unbounded memory growth.
-        return new LinkedBlockingQueue<>(1000);
+        // Bounded capacity prevents unbounded memory growth.
+        return new LinkedBlockingQueue<>(capacity);
+    }
+
+    // 1a. Priority lanes in place of the single FIFO, for trades.lanes.enabled=true
+    @Bean
+    @ConditionalOnProperty(name = "trades.lanes.enabled", havingValue = "true")
+    public PriorityLaneQueue priorityLaneQueue(TradeLaneProperties tradeLaneProperties, ReferenceData referenceData) {
+        return new PriorityLaneQueue(tradeLaneProperties.definitions(), referenceData);
+    }
+
+    // 1b. Producers publish through this; other pipeline modes register their own TradePublisher
+    @Bean
+    @ConditionalOnProperty(name = "trades.pipeline.mode", havingValue = "queue", matchIfMissing = true)
+    public TradePublisher queueTradePublisher(BlockingQueue<Trade> tradeQueue) {
+        return new QueueTradePublisher(tradeQueue);
     }
 
     // 2. Thread Pool (The Workers)
     @Bean
-    public TaskExecutor tradeProcessingExecutor() {
+    public TaskExecutor tradeProcessingExecutor(@Value("${trades.executor.mode:platform}") String executorMode,
+                                                @Value("${trades.consumers:5}") int consumers,
+                                                @Value("${trades.executor.max-pool-size:10}") int maxPoolSize) {
+        if ("virtual".equals(executorMode)) {
+            // One new virtual thread per task; concurrency is bounded by TradeProcessingService, not by a pool
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Trade-Processor-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5); // Number of permanent worker threads
-        executor.setMaxPoolSize(10); // Max number of threads it can scale to
+        executor.setCorePoolSize(consumers); // Number of permanent worker threads
+        executor.setMaxPoolSize(Math.max(maxPoolSize, consumers + 1)); // Max number of threads it can scale to
         executor.setQueueCapacity(0); // We use our dedicated BlockingQueue, so set this to 0
         executor.setThreadNamePrefix("Trade-Processor-");
         executor.initialize();
         return executor;
     }
+
+    // 3. Executor behind @Async in MarketDataService, following the same platform/virtual switch
+    @Bean
+    public TaskExecutor marketDataExecutor(@Value("${trades.executor.mode:platform}") String executorMode,
+                                           @Value("${trades.executor.max-concurrency:64}") int maxConcurrency) {
+        if ("virtual".equals(executorMode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Market-Data-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxConcurrency);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("Market-Data-");
+        executor.initialize();
+        return executor;
+    }
+
+    // 4. Executor that resumes trades after an async FX fetch; its queue is bounded by the enricher's in-flight limit
+    @Bean
+    public TaskExecutor enrichmentCompletionExecutor(@Value("${trades.executor.mode:platform}") String executorMode,
+                                                     @Value("${trades.enrichment.async.completion-threads:2}") int threads) {
+        if ("virtual".equals(executorMode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Fx-Completion-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("Fx-Completion-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,38 @@
+package com.trade.tradeprocessing.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Priority lane settings (trades.lanes.*), in priority order. A trade goes to the first lane it
+ * matches; the last lane should have no criteria, so it takes everything else.
+ */
+@ConfigurationProperties(prefix = "trades.lanes")
+public record TradeLaneProperties(boolean enabled, List<Lane> definitions) {
+
+    public TradeLaneProperties {
+        definitions = definitions == null ? List.of() : definitions;
+    }
+
+    /**
+     * One lane. A trade matches if quantity × price is at least minNotional, or its counterparty
+     * or instrument is listed; a lane with none of these matches every trade. Weight is the lane's
+     * share of dequeues while several lanes are backlogged; capacity bounds it on its own.
+     */
+    public record Lane(String name,
+                       int weight,
+                       int capacity,
+                       BigDecimal minNotional,
+                       List<String> counterparties,
+                       List<String> instruments) {
+
+        public Lane {
+            weight = Math.max(1, weight);
+            capacity = capacity > 0 ? capacity : 1000;
+            counterparties = counterparties == null ? List.of() : counterparties;
+            instruments = instruments == null ? List.of() : instruments;
+        }
+    }
+}
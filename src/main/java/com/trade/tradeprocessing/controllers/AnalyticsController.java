@@ -0,0 +1,55 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.trade.tradeprocessing.analytics.AggregationResult;
+import com.trade.tradeprocessing.analytics.AnalyticsFilter;
+import com.trade.tradeprocessing.analytics.ColumnStoreStats;
+import com.trade.tradeprocessing.analytics.GroupBy;
+import com.trade.tradeprocessing.analytics.Measure;
+import com.trade.tradeprocessing.analytics.TradeColumnStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+public class AnalyticsController {
+
+    private ObjectProvider<TradeColumnStore> tradeColumnStore;
+
+    public AnalyticsController(ObjectProvider<TradeColumnStore> tradeColumnStore) {
+        this.tradeColumnStore = tradeColumnStore;
+    }
+
+    /**
+     * Group-by sum over DONE trades, e.g. ?groupBy=COUNTERPARTY&measure=NOTIONAL_USD
+     * or ?groupBy=INSTRUMENT&measure=NET_QUANTITY&fromDate=2025-01-01&toDate=2025-01-31.
+     */
+    @GetMapping("/analytics/aggregate")
+    public ResponseEntity<AggregationResult> aggregate(@RequestParam GroupBy groupBy,
+                                                       @RequestParam Measure measure,
+                                                       @RequestParam(required = false) String instrument,
+                                                       @RequestParam(required = false) String counterparty,
+                                                       @RequestParam(required = false) String currency,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        TradeColumnStore store = tradeColumnStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.notFound().build();
+        }
+        AnalyticsFilter filter = new AnalyticsFilter(instrument, counterparty, currency, fromDate, toDate);
+        return ResponseEntity.ok(store.aggregate(filter, groupBy, measure));
+    }
+
+    @GetMapping("/analytics/stats")
+    public ResponseEntity<ColumnStoreStats> stats() {
+        TradeColumnStore store = tradeColumnStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(store.stats());
+    }
+}
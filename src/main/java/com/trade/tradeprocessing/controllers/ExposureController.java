@@ -0,0 +1,56 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.trade.tradeprocessing.analytics.Exposure;
+import com.trade.tradeprocessing.analytics.ExposureCube;
+import com.trade.tradeprocessing.analytics.ExposureDimension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class ExposureController {
+
+    private ObjectProvider<ExposureCube> exposureCube;
+
+    public ExposureController(ObjectProvider<ExposureCube> exposureCube) {
+        this.exposureCube = exposureCube;
+    }
+
+    /**
+     * One slice of the cube, e.g. ?counterparty=Citibank or ?instrument=AAPL&currency=EUR.
+     * Dimensions left out are rolled up; no parameters gives the grand total.
+     */
+    @GetMapping("/exposures")
+    public ResponseEntity<Exposure> getExposure(@RequestParam(required = false) String instrument,
+                                                @RequestParam(required = false) String counterparty,
+                                                @RequestParam(required = false) String currency) {
+        ExposureCube cube = exposureCube.getIfAvailable();
+        if (cube == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(cube.exposure(instrument, counterparty, currency));
+    }
+
+    /**
+     * A slice split by one more dimension, e.g. ?by=COUNTERPARTY&instrument=AAPL.
+     */
+    @GetMapping("/exposures/breakdown")
+    public ResponseEntity<List<Exposure>> getBreakdown(@RequestParam ExposureDimension by,
+                                                       @RequestParam(required = false) String instrument,
+                                                       @RequestParam(required = false) String counterparty,
+                                                       @RequestParam(required = false) String currency) {
+        ExposureCube cube = exposureCube.getIfAvailable();
+        if (cube == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(cube.breakdown(by, instrument, counterparty, currency));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.trade.tradeprocessing.controllers;
+
+/**
+ * Per-request outcome of a bulk or streaming submission. Records are consumed in order:
+ * when the pipeline fills up, ingestion stops and resumeFrom is the index to resend from.
+ * Duplicates are trades whose clientTradeId was already accepted; they are skipped, not rejected.
+ * Rejected counts records before resumeFrom that can never be accepted as sent. Records from
+ * resumeFrom on, including the one that found the pipeline full, are not counted anywhere.
+ */
+public record IngestResponse(int accepted, int duplicates, int rejected, int resumeFrom, String error) {
+}
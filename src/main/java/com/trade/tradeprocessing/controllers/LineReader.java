@@ -0,0 +1,88 @@
+package com.trade.tradeprocessing.controllers;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads lines like {@link java.io.BufferedReader#readLine()}, ending them at \n, \r or \r\n, but
+ * never holds more than maxChars of one line in memory. The rest of a longer line is read past
+ * and dropped, and the line comes back empty with {@link #lastLineTooLong()} set.
+ */
+final class LineReader {
+
+    private final Reader in;
+    private final int maxChars;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    // The last line ended at \r, so a \n straight after it belongs to the same terminator
+    private boolean skipLineFeed;
+    private boolean tooLong;
+
+    LineReader(Reader in, int maxChars) {
+        this.in = in;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * The next line without its terminator, or null at the end of input.
+     */
+    String readLine() throws IOException {
+        line.setLength(0);
+        tooLong = false;
+        while (true) {
+            if (position == limit) {
+                limit = Math.max(0, in.read(buffer, 0, buffer.length));
+                position = 0;
+                if (limit == 0) {
+                    return line.length() > 0 || tooLong ? finish() : null;
+                }
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                position++;
+            }
+            append(start, position);
+            if (position < limit) {
+                skipLineFeed = buffer[position] == '\r';
+                position++;
+                return finish();
+            }
+        }
+    }
+
+    boolean lastLineTooLong() {
+        return tooLong;
+    }
+
+    /**
+     * Whether the next read would not block, as for {@link Reader#ready()}.
+     */
+    boolean ready() throws IOException {
+        return position < limit || in.ready();
+    }
+
+    private void append(int start, int end) {
+        if (tooLong) {
+            return;
+        }
+        if (line.length() + (end - start) > maxChars) {
+            tooLong = true;
+            line.setLength(0);
+            return;
+        }
+        line.append(buffer, start, end - start);
+    }
+
+    private String finish() {
+        return tooLong ? "" : line.toString();
+    }
+}
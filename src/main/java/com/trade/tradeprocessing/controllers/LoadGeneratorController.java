@@ -0,0 +1,83 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.trade.tradeprocessing.loadgen.LoadGenerator;
+import com.trade.tradeprocessing.loadgen.LoadProfile;
+import com.trade.tradeprocessing.loadgen.LoadReport;
+import com.trade.tradeprocessing.loadgen.LoadSpec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Only available when running with trades.loadgen.enabled=true
+@RestController
+public class LoadGeneratorController {
+
+    private ObjectProvider<LoadGenerator> loadGenerator;
+
+    public LoadGeneratorController(ObjectProvider<LoadGenerator> loadGenerator) {
+        this.loadGenerator = loadGenerator;
+    }
+
+    /**
+     * Starts a run, e.g. ?profile=RAMP&rate=200000&baseRate=1000&durationSeconds=60&producers=8.
+     * Anything not given comes from the trades.loadgen.* properties.
+     */
+    @PostMapping("/loadgen/start")
+    public ResponseEntity<LoadSpec> start(@RequestParam(required = false) LoadProfile profile,
+                                          @RequestParam(required = false) Integer producers,
+                                          @RequestParam(required = false) Double rate,
+                                          @RequestParam(required = false) Double baseRate,
+                                          @RequestParam(required = false) Long durationSeconds,
+                                          @RequestParam(required = false) Double periodSeconds,
+                                          @RequestParam(required = false) Double instrumentSkew,
+                                          @RequestParam(required = false) Double counterpartySkew) {
+        LoadGenerator generator = loadGenerator.getIfAvailable();
+        if (generator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        LoadSpec defaults = generator.defaultSpec();
+        LoadSpec spec;
+        try {
+            spec = new LoadSpec(
+                    profile != null ? profile : defaults.profile(),
+                    producers != null ? producers : defaults.producers(),
+                    rate != null ? rate : defaults.rate(),
+                    baseRate != null ? baseRate : defaults.baseRate(),
+                    durationSeconds != null ? durationSeconds : defaults.durationSeconds(),
+                    periodSeconds != null ? periodSeconds : defaults.periodSeconds(),
+                    instrumentSkew != null ? instrumentSkew : defaults.instrumentSkew(),
+                    counterpartySkew != null ? counterpartySkew : defaults.counterpartySkew());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!generator.start(spec)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().body(spec);
+    }
+
+    @PostMapping("/loadgen/stop")
+    public ResponseEntity<Void> stop() {
+        LoadGenerator generator = loadGenerator.getIfAvailable();
+        if (generator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        generator.stop();
+        return ResponseEntity.accepted().build();
+    }
+
+    // Report of the last finished run; 204 while the first run is still going or none has been started
+    @GetMapping("/loadgen/report")
+    public ResponseEntity<LoadReport> report() {
+        LoadGenerator generator = loadGenerator.getIfAvailable();
+        if (generator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        LoadReport report = generator.lastReport();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+}
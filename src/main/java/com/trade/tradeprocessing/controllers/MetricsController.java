@@ -0,0 +1,21 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+
+    private PipelineMetrics pipelineMetrics;
+
+    public MetricsController(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    // Prometheus scrape endpoint
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return pipelineMetrics.toPrometheus();
+    }
+}
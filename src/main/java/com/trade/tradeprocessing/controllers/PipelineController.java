@@ -0,0 +1,75 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.trade.tradeprocessing.enrichment.AsyncFxEnricher;
+import com.trade.tradeprocessing.enrichment.EnrichmentStats;
+import com.trade.tradeprocessing.pipeline.adaptive.AdaptiveConcurrencyController;
+import com.trade.tradeprocessing.pipeline.adaptive.ConcurrencyStatus;
+import com.trade.tradeprocessing.pipeline.lanes.LaneStats;
+import com.trade.tradeprocessing.pipeline.lanes.PriorityLaneQueue;
+import com.trade.tradeprocessing.pipeline.partitioned.PartitionedTradePipeline;
+import com.trade.tradeprocessing.pipeline.partitioned.ShardStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class PipelineController {
+
+    private ObjectProvider<PartitionedTradePipeline> partitionedPipeline;
+    private ObjectProvider<AdaptiveConcurrencyController> concurrencyController;
+    private ObjectProvider<AsyncFxEnricher> asyncFxEnricher;
+    private ObjectProvider<PriorityLaneQueue> priorityLaneQueue;
+
+    public PipelineController(ObjectProvider<PartitionedTradePipeline> partitionedPipeline,
+                              ObjectProvider<AdaptiveConcurrencyController> concurrencyController,
+                              ObjectProvider<AsyncFxEnricher> asyncFxEnricher,
+                              ObjectProvider<PriorityLaneQueue> priorityLaneQueue) {
+        this.partitionedPipeline = partitionedPipeline;
+        this.concurrencyController = concurrencyController;
+        this.asyncFxEnricher = asyncFxEnricher;
+        this.priorityLaneQueue = priorityLaneQueue;
+    }
+
+    // Only available when running with trades.pipeline.mode=partitioned
+    @GetMapping("/pipeline/shards")
+    public ResponseEntity<List<ShardStats>> getShards() {
+        PartitionedTradePipeline pipeline = partitionedPipeline.getIfAvailable();
+        if (pipeline == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(pipeline.shardStats());
+    }
+
+    // Only available when running with trades.adaptive.enabled=true
+    @GetMapping("/pipeline/concurrency")
+    public ResponseEntity<ConcurrencyStatus> getConcurrency() {
+        AdaptiveConcurrencyController controller = concurrencyController.getIfAvailable();
+        if (controller == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(controller.status());
+    }
+
+    // Only available when running with trades.enrichment.async.enabled=true
+    @GetMapping("/pipeline/enrichment")
+    public ResponseEntity<EnrichmentStats> getEnrichment() {
+        AsyncFxEnricher enricher = asyncFxEnricher.getIfAvailable();
+        if (enricher == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(enricher.stats());
+    }
+
+    // Only available when running with trades.lanes.enabled=true; lanes in priority order with queue wait percentiles
+    @GetMapping("/pipeline/lanes")
+    public ResponseEntity<List<LaneStats>> getLanes() {
+        PriorityLaneQueue queue = priorityLaneQueue.getIfAvailable();
+        if (queue == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(queue.stats());
+    }
+}
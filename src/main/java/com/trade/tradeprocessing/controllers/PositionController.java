@@ -1,9 +1,22 @@
 package com.trade.tradeprocessing.controllers;
 
-import com.trade.tradeprocessing.models.Position;
+import com.trade.tradeprocessing.models.PositionDelta;
+import com.trade.tradeprocessing.models.PositionSnapshot;
+import com.trade.tradeprocessing.models.PositionView;
+import com.trade.tradeprocessing.reconciliation.PositionReconciler;
+import com.trade.tradeprocessing.reconciliation.ReconciliationReport;
 import com.trade.tradeprocessing.services.PositionService;
+import com.trade.tradeprocessing.services.PositionStreamService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -11,13 +24,74 @@ import java.util.List;
 public class PositionController {
 
     private PositionService positionService;
+    private PositionStreamService positionStreamService;
+    private PositionReconciler positionReconciler;
 
-    public PositionController(PositionService positionService) {
+    public PositionController(PositionService positionService, PositionStreamService positionStreamService,
+                              PositionReconciler positionReconciler) {
         this.positionService = positionService;
+        this.positionStreamService = positionStreamService;
+        this.positionReconciler = positionReconciler;
     }
 
+    /**
+     * Latest position snapshot, served from memory. The ETag is the snapshot version tagged with the
+     * boot epoch, so a poller sending If-None-Match gets a 304 until something changes or the service restarts.
+     */
     @GetMapping("/positions")
-    public List<Position> getPositions() {
-        return positionService.getAllPositionsFromDB();
+    public ResponseEntity<List<PositionView>> getPositions(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PositionSnapshot snapshot = positionService.snapshot();
+        String etag = etag(snapshot);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(snapshot.positions());
+    }
+
+    /**
+     * Only the positions that changed after the given {@code <epoch>-<version>}; pass the returned next
+     * as the next since. A since from before a restart gets every position.
+     */
+    @GetMapping(value = "/positions", params = "since")
+    public ResponseEntity<PositionDelta> getPositionsSince(
+            @RequestParam String since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PositionSnapshot snapshot = positionService.snapshot();
+        String etag = etag(snapshot);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(snapshot.changedSince(since));
+    }
+
+    // Server-sent "positions" events carrying a PositionDelta, at most maxRate per second per client
+    @GetMapping(value = "/positions/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPositions(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                      @RequestParam(required = false) Double maxRate) {
+        return positionStreamService.subscribe(lastEventId, maxRate);
+    }
+
+    /**
+     * Recomputes every position from the trades table and the archive, in parallel, and compares
+     * the result with the persisted positions. Fetch the outcome from GET /positions/reconcile.
+     */
+    @PostMapping("/positions/reconcile")
+    public ResponseEntity<Void> reconcile() {
+        if (!positionReconciler.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    // Report of the last finished reconciliation, with breaks per instrument; 204 if none has finished yet
+    @GetMapping("/positions/reconcile")
+    public ResponseEntity<ReconciliationReport> reconciliationReport() {
+        ReconciliationReport report = positionReconciler.lastReport();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    private static String etag(PositionSnapshot snapshot) {
+        return "\"" + snapshot.tag() + "\"";
     }
 }
@@ -1,38 +1,267 @@
 package com.trade.tradeprocessing.controllers;
 
-import com.trade.tradeprocessing.models.Status;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.trade.tradeprocessing.archive.ArchiveStats;
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.dedup.DedupStats;
+import com.trade.tradeprocessing.dedup.TradeDeduplicator;
 import com.trade.tradeprocessing.models.Trade;
-import com.trade.tradeprocessing.services.TradeService;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.trade.tradeprocessing.models.TradeFilter;
+import com.trade.tradeprocessing.models.TradePage;
+import com.trade.tradeprocessing.services.IngestBatch;
+import com.trade.tradeprocessing.services.IngestOutcome;
+import com.trade.tradeprocessing.services.TradeIngestService;
+import com.trade.tradeprocessing.services.TradeQueryService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 
 @RestController
 public class TradeController {
 
-    private TradeService tradeService;
+    // Seconds a client should wait before resending after the pipeline was full
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    // Longest NDJSON line kept in memory; a trade takes a few hundred characters
+    private static final int MAX_LINE_CHARS = 64 * 1024;
 
-    public TradeController(@Autowired TradeService tradeService) {
-        this.tradeService = tradeService;
+    private TradeIngestService tradeIngestService;
+    private TradeQueryService tradeQueryService;
+    private ObjectMapper objectMapper;
+    private ObjectProvider<TradeDeduplicator> tradeDeduplicator;
+    private ObjectProvider<TradeArchive> tradeArchive;
+
+    public TradeController(TradeIngestService tradeIngestService,
+                           TradeQueryService tradeQueryService,
+                           ObjectMapper objectMapper,
+                           ObjectProvider<TradeDeduplicator> tradeDeduplicator,
+                           ObjectProvider<TradeArchive> tradeArchive) {
+        this.tradeIngestService = tradeIngestService;
+        this.tradeQueryService = tradeQueryService;
+        this.objectMapper = objectMapper;
+        this.tradeDeduplicator = tradeDeduplicator;
+        this.tradeArchive = tradeArchive;
+    }
+
+    /**
+     * Every trade as one JSON array, as before, but streamed from a database cursor rather than
+     * loaded into a list first. Prefer /trades or /trades/stream for anything large.
+     */
+    @GetMapping(value = "/get", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<StreamingResponseBody> getTrades(){
+        ObjectWriter tradeWriter = objectMapper.writerFor(Trade.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            boolean[] first = {true};
+            out.write('[');
+            tradeQueryService.streamTrades(new TradeFilter(null, null, null, null, null), null, trade -> {
+                try {
+                    if (!first[0]) {
+                        out.write(',');
+                    }
+                    first[0] = false;
+                    tradeWriter.writeValue(out, trade);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.write(']');
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
-    @GetMapping("/get")
-    List<Trade> getTrades(){
-        return tradeService.getTrades();
+    /**
+     * Keyset-paginated trades ordered by id. Pass the returned nextCursor as afterId for the next page.
+     */
+    @GetMapping("/trades")
+    TradePage getTradePage(@RequestParam(required = false) Long afterId,
+                           @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                           @RequestParam(required = false) String instrument,
+                           @RequestParam(required = false) String status,
+                           @RequestParam(required = false) String counterparty,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        return tradeQueryService.findPage(new TradeFilter(instrument, status, counterparty, fromDate, toDate), afterId, limit);
+    }
+
+    /**
+     * Every matching trade as NDJSON, streamed from a database cursor with bounded memory.
+     */
+    @GetMapping(value = "/trades/stream", produces = NDJSON)
+    ResponseEntity<StreamingResponseBody> streamTrades(@RequestParam(required = false) Long afterId,
+                                                       @RequestParam(required = false) String instrument,
+                                                       @RequestParam(required = false) String status,
+                                                       @RequestParam(required = false) String counterparty,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        TradeFilter filter = new TradeFilter(instrument, status, counterparty, fromDate, toDate);
+        ObjectWriter tradeWriter = objectMapper.writerFor(Trade.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> tradeQueryService.streamTrades(filter, afterId, trade -> {
+            try {
+                tradeWriter.writeValue(out, trade);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @PostMapping("/postTrade")
     ResponseEntity<Void> postTrade(@RequestBody Trade trade){
-        trade.setStatus(Status.Queued);
-        // post trade
-        tradeService.postTrade(trade);
-        // send response
-        return new ResponseEntity<>(HttpStatus.CREATED);
+        // queue trade for processing
+        IngestOutcome outcome = tradeIngestService.trySubmit(trade);
+        if (outcome == IngestOutcome.QUEUE_FULL || outcome == IngestOutcome.CLOSED) {
+            return ResponseEntity.status(notQueuedStatus(outcome))
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        if (outcome == IngestOutcome.INVALID) {
+            return ResponseEntity.badRequest().build();
+        }
+        // send response; a retry of a trade already accepted gets 200 instead of 202, and is not queued again
+        return new ResponseEntity<>(outcome == IngestOutcome.DUPLICATE ? HttpStatus.OK : HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Accepts a JSON array of trades. The array is read element by element, never as a whole list,
+     * and submitted in batches that share one journal fsync.
+     * An element that is not a trade object stops ingestion with 400 and its index as resumeFrom.
+     * A trade that can never be accepted as sent is counted as rejected and skipped.
+     */
+    @PostMapping(value = "/trades/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<IngestResponse> postTradesBulk(InputStream body) throws IOException {
+        IngestBatch batch = tradeIngestService.newBatch();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return ResponseEntity.badRequest().body(new IngestResponse(0, 0, 0, 0, "Expected a JSON array of trades"));
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.START_OBJECT) {
+                    String found = token == null ? "end of input" : token.name();
+                    return badElement(batch, "Expected a trade object at index %d, found " + found);
+                }
+                batch.add(parser.readValueAs(Trade.class), batch.submitted() + batch.pending());
+                // Submit when the batch is full, or when reading on would wait for the client
+                if ((batch.isFull() || body.available() == 0) && !batch.submit()) {
+                    return notQueued(batch);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // A malformed element leaves the parser in an unknown position, so stop at the first one
+            return badElement(batch, "Malformed trade at index %d: " + e.getOriginalMessage());
+        }
+        if (!batch.submit()) {
+            return notQueued(batch);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response(batch, batch.submitted(), null));
+    }
+
+    // Submits what came before the bad element, which is rejected and becomes the resume point
+    private ResponseEntity<IngestResponse> badElement(IngestBatch batch, String error) {
+        if (!batch.submit()) {
+            return notQueued(batch);
+        }
+        int index = batch.submitted();
+        batch.reject();
+        return ResponseEntity.badRequest().body(response(batch, index, error.formatted(index)));
+    }
+
+    /**
+     * Accepts newline-delimited JSON, one trade per line, parsed as the body streams in and
+     * submitted in batches like /trades/bulk.
+     * Malformed lines, lines over MAX_LINE_CHARS, and trades that can never be accepted as sent,
+     * are counted as rejected and skipped. Blank lines are skipped but still counted, so
+     * resumeFrom is always the 0-based line number the client sent.
+     */
+    @PostMapping(value = "/trades/stream", consumes = NDJSON)
+    ResponseEntity<IngestResponse> postTradesStream(InputStream body) throws IOException {
+        ObjectReader tradeReader = objectMapper.readerFor(Trade.class);
+        IngestBatch batch = tradeIngestService.newBatch();
+        int index = 0;
+        try (Reader in = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            LineReader reader = new LineReader(in, MAX_LINE_CHARS);
+            String line;
+            for (; (line = reader.readLine()) != null; index++) {
+                if (reader.lastLineTooLong()) {
+                    batch.reject();
+                } else if (!line.isBlank()) {
+                    try {
+                        batch.add(tradeReader.readValue(line), index);
+                    } catch (JsonProcessingException e) {
+                        batch.reject();
+                    }
+                }
+                if ((batch.isFull() || !reader.ready()) && !batch.submit()) {
+                    return notQueued(batch);
+                }
+            }
+        }
+        if (!batch.submit()) {
+            return notQueued(batch);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response(batch, index, null));
+    }
+
+    private static IngestResponse response(IngestBatch batch, int resumeFrom, String error) {
+        return new IngestResponse(batch.accepted(), batch.duplicates(), batch.rejected(), resumeFrom, error);
+    }
+
+    private static ResponseEntity<IngestResponse> notQueued(IngestBatch batch) {
+        return ResponseEntity.status(notQueuedStatus(batch.stoppedBy()))
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(response(batch, batch.resumeFrom(), notQueuedError(batch.stoppedBy())));
+    }
+
+    // 429 while the pipeline is full, 503 while it drains for shutdown; either way the client can resend
+    private static HttpStatus notQueuedStatus(IngestOutcome outcome) {
+        return outcome == IngestOutcome.CLOSED ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private static String notQueuedError(IngestOutcome outcome) {
+        return outcome == IngestOutcome.CLOSED ? "Shutting down" : "Processing queue is full";
+    }
+
+    // Duplicate detection counters and the bloom filter's current size and estimated error rate
+    @GetMapping("/trades/dedup/stats")
+    ResponseEntity<DedupStats> getDedupStats() {
+        TradeDeduplicator deduplicator = tradeDeduplicator.getIfAvailable();
+        if (deduplicator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(deduplicator.stats());
+    }
+
+    // Segments, rows and bytes in the cold tier, and what the archiver has moved since startup
+    @GetMapping("/trades/archive/stats")
+    ResponseEntity<ArchiveStats> getArchiveStats() {
+        TradeArchive archive = tradeArchive.getIfAvailable();
+        if (archive == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(archive.stats());
     }
 }
@@ -0,0 +1,71 @@
+package com.trade.tradeprocessing.dedup;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size bloom filter over strings, sized for a capacity and false-positive rate. Bits are set
+ * with atomic ORs, so adds and lookups need no lock. The k bit positions come from two 64-bit
+ * hashes combined as h1 + i * h2 (Kirsch-Mitzenmacher).
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong added = new AtomicLong();
+
+    BloomFilter(long capacity, double falsePositiveRate) {
+        this.capacity = capacity;
+        long size = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.max(64, (size + 63) / 64 * 64);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.words = new AtomicLongArray((int) (bits / 64));
+    }
+
+    void add(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+        added.incrementAndGet();
+    }
+
+    boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isFull() {
+        return added.get() >= capacity;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    /**
+     * False-positive rate at the current fill: (fraction of bits set)^k. Walks the whole bit array.
+     */
+    double estimatedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashes);
+    }
+}
@@ -0,0 +1,23 @@
+package com.trade.tradeprocessing.dedup;
+
+/**
+ * Duplicate detection counters since startup. Only submissions with a clientTradeId are checked.
+ * archiveHits are duplicates found among archived trades rather than in the trades table.
+ * observedFalsePositiveRate is the share of new ids the bloom filter wrongly flagged (each cost a
+ * database lookup); estimatedFalsePositiveRate is what the filter's current fill predicts.
+ */
+public record DedupStats(long checked,
+                         long duplicates,
+                         long cacheHits,
+                         long databaseHits,
+                         long archiveHits,
+                         long bloomPositives,
+                         long falsePositives,
+                         long databaseLookups,
+                         double duplicateRate,
+                         double observedFalsePositiveRate,
+                         double estimatedFalsePositiveRate,
+                         int filterStages,
+                         long filterBits,
+                         int cachedIds) {
+}
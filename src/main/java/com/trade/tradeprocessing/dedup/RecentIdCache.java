@@ -0,0 +1,73 @@
+package com.trade.tradeprocessing.dedup;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Exact set of recently claimed ids, bounded by size and age. Claiming is atomic, so two
+ * concurrent submissions of the same id cannot both get through. Oldest claims are evicted first.
+ */
+final class RecentIdCache {
+
+    private final Map<String, Long> claimedAt = new ConcurrentHashMap<>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    RecentIdCache(int maxSize, long ttlNanos) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+    }
+
+    boolean contains(String id) {
+        Long at = claimedAt.get(id);
+        return at != null && !expired(at, System.nanoTime());
+    }
+
+    /**
+     * Records the id; returns false if it is already held by an unexpired claim.
+     */
+    boolean claim(String id) {
+        long now = System.nanoTime();
+        Long previous = claimedAt.putIfAbsent(id, now);
+        if (previous != null && (!expired(previous, now) || !claimedAt.replace(id, previous, now))) {
+            return false;
+        }
+        order.add(id);
+        evict(now);
+        return true;
+    }
+
+    // Gives the id back, e.g. when the trade could not be queued after all
+    void release(String id) {
+        claimedAt.remove(id);
+    }
+
+    int size() {
+        return claimedAt.size();
+    }
+
+    private void evict(long now) {
+        while (true) {
+            String oldest = order.peek();
+            if (oldest == null) {
+                return;
+            }
+            Long at = claimedAt.get(oldest);
+            boolean over = claimedAt.size() > maxSize;
+            if (at != null && !over && !expired(at, now)) {
+                return;
+            }
+            if (order.remove(oldest) && at != null) {
+                // Only if it was not re-claimed in the meantime
+                claimedAt.remove(oldest, at);
+            }
+        }
+    }
+
+    private boolean expired(long at, long now) {
+        return now - at > ttlNanos;
+    }
+}
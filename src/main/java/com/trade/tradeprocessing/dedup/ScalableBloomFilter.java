@@ -0,0 +1,98 @@
+package com.trade.tradeprocessing.dedup;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bloom filter that grows with its contents (Almeida et al.): when the newest stage reaches its
+ * capacity a new one is added with twice the capacity and half the false-positive rate, so the
+ * compound rate stays below the configured rate however many ids arrive. Lookups check every stage.
+ */
+public final class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<BloomFilter> stages = new CopyOnWriteArrayList<>();
+    private final double firstStageRate;
+    private volatile BloomFilter current;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        // The first stage gets half the budget, so the geometric series sums to the target rate
+        firstStageRate = falsePositiveRate * (1 - TIGHTENING);
+        current = new BloomFilter(initialCapacity, firstStageRate);
+        stages.add(current);
+    }
+
+    public void add(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        BloomFilter stage = current;
+        if (stage.isFull()) {
+            stage = grow(stage);
+        }
+        stage.add(h1, h2);
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (BloomFilter stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int stageCount() {
+        return stages.size();
+    }
+
+    long bits() {
+        long bits = 0;
+        for (BloomFilter stage : stages) {
+            bits += stage.bits();
+        }
+        return bits;
+    }
+
+    /**
+     * Chance that an id never added is reported as present, from how full each stage is.
+     */
+    double estimatedFalsePositiveRate() {
+        double allClear = 1;
+        for (BloomFilter stage : stages) {
+            allClear *= 1 - stage.estimatedFalsePositiveRate();
+        }
+        return 1 - allClear;
+    }
+
+    private synchronized BloomFilter grow(BloomFilter full) {
+        if (current == full) {
+            int n = stages.size();
+            current = new BloomFilter(full.capacity() * GROWTH, firstStageRate * Math.pow(TIGHTENING, n));
+            stages.add(current);
+        }
+        return current;
+    }
+
+    // 64-bit FNV-1a over the chars, then a murmur3 finaliser to spread the bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
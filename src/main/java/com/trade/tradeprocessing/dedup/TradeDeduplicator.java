@@ -0,0 +1,154 @@
+package com.trade.tradeprocessing.dedup;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.repositories.TradeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a clientTradeId has been seen before, in front of the pipeline.
+ * <ol>
+ *     <li>Bloom filter says no: the id is new. This is the common case and needs no lookup.</li>
+ *     <li>Bloom filter says maybe: the recent-id cache answers for anything submitted within its
+ *     size and age bounds, which covers trades still queued or not yet flushed to the database.</li>
+ *     <li>Not in the cache: the trades table decides, then the archive when it is enabled, since
+ *     archived trades are no longer in the table. If neither has the id, the bloom filter was
+ *     wrong (a false positive).</li>
+ * </ol>
+ * Every accepted id is claimed in the cache, which is what stops two concurrent retries of the same
+ * trade from both getting in.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.dedup.enabled", havingValue = "true", matchIfMissing = true)
+public class TradeDeduplicator {
+
+    private static final String IDS_SQL = "select client_trade_id from trades where client_trade_id is not null";
+
+    private final Logger log = LoggerFactory.getLogger(TradeDeduplicator.class);
+    private final TradeRepository tradeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<TradeJournal> tradeJournal;
+    // Null when trades.archive.enabled is off
+    private final TradeArchive tradeArchive;
+    private final ScalableBloomFilter filter;
+    private final RecentIdCache recent;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder archiveHits = new LongAdder();
+    private final LongAdder bloomPositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+
+    public TradeDeduplicator(TradeRepository tradeRepository,
+                             JdbcTemplate jdbcTemplate,
+                             ObjectProvider<TradeJournal> tradeJournal,
+                             ObjectProvider<TradeArchive> tradeArchive,
+                             @Value("${trades.dedup.initial-capacity:1000000}") long initialCapacity,
+                             @Value("${trades.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                             @Value("${trades.dedup.cache-size:100000}") int cacheSize,
+                             @Value("${trades.dedup.cache-ttl-seconds:600}") long cacheTtlSeconds) {
+        this.tradeRepository = tradeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tradeJournal = tradeJournal;
+        this.tradeArchive = tradeArchive.getIfAvailable();
+        this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        this.recent = new RecentIdCache(cacheSize, TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    // Rebuild the filter from the trades already stored or archived, plus any the journal is about to re-queue
+    @PostConstruct
+    public void rebuild() {
+        long started = System.nanoTime();
+        long[] loaded = new long[1];
+        jdbcTemplate.query(IDS_SQL, rs -> {
+            filter.add(rs.getString(1));
+            loaded[0]++;
+        });
+        if (tradeArchive != null) {
+            tradeArchive.forEachClientTradeId(clientTradeId -> {
+                filter.add(clientTradeId);
+                loaded[0]++;
+            });
+        }
+        TradeJournal journal = tradeJournal.getIfAvailable();
+        if (journal != null) {
+            for (Trade trade : journal.recoveredTrades()) {
+                if (trade.getClientTradeId() != null) {
+                    filter.add(trade.getClientTradeId());
+                    recent.claim(trade.getClientTradeId());
+                    loaded[0]++;
+                }
+            }
+        }
+        log.info("Dedup filter rebuilt from {} stored, archived and recovered client trade ids in {} ms.",
+                loaded[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Claims the id for a new trade. Returns false if it is a duplicate.
+     */
+    public boolean claim(String clientTradeId) {
+        checked.increment();
+        if (!filter.mightContain(clientTradeId)) {
+            filter.add(clientTradeId);
+            if (recent.claim(clientTradeId)) {
+                return true;
+            }
+            // Lost a race with a concurrent submission of the same id
+            cacheHits.increment();
+            return false;
+        }
+        bloomPositives.increment();
+        if (recent.contains(clientTradeId)) {
+            cacheHits.increment();
+            return false;
+        }
+        databaseLookups.increment();
+        if (tradeRepository.existsByClientTradeId(clientTradeId)) {
+            databaseHits.increment();
+            return false;
+        }
+        if (tradeArchive != null && tradeArchive.containsClientTradeId(clientTradeId)) {
+            archiveHits.increment();
+            return false;
+        }
+        if (!recent.claim(clientTradeId)) {
+            cacheHits.increment();
+            return false;
+        }
+        falsePositives.increment();
+        return true;
+    }
+
+    /**
+     * Undoes a claim for a trade that was not queued after all, so a retry is accepted.
+     * The id stays in the bloom filter; the retry costs one database (and archive) lookup.
+     */
+    public void release(String clientTradeId) {
+        recent.release(clientTradeId);
+    }
+
+    public DedupStats stats() {
+        long checks = checked.sum();
+        long duplicates = cacheHits.sum() + databaseHits.sum() + archiveHits.sum();
+        long fresh = checks - duplicates;
+        return new DedupStats(checks, duplicates, cacheHits.sum(), databaseHits.sum(), archiveHits.sum(), bloomPositives.sum(),
+                falsePositives.sum(), databaseLookups.sum(),
+                checks == 0 ? 0 : (double) duplicates / checks,
+                fresh == 0 ? 0 : (double) falsePositives.sum() / fresh,
+                filter.estimatedFalsePositiveRate(), filter.stageCount(), filter.bits(), recent.size());
+    }
+}
@@ -0,0 +1,234 @@
+package com.trade.tradeprocessing.enrichment;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.services.FxQuote;
+import com.trade.tradeprocessing.services.FxRateSource;
+import com.trade.tradeprocessing.services.MarketDataService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Enrichment for trades whose FX rate is not in the cache, without holding a worker while the rate
+ * is fetched. The worker hands the trade over with a continuation and moves on to the next one.
+ * <ol>
+ *     <li>Trades waiting on the same pair share one pending request.</li>
+ *     <li>Pairs requested within one batch window go to the rate source as a single batched fetch,
+ *     on the market data executor.</li>
+ *     <li>When the batch returns (or times out) the rates go into the cache and every waiting
+ *     continuation runs on the completion executor, with the quote or, on failure, null.</li>
+ * </ol>
+ * At most maxInFlight trades wait at once; past that {@link #defer} refuses and the caller fails
+ * the trade as it would without this enricher.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.enrichment.async.enabled", havingValue = "true", matchIfMissing = true)
+public class AsyncFxEnricher {
+
+    private static final String BASE_CURRENCY = "USD";
+
+    private final Logger log = LoggerFactory.getLogger(AsyncFxEnricher.class);
+    private final MarketDataService marketDataService;
+    private final FxRateSource fxRateSource;
+    private final TaskExecutor fetchExecutor;
+    private final TaskExecutor completionExecutor;
+    private final long batchWindowMs;
+    private final long timeoutMs;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    // One pending request per pair, until its batch comes back
+    private final Map<String, CompletableFuture<FxQuote>> requests = new ConcurrentHashMap<>();
+    // Pairs with a request that has not been sent yet
+    private final ConcurrentLinkedQueue<String> unsent = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService batcher;
+
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder pairsFetched = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Autowired
+    public AsyncFxEnricher(MarketDataService marketDataService,
+                           FxRateSource fxRateSource,
+                           @Qualifier("marketDataExecutor") TaskExecutor fetchExecutor,
+                           @Qualifier("enrichmentCompletionExecutor") TaskExecutor completionExecutor,
+                           @Value("${trades.enrichment.async.batch-window-ms:2}") long batchWindowMs,
+                           @Value("${trades.enrichment.async.timeout-ms:2000}") long timeoutMs,
+                           @Value("${trades.enrichment.async.max-in-flight:10000}") int maxInFlight) {
+        this(marketDataService, fxRateSource, fetchExecutor, completionExecutor, newBatcher(),
+                batchWindowMs, timeoutMs, maxInFlight);
+    }
+
+    // The batcher runs both the batch window and the fetch timeout, so a test can drive them by hand
+    AsyncFxEnricher(MarketDataService marketDataService,
+                    FxRateSource fxRateSource,
+                    TaskExecutor fetchExecutor,
+                    TaskExecutor completionExecutor,
+                    ScheduledExecutorService batcher,
+                    long batchWindowMs,
+                    long timeoutMs,
+                    int maxInFlight) {
+        this.marketDataService = marketDataService;
+        this.fxRateSource = fxRateSource;
+        this.fetchExecutor = fetchExecutor;
+        this.completionExecutor = completionExecutor;
+        this.batchWindowMs = batchWindowMs;
+        this.timeoutMs = timeoutMs;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.batcher = batcher;
+    }
+
+    private static ScheduledExecutorService newBatcher() {
+        ScheduledThreadPoolExecutor batcher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Fx-Batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most timeouts are cancelled when their batch returns; do not keep them queued for timeoutMs
+        batcher.setRemoveOnCancelPolicy(true);
+        return batcher;
+    }
+
+    /**
+     * Hands the trade over to wait for its rate. The continuation later runs on the completion
+     * executor with the quote, or with null if the rate could not be had in time. Returns false,
+     * without calling the continuation, if the trade could not be deferred: its currency is not a
+     * well-formed code, or too many trades are waiting already.
+     */
+    public boolean defer(Trade trade, Consumer<FxQuote> continuation) {
+        if (!MarketDataService.isCurrencyCode(trade.getCurrency()) || !inFlight.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        deferred.increment();
+        String currencyPair = trade.getCurrency() + BASE_CURRENCY;
+        CompletableFuture<FxQuote> request = requests.get(currencyPair);
+        if (request != null) {
+            coalesced.increment();
+        } else {
+            request = requests.computeIfAbsent(currencyPair, this::newRequest);
+        }
+        request.whenCompleteAsync((quote, error) -> {
+            try {
+                if (error != null) {
+                    (isTimeout(error) ? timedOut : failed).increment();
+                }
+                continuation.accept(error == null ? quote : null);
+            } catch (Exception e) {
+                log.error("FX continuation failed for trade ID {}.", trade.getId(), e);
+            } finally {
+                inFlight.release();
+            }
+        }, completionExecutor);
+        return true;
+    }
+
+    public EnrichmentStats stats() {
+        return new EnrichmentStats(deferred.sum(), coalesced.sum(), rejected.sum(), batches.sum(), pairsFetched.sum(),
+                timedOut.sum(), failed.sum(), maxInFlight - inFlight.availablePermits(), maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() {
+        batcher.shutdownNow();
+    }
+
+    private CompletableFuture<FxQuote> newRequest(String currencyPair) {
+        unsent.add(currencyPair);
+        if (flushScheduled.compareAndSet(false, true)) {
+            batcher.schedule(this::flush, batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+        return new CompletableFuture<>();
+    }
+
+    // Sends every unsent pair as one batch
+    private void flush() {
+        flushScheduled.set(false);
+        List<String> batch = new ArrayList<>();
+        for (String currencyPair = unsent.poll(); currencyPair != null; currencyPair = unsent.poll()) {
+            batch.add(currencyPair);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        pairsFetched.add(batch.size());
+        CompletableFuture<Map<String, BigDecimal>> fetch;
+        try {
+            fetch = CompletableFuture.supplyAsync(() -> fxRateSource.fetchRates(batch), fetchExecutor);
+        } catch (RuntimeException e) {
+            // Executor full or shut down; the waiting trades fail rather than wait forever
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        // A batch that comes back after the timeout still refreshes the cache for later trades
+        fetch.thenAccept(rates -> marketDataService.cacheQuotes(toQuotes(rates)));
+        CompletableFuture<Map<String, BigDecimal>> result = fetch.copy();
+        ScheduledFuture<?> timeout = batcher.schedule(() -> {
+            result.completeExceptionally(new TimeoutException());
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((rates, error) -> {
+            timeout.cancel(false);
+            complete(batch, rates, error);
+        });
+    }
+
+    private void complete(List<String> batch, Map<String, BigDecimal> rates, Throwable error) {
+        if (error != null && isTimeout(error)) {
+            log.warn("FX batch {} timed out after {} ms.", batch, timeoutMs);
+        } else if (error != null) {
+            log.warn("FX batch {} failed: {}", batch, error.getMessage());
+        }
+        long fetchedAt = System.currentTimeMillis();
+        for (String currencyPair : batch) {
+            // Removed first, so a trade arriving from now on starts a fresh request rather than joining a finished one
+            CompletableFuture<FxQuote> request = requests.remove(currencyPair);
+            BigDecimal rate = rates == null ? null : rates.get(currencyPair);
+            if (error != null) {
+                request.completeExceptionally(error);
+            } else if (rate == null) {
+                request.completeExceptionally(new IllegalStateException("No rate returned for " + currencyPair));
+            } else {
+                request.complete(new FxQuote(currencyPair, rate, fetchedAt));
+            }
+        }
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        return error instanceof TimeoutException || error.getCause() instanceof TimeoutException;
+    }
+
+    private static List<FxQuote> toQuotes(Map<String, BigDecimal> rates) {
+        long fetchedAt = System.currentTimeMillis();
+        List<FxQuote> quotes = new ArrayList<>(rates.size());
+        rates.forEach((currencyPair, rate) -> quotes.add(new FxQuote(currencyPair, rate, fetchedAt)));
+        return quotes;
+    }
+}
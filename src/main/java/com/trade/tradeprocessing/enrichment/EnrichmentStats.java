@@ -0,0 +1,25 @@
+package com.trade.tradeprocessing.enrichment;
+
+/**
+ * Counters of the async FX enricher since startup.
+ *
+ * @param deferred     trades handed off to wait for a rate
+ * @param coalesced    of those, trades that joined a request already pending for their pair
+ * @param rejected     trades not deferred because maxInFlight were already waiting, or their currency was malformed
+ * @param batches      batched requests sent to the rate source
+ * @param pairsFetched pairs asked for across all batches
+ * @param timedOut     trades failed because their batch took longer than the timeout
+ * @param failed       trades failed because their batch errored or did not return their pair
+ * @param inFlight     trades waiting right now
+ * @param maxInFlight  bound on waiting trades
+ */
+public record EnrichmentStats(long deferred,
+                              long coalesced,
+                              long rejected,
+                              long batches,
+                              long pairsFetched,
+                              long timedOut,
+                              long failed,
+                              int inFlight,
+                              int maxInFlight) {
+}
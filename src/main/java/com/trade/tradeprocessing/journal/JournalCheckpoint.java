@@ -0,0 +1,124 @@
+package com.trade.tradeprocessing.journal;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.services.PositionEntry;
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * State of the journal at one position: the positions implied by every trade completed before it,
+ * and the trades ingested before it that had not completed yet. Replay starts here and only reads
+ * the records after {@code position}, so segments wholly before it can be deleted.
+ * <p>
+ * File layout: magic, version, position, next sequence, the positions (instrument, net quantity,
+ * net notional), the pending trades as INGEST payloads, then a CRC32C of everything before it.
+ */
+record JournalCheckpoint(long position, long nextSequence, Map<String, PositionEntry> positions, List<Trade> pending) {
+
+    private static final String FILE_NAME = "checkpoint.bin";
+    private static final String TEMP_FILE_NAME = "checkpoint.tmp";
+    private static final int MAGIC = 0x544A434B; // "TJCK"
+    private static final int VERSION = 2;
+
+    static JournalCheckpoint empty(long position) {
+        return new JournalCheckpoint(position, 1, new HashMap<>(), new ArrayList<>());
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file, syncs it and moves it into place, so a crash leaves
+     * either the old checkpoint or the new one.
+     */
+    void write(Path directory) throws IOException {
+        int bound = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+        for (Map.Entry<String, PositionEntry> entry : positions.entrySet()) {
+            bound += JournalCodec.maxStringBytes(entry.getKey())
+                    + JournalCodec.maxDecimalBytes(entry.getValue().netQuantity())
+                    + JournalCodec.maxDecimalBytes(entry.getValue().netNotionalUsd());
+        }
+        for (Trade trade : pending) {
+            bound += JournalCodec.maxIngestBytes(trade);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bound);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(position);
+        buffer.putLong(nextSequence);
+        buffer.putInt(positions.size());
+        for (Map.Entry<String, PositionEntry> entry : positions.entrySet()) {
+            JournalCodec.putString(buffer, entry.getKey());
+            JournalCodec.putDecimal(buffer, entry.getValue().netQuantity(), FixedPoint.QUANTITY_SCALE);
+            JournalCodec.putDecimal(buffer, entry.getValue().netNotionalUsd(), FixedPoint.NOTIONAL_SCALE);
+        }
+        buffer.putInt(pending.size());
+        for (Trade trade : pending) {
+            JournalCodec.writeIngest(buffer, trade.getJournalSequence(), trade);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temp = directory.resolve(TEMP_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The last checkpoint written, or null if there is none or it does not pass its checksum.
+     */
+    static JournalCheckpoint read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 4 + 4 + 8 + 8 + 4) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.limit() - 4);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+
+        byte[] scratch = new byte[JournalCodec.SCRATCH_BYTES];
+        long position = buffer.getLong();
+        long nextSequence = buffer.getLong();
+        int positionCount = buffer.getInt();
+        Map<String, PositionEntry> positions = new HashMap<>(positionCount * 2);
+        for (int i = 0; i < positionCount; i++) {
+            String instrument = JournalCodec.getString(buffer, scratch);
+            PositionEntry entry = new PositionEntry();
+            entry.seed(JournalCodec.getDecimal(buffer, FixedPoint.QUANTITY_SCALE, scratch),
+                    JournalCodec.getDecimal(buffer, FixedPoint.NOTIONAL_SCALE, scratch));
+            positions.put(instrument, entry);
+        }
+        int pendingCount = buffer.getInt();
+        List<Trade> pending = new ArrayList<>(pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+            buffer.get(); // record type
+            pending.add(JournalCodec.readIngest(buffer, scratch));
+        }
+        return new JournalCheckpoint(position, nextSequence, positions, pending);
+    }
+}
@@ -0,0 +1,201 @@
+package com.trade.tradeprocessing.journal;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Binary layout of journal records. Every record is framed as
+ * [int payload length][int CRC32C of payload][payload], and every payload starts with a type byte.
+ * <pre>
+ * INGEST   seq, tradeDate (epoch day), createdAt (seconds, nanos), instrument, side, currency,
+ *          counterparty, quantity, price, clientTradeId
+ * COMPLETE seq, outcome (DONE/FAILED), notionalUsd
+ * CANCEL   seq   (ingested but never made it into the pipeline)
+ * </pre>
+ * Strings are a short byte length plus UTF-8 (-1 for null). Decimals are a tag byte, then either
+ * fixed-point units at the field's scale or, for values with no long form, their text.
+ */
+final class JournalCodec {
+
+    static final int HEADER_BYTES = 8;
+
+    static final byte INGEST = 1;
+    static final byte COMPLETE = 2;
+    static final byte CANCEL = 3;
+
+    private static final byte OUTCOME_DONE = 0;
+    private static final byte OUTCOME_FAILED = 1;
+
+    private static final byte DECIMAL_NULL = 0;
+    private static final byte DECIMAL_UNITS = 1;
+    private static final byte DECIMAL_TEXT = 2;
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    // Big enough for any string field, since lengths are written as a short
+    static final int SCRATCH_BYTES = Short.MAX_VALUE;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Upper bound on the payload size of the trade's INGEST record, so space can be checked before writing.
+     */
+    static int maxIngestBytes(Trade trade) {
+        return 1 + 8 + 8 + 12
+                + maxStringBytes(trade.getInstrument()) + maxStringBytes(trade.getSide())
+                + maxStringBytes(trade.getCurrency()) + maxStringBytes(trade.getCounterparty())
+                + maxDecimalBytes(trade.getQuantity()) + maxDecimalBytes(trade.getPrice())
+                + maxStringBytes(trade.getClientTradeId());
+    }
+
+    static int maxCompleteBytes(Trade trade) {
+        return 1 + 8 + 1 + maxDecimalBytes(trade.getNotionalUsd());
+    }
+
+    static void writeIngest(ByteBuffer buffer, long sequence, Trade trade) {
+        buffer.put(INGEST);
+        buffer.putLong(sequence);
+        buffer.putLong(trade.getTradeDate() == null ? NO_VALUE : trade.getTradeDate().toEpochDay());
+        Instant createdAt = trade.getCreatedAt();
+        buffer.putLong(createdAt == null ? NO_VALUE : createdAt.getEpochSecond());
+        buffer.putInt(createdAt == null ? 0 : createdAt.getNano());
+        putString(buffer, trade.getInstrument());
+        putString(buffer, trade.getSide());
+        putString(buffer, trade.getCurrency());
+        putString(buffer, trade.getCounterparty());
+        putDecimal(buffer, trade.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        putDecimal(buffer, trade.getPrice(), FixedPoint.PRICE_SCALE);
+        putString(buffer, trade.getClientTradeId());
+    }
+
+    /**
+     * Reads an INGEST payload (type byte already consumed) back into a QUEUED trade with no id.
+     */
+    static Trade readIngest(ByteBuffer buffer, byte[] scratch) {
+        long sequence = buffer.getLong();
+        long epochDay = buffer.getLong();
+        long createdSeconds = buffer.getLong();
+        int createdNanos = buffer.getInt();
+        Trade trade = new Trade();
+        trade.setJournalSequence(sequence);
+        trade.setStatus(Status.Queued);
+        trade.setTradeDate(epochDay == NO_VALUE ? null : LocalDate.ofEpochDay(epochDay));
+        trade.setCreatedAt(createdSeconds == NO_VALUE ? null : Instant.ofEpochSecond(createdSeconds, createdNanos));
+        trade.setInstrument(getString(buffer, scratch));
+        trade.setSide(getString(buffer, scratch));
+        trade.setCurrency(getString(buffer, scratch));
+        trade.setCounterparty(getString(buffer, scratch));
+        // Units are left unset; validation (or the shadow book) derives them again
+        trade.setQuantity(getDecimal(buffer, FixedPoint.QUANTITY_SCALE, scratch));
+        trade.setPrice(getDecimal(buffer, FixedPoint.PRICE_SCALE, scratch));
+        trade.setClientTradeId(getString(buffer, scratch));
+        return trade;
+    }
+
+    static void writeComplete(ByteBuffer buffer, Trade trade) {
+        buffer.put(COMPLETE);
+        buffer.putLong(trade.getJournalSequence());
+        boolean done = Status.Done.equals(trade.getStatus());
+        buffer.put(done ? OUTCOME_DONE : OUTCOME_FAILED);
+        putDecimal(buffer, done ? trade.getNotionalUsd() : null, FixedPoint.NOTIONAL_SCALE);
+    }
+
+    /**
+     * Applies a COMPLETE payload (sequence already consumed) to the pending trade it refers to.
+     * Returns true if the trade finished DONE.
+     */
+    static boolean readComplete(ByteBuffer buffer, Trade trade, byte[] scratch) {
+        boolean done = buffer.get() == OUTCOME_DONE;
+        BigDecimal notional = getDecimal(buffer, FixedPoint.NOTIONAL_SCALE, scratch);
+        if (trade != null) {
+            trade.setStatus(done ? Status.Done : Status.Failed);
+            trade.setNotionalUsd(notional);
+        }
+        return done;
+    }
+
+    static void writeCancel(ByteBuffer buffer, long sequence) {
+        buffer.put(CANCEL);
+        buffer.putLong(sequence);
+    }
+
+    static int maxStringBytes(String value) {
+        return 2 + (value == null ? 0 : value.length() * 3);
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            // Common case: one byte per char, no intermediate array
+            checkLength(length);
+            buffer.putShort((short) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        checkLength(bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    static int maxDecimalBytes(BigDecimal value) {
+        // Units, or text for values with no long form; toString() never needs more than precision + 16 chars
+        return 1 + (value == null ? 0 : Math.max(8, 2 + value.precision() + 16));
+    }
+
+    static void putDecimal(ByteBuffer buffer, BigDecimal value, int scale) {
+        if (value == null) {
+            buffer.put(DECIMAL_NULL);
+            return;
+        }
+        long units = FixedPoint.toUnits(value, scale);
+        if (units != FixedPoint.NOT_REPRESENTABLE) {
+            buffer.put(DECIMAL_UNITS);
+            buffer.putLong(units);
+        } else {
+            buffer.put(DECIMAL_TEXT);
+            putString(buffer, value.toString());
+        }
+    }
+
+    static BigDecimal getDecimal(ByteBuffer buffer, int scale, byte[] scratch) {
+        return switch (buffer.get()) {
+            case DECIMAL_UNITS -> FixedPoint.toBigDecimal(buffer.getLong(), scale);
+            case DECIMAL_TEXT -> new BigDecimal(getString(buffer, scratch));
+            default -> null;
+        };
+    }
+
+    private static void checkLength(int length) {
+        if (length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Field of " + length + " bytes is too long to journal");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.trade.tradeprocessing.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-size journal file, mapped into memory. Its name is the journal position of its first
+ * byte, so positions are a single long across all segments and a segment covers [base, base + size).
+ */
+final class JournalSegment {
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+
+    final long base;
+    final int size;
+    final Path path;
+    private final MappedByteBuffer mapped;
+    // Cursor for the single appender (under the journal's append lock) or the replay reader
+    final ByteBuffer cursor;
+
+    private JournalSegment(long base, int size, Path path, MappedByteBuffer mapped) {
+        this.base = base;
+        this.size = size;
+        this.path = path;
+        this.mapped = mapped;
+        this.cursor = mapped.duplicate();
+    }
+
+    /**
+     * Opens the segment starting at base, creating a zero-filled file of the given size if there is none.
+     */
+    static JournalSegment open(Path directory, long base, int size) throws IOException {
+        Path path = directory.resolve(fileName(base));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // An existing segment keeps its own size, even if the configured size has changed since
+            int length = channel.size() > 0 ? (int) channel.size() : size;
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new JournalSegment(base, length, path, mapped);
+        }
+    }
+
+    static String fileName(long base) {
+        return String.format("%s%020d%s", PREFIX, base, SUFFIX);
+    }
+
+    /**
+     * Base position of a segment file, or -1 if the name is not a segment's.
+     */
+    static long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    long end() {
+        return base + size;
+    }
+
+    /**
+     * Flushes the part of this segment between the two journal positions to disk.
+     */
+    void force(long from, long to) {
+        int start = (int) Math.max(0, from - base);
+        int stop = (int) Math.min(size, to - base);
+        if (stop > start) {
+            mapped.force(start, stop - start);
+        }
+    }
+
+    /**
+     * Zeroes everything from the given offset, e.g. a torn record left by a crash.
+     */
+    void clearFrom(int offset) {
+        for (int i = offset; i < size; i++) {
+            mapped.put(i, (byte) 0);
+        }
+    }
+}
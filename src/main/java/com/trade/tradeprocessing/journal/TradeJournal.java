@@ -0,0 +1,581 @@
+package com.trade.tradeprocessing.journal;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.services.PositionEntry;
+import com.trade.tradeprocessing.services.PositionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only record of every accepted trade, written to memory-mapped segment files.
+ * <p>
+ * Ingest appends an INGEST record before the trade is published; the pipeline appends a COMPLETE
+ * record when the trade reaches DONE or FAILED. A sync thread forces dirty ranges to disk in
+ * batches: in {@code group} mode ingest waits until a sync covers its record, so many producers
+ * share one fsync; in {@code async} mode it syncs every interval and nobody waits.
+ * <p>
+ * The journal also keeps a shadow position book and the set of trades not yet completed, and
+ * periodically writes both to a checkpoint. Startup replays from the last checkpoint, straight from
+ * the mapped files, then restores the position book and re-queues the trades that never completed.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.journal.enabled", havingValue = "true")
+public class TradeJournal {
+
+    private static final long REQUEUE_BACKOFF_MS = 1;
+
+    private final Logger log = LoggerFactory.getLogger(TradeJournal.class);
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean groupCommit;
+    private final long syncIntervalMs;
+    private final PositionService positionService;
+    private final ObjectProvider<TradePublisher> tradePublisher;
+
+    // Append side, guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private JournalSegment current;
+    private long nextSequence;
+    // Ingested but not completed, in sequence order
+    private final Map<Long, Trade> pending = new LinkedHashMap<>();
+    // Positions implied by the COMPLETE records so far, kept only to write checkpoints
+    private final Map<String, PositionEntry> shadowBook = new HashMap<>();
+    private volatile long writtenPosition;
+
+    // Sync side: segments that may still hold unsynced data, keyed by base position
+    private final NavigableMap<Long, JournalSegment> unsynced = new ConcurrentSkipListMap<>();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition synced = syncLock.newCondition();
+    private volatile long durablePosition;
+    private volatile boolean running = true;
+    private Thread syncer;
+
+    private List<Trade> recovered = List.of();
+    private Thread requeuer;
+    private volatile boolean requeueStopped;
+
+    public TradeJournal(PositionService positionService,
+                        ObjectProvider<TradePublisher> tradePublisher,
+                        @Value("${trades.journal.dir:journal}") String directory,
+                        @Value("${trades.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${trades.journal.fsync:group}") String fsyncMode,
+                        @Value("${trades.journal.sync-interval-ms:5}") long syncIntervalMs) {
+        this.positionService = positionService;
+        this.tradePublisher = tradePublisher;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.groupCommit = "group".equals(fsyncMode);
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    // Replays before any producer or consumer can touch the book or the queue
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        TreeMap<Long, Path> files = segmentFiles();
+        JournalCheckpoint checkpoint = JournalCheckpoint.read(directory);
+        if (checkpoint == null) {
+            checkpoint = JournalCheckpoint.empty(files.isEmpty() ? 0 : files.firstKey());
+        }
+        nextSequence = checkpoint.nextSequence();
+        shadowBook.putAll(checkpoint.positions());
+        for (Trade trade : checkpoint.pending()) {
+            pending.put(trade.getJournalSequence(), trade);
+        }
+
+        long records = replay(checkpoint.position(), files);
+        durablePosition = writtenPosition;
+        long elapsedNanos = System.nanoTime() - started;
+
+        positionService.restorePositions(copyOf(shadowBook));
+        recovered = new ArrayList<>(pending.values());
+        log.info("Journal replayed {} records in {} ms ({} records/s): {} instruments, {} trades to re-queue.",
+                records, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                elapsedNanos == 0 ? 0 : records * 1_000_000_000L / elapsedNanos, shadowBook.size(), recovered.size());
+
+        syncer = new Thread(this::syncLoop, "Trade-Journal-Sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Trades replay found still pending, until {@link #requeueRecovered()} hands them back to the pipeline.
+     */
+    public List<Trade> recoveredTrades() {
+        return recovered;
+    }
+
+    /**
+     * Hands the trades still pending back to the pipeline once consumers are running, on a thread of
+     * its own so startup is not held up behind a full pipeline. They are not journaled again: their
+     * INGEST records are already here, and they stay pending until they complete.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void requeueRecovered() {
+        List<Trade> trades = recovered;
+        recovered = List.of();
+        if (trades.isEmpty()) {
+            return;
+        }
+        requeuer = new Thread(() -> requeue(trades), "Trade-Journal-Requeue");
+        requeuer.setDaemon(true);
+        requeuer.start();
+    }
+
+    /**
+     * Stops re-queueing recovered trades and waits up to the timeout for the thread doing it.
+     * Trades not re-queued yet are still pending, so the next checkpoint keeps them for the next start.
+     * Returns false if the thread was still running when the timeout ran out.
+     */
+    public boolean stopRequeue(long timeoutMs) throws InterruptedException {
+        requeueStopped = true;
+        return awaitRequeue(timeoutMs);
+    }
+
+    // Waits for the re-queue thread to finish, if one was started
+    boolean awaitRequeue(long timeoutMs) throws InterruptedException {
+        Thread thread = requeuer;
+        if (thread == null) {
+            return true;
+        }
+        thread.join(timeoutMs);
+        return !thread.isAlive();
+    }
+
+    private void requeue(List<Trade> trades) {
+        TradePublisher publisher = tradePublisher.getObject();
+        int requeued = 0;
+        try {
+            for (Trade trade : trades) {
+                // Polls rather than blocks on a full pipeline, so stopRequeue() is never stuck behind it
+                while (!publisher.tryPublish(trade)) {
+                    if (requeueStopped) {
+                        log.info("Re-queue stopped: {} of {} recovered trades re-queued, the rest stay pending.",
+                                requeued, trades.size());
+                        return;
+                    }
+                    Thread.sleep(REQUEUE_BACKOFF_MS);
+                }
+                requeued++;
+            }
+            log.info("Re-queued {} trades recovered from the journal.", requeued);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Re-queueing recovered trades failed after {} of {}; the rest stay pending.",
+                    requeued, trades.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        stopRequeue(TimeUnit.SECONDS.toMillis(5));
+        checkpoint();
+        running = false;
+        syncLock.lock();
+        try {
+            syncRequested.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        syncer.join(TimeUnit.SECONDS.toMillis(5));
+        sync();
+    }
+
+    /**
+     * Journals a trade about to be published and assigns its journal sequence. In group mode,
+     * returns only once the record is on disk.
+     */
+    public void appendIngest(Trade trade) {
+        long position;
+        appendLock.lock();
+        try {
+            position = append(trade);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    /**
+     * Journals a batch of trades about to be published, in order, and waits once for the force
+     * covering the last of them, so a bulk request pays for one fsync rather than one per trade.
+     * If a record cannot be written, the ones already appended are cancelled before it rethrows.
+     */
+    public void appendIngest(List<Trade> trades) {
+        if (trades.isEmpty()) {
+            return;
+        }
+        long position;
+        appendLock.lock();
+        try {
+            position = writtenPosition;
+            for (int i = 0; i < trades.size(); i++) {
+                try {
+                    position = append(trades.get(i));
+                } catch (RuntimeException e) {
+                    for (Trade appended : trades.subList(0, i)) {
+                        cancel(appended.getJournalSequence());
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    /**
+     * Journals the outcome of a trade that reached DONE or FAILED. Not waited on: if it is lost in a
+     * crash, the trade is simply re-processed after replay.
+     */
+    public void appendCompletion(Trade trade) {
+        long sequence = trade.getJournalSequence();
+        if (sequence == 0) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (pending.remove(sequence) == null) {
+                return;
+            }
+            ByteBuffer cursor = reserve(JournalCodec.maxCompleteBytes(trade));
+            int start = cursor.position();
+            cursor.position(start + JournalCodec.HEADER_BYTES);
+            JournalCodec.writeComplete(cursor, trade);
+            commit(cursor, start);
+            if (Status.Done.equals(trade.getStatus())) {
+                applyToShadowBook(trade);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Journals that an ingested trade was not accepted after all (e.g. the pipeline was full).
+     */
+    public void appendCancel(Trade trade) {
+        appendLock.lock();
+        try {
+            cancel(trade.getJournalSequence());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Trades journaled but not yet completed; these are re-queued after a restart.
+     */
+    public int pendingTrades() {
+        appendLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the shadow book and pending trades as of now, then deletes segments the checkpoint covers.
+     */
+    @Scheduled(fixedDelayString = "${trades.journal.checkpoint-interval-ms:10000}",
+            initialDelayString = "${trades.journal.checkpoint-interval-ms:10000}")
+    public synchronized void checkpoint() {
+        JournalCheckpoint checkpoint;
+        appendLock.lock();
+        try {
+            checkpoint = new JournalCheckpoint(writtenPosition, nextSequence, copyOf(shadowBook), new ArrayList<>(pending.values()));
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            checkpoint.write(directory);
+            int deleted = deleteSegmentsBefore(checkpoint.position());
+            log.debug("Journal checkpoint at {}: {} pending trades, {} segments deleted.",
+                    checkpoint.position(), checkpoint.pending().size(), deleted);
+        } catch (IOException e) {
+            log.warn("Journal checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    // 1. Replay
+
+    private long replay(long position, TreeMap<Long, Path> files) throws IOException {
+        Long startBase = files.floorKey(position);
+        if (startBase == null) {
+            current = JournalSegment.open(directory, position, segmentSize);
+            unsynced.put(current.base, current);
+            writtenPosition = position;
+            return 0;
+        }
+
+        byte[] scratch = new byte[JournalCodec.SCRATCH_BYTES];
+        long records = 0;
+        JournalSegment segment = JournalSegment.open(directory, startBase, segmentSize);
+        int offset = (int) (position - startBase);
+        while (true) {
+            ByteBuffer cursor = segment.cursor;
+            boolean torn = false;
+            while (offset + JournalCodec.HEADER_BYTES <= segment.size) {
+                int length = cursor.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || offset + JournalCodec.HEADER_BYTES + length > segment.size
+                        || checksum(cursor, offset + JournalCodec.HEADER_BYTES, length) != cursor.getInt(offset + 4)) {
+                    torn = true;
+                    break;
+                }
+                cursor.position(offset + JournalCodec.HEADER_BYTES);
+                applyRecord(cursor, scratch);
+                records++;
+                offset += JournalCodec.HEADER_BYTES + length;
+            }
+            Long nextBase = files.higherKey(segment.base);
+            if (torn || nextBase == null) {
+                if (torn) {
+                    // A record cut short by a crash: everything after it is lost, so start writing over it
+                    log.warn("Journal segment {} has a torn record at offset {}, truncating.", segment.path, offset);
+                    segment.clearFrom(offset);
+                    for (Path later : files.tailMap(segment.base, false).values()) {
+                        Files.deleteIfExists(later);
+                    }
+                }
+                break;
+            }
+            segment = JournalSegment.open(directory, nextBase, segmentSize);
+            offset = 0;
+        }
+
+        current = segment;
+        current.cursor.position(offset);
+        unsynced.put(current.base, current);
+        writtenPosition = current.base + offset;
+        return records;
+    }
+
+    private void applyRecord(ByteBuffer buffer, byte[] scratch) {
+        switch (buffer.get()) {
+            case JournalCodec.INGEST -> {
+                Trade trade = JournalCodec.readIngest(buffer, scratch);
+                pending.put(trade.getJournalSequence(), trade);
+                nextSequence = Math.max(nextSequence, trade.getJournalSequence() + 1);
+            }
+            case JournalCodec.COMPLETE -> {
+                Trade trade = pending.remove(buffer.getLong());
+                if (JournalCodec.readComplete(buffer, trade, scratch) && trade != null) {
+                    applyToShadowBook(trade);
+                }
+            }
+            case JournalCodec.CANCEL -> pending.remove(buffer.getLong());
+            default -> throw new IllegalStateException("Unknown journal record type at " + buffer.position());
+        }
+    }
+
+    // 2. Appending (all under appendLock)
+
+    private long append(Trade trade) {
+        long sequence = nextSequence++;
+        ByteBuffer cursor = reserve(JournalCodec.maxIngestBytes(trade));
+        int start = cursor.position();
+        try {
+            cursor.position(start + JournalCodec.HEADER_BYTES);
+            JournalCodec.writeIngest(cursor, sequence, trade);
+        } catch (RuntimeException e) {
+            abandon(cursor, start);
+            throw e;
+        }
+        long position = commit(cursor, start);
+        trade.setJournalSequence(sequence);
+        pending.put(sequence, trade);
+        return position;
+    }
+
+    private void cancel(long sequence) {
+        if (pending.remove(sequence) == null) {
+            return;
+        }
+        ByteBuffer cursor = reserve(1 + 8);
+        int start = cursor.position();
+        cursor.position(start + JournalCodec.HEADER_BYTES);
+        JournalCodec.writeCancel(cursor, sequence);
+        commit(cursor, start);
+    }
+
+    private ByteBuffer reserve(int maxPayloadBytes) {
+        int needed = JournalCodec.HEADER_BYTES + maxPayloadBytes;
+        if (needed > segmentSize) {
+            throw new IllegalArgumentException("Record of up to " + needed + " bytes does not fit in a journal segment");
+        }
+        if (current.cursor.remaining() < needed) {
+            // The rest of this segment stays zero, which replay reads as "continue in the next segment"
+            try {
+                current = JournalSegment.open(directory, current.end(), segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not roll the trade journal", e);
+            }
+            unsynced.put(current.base, current);
+        }
+        return current.cursor;
+    }
+
+    // Writes the header last, so a reader never sees a length before the payload it describes
+    private long commit(ByteBuffer cursor, int start) {
+        int length = cursor.position() - start - JournalCodec.HEADER_BYTES;
+        cursor.putInt(start + 4, checksum(cursor, start + JournalCodec.HEADER_BYTES, length));
+        cursor.putInt(start, length);
+        writtenPosition = current.base + cursor.position();
+        return writtenPosition;
+    }
+
+    private void abandon(ByteBuffer cursor, int start) {
+        for (int i = start; i < cursor.position(); i++) {
+            cursor.put(i, (byte) 0);
+        }
+        cursor.position(start);
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        crc.reset();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private void applyToShadowBook(Trade trade) {
+        shadowBook.computeIfAbsent(trade.getInstrument(), k -> new PositionEntry())
+                .apply(trade, Side.parse(trade.getSide()) == Side.BUY);
+    }
+
+    // 3. Group commit
+
+    private void awaitDurable(long position) {
+        if (!groupCommit) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            syncRequested.signal();
+            while (durablePosition < position && running) {
+                synced.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            syncLock.lock();
+            try {
+                if (durablePosition >= writtenPosition) {
+                    syncRequested.await(syncIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+            sync();
+        }
+    }
+
+    // Everything appended while the previous force ran goes out in this one
+    private void sync() {
+        long from = durablePosition;
+        long target = writtenPosition;
+        if (target <= from) {
+            return;
+        }
+        for (JournalSegment segment : unsynced.values()) {
+            if (segment.base < target && segment.end() > from) {
+                segment.force(from, target);
+            }
+        }
+        // Segments wholly before target are on disk now; the current one always ends after it
+        unsynced.headMap(target, false).values().removeIf(segment -> segment.end() <= target);
+
+        syncLock.lock();
+        try {
+            durablePosition = target;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // 4. Files
+
+    private TreeMap<Long, Path> segmentFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.forEach(file -> {
+                long base = JournalSegment.baseOf(file);
+                if (base >= 0) {
+                    files.put(base, file);
+                }
+            });
+        }
+        return files;
+    }
+
+    private int deleteSegmentsBefore(long position) throws IOException {
+        int deleted = 0;
+        for (Map.Entry<Long, Path> file : segmentFiles().entrySet()) {
+            if (file.getKey() + Files.size(file.getValue()) <= position) {
+                Files.deleteIfExists(file.getValue());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private static Map<String, PositionEntry> copyOf(Map<String, PositionEntry> book) {
+        Map<String, PositionEntry> copy = new HashMap<>(book.size() * 2);
+        book.forEach((instrument, entry) -> {
+            PositionEntry snapshot = new PositionEntry();
+            snapshot.seed(entry.netQuantity(), entry.netNotionalUsd());
+            copy.put(instrument, snapshot);
+        });
+        return copy;
+    }
+}
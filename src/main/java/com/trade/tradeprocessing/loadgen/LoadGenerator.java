@@ -0,0 +1,312 @@
+package com.trade.tradeprocessing.loadgen;
+
+import com.trade.tradeprocessing.metrics.LatencyHistogram;
+import com.trade.tradeprocessing.metrics.LatencySummary;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.metrics.Stage;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.schedulers.TradeGenerator;
+import com.trade.tradeprocessing.services.IngestOutcome;
+import com.trade.tradeprocessing.services.TradeIngestService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the pipeline at a configured rate from several producer threads, for finding where it
+ * saturates. Unlike {@link TradeGenerator} it never blocks on a full pipeline: producers keep to
+ * their schedule and count the rejection, so the offered load does not bend to the system under test.
+ * <p>
+ * Each producer owns an equal share of the rate and keeps a running total of how many trades it
+ * should have sent by now; it sends until it has caught up, then parks until the next one is due.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.loadgen.enabled", havingValue = "true")
+public class LoadGenerator {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    // Longest a producer parks in one go, so a rate change or stop is picked up quickly
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Trades a producer that is behind submits together, sharing one journal fsync
+    private static final int MAX_BATCH = 256;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+    private static final String[] SIDES = {"BUY", "SELL"};
+    // Prebuilt values, so a generated trade only allocates itself
+    private static final BigDecimal[] QUANTITIES = decimals(1, 10_000);
+    private static final BigDecimal[] PRICES = decimals(1, 500);
+
+    private final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+    private final TradeIngestService tradeIngestService;
+    private final PipelineMetrics pipelineMetrics;
+    private final LoadSpec defaultSpec;
+    private final boolean runOnStartup;
+
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder intended = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean stopRequested;
+    private volatile LoadReport lastReport;
+    private Thread runner;
+
+    public LoadGenerator(TradeIngestService tradeIngestService,
+                         PipelineMetrics pipelineMetrics,
+                         @Value("${trades.loadgen.profile:STEADY}") LoadProfile profile,
+                         @Value("${trades.loadgen.producers:4}") int producers,
+                         @Value("${trades.loadgen.rate:10000}") double rate,
+                         @Value("${trades.loadgen.base-rate:0}") double baseRate,
+                         @Value("${trades.loadgen.duration-seconds:30}") long durationSeconds,
+                         @Value("${trades.loadgen.period-seconds:10}") double periodSeconds,
+                         @Value("${trades.loadgen.instrument-skew:1.0}") double instrumentSkew,
+                         @Value("${trades.loadgen.counterparty-skew:0}") double counterpartySkew,
+                         @Value("${trades.loadgen.run-on-startup:false}") boolean runOnStartup) {
+        this.tradeIngestService = tradeIngestService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.defaultSpec = new LoadSpec(profile, producers, rate, baseRate, durationSeconds, periodSeconds,
+                instrumentSkew, counterpartySkew);
+        this.runOnStartup = runOnStartup;
+    }
+
+    public LoadSpec defaultSpec() {
+        return defaultSpec;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Report of the last finished run, or null if none has finished yet.
+     */
+    public LoadReport lastReport() {
+        return lastReport;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (runOnStartup) {
+            start(defaultSpec);
+        }
+    }
+
+    /**
+     * Starts a run in the background. Returns false if one is already running.
+     */
+    public synchronized boolean start(LoadSpec spec) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        stopRequested = false;
+        runner = new Thread(() -> {
+            try {
+                lastReport = execute(spec);
+            } catch (InterruptedException e) {
+                log.warn("Load run interrupted.");
+                Thread.currentThread().interrupt();
+            } finally {
+                running = false;
+            }
+        }, "Load-Generator");
+        runner.setDaemon(true);
+        runner.start();
+        return true;
+    }
+
+    /**
+     * Ends the current run early; it still drains and reports.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        Thread current = runner;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private LoadReport execute(LoadSpec spec) throws InterruptedException {
+        for (LongAdder counter : new LongAdder[]{offered, accepted, rejected, errors, intended}) {
+            counter.reset();
+        }
+        LatencyHistogram.Snapshot queueWaitBefore = pipelineMetrics.snapshot(Stage.QUEUE_WAIT);
+        LatencyHistogram.Snapshot totalBefore = pipelineMetrics.snapshot(Stage.TOTAL);
+        long processedBefore = pipelineMetrics.processedCount();
+        log.info("Load run starting: {}", spec);
+
+        // 1. Start the producers against a common clock
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long end = start + spec.durationSeconds() * NANOS_PER_SECOND;
+        List<Thread> producers = new ArrayList<>(spec.producers());
+        for (int i = 0; i < spec.producers(); i++) {
+            Producer producer = new Producer(spec, start, end);
+            Thread thread = new Thread(producer, "Load-Producer-" + (i + 1));
+            thread.setDaemon(true);
+            producers.add(thread);
+            thread.start();
+        }
+
+        // 2. Sample once a second until the run is over
+        List<LoadSample> timeline = new ArrayList<>();
+        long lastOffered = 0;
+        long lastAccepted = 0;
+        long lastProcessed = processedBefore;
+        long second = 0;
+        while (!stopRequested && System.nanoTime() < end) {
+            long nextSample = Math.min(end, start + (second + 1) * NANOS_PER_SECOND);
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, nextSample - System.nanoTime()));
+            long offeredNow = offered.sum();
+            long acceptedNow = accepted.sum();
+            long processedNow = pipelineMetrics.processedCount();
+            timeline.add(new LoadSample(second, spec.profile().rateAt(spec, second), offeredNow - lastOffered,
+                    acceptedNow - lastAccepted, processedNow - lastProcessed, pipelineMetrics.queueDepth()));
+            lastOffered = offeredNow;
+            lastAccepted = acceptedNow;
+            lastProcessed = processedNow;
+            second++;
+        }
+        boolean stoppedEarly = stopRequested;
+        stopRequested = true;
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long processedInRun = pipelineMetrics.processedCount() - processedBefore;
+
+        // 3. Let the backlog drain, so latency covers the trades queued at the end as well
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (pipelineMetrics.queueDepth() > 0 && System.currentTimeMillis() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        double seconds = elapsedNanos / (double) NANOS_PER_SECOND;
+        LoadReport report = new LoadReport(spec, startedAt, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), stoppedEarly,
+                intended.sum(), offered.sum(), accepted.sum(), rejected.sum(), errors.sum(),
+                offered.sum() / seconds, processedInRun / seconds,
+                LatencySummary.of(pipelineMetrics.snapshot(Stage.QUEUE_WAIT).since(queueWaitBefore)),
+                LatencySummary.of(pipelineMetrics.snapshot(Stage.TOTAL).since(totalBefore)),
+                timeline);
+        log.info(String.format("Load run finished: offered=%.0f/s, achieved=%.0f/s, accepted=%d, rejected=%d, errors=%d, "
+                        + "queue wait p99=%.1fus, processing p99=%.1fus",
+                report.offeredPerSecond(), report.achievedPerSecond(), report.accepted(), report.rejected(),
+                report.errors(), report.queueWait().p99Micros(), report.processing().p99Micros()));
+        return report;
+    }
+
+    /**
+     * One producer thread's share of the run.
+     */
+    private final class Producer implements Runnable {
+
+        private final LoadSpec spec;
+        private final long start;
+        private final long end;
+        private final double share;
+        private final ZipfDistribution instruments;
+        private final ZipfDistribution counterparties;
+        private final LocalDate tradeDate = LocalDate.now();
+
+        Producer(LoadSpec spec, long start, long end) {
+            this.spec = spec;
+            this.start = start;
+            this.end = end;
+            this.share = 1.0 / spec.producers();
+            this.instruments = new ZipfDistribution(TradeGenerator.INSTRUMENTS.length, spec.instrumentSkew());
+            this.counterparties = new ZipfDistribution(TradeGenerator.COUNTERPARTIES.length, spec.counterpartySkew());
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double due = 0;
+            long sent = 0;
+            long last = start;
+            while (!stopRequested) {
+                long now = System.nanoTime();
+                if (now >= end) {
+                    break;
+                }
+                double rate = spec.profile().rateAt(spec, (now - start) / (double) NANOS_PER_SECOND) * share;
+                due += rate * (now - last) / NANOS_PER_SECOND;
+                last = now;
+                // Catch up on everything that is due; a producer that cannot keep up just never parks
+                while (sent < (long) due && !stopRequested) {
+                    int count = (int) Math.min((long) due - sent, MAX_BATCH);
+                    offer(random, count);
+                    sent += count;
+                }
+                if (rate > 0) {
+                    long untilNext = (long) ((Math.floor(due) + 1 - due) / rate * NANOS_PER_SECOND);
+                    LockSupport.parkNanos(Math.min(Math.max(untilNext, 1), MAX_PARK_NANOS));
+                } else {
+                    LockSupport.parkNanos(MAX_PARK_NANOS);
+                }
+            }
+            intended.add((long) due);
+        }
+
+        private void offer(ThreadLocalRandom random, int count) {
+            List<Trade> trades = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                trades.add(Trade.builder()
+                        .status(Status.Queued)
+                        .tradeDate(tradeDate)
+                        .instrument(TradeGenerator.INSTRUMENTS[instruments.sample(random)])
+                        .counterparty(TradeGenerator.COUNTERPARTIES[counterparties.sample(random)])
+                        .currency(TradeGenerator.CURRENCIES[random.nextInt(TradeGenerator.CURRENCIES.length)])
+                        .side(SIDES[random.nextInt(SIDES.length)])
+                        .quantity(QUANTITIES[random.nextInt(QUANTITIES.length)])
+                        .price(PRICES[random.nextInt(PRICES.length)])
+                        .build());
+            }
+            offered.add(count);
+            try {
+                for (IngestOutcome outcome : tradeIngestService.trySubmitAll(trades)) {
+                    if (outcome == IngestOutcome.ACCEPTED) {
+                        accepted.increment();
+                    } else {
+                        rejected.increment();
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (errors.sum() == 0) {
+                    log.error("Load producer failed to submit a trade: {}", e.getMessage());
+                }
+                errors.add(count);
+            }
+        }
+    }
+
+    private static BigDecimal[] decimals(int from, int to) {
+        BigDecimal[] values = new BigDecimal[to - from + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = BigDecimal.valueOf(from + i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,35 @@
+package com.trade.tradeprocessing.loadgen;
+
+/**
+ * Shape of the offered load over a run. Every profile moves between the spec's base rate and its
+ * target rate; STEADY only ever uses the target.
+ */
+public enum LoadProfile {
+    STEADY,
+    // Linear climb from base to target over the whole run, for finding the saturation point
+    RAMP,
+    // Target rate for the first tenth of every period, base rate for the rest
+    BURST,
+    // Target rate for the first half of every period, base rate for the second
+    SQUARE_WAVE;
+
+    private static final double BURST_FRACTION = 0.1;
+
+    /**
+     * Trades/sec the whole generator should offer at this point of the run.
+     */
+    double rateAt(LoadSpec spec, double elapsedSeconds) {
+        return switch (this) {
+            case STEADY -> spec.rate();
+            case RAMP -> spec.baseRate() + (spec.rate() - spec.baseRate())
+                    * Math.min(1.0, elapsedSeconds / spec.durationSeconds());
+            case BURST -> phase(spec, elapsedSeconds) < BURST_FRACTION ? spec.rate() : spec.baseRate();
+            case SQUARE_WAVE -> phase(spec, elapsedSeconds) < 0.5 ? spec.rate() : spec.baseRate();
+        };
+    }
+
+    // Position within the current period, from 0 to 1
+    private static double phase(LoadSpec spec, double elapsedSeconds) {
+        return (elapsedSeconds % spec.periodSeconds()) / spec.periodSeconds();
+    }
+}
@@ -0,0 +1,27 @@
+package com.trade.tradeprocessing.loadgen;
+
+import com.trade.tradeprocessing.metrics.LatencySummary;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of a load run. Offered counts every submission attempt; rejected ones found the pipeline
+ * full. Achieved throughput is trades processed during the run window, and the latencies cover every
+ * trade processed from the start of the run until the backlog drained.
+ */
+public record LoadReport(LoadSpec spec,
+                         Instant startedAt,
+                         long elapsedMillis,
+                         boolean stoppedEarly,
+                         long intended,
+                         long offered,
+                         long accepted,
+                         long rejected,
+                         long errors,
+                         double offeredPerSecond,
+                         double achievedPerSecond,
+                         LatencySummary queueWait,
+                         LatencySummary processing,
+                         List<LoadSample> timeline) {
+}
@@ -0,0 +1,8 @@
+package com.trade.tradeprocessing.loadgen;
+
+/**
+ * One second of a load run: what the profile asked for, what the producers managed to offer,
+ * what the pipeline accepted and processed, and how far behind it was at the end of the second.
+ */
+public record LoadSample(long second, double targetRate, long offered, long accepted, long processed, int queueDepth) {
+}
@@ -0,0 +1,32 @@
+package com.trade.tradeprocessing.loadgen;
+
+/**
+ * One load run. Rates are trades/sec for all producers together. A skew of 0 picks instruments or
+ * counterparties uniformly; around 1 or more concentrates the flow on a few hot names (Zipf).
+ */
+public record LoadSpec(LoadProfile profile,
+                       int producers,
+                       double rate,
+                       double baseRate,
+                       long durationSeconds,
+                       double periodSeconds,
+                       double instrumentSkew,
+                       double counterpartySkew) {
+
+    public LoadSpec {
+        if (profile == null) {
+            throw new IllegalArgumentException("profile is required");
+        }
+        if (durationSeconds <= 0) {
+            throw new IllegalArgumentException("durationSeconds must be positive, was " + durationSeconds);
+        }
+        // Also rejects NaN and infinity, which would leave BURST and SQUARE_WAVE stuck in one phase
+        if (!(periodSeconds > 0) || Double.isInfinite(periodSeconds)) {
+            throw new IllegalArgumentException("periodSeconds must be positive, was " + periodSeconds);
+        }
+        if (producers < 1 || !(rate > 0) || !(baseRate >= 0) || !(instrumentSkew >= 0) || !(counterpartySkew >= 0)) {
+            throw new IllegalArgumentException("producers and rate must be positive; "
+                    + "baseRate and skews must not be negative");
+        }
+    }
+}
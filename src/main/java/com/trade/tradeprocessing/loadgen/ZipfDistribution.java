@@ -0,0 +1,32 @@
+package com.trade.tradeprocessing.loadgen;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf-distributed index in [0, n): index k is picked with weight 1 / (k + 1)^exponent.
+ * The cumulative weights are computed once, so sampling is one random double and a binary search.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found gives -(insertion point) - 1, and the insertion point is the bucket we want
+        index = index < 0 ? -index - 1 : index;
+        return Math.min(index, cumulative.length - 1);
+    }
+}
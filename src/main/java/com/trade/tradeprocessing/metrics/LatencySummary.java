@@ -0,0 +1,15 @@
+package com.trade.tradeprocessing.metrics;
+
+/**
+ * Latency percentiles from a {@link LatencyHistogram} snapshot, in microseconds.
+ */
+public record LatencySummary(long count, double p50Micros, double p99Micros, double p999Micros, double maxMicros) {
+
+    public static LatencySummary of(LatencyHistogram.Snapshot snapshot) {
+        return new LatencySummary(snapshot.count(),
+                snapshot.percentile(50) / 1000.0,
+                snapshot.percentile(99) / 1000.0,
+                snapshot.percentile(99.9) / 1000.0,
+                snapshot.maxNanos() / 1000.0);
+    }
+}
@@ -0,0 +1,196 @@
+package com.trade.tradeprocessing.metrics;
+
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.services.TradePersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processing metrics shared by every pipeline mode. The record/increment methods are called on the
+ * worker path and only touch preallocated atomics; everything else runs on the scrape or sampler thread.
+ */
+@Component
+public class PipelineMetrics {
+
+    // Windows (in seconds) over which throughput is reported
+    private static final int[] THROUGHPUT_WINDOWS = {1, 10, 60};
+
+    private final Logger log = LoggerFactory.getLogger(PipelineMetrics.class);
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rejectedValidation = new AtomicLong();
+    private final AtomicLong rejectedFx = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedDuplicate = new AtomicLong();
+    private final ObjectProvider<TradePublisher> tradePublisher;
+    private final ObjectProvider<TradePersister> tradePersister;
+    private final String pipelineMode;
+    private final String executorMode;
+
+    // Processed count sampled once a second, newest last; only the sampler thread touches these
+    private final long[] processedSamples = new long[THROUGHPUT_WINDOWS[THROUGHPUT_WINDOWS.length - 1] + 1];
+    private int samplesTaken;
+    private volatile double[] throughput = new double[THROUGHPUT_WINDOWS.length];
+
+    public PipelineMetrics(ObjectProvider<TradePublisher> tradePublisher,
+                           ObjectProvider<TradePersister> tradePersister,
+                           @Value("${trades.pipeline.mode:queue}") String pipelineMode,
+                           @Value("${trades.executor.mode:platform}") String executorMode) {
+        this.tradePublisher = tradePublisher;
+        this.tradePersister = tradePersister;
+        this.pipelineMode = pipelineMode;
+        this.executorMode = executorMode;
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    public void tradeProcessed(long totalNanos) {
+        histograms.get(Stage.TOTAL).record(totalNanos);
+        processed.incrementAndGet();
+    }
+
+    public void rejectedByValidation() {
+        rejectedValidation.incrementAndGet();
+    }
+
+    public void rejectedForFx() {
+        rejectedFx.incrementAndGet();
+    }
+
+    public void rejectedQueueFull() {
+        rejectedQueueFull.incrementAndGet();
+    }
+
+    public void rejectedDuplicate() {
+        rejectedDuplicate.incrementAndGet();
+    }
+
+    public long processedCount() {
+        return processed.get();
+    }
+
+    public LatencyHistogram.Snapshot snapshot(Stage stage) {
+        return histograms.get(stage).snapshot();
+    }
+
+    public int queueDepth() {
+        TradePublisher publisher = tradePublisher.getIfAvailable();
+        return publisher == null ? 0 : publisher.backlog();
+    }
+
+    /**
+     * Trades/sec over the last 1s, 10s and 60s (shorter if the app has been up for less).
+     */
+    public double[] throughput() {
+        return throughput;
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void sampleThroughput() {
+        System.arraycopy(processedSamples, 1, processedSamples, 0, processedSamples.length - 1);
+        processedSamples[processedSamples.length - 1] = processed.get();
+        samplesTaken++;
+
+        double[] rates = new double[THROUGHPUT_WINDOWS.length];
+        int newest = processedSamples.length - 1;
+        for (int i = 0; i < THROUGHPUT_WINDOWS.length; i++) {
+            int window = Math.min(THROUGHPUT_WINDOWS[i], samplesTaken - 1);
+            if (window > 0) {
+                rates[i] = (processedSamples[newest] - processedSamples[newest - window]) / (double) window;
+            }
+        }
+        throughput = rates;
+    }
+
+    @Scheduled(fixedRate = 30000, initialDelay = 30000)
+    public void logSummary() {
+        LatencyHistogram.Snapshot total = snapshot(Stage.TOTAL);
+        log.info(String.format("METRICS (%s/%s): processed=%d, throughput=%.2f/s (60s), queue=%d, p50=%.1fus, p99=%.1fus, max=%.1fus",
+                pipelineMode, executorMode, processed.get(), throughput[throughput.length - 1], queueDepth(),
+                total.percentile(50) / 1000.0, total.percentile(99) / 1000.0, total.maxNanos() / 1000.0));
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP trade_pipeline_info Active pipeline and executor mode.\n");
+        out.append("# TYPE trade_pipeline_info gauge\n");
+        out.append("trade_pipeline_info{pipeline_mode=\"").append(pipelineMode)
+                .append("\",executor_mode=\"").append(executorMode).append("\"} 1\n");
+
+        out.append("# HELP trade_stage_latency_seconds Per-stage trade latency since startup.\n");
+        out.append("# TYPE trade_stage_latency_seconds summary\n");
+        StringBuilder max = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = snapshot(stage);
+            for (double quantile : new double[]{0.5, 0.99, 0.999}) {
+                out.append("trade_stage_latency_seconds{stage=\"").append(stage.label())
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(snapshot.percentile(quantile * 100))).append('\n');
+            }
+            out.append("trade_stage_latency_seconds_sum{stage=\"").append(stage.label()).append("\"} ")
+                    .append(seconds(snapshot.sumNanos())).append('\n');
+            out.append("trade_stage_latency_seconds_count{stage=\"").append(stage.label()).append("\"} ")
+                    .append(snapshot.count()).append('\n');
+            max.append("trade_stage_latency_max_seconds{stage=\"").append(stage.label()).append("\"} ")
+                    .append(seconds(snapshot.maxNanos())).append('\n');
+        }
+        out.append("# HELP trade_stage_latency_max_seconds Slowest observation per stage since startup.\n");
+        out.append("# TYPE trade_stage_latency_max_seconds gauge\n");
+        out.append(max);
+
+        out.append("# HELP trade_processed_total Trades that went through the pipeline.\n");
+        out.append("# TYPE trade_processed_total counter\n");
+        out.append("trade_processed_total ").append(processed.get()).append('\n');
+
+        out.append("# HELP trade_rejected_total Trades rejected, by reason.\n");
+        out.append("# TYPE trade_rejected_total counter\n");
+        out.append("trade_rejected_total{reason=\"validation\"} ").append(rejectedValidation.get()).append('\n');
+        out.append("trade_rejected_total{reason=\"fx_unavailable\"} ").append(rejectedFx.get()).append('\n');
+        out.append("trade_rejected_total{reason=\"queue_full\"} ").append(rejectedQueueFull.get()).append('\n');
+        out.append("trade_rejected_total{reason=\"duplicate\"} ").append(rejectedDuplicate.get()).append('\n');
+
+        out.append("# HELP trade_throughput_per_second Processed trades per second over a trailing window.\n");
+        out.append("# TYPE trade_throughput_per_second gauge\n");
+        double[] rates = throughput;
+        for (int i = 0; i < THROUGHPUT_WINDOWS.length; i++) {
+            out.append("trade_throughput_per_second{window=\"").append(THROUGHPUT_WINDOWS[i]).append("s\"} ")
+                    .append(rates[i]).append('\n');
+        }
+
+        out.append("# HELP trade_queue_depth Trades published but not yet picked up.\n");
+        out.append("# TYPE trade_queue_depth gauge\n");
+        out.append("trade_queue_depth ").append(queueDepth()).append('\n');
+
+        TradePersister persister = tradePersister.getIfAvailable();
+        out.append("# HELP trade_persister_backlog Status changes waiting for the next write-behind batch.\n");
+        out.append("# TYPE trade_persister_backlog gauge\n");
+        out.append("trade_persister_backlog ").append(persister == null ? 0 : persister.backlog()).append('\n');
+        out.append("# HELP trade_persister_retries_total Write-behind batches that failed and were retried.\n");
+        out.append("# TYPE trade_persister_retries_total counter\n");
+        out.append("trade_persister_retries_total ").append(persister == null ? 0 : persister.retries()).append('\n');
+        out.append("# HELP trade_persister_failed_total Status changes given up on after the last retry; never written.\n");
+        out.append("# TYPE trade_persister_failed_total counter\n");
+        out.append("trade_persister_failed_total ").append(persister == null ? 0 : persister.failedChanges()).append('\n');
+        return out.toString();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.trade.tradeprocessing.metrics;
+
+/**
+ * Pipeline stages that get their own latency histogram.
+ */
+public enum Stage {
+    // From Trade.createdAt to the start of processing
+    QUEUE_WAIT("queue_wait"),
+    VALIDATION("validation"),
+    // Handing a status change to the TradePersister
+    PERSIST_SAVE("persist_save"),
+    // One write-behind batch flushed to the database
+    PERSIST_FLUSH("persist_flush"),
+    FX_ENRICHMENT("fx_enrichment"),
+    // Whole pipeline for one trade, excluding queue wait; for a trade deferred for its FX rate,
+    // up to when it finishes after the fetch
+    TOTAL("total");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
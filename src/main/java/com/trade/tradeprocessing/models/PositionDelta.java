@@ -0,0 +1,11 @@
+package com.trade.tradeprocessing.models;
+
+import java.util.List;
+
+/**
+ * Positions that changed after fromVersion, up to and including version. fromVersion 0 means
+ * every position, which is also what a client gets after a restart of the service; pass next back
+ * as the next since to keep up.
+ */
+public record PositionDelta(String next, long fromVersion, long version, List<PositionView> positions) {
+}
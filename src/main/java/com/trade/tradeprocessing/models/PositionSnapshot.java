@@ -0,0 +1,65 @@
+package com.trade.tradeprocessing.models;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of the whole position book, ordered by instrument. A new snapshot is
+ * published whenever something changed; the version goes up by one each time, starting from 0 at startup.
+ * <p>
+ * Versions restart on every boot, so clients see them tagged with the boot's epoch as
+ * {@code <epoch>-<version>} (ETag, since, SSE event id). A tag from another epoch means nothing here.
+ */
+public record PositionSnapshot(String epoch, long version, Instant publishedAt, List<PositionView> positions) {
+
+    public static PositionSnapshot empty(String epoch) {
+        return new PositionSnapshot(epoch, 0, Instant.EPOCH, List.of());
+    }
+
+    /**
+     * This snapshot's version tagged with its epoch.
+     */
+    public String tag() {
+        return epoch + "-" + version;
+    }
+
+    /**
+     * The version in a tag from this epoch, or 0 for a tag from another epoch, a bare version or
+     * anything else that does not parse.
+     */
+    public long versionOf(String tag) {
+        if (tag == null || !tag.startsWith(epoch + "-")) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(tag.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Positions that changed after the version in the given tag. A tag from another epoch (the
+     * client saw an earlier run of the service) or one ahead of this snapshot gets everything.
+     */
+    public PositionDelta changedSince(String since) {
+        return changedSince(versionOf(since));
+    }
+
+    /**
+     * Positions that changed after the given version of this epoch.
+     */
+    public PositionDelta changedSince(long since) {
+        if (since <= 0 || since > version) {
+            return new PositionDelta(tag(), 0, version, positions);
+        }
+        List<PositionView> changed = new ArrayList<>();
+        for (PositionView view : positions) {
+            if (view.version() > since) {
+                changed.add(view);
+            }
+        }
+        return new PositionDelta(tag(), since, version, changed);
+    }
+}
@@ -0,0 +1,15 @@
+package com.trade.tradeprocessing.models;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Immutable copy of one instrument's position as of a snapshot. version is the snapshot version
+ * in which this instrument last changed.
+ */
+public record PositionView(String instrument,
+                           BigDecimal netQuantity,
+                           BigDecimal netNotionalUsd,
+                           Instant lastUpdated,
+                           long version) {
+}
@@ -0,0 +1,19 @@
+package com.trade.tradeprocessing.models;
+
+public enum Side {
+    BUY,
+    SELL;
+
+    /**
+     * The side a trade's side field names, or null if it is neither "BUY" nor "SELL".
+     */
+    public static Side parse(String side) {
+        if ("BUY".equals(side)) {
+            return BUY;
+        }
+        if ("SELL".equals(side)) {
+            return SELL;
+        }
+        return null;
+    }
+}
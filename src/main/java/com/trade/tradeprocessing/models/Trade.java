@@ -1,5 +1,8 @@
 package com.trade.tradeprocessing.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.utils.FixedPoint;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -13,11 +16,24 @@ import java.time.LocalDate;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "trades")
+@Table(name = "trades", indexes = {
+        // Each filter column is paired with id so filtered keyset pages are index range scans
+        @Index(name = "idx_trades_instrument_id", columnList = "instrument, id"),
+        @Index(name = "idx_trades_status_id", columnList = "status, id"),
+        @Index(name = "idx_trades_counterparty_id", columnList = "counterparty, id"),
+        @Index(name = "idx_trades_trade_date_id", columnList = "tradeDate, id"),
+        // Confirms a suspected duplicate resubmission
+        @Index(name = "idx_trades_client_trade_id", columnList = "clientTradeId")
+})
 public class Trade {
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
-    private Long id;
+    // Pooled sequence: one round trip hands out a whole block of ids
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trade_seq")
+    @SequenceGenerator(name = "trade_seq", sequenceName = "trades_seq", allocationSize = 500)
+    // Assigned by the persister's flusher thread after the insert commits, then read by the workers
+    private volatile Long id;
+    // Optional id chosen by the submitter; a second trade with the same one is dropped as a retry
+    private String clientTradeId;
     private LocalDate tradeDate;
     private String instrument;
     private String side; // "BUY"/"SELL"
@@ -29,4 +45,39 @@ public class Trade {
     private Instant createdAt;
     private Instant timeProcessed;
     private BigDecimal notionalUsd;
+
+    // Fixed-point working copies used by the pipeline; the BigDecimal fields above are what gets stored and served
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private long quantityUnits = FixedPoint.NOT_REPRESENTABLE;
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private long priceUnits = FixedPoint.NOT_REPRESENTABLE;
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private long notionalUsdUnits = FixedPoint.NOT_REPRESENTABLE;
+    // Reference data ids assigned at ingest; the strings above are what gets stored and served
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private int instrumentId = SymbolDictionary.NO_ID;
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private int counterpartyId = SymbolDictionary.NO_ID;
+    @Transient
+    @JsonIgnore
+    @Builder.Default
+    private int currencyId = SymbolDictionary.NO_ID;
+    // Null until interned, and for a side that is neither BUY nor SELL
+    @Transient
+    @JsonIgnore
+    private Side sideCode;
+    // Sequence of the trade's INGEST record in the journal; 0 when it was not journaled
+    @Transient
+    @JsonIgnore
+    private long journalSequence;
 }
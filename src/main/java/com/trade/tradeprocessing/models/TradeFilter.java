@@ -0,0 +1,13 @@
+package com.trade.tradeprocessing.models;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filters for trade queries; null fields don't filter. The trade date range is inclusive.
+ */
+public record TradeFilter(String instrument,
+                          String status,
+                          String counterparty,
+                          LocalDate fromDate,
+                          LocalDate toDate) {
+}
@@ -0,0 +1,10 @@
+package com.trade.tradeprocessing.models;
+
+import java.util.List;
+
+/**
+ * One keyset page of trades, ordered by id. Pass nextCursor as afterId to get the next page;
+ * it is null on the last page.
+ */
+public record TradePage(List<Trade> items, Long nextCursor) {
+}
@@ -0,0 +1,142 @@
+package com.trade.tradeprocessing.pipeline;
+
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.services.PositionService;
+import com.trade.tradeprocessing.services.TradeIngestService;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drains the pipeline on shutdown. Stops after the web server (so no new requests arrive)
+ * and before the processing executor (so consumers are still running while the backlog drains):
+ * <ol>
+ *   <li>closes intake, so any new submission gets CLOSED, waits for those already under way, and stops
+ *       re-queueing trades recovered at startup,</li>
+ *   <li>waits up to the drain timeout for the backlog and in-flight trades to reach zero,</li>
+ *   <li>lets consumers exit, and halts the pipeline mode's own threads (partitioned shards, ring stages), and waits for
+ *       them, so the executor stops at once instead of waiting out its own timeout and nothing is still
+ *       applying a trade while positions are flushed,</li>
+ *   <li>flushes positions and writes a final journal checkpoint, so the next start restores the
+ *       book from the checkpoint and only re-queues what did not drain.</li>
+ * </ol>
+ * The journal checkpoint is the only state a warm restart restores from. With trades.journal.enabled
+ * off, positions still reach the database but trades left undrained are lost, so
+ * trades.shutdown.warm-restart refuses to start without the journal.
+ */
+@Component
+public class PipelineLifecycle implements SmartLifecycle {
+
+    // Higher phases stop first: the web server stops at DEFAULT_PHASE - 2048, executors at DEFAULT_PHASE / 2
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final long DRAIN_POLL_MS = 20;
+
+    private final Logger log = LoggerFactory.getLogger(PipelineLifecycle.class);
+    private final TradeIngestService tradeIngestService;
+    private final TradeProcessingService tradeProcessingService;
+    private final ObjectProvider<TradePublisher> tradePublisher;
+    private final PositionService positionService;
+    private final ObjectProvider<TradeJournal> tradeJournal;
+    private final long drainTimeoutMs;
+    private final boolean warmRestart;
+    private volatile boolean running;
+
+    public PipelineLifecycle(TradeIngestService tradeIngestService,
+                             TradeProcessingService tradeProcessingService,
+                             ObjectProvider<TradePublisher> tradePublisher,
+                             PositionService positionService,
+                             ObjectProvider<TradeJournal> tradeJournal,
+                             @Value("${trades.shutdown.drain-timeout-ms:10000}") long drainTimeoutMs,
+                             @Value("${trades.shutdown.warm-restart:false}") boolean warmRestart) {
+        this.tradeIngestService = tradeIngestService;
+        this.tradeProcessingService = tradeProcessingService;
+        this.tradePublisher = tradePublisher;
+        this.positionService = positionService;
+        this.tradeJournal = tradeJournal;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.warmRestart = warmRestart;
+    }
+
+    @Override
+    public void start() {
+        if (warmRestart && tradeJournal.getIfAvailable() == null) {
+            throw new IllegalStateException("trades.shutdown.warm-restart needs trades.journal.enabled=true: "
+                    + "the journal checkpoint is what the next start restores from");
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        TradePublisher publisher = tradePublisher.getIfAvailable();
+        TradeJournal journal = tradeJournal.getIfAvailable();
+        try {
+            // 1. No new trades; submissions already past the intake check finish publishing, and
+            // recovered trades not re-queued yet stay pending in the journal
+            if (!tradeIngestService.closeIntake(drainTimeoutMs)) {
+                log.warn("Intake closed with submissions still in progress after {} ms.", drainTimeoutMs);
+            }
+            if (journal != null && !journal.stopRequeue(remainingMs(deadline))) {
+                log.warn("Still re-queueing recovered trades after the drain timeout.");
+            }
+
+            // 2. Wait for the queue and the trades already taken off it
+            log.info("Draining pipeline: {} queued, {} in flight.", backlog(publisher), tradeProcessingService.inFlight());
+            awaitUntil(deadline, () -> backlog(publisher) == 0 && tradeProcessingService.inFlight() == 0);
+
+            // 3. Consumers exit; one may have taken a last trade before it saw the flag, so wait for that too
+            tradeProcessingService.stopConsumers();
+            if (publisher != null && !publisher.halt(remainingMs(deadline))) {
+                log.warn("Pipeline threads still running after the drain timeout.");
+            }
+            awaitUntil(deadline, () -> tradeProcessingService.consumersRunning() == 0 && tradeProcessingService.inFlight() == 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int backlog = backlog(publisher);
+
+        // 4. Final positions and checkpoint
+        positionService.calculateAndPersistPositions();
+        positionService.publishSnapshot();
+        if (journal != null) {
+            journal.checkpoint();
+        }
+        log.info("Pipeline drained in {} ms: {} queued and {} in flight left, {} trades pending in the journal for replay.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), backlog, tradeProcessingService.inFlight(),
+                journal == null ? 0 : journal.pendingTrades());
+        running = false;
+    }
+
+    private static int backlog(TradePublisher publisher) {
+        return publisher == null ? 0 : publisher.backlog();
+    }
+
+    private static long remainingMs(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private static void awaitUntil(long deadline, BooleanSupplier done) throws InterruptedException {
+        while (!done.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(DRAIN_POLL_MS);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,32 @@
+package com.trade.tradeprocessing.pipeline;
+
+import com.trade.tradeprocessing.models.Trade;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Default mode: trades go onto the shared tradeQueue and are taken by the queue consumers.
+ */
+public class QueueTradePublisher implements TradePublisher {
+
+    private final BlockingQueue<Trade> tradeQueue;
+
+    public QueueTradePublisher(BlockingQueue<Trade> tradeQueue) {
+        this.tradeQueue = tradeQueue;
+    }
+
+    @Override
+    public void publish(Trade trade) throws InterruptedException {
+        tradeQueue.put(trade);
+    }
+
+    @Override
+    public boolean tryPublish(Trade trade) {
+        return tradeQueue.offer(trade);
+    }
+
+    @Override
+    public int backlog() {
+        return tradeQueue.size();
+    }
+}
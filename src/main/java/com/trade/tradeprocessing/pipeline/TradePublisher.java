@@ -0,0 +1,34 @@
+package com.trade.tradeprocessing.pipeline;
+
+import com.trade.tradeprocessing.models.Trade;
+
+/**
+ * Entry point for producers. Each pipeline mode provides one implementation,
+ * so producers don't need to know which mode is running.
+ */
+public interface TradePublisher {
+
+    /**
+     * Publishes the trade, blocking while the pipeline is full.
+     */
+    void publish(Trade trade) throws InterruptedException;
+
+    /**
+     * Publishes the trade only if there is room right now.
+     */
+    boolean tryPublish(Trade trade);
+
+    /**
+     * Number of trades accepted but not yet picked up by the pipeline.
+     */
+    int backlog();
+
+    /**
+     * Stops the threads this mode runs itself, if any, once each has finished the trade in hand,
+     * waiting up to the timeout for them. Returns false if some were still running when it ran out.
+     * Call once the backlog has drained.
+     */
+    default boolean halt(long timeoutMs) throws InterruptedException {
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+package com.trade.tradeprocessing.pipeline.adaptive;
+
+import com.trade.tradeprocessing.metrics.LatencyHistogram;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.metrics.Stage;
+import com.trade.tradeprocessing.services.TradePersister;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Sizes the queue consumer pool between trades.adaptive.min-workers and max-workers (AIMD).
+ * Every interval it takes the processing latency of the trades completed since the last sample,
+ * the queue depth and the arrival rate, and then:
+ * <ol>
+ *     <li>halves back (multiplicative decrease) when mean latency has grown past the tolerance over
+ *     the best latency seen recently: more workers are only queueing on each other or the database;</li>
+ *     <li>adds one worker (additive increase) when the queue is building and latency is healthy,
+ *     unless the write-behind persister is already backed up;</li>
+ *     <li>retires one worker when the queue is empty and, by Little's law, fewer workers would do.</li>
+ * </ol>
+ * Latency is {@link Stage#TOTAL}, which for a trade deferred for its FX rate includes the wait for the
+ * fetch, though the worker was free during it. Slow rate fetches can therefore read as worker contention.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.adaptive.enabled", havingValue = "true")
+public class AdaptiveConcurrencyController {
+
+    private static final int MAX_DECISIONS = 50;
+    // Fewer completed trades than this in an interval says nothing about latency
+    private static final long MIN_SAMPLES = 20;
+    // Baseline latency creeps up by this factor per interval, so it re-learns after a lasting shift
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+    private final TradeProcessingService tradeProcessingService;
+    private final PipelineMetrics pipelineMetrics;
+    private final TradePersister tradePersister;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int queueHighWater;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final Deque<ScalingDecision> decisions = new ArrayDeque<>();
+
+    // Sampler state; only the scheduler thread writes it
+    private LatencyHistogram.Snapshot lastTotal;
+    private long lastSampleNanos;
+    private int lastQueueDepth;
+    private double baselineNanos = Double.NaN;
+    private volatile ConcurrencyStatus status;
+
+    public AdaptiveConcurrencyController(TradeProcessingService tradeProcessingService,
+                                         PipelineMetrics pipelineMetrics,
+                                         TradePersister tradePersister,
+                                         @Value("${trades.adaptive.min-workers:${trades.consumers:5}}") int minWorkers,
+                                         @Value("${trades.adaptive.max-workers:${trades.executor.max-pool-size:10}}") int maxWorkers,
+                                         @Value("${trades.adaptive.queue-high-water:50}") int queueHighWater,
+                                         @Value("${trades.adaptive.latency-tolerance:2.0}") double latencyTolerance,
+                                         @Value("${trades.adaptive.backoff-ratio:0.5}") double backoffRatio) {
+        this.tradeProcessingService = tradeProcessingService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tradePersister = tradePersister;
+        this.minWorkers = Math.max(1, minWorkers);
+        this.maxWorkers = Math.max(this.minWorkers, maxWorkers);
+        this.queueHighWater = queueHighWater;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.lastTotal = pipelineMetrics.snapshot(Stage.TOTAL);
+        this.lastSampleNanos = System.nanoTime();
+    }
+
+    public ConcurrencyStatus status() {
+        ConcurrencyStatus current = status;
+        if (current == null) {
+            current = new ConcurrencyStatus(tradeProcessingService.workerCount(), minWorkers, maxWorkers,
+                    pipelineMetrics.queueDepth(), 0, 0, 0, List.of());
+        }
+        return current;
+    }
+
+    @Scheduled(fixedRateString = "${trades.adaptive.interval-ms:500}", initialDelayString = "${trades.adaptive.interval-ms:500}")
+    public void adjust() {
+        if (!tradeProcessingService.supportsWorkerScaling()) {
+            return;
+        }
+        // 1. Sample: latency of the trades completed since last time, queue depth, arrivals
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos) / 1_000_000_000.0;
+        LatencyHistogram.Snapshot total = pipelineMetrics.snapshot(Stage.TOTAL);
+        LatencyHistogram.Snapshot window = total.since(lastTotal);
+        int queueDepth = pipelineMetrics.queueDepth();
+        // Whatever was processed plus whatever the queue grew by arrived in this interval
+        double arrivalRate = Math.max(0, window.count() + queueDepth - lastQueueDepth) / seconds;
+        lastTotal = total;
+        lastSampleNanos = now;
+        int previousDepth = lastQueueDepth;
+        lastQueueDepth = queueDepth;
+
+        double meanNanos = window.count() == 0 ? 0 : (double) window.sumNanos() / window.count();
+        boolean latencyKnown = window.count() >= MIN_SAMPLES;
+        if (latencyKnown) {
+            baselineNanos = Double.isNaN(baselineNanos) ? meanNanos : Math.min(baselineNanos * BASELINE_DRIFT, meanNanos);
+        }
+
+        // 2. Decide
+        int workers = tradeProcessingService.workerCount();
+        int target = workers;
+        String reason = null;
+        if (workers < minWorkers) {
+            target = minWorkers;
+            reason = "below minimum";
+        } else if (latencyKnown && meanNanos > baselineNanos * latencyTolerance && workers > minWorkers) {
+            target = Math.max(minWorkers, Math.min(workers - 1, (int) Math.floor(workers * backoffRatio)));
+            reason = String.format("latency %.1fx baseline", meanNanos / baselineNanos);
+        } else if (queueDepth > queueHighWater && queueDepth >= previousDepth && workers < maxWorkers) {
+            if (tradePersister.backlog() * 2 > tradePersister.capacity()) {
+                // The database is what is behind; more workers would only block in save()
+                log.debug("Queue at {} but persister backlog is {}; not adding workers.", queueDepth, tradePersister.backlog());
+            } else {
+                target = workers + 1;
+                reason = "queue depth " + queueDepth;
+            }
+        } else if (queueDepth == 0 && workers > minWorkers
+                && arrivalRate * meanNanos / 1_000_000_000.0 < workers - 1) {
+            // Little's law: workers busy on average = arrival rate x time per trade
+            target = workers - 1;
+            reason = String.format("%.1f workers busy", arrivalRate * meanNanos / 1_000_000_000.0);
+        }
+
+        // 3. Apply
+        for (int i = workers; i < target; i++) {
+            if (!tradeProcessingService.addWorker()) {
+                target = i;
+                break;
+            }
+        }
+        for (int i = target; i < workers; i++) {
+            tradeProcessingService.retireWorker();
+        }
+        double meanMicros = meanNanos / 1000.0;
+        double baselineMicros = Double.isNaN(baselineNanos) ? 0 : baselineNanos / 1000.0;
+        if (target != workers) {
+            ScalingDecision decision = new ScalingDecision(Instant.now(), workers, target, reason,
+                    queueDepth, arrivalRate, meanMicros, baselineMicros);
+            log.info("Consumers {} -> {} ({}): queue={}, arrivals={}/s, mean latency={}us",
+                    workers, target, reason, queueDepth, Math.round(arrivalRate), Math.round(meanMicros));
+            synchronized (decisions) {
+                decisions.addFirst(decision);
+                if (decisions.size() > MAX_DECISIONS) {
+                    decisions.removeLast();
+                }
+            }
+        }
+        List<ScalingDecision> recent;
+        synchronized (decisions) {
+            recent = new ArrayList<>(decisions);
+        }
+        status = new ConcurrencyStatus(target, minWorkers, maxWorkers, queueDepth, arrivalRate,
+                meanMicros, baselineMicros, recent);
+    }
+}
@@ -0,0 +1,16 @@
+package com.trade.tradeprocessing.pipeline.adaptive;
+
+import java.util.List;
+
+/**
+ * Current consumer count and bounds, the last sample the controller took, and its recent decisions, newest first.
+ */
+public record ConcurrencyStatus(int workers,
+                                int minWorkers,
+                                int maxWorkers,
+                                int queueDepth,
+                                double arrivalRate,
+                                double meanLatencyMicros,
+                                double baselineLatencyMicros,
+                                List<ScalingDecision> recentDecisions) {
+}
@@ -0,0 +1,16 @@
+package com.trade.tradeprocessing.pipeline.adaptive;
+
+import java.time.Instant;
+
+/**
+ * One change to the consumer count, with the signals that drove it.
+ */
+public record ScalingDecision(Instant at,
+                              int fromWorkers,
+                              int toWorkers,
+                              String reason,
+                              int queueDepth,
+                              double arrivalRate,
+                              double meanLatencyMicros,
+                              double baselineLatencyMicros) {
+}
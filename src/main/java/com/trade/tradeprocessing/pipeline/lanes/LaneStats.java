@@ -0,0 +1,17 @@
+package com.trade.tradeprocessing.pipeline.lanes;
+
+import com.trade.tradeprocessing.metrics.LatencySummary;
+
+/**
+ * Per-lane view for the stats endpoint. Rejected counts offers turned away because the lane was
+ * full; queueWait is the time from enqueue to dequeue, since startup.
+ */
+public record LaneStats(String lane,
+                        int weight,
+                        int capacity,
+                        int depth,
+                        long enqueued,
+                        long dequeued,
+                        long rejected,
+                        LatencySummary queueWait) {
+}
@@ -0,0 +1,333 @@
+package com.trade.tradeprocessing.pipeline.lanes;
+
+import com.trade.tradeprocessing.configurations.TradeLaneProperties;
+import com.trade.tradeprocessing.metrics.LatencyHistogram;
+import com.trade.tradeprocessing.metrics.LatencySummary;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drop-in replacement for the single FIFO tradeQueue with several bounded lanes. Producers' trades
+ * are routed to a lane by {@link TradeLaneProperties} rules; each lane is FIFO and has its own
+ * capacity, so a full low-priority lane blocks (put) or rejects (offer) only its own trades.
+ * <p>
+ * Consumers take from the lanes by smooth weighted round robin: among the lanes that have trades,
+ * each gets dequeues in proportion to its weight, interleaved rather than in bursts. A high-priority
+ * lane is served often without the low-priority ones ever starving.
+ */
+public class PriorityLaneQueue extends AbstractQueue<Trade> implements BlockingQueue<Trade> {
+
+    private final ReferenceData referenceData;
+    private final Lane[] lanes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int count;
+
+    public PriorityLaneQueue(List<TradeLaneProperties.Lane> definitions, ReferenceData referenceData) {
+        if (definitions.isEmpty()) {
+            throw new IllegalArgumentException("At least one trade lane must be defined");
+        }
+        this.referenceData = referenceData;
+        this.lanes = new Lane[definitions.size()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(definitions.get(i), referenceData, lock.newCondition());
+        }
+    }
+
+    /**
+     * Index of the lane the trade goes to: the first whose rules match, else the last.
+     */
+    public int laneOf(Trade trade) {
+        // Already done at ingest; trades re-queued from the journal arrive without ids
+        referenceData.intern(trade);
+        for (int i = 0; i < lanes.length - 1; i++) {
+            if (lanes[i].matches(trade)) {
+                return i;
+            }
+        }
+        return lanes.length - 1;
+    }
+
+    @Override
+    public void put(Trade trade) throws InterruptedException {
+        Lane lane = lanes[laneOf(trade)];
+        lock.lockInterruptibly();
+        try {
+            while (lane.entries.size() == lane.capacity) {
+                lane.notFull.await();
+            }
+            enqueue(lane, trade);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Trade trade) {
+        Lane lane = lanes[laneOf(trade)];
+        lock.lock();
+        try {
+            if (lane.entries.size() == lane.capacity) {
+                lane.rejected++;
+                return false;
+            }
+            enqueue(lane, trade);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Trade trade, long timeout, TimeUnit unit) throws InterruptedException {
+        Lane lane = lanes[laneOf(trade)];
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (lane.entries.size() == lane.capacity) {
+                if (nanos <= 0) {
+                    lane.rejected++;
+                    return false;
+                }
+                nanos = lane.notFull.awaitNanos(nanos);
+            }
+            enqueue(lane, trade);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Trade take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Trade poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Trade poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Head of the highest-priority lane that has trades; not necessarily what the next poll returns.
+     */
+    @Override
+    public Trade peek() {
+        lock.lock();
+        try {
+            for (Lane lane : lanes) {
+                if (!lane.entries.isEmpty()) {
+                    return lane.entries.peekFirst().trade();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int remaining = 0;
+            for (Lane lane : lanes) {
+                remaining += lane.capacity - lane.entries.size();
+            }
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Trade> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Trade> target, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxElements) {
+                target.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Snapshot of the queued trades, lane by lane in priority order. Does not support remove.
+     */
+    @Override
+    public Iterator<Trade> iterator() {
+        lock.lock();
+        try {
+            List<Trade> snapshot = new ArrayList<>(count);
+            for (Lane lane : lanes) {
+                for (Entry entry : lane.entries) {
+                    snapshot.add(entry.trade());
+                }
+            }
+            return List.copyOf(snapshot).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<LaneStats> stats() {
+        List<LaneStats> stats = new ArrayList<>(lanes.length);
+        lock.lock();
+        try {
+            for (Lane lane : lanes) {
+                stats.add(new LaneStats(lane.name, lane.weight, lane.capacity, lane.entries.size(),
+                        lane.enqueued, lane.dequeued, lane.rejected, LatencySummary.of(lane.queueWait.snapshot())));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+    // Caller holds the lock and has checked the lane has room
+    private void enqueue(Lane lane, Trade trade) {
+        lane.entries.addLast(new Entry(trade, System.nanoTime()));
+        lane.enqueued++;
+        count++;
+        notEmpty.signal();
+    }
+
+    // Caller holds the lock and has checked count > 0
+    private Trade dequeue() {
+        // Smooth weighted round robin over the lanes that have trades
+        Lane next = null;
+        int totalWeight = 0;
+        for (Lane lane : lanes) {
+            if (lane.entries.isEmpty()) {
+                continue;
+            }
+            lane.credit += lane.weight;
+            totalWeight += lane.weight;
+            if (next == null || lane.credit > next.credit) {
+                next = lane;
+            }
+        }
+        next.credit -= totalWeight;
+        Entry entry = next.entries.pollFirst();
+        if (next.entries.isEmpty()) {
+            // An idle lane neither banks nor owes turns
+            next.credit = 0;
+        }
+        next.dequeued++;
+        count--;
+        next.notFull.signal();
+        next.queueWait.record(System.nanoTime() - entry.enqueuedNanos());
+        return entry.trade();
+    }
+
+    private record Entry(Trade trade, long enqueuedNanos) {
+    }
+
+    /**
+     * One lane's rules, trades and counters; everything but the histogram is guarded by the queue lock.
+     */
+    private static final class Lane {
+        final String name;
+        final int weight;
+        final int capacity;
+        // Estimated quantity × price at or above which a trade matches; NaN when not a criterion
+        final double minNotional;
+        final BitSet counterpartyIds = new BitSet();
+        final BitSet instrumentIds = new BitSet();
+        final boolean matchesAll;
+        final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        final Condition notFull;
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        long enqueued;
+        long dequeued;
+        long rejected;
+        int credit;
+
+        Lane(TradeLaneProperties.Lane definition, ReferenceData referenceData, Condition notFull) {
+            this.name = definition.name();
+            this.weight = definition.weight();
+            this.capacity = definition.capacity();
+            this.minNotional = definition.minNotional() == null ? Double.NaN : definition.minNotional().doubleValue();
+            for (String counterparty : definition.counterparties()) {
+                counterpartyIds.set(referenceData.counterparties().intern(counterparty));
+            }
+            for (String instrument : definition.instruments()) {
+                instrumentIds.set(referenceData.instruments().intern(instrument));
+            }
+            this.matchesAll = definition.minNotional() == null && counterpartyIds.isEmpty() && instrumentIds.isEmpty();
+            this.notFull = notFull;
+        }
+
+        boolean matches(Trade trade) {
+            if (matchesAll
+                    || counterpartyIds.get(trade.getCounterpartyId())
+                    || instrumentIds.get(trade.getInstrumentId())) {
+                return true;
+            }
+            // An estimate for routing only, so doubles are close enough
+            return !Double.isNaN(minNotional) && trade.getQuantity() != null && trade.getPrice() != null
+                    && trade.getQuantity().doubleValue() * trade.getPrice().doubleValue() >= minNotional;
+        }
+    }
+}
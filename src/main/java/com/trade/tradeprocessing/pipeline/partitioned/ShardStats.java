@@ -0,0 +1,13 @@
+package com.trade.tradeprocessing.pipeline.partitioned;
+
+import java.util.Map;
+
+/**
+ * Per-shard view for the stats endpoint; topInstruments is DONE trades per instrument, busiest first.
+ */
+public record ShardStats(int shard,
+                         int queueDepth,
+                         long processed,
+                         double tradesPerSecond,
+                         Map<String, Long> topInstruments) {
+}
@@ -0,0 +1,143 @@
+package com.trade.tradeprocessing.pipeline.partitioned;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.services.PositionSlice;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One single-threaded partition of the pipeline. Every trade for a given instrument lands on the same
+ * shard, so trades per instrument are processed in arrival order and the shard's position slice
+ * is only ever written by this shard's thread.
+ */
+final class TradeShard implements Runnable {
+
+    private static final int TOP_INSTRUMENTS = 5;
+
+    private final Logger log = LoggerFactory.getLogger(TradeShard.class);
+    private final int index;
+    private final BlockingQueue<Trade> queue;
+    private final TradeProcessingService tradeProcessingService;
+    private final PositionSlice positionSlice;
+    private final SymbolDictionary instruments;
+    private final AtomicLong processed = new AtomicLong();
+    // Trades processed per instrument id. Only this shard writes (and grows) it; readers are the stats endpoint
+    private volatile AtomicLongArray processedByInstrument = new AtomicLongArray(16);
+    private volatile boolean running = true;
+    // Sampled by the pipeline once a second
+    private long lastSampleCount;
+    private volatile double tradesPerSecond;
+
+    TradeShard(int index, int capacity, TradeProcessingService tradeProcessingService, PositionSlice positionSlice,
+               SymbolDictionary instruments) {
+        this.index = index;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.tradeProcessingService = tradeProcessingService;
+        this.positionSlice = positionSlice;
+        this.instruments = instruments;
+    }
+
+    void put(Trade trade) throws InterruptedException {
+        queue.put(trade);
+    }
+
+    boolean offer(Trade trade) {
+        return queue.offer(trade);
+    }
+
+    int depth() {
+        return queue.size();
+    }
+
+    void halt() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        log.info("Shard {} started on thread {}.", index, Thread.currentThread().getName());
+        while (running) {
+            try {
+                Trade trade = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (trade == null) {
+                    continue;
+                }
+                long latencyStart = System.nanoTime();
+                tradeProcessingService.inFlightStarted();
+                try {
+                    process(trade);
+                } finally {
+                    tradeProcessingService.inFlightFinished();
+                }
+                tradeProcessingService.recordProcessed(System.nanoTime() - latencyStart);
+                processed.lazySet(processed.get() + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                log.error("Unhandled exception in shard {}.", index, e);
+            }
+        }
+        log.info("Shard {} stopped.", index);
+    }
+
+    private void process(Trade trade) {
+        if (!tradeProcessingService.beginProcessing(trade) || !tradeProcessingService.enrich(trade)) {
+            return;
+        }
+        tradeProcessingService.complete(trade);
+        positionSlice.applyTrade(trade);
+        countProcessed(trade.getInstrumentId());
+    }
+
+    private void countProcessed(int instrumentId) {
+        AtomicLongArray counts = processedByInstrument;
+        if (instrumentId >= counts.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(instrumentId + 1, counts.length() * 2));
+            for (int i = 0; i < counts.length(); i++) {
+                grown.set(i, counts.get(i));
+            }
+            processedByInstrument = grown;
+            counts = grown;
+        }
+        // Single writer, so a plain read-then-write is enough
+        counts.lazySet(instrumentId, counts.get(instrumentId) + 1);
+    }
+
+    void sample(double elapsedSeconds) {
+        long count = processed.get();
+        tradesPerSecond = (count - lastSampleCount) / elapsedSeconds;
+        lastSampleCount = count;
+    }
+
+    ShardStats stats() {
+        AtomicLongArray counts = processedByInstrument;
+        // Min-heap of the busiest ids so far, by count
+        PriorityQueue<long[]> busiest = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+        for (int id = 0; id < counts.length(); id++) {
+            long count = counts.get(id);
+            if (count > 0) {
+                busiest.add(new long[]{id, count});
+                if (busiest.size() > TOP_INSTRUMENTS) {
+                    busiest.poll();
+                }
+            }
+        }
+        Map<String, Long> top = new LinkedHashMap<>();
+        busiest.stream()
+                .sorted((a, b) -> Long.compare(b[1], a[1]))
+                .forEach(e -> top.put(instruments.symbol((int) e[0]), e[1]));
+        return new ShardStats(index, queue.size(), processed.get(), tradesPerSecond, top);
+    }
+}
@@ -0,0 +1,157 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.services.EnrichmentOutcome;
+import com.trade.tradeprocessing.services.PositionService;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ring buffer pipeline mode (trades.pipeline.mode=ring). Validation, enrichment, persistence and
+ * position update each run on their own thread, one after the other over the same preallocated slots.
+ * A trade whose FX rate is not cached is handed to the async enricher, which completes it off the
+ * ring, so the enrichment stage never waits on a fetch. Trades count as in flight from validation
+ * until they are applied to the position book, by the last stage or by the enricher.
+ */
+@Component
+@ConditionalOnProperty(name = "trades.pipeline.mode", havingValue = "ring")
+public class RingBufferTradePipeline implements TradePublisher {
+
+    private final Logger log = LoggerFactory.getLogger(RingBufferTradePipeline.class);
+    private final TradeProcessingService tradeProcessingService;
+    private final PositionService positionService;
+    private final TradeRingBuffer ring;
+    private final WaitStrategy waitStrategy;
+    private final List<RingStage> stages = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    // Set by halt(); no slot is claimed after it
+    private volatile boolean halted;
+
+    public RingBufferTradePipeline(TradeProcessingService tradeProcessingService,
+                                   PositionService positionService,
+                                   @Value("${trades.pipeline.ring-size:1024}") int ringSize,
+                                   @Value("${trades.pipeline.wait-strategy:PARK}") WaitStrategy waitStrategy) {
+        this.tradeProcessingService = tradeProcessingService;
+        this.positionService = positionService;
+        this.waitStrategy = waitStrategy;
+        this.ring = new TradeRingBuffer(ringSize, waitStrategy);
+    }
+
+    @PostConstruct
+    public void start() {
+        RingStage validation = addStage("validation", null, event -> {
+            event.startNanos = System.nanoTime();
+            tradeProcessingService.inFlightStarted();
+            event.proceed = tradeProcessingService.beginProcessing(event.trade);
+        });
+        RingStage enrichment = addStage("enrichment", validation, event -> {
+            if (event.proceed) {
+                // The continuation must not touch the slot, which may be reused by then
+                long startNanos = event.startNanos;
+                EnrichmentOutcome outcome = tradeProcessingService.enrichOrDefer(event.trade, () -> finish(startNanos));
+                event.proceed = outcome == EnrichmentOutcome.ENRICHED;
+                event.deferred = outcome == EnrichmentOutcome.DEFERRED;
+            }
+        });
+        RingStage persistence = addStage("persistence", enrichment, event -> {
+            if (event.proceed) {
+                tradeProcessingService.complete(event.trade);
+            }
+        });
+        RingStage position = addStage("position", persistence, event -> {
+            if (event.proceed) {
+                positionService.applyTrade(event.trade);
+            }
+            if (!event.deferred) {
+                finish(event.startNanos);
+            }
+            // Release the trade so the slot doesn't keep it reachable until it is reused
+            event.clear();
+        });
+        ring.setGatingSequence(position.sequence());
+
+        for (RingStage stage : stages) {
+            Thread thread = new Thread(stage, "Trade-Ring-" + stage.name());
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("Ring buffer pipeline started: {} slots, {} stages, {} wait strategy.",
+                ring.size(), stages.size(), waitStrategy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        halt(1000);
+    }
+
+    /**
+     * Stops claiming slots, lets the stages finish every slot already claimed, then stops them.
+     * Trades deferred to the async enricher finish on their own and stay counted in flight until then.
+     */
+    @Override
+    public boolean halt(long timeoutMs) throws InterruptedException {
+        halted = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (ring.backlog() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        stages.forEach(RingStage::halt);
+        boolean stopped = true;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            stopped &= !thread.isAlive();
+        }
+        return stopped;
+    }
+
+    private void finish(long startNanos) {
+        tradeProcessingService.recordProcessed(System.nanoTime() - startNanos);
+        tradeProcessingService.inFlightFinished();
+    }
+
+    private RingStage addStage(String name, RingStage previous, Consumer<TradeEvent> handler) {
+        RingStage stage = new RingStage(name, ring, previous == null ? null : previous.sequence(), handler, waitStrategy);
+        stages.add(stage);
+        return stage;
+    }
+
+    @Override
+    public void publish(Trade trade) throws InterruptedException {
+        if (halted) {
+            // Nothing would ever free a slot for it
+            throw new IllegalStateException("Ring pipeline is halted");
+        }
+        long sequence = ring.claim();
+        ring.get(sequence).trade = trade;
+        ring.publish(sequence);
+    }
+
+    @Override
+    public boolean tryPublish(Trade trade) {
+        long sequence = halted ? -1 : ring.tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        ring.get(sequence).trade = trade;
+        ring.publish(sequence);
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return (int) ring.backlog();
+    }
+}
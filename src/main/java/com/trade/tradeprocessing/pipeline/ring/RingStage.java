@@ -0,0 +1,69 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * One pipeline stage running on its own thread. It follows either the producers (first stage)
+ * or the stage before it, processes every slot it is allowed to in one batch, then advances its sequence.
+ */
+final class RingStage implements Runnable {
+
+    private final Logger log = LoggerFactory.getLogger(RingStage.class);
+    private final String name;
+    private final TradeRingBuffer ring;
+    // null for the first stage, which follows publication instead
+    private final Sequence dependency;
+    private final Consumer<TradeEvent> handler;
+    private final WaitStrategy waitStrategy;
+    private final Sequence sequence = new Sequence(-1);
+    private volatile boolean running = true;
+
+    RingStage(String name, TradeRingBuffer ring, Sequence dependency,
+              Consumer<TradeEvent> handler, WaitStrategy waitStrategy) {
+        this.name = name;
+        this.ring = ring;
+        this.dependency = dependency;
+        this.handler = handler;
+        this.waitStrategy = waitStrategy;
+    }
+
+    String name() {
+        return name;
+    }
+
+    Sequence sequence() {
+        return sequence;
+    }
+
+    void halt() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        log.info("Ring stage '{}' started on thread {}.", name, Thread.currentThread().getName());
+        long next = sequence.get() + 1;
+        int attempt = 0;
+        while (running) {
+            long available = dependency == null ? ring.highestPublished(next) : dependency.get();
+            if (available < next) {
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+            for (long current = next; current <= available; current++) {
+                try {
+                    handler.accept(ring.get(current));
+                } catch (Exception e) {
+                    log.error("Unhandled exception in ring stage '{}' at sequence {}.", name, current, e);
+                }
+            }
+            sequence.set(available);
+            next = available + 1;
+        }
+        log.info("Ring stage '{}' stopped.", name);
+    }
+}
@@ -0,0 +1,22 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import com.trade.tradeprocessing.models.Trade;
+
+/**
+ * Preallocated ring buffer slot. Stages pass state along by mutating the slot instead of allocating.
+ */
+public final class TradeEvent {
+    Trade trade;
+    // false once a stage has FAILED the trade; later stages skip it
+    boolean proceed;
+    // true once enrichment has handed the trade to the async enricher, which finishes it instead of later stages
+    boolean deferred;
+    long startNanos;
+
+    void clear() {
+        trade = null;
+        proceed = false;
+        deferred = false;
+        startNanos = 0;
+    }
+}
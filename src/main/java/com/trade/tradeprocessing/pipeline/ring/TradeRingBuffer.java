@@ -0,0 +1,125 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, preallocated ring of {@link TradeEvent} slots with multi-producer sequence claiming.
+ * Producers claim a sequence with a CAS on the cursor, fill the slot and mark it published;
+ * a producer can only wrap onto a slot once the last stage (the gating sequence) has released it.
+ */
+public final class TradeRingBuffer {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final TradeEvent[] entries;
+    private final int mask;
+    private final int indexShift;
+    // Round number (sequence / size) last published into each slot
+    private final int[] availableRounds;
+    private final Sequence cursor = new Sequence(-1);
+    private final Sequence gatingCache = new Sequence(-1);
+    private final WaitStrategy waitStrategy;
+    private volatile Sequence gatingSequence = new Sequence(-1);
+
+    public TradeRingBuffer(int size, WaitStrategy waitStrategy) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two, got " + size);
+        }
+        this.entries = new TradeEvent[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new TradeEvent();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.availableRounds = new int[size];
+        Arrays.fill(availableRounds, -1);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Sets the sequence of the last stage; producers never overtake it.
+     */
+    void setGatingSequence(Sequence gatingSequence) {
+        this.gatingSequence = gatingSequence;
+    }
+
+    /**
+     * Claims the next sequence, or returns -1 if the ring is full.
+     */
+    public long tryClaim() {
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingCache.get()) {
+                long gating = gatingSequence.get();
+                gatingCache.set(gating);
+                if (wrapPoint > gating) {
+                    return -1;
+                }
+            }
+        } while (!cursor.compareAndSet(current, next));
+        return next;
+    }
+
+    /**
+     * Claims the next sequence, idling with the wait strategy while the ring is full.
+     */
+    public long claim() throws InterruptedException {
+        int attempt = 0;
+        while (true) {
+            long sequence = tryClaim();
+            if (sequence >= 0) {
+                return sequence;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    public TradeEvent get(long sequence) {
+        return entries[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a claimed and filled slot visible to the first stage.
+     */
+    public void publish(long sequence) {
+        AVAILABLE.setRelease(availableRounds, (int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    boolean isPublished(long sequence) {
+        return (int) AVAILABLE.getAcquire(availableRounds, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * Highest sequence in [from, cursor] such that every sequence up to it has been published.
+     * Returns from - 1 if from itself isn't published yet.
+     */
+    long highestPublished(long from) {
+        long upTo = cursor.get();
+        for (long sequence = from; sequence <= upTo; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return upTo;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Claimed slots the last stage hasn't released yet.
+     */
+    public long backlog() {
+        return cursor.get() - gatingSequence.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a ring buffer stage (or a producer waiting for a free slot) idles when there is nothing to do.
+ * BUSY_SPIN has the lowest latency and burns a core per stage, PARK is the cheapest on CPU.
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        public void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+    YIELD {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+    PARK {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES * 2) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    /**
+     * Called once per empty poll; attempt counts consecutive empty polls and resets after work is found.
+     */
+    public abstract void idle(int attempt);
+}
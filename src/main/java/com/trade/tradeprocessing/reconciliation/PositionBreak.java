@@ -0,0 +1,16 @@
+package com.trade.tradeprocessing.reconciliation;
+
+import java.math.BigDecimal;
+
+/**
+ * One instrument whose persisted position differs from the one recomputed from its trades.
+ * Persisted values are null when there is no position row; differences are expected minus persisted.
+ */
+public record PositionBreak(String instrument,
+                            BigDecimal expectedNetQuantity,
+                            BigDecimal persistedNetQuantity,
+                            BigDecimal quantityDifference,
+                            BigDecimal expectedNetNotionalUsd,
+                            BigDecimal persistedNetNotionalUsd,
+                            BigDecimal notionalDifference) {
+}
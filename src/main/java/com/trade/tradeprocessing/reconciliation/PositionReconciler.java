@@ -0,0 +1,277 @@
+package com.trade.tradeprocessing.reconciliation;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.models.Position;
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.repositories.PositionRepository;
+import com.trade.tradeprocessing.services.PositionEntry;
+import com.trade.tradeprocessing.utils.FixedPoint;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recomputes every position from the trade history and compares it with the persisted
+ * {@link Position} rows. The id range is split in half recursively on a fork-join pool until each
+ * task covers at most chunk-ids ids; each task reads its own range from the trades table (a primary
+ * key range scan, no entities) and from the archive, sums into its own per-instrument totals, and
+ * the totals are merged as the tasks join. Nothing is shared while summing, so throughput follows
+ * the number of workers until the database connections run out.
+ * <p>
+ * Positions are flushed once a second and trades keep completing while this runs, so on a busy
+ * system a few breaks on active instruments are expected; a break that persists across runs is real.
+ */
+@Service
+public class PositionReconciler {
+
+    private static final String ID_RANGE_SQL = "select min(id), max(id) from trades";
+    private static final String RANGE_SQL =
+            "select id, instrument, side, quantity, notional_usd from trades where status = ? and id between ? and ? order by id";
+    private static final TradeFilter DONE = new TradeFilter(null, Status.Done, null, null, null);
+
+    private final Logger log = LoggerFactory.getLogger(PositionReconciler.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionRepository positionRepository;
+    private final ObjectProvider<TradeArchive> tradeArchive;
+    private final SymbolDictionary instruments;
+    private final ForkJoinPool pool;
+    private final int chunkIds;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReconciliationReport lastReport;
+
+    public PositionReconciler(JdbcTemplate jdbcTemplate,
+                              PositionRepository positionRepository,
+                              ReferenceData referenceData,
+                              ObjectProvider<TradeArchive> tradeArchive,
+                              @Value("${positions.reconcile.parallelism:0}") int parallelism,
+                              @Value("${positions.reconcile.chunk-ids:50000}") int chunkIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.positionRepository = positionRepository;
+        this.tradeArchive = tradeArchive;
+        this.instruments = referenceData.instruments();
+        this.chunkIds = chunkIds;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("Position-Reconciler-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Starts a run in the background. False if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        pool.execute(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.error("Position reconciliation failed.", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Report of the last finished run, or null
+    public ReconciliationReport lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Runs a reconciliation on the fork-join pool and waits for it.
+     */
+    public ReconciliationReport reconcile() {
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
+
+        // 1. Id range across both tiers
+        long[] range = jdbcTemplate.queryForObject(ID_RANGE_SQL, (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        TradeArchive archive = tradeArchive.getIfAvailable();
+        long fromId = range[0];
+        long toId = range[1];
+        if (archive != null && archive.maxId() > 0) {
+            fromId = fromId == 0 ? archive.minId() : Math.min(fromId, archive.minId());
+            toId = Math.max(toId, archive.maxId());
+        }
+
+        // 2. Recompute in parallel
+        Totals totals = fromId == 0 ? new Totals() : pool.invoke(new RangeTask(archive, fromId, toId));
+
+        // 3. Compare with the persisted rows
+        Map<String, Position> persisted = new HashMap<>();
+        for (Position position : positionRepository.findAll()) {
+            persisted.put(position.getInstrument(), position);
+        }
+        TreeSet<String> names = new TreeSet<>(persisted.keySet());
+        for (int id = 0; id < totals.entries.length; id++) {
+            if (totals.entries[id] != null) {
+                names.add(instruments.symbol(id));
+            }
+        }
+        List<PositionBreak> breaks = new ArrayList<>();
+        for (String instrument : names) {
+            int id = instruments.lookup(instrument);
+            PositionEntry expected = id >= 0 && id < totals.entries.length ? totals.entries[id] : null;
+            PositionBreak positionBreak = compare(instrument, expected, persisted.get(instrument));
+            if (positionBreak != null) {
+                breaks.add(positionBreak);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        long trades = totals.hotTrades + totals.archivedTrades;
+        ReconciliationReport report = new ReconciliationReport(startedAt, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                pool.getParallelism(), totals.tasks, fromId, toId, totals.hotTrades, totals.archivedTrades,
+                trades * 1e9 / Math.max(1, elapsedNanos), names.size(), breaks);
+        lastReport = report;
+        log.info("Reconciled {} trades over {} instruments in {} ms with {} tasks: {} breaks.",
+                trades, names.size(), report.elapsedMillis(), totals.tasks, breaks.size());
+        return report;
+    }
+
+    private static PositionBreak compare(String instrument, PositionEntry expected, Position persisted) {
+        BigDecimal expectedQuantity = expected == null ? BigDecimal.ZERO : expected.netQuantity();
+        BigDecimal expectedNotional = expected == null ? BigDecimal.ZERO : expected.netNotionalUsd();
+        BigDecimal persistedQuantity = persisted == null ? null : persisted.getNetQuantity();
+        BigDecimal persistedNotional = persisted == null ? null : persisted.getNetNotionalUsd();
+        BigDecimal quantityDifference = expectedQuantity.subtract(persistedQuantity == null ? BigDecimal.ZERO : persistedQuantity);
+        BigDecimal notionalDifference = expectedNotional.subtract(persistedNotional == null ? BigDecimal.ZERO : persistedNotional);
+        if (quantityDifference.signum() == 0 && notionalDifference.signum() == 0) {
+            return null;
+        }
+        return new PositionBreak(instrument, expectedQuantity, persistedQuantity, quantityDifference,
+                expectedNotional, persistedNotional, notionalDifference);
+    }
+
+    /**
+     * Per-instrument totals of one task, indexed by instrument id, and what went into them.
+     */
+    private static final class Totals {
+        PositionEntry[] entries = new PositionEntry[0];
+        long hotTrades;
+        long archivedTrades;
+        int tasks;
+
+        PositionEntry entry(int id) {
+            if (id >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+            }
+            if (entries[id] == null) {
+                entries[id] = new PositionEntry();
+            }
+            return entries[id];
+        }
+
+        Totals merge(Totals other) {
+            for (int id = 0; id < other.entries.length; id++) {
+                if (other.entries[id] != null) {
+                    entry(id).add(other.entries[id]);
+                }
+            }
+            hotTrades += other.hotTrades;
+            archivedTrades += other.archivedTrades;
+            tasks += other.tasks;
+            return this;
+        }
+    }
+
+    /**
+     * Sums the DONE trades with ids in [fromId, toId], splitting the range while it is larger than chunkIds.
+     */
+    private final class RangeTask extends RecursiveTask<Totals> {
+        // Tasks are never serialized; RecursiveTask is Serializable only through ForkJoinTask
+        private final transient TradeArchive archive;
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(TradeArchive archive, long fromId, long toId) {
+            this.archive = archive;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (toId - fromId + 1 > chunkIds) {
+                long middle = fromId + (toId - fromId) / 2;
+                RangeTask left = new RangeTask(archive, fromId, middle);
+                left.fork();
+                Totals right = new RangeTask(archive, middle + 1, toId).compute();
+                return left.join().merge(right);
+            }
+            Totals totals = new Totals();
+            totals.tasks = 1;
+            Trade scratch = new Trade();
+            long[][] hotIds = {new long[1024]};
+            jdbcTemplate.query(RANGE_SQL, rs -> {
+                long id = rs.getLong(1);
+                if (totals.hotTrades == hotIds[0].length) {
+                    hotIds[0] = Arrays.copyOf(hotIds[0], hotIds[0].length * 2);
+                }
+                hotIds[0][(int) totals.hotTrades++] = id;
+                add(totals, scratch, rs.getString(2), rs.getString(3), rs.getBigDecimal(4), rs.getBigDecimal(5));
+            }, Status.Done, fromId, toId);
+            if (archive != null) {
+                // A trade caught mid-move is in both tiers; the archive is read second, so it is the one skipped
+                int hotCount = (int) totals.hotTrades;
+                archive.scanRange(DONE, fromId, toId, trade -> {
+                    if (Arrays.binarySearch(hotIds[0], 0, hotCount, trade.getId()) < 0) {
+                        totals.archivedTrades++;
+                        add(totals, scratch, trade.getInstrument(), trade.getSide(), trade.getQuantity(), trade.getNotionalUsd());
+                    }
+                });
+            }
+            return totals;
+        }
+
+        private void add(Totals totals, Trade scratch, String instrument, String side, BigDecimal quantity, BigDecimal notionalUsd) {
+            Side parsed = Side.parse(side);
+            if (parsed == null || quantity == null) {
+                // Never applied to the book either
+                return;
+            }
+            scratch.setQuantity(quantity);
+            scratch.setQuantityUnits(FixedPoint.NOT_REPRESENTABLE);
+            scratch.setNotionalUsd(notionalUsd);
+            scratch.setNotionalUsdUnits(FixedPoint.NOT_REPRESENTABLE);
+            totals.entry(instruments.intern(instrument)).apply(scratch, parsed == Side.BUY);
+        }
+    }
+}
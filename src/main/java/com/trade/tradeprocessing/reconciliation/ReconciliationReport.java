@@ -0,0 +1,21 @@
+package com.trade.tradeprocessing.reconciliation;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of one reconciliation run. Trades are the DONE trades with ids in [fromId, toId], from the
+ * trades table and the archive; tasks is the number of id ranges they were split into.
+ */
+public record ReconciliationReport(Instant startedAt,
+                                   long elapsedMillis,
+                                   int parallelism,
+                                   int tasks,
+                                   long fromId,
+                                   long toId,
+                                   long hotTrades,
+                                   long archivedTrades,
+                                   double tradesPerSecond,
+                                   int instruments,
+                                   List<PositionBreak> breaks) {
+}
@@ -0,0 +1,69 @@
+package com.trade.tradeprocessing.refdata;
+
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Trade;
+import org.springframework.stereotype.Component;
+
+/**
+ * The symbol dictionaries shared by the whole pipeline. A trade is interned once, at ingest: it gets
+ * the int ids of its instrument, counterparty and currency, its side as a {@link Side}, and its
+ * strings are swapped for the dictionaries' canonical instances. From then on positions, routing,
+ * FX lookups and analytics key on the ids; the strings are only for the API and the database.
+ */
+@Component
+public class ReferenceData {
+
+    private final SymbolDictionary instruments = new SymbolDictionary();
+    private final SymbolDictionary counterparties = new SymbolDictionary();
+    private final SymbolDictionary currencies = new SymbolDictionary();
+
+    public SymbolDictionary instruments() {
+        return instruments;
+    }
+
+    public SymbolDictionary counterparties() {
+        return counterparties;
+    }
+
+    public SymbolDictionary currencies() {
+        return currencies;
+    }
+
+    /**
+     * Whether every dictionary admits the trade's symbols; see {@link SymbolDictionary#admits}.
+     */
+    public boolean admits(Trade trade) {
+        return instruments.admits(trade.getInstrument())
+                && counterparties.admits(trade.getCounterparty())
+                && currencies.admits(trade.getCurrency());
+    }
+
+    /**
+     * Fills in the trade's ids and side. Cheap to call again on a trade already interned, so stages
+     * that can see trades from outside the ingest path (journal recovery, benchmarks) just call it.
+     * Code that changes a trade's instrument, counterparty, currency or side afterwards must reset
+     * its instrumentId to NO_ID so the next call interns it again.
+     */
+    public void intern(Trade trade) {
+        if (trade.getInstrumentId() != SymbolDictionary.NO_ID) {
+            return;
+        }
+        trade.setSideCode(Side.parse(trade.getSide()));
+        int counterparty = counterparties.intern(trade.getCounterparty());
+        int currency = currencies.intern(trade.getCurrency());
+        int instrument = instruments.intern(trade.getInstrument());
+        if (trade.getCounterparty() != null) {
+            trade.setCounterparty(counterparties.symbol(counterparty));
+        }
+        if (trade.getCurrency() != null) {
+            trade.setCurrency(currencies.symbol(currency));
+        }
+        if (trade.getInstrument() != null) {
+            trade.setInstrument(instruments.symbol(instrument));
+        }
+        trade.setCounterpartyId(counterparty);
+        trade.setCurrencyId(currency);
+        // Set last: it is the field that marks the trade as interned
+        trade.setInstrumentId(instrument);
+    }
+}
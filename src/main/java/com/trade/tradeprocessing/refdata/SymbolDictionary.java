@@ -0,0 +1,87 @@
+package com.trade.tradeprocessing.refdata;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int ids for one kind of reference data symbol (instrument, counterparty, currency). Ids are
+ * handed out in order from 0 and never change, so they can index arrays and be compared as ints.
+ * The id to symbol side table is what turns an id back into a string at the API and JPA boundary.
+ */
+public final class SymbolDictionary {
+
+    // Id of a trade field that has not been interned yet, and of a lookup that found nothing
+    public static final int NO_ID = -1;
+    // Longest symbol a client may send; see admits
+    public static final int MAX_SYMBOL_LENGTH = 64;
+    // New symbols a client may add; the exposure cube's keys have room for about twice this many
+    public static final int MAX_SYMBOLS = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Filled in order up to size and doubled when full, so readers can resolve ids without locking.
+    // A slot is written before its id is published in ids, and a grown copy before it replaces this one.
+    private volatile String[] symbols = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    /**
+     * Id for the symbol, adding it if it is new. Null is stored as the empty string.
+     */
+    public int intern(String symbol) {
+        String key = symbol == null ? "" : symbol;
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(key);
+            if (id == null) {
+                String[] current = symbols;
+                id = size;
+                if (id == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                    current[id] = key;
+                    symbols = current;
+                } else {
+                    current[id] = key;
+                }
+                size = id + 1;
+                ids.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Whether a client may send this symbol: one already known, or a new one no longer than
+     * MAX_SYMBOL_LENGTH while there is room for it. Ingest checks this before interning, since
+     * the dictionary never forgets a symbol. Two checks racing for the last slot may both pass.
+     */
+    public boolean admits(String symbol) {
+        if (symbol == null || ids.containsKey(symbol)) {
+            return true;
+        }
+        return symbol.length() <= MAX_SYMBOL_LENGTH && size < MAX_SYMBOLS;
+    }
+
+    /**
+     * Id of a symbol already seen, or NO_ID. Never adds.
+     */
+    public int lookup(String symbol) {
+        Integer id = ids.get(symbol == null ? "" : symbol);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * The canonical instance of the symbol with this id.
+     */
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -5,4 +5,5 @@ import org.springframework.data.repository.CrudRepository;
 
 public interface TradeRepository extends CrudRepository<Trade, Long> {
 
+    boolean existsByClientTradeId(String clientTradeId);
 }
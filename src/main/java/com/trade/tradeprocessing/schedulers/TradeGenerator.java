@@ -2,53 +2,59 @@ package com.trade.tradeprocessing.schedulers;
 
 import com.trade.tradeprocessing.models.Status;
 import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.services.IngestOutcome;
+import com.trade.tradeprocessing.services.TradeIngestService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.Date;
-import java.util.Random;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component
+@ConditionalOnProperty(name = "trades.generator.enabled", havingValue = "true", matchIfMissing = true)
 public class TradeGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(TradeGenerator.class);
-    private final String[] instruments = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "FB", "NFLX", "NVDA", "BABA", "INTC"};
-    private final String[] counterParties = {"JP Morgan", "Goldman Sachs", "Morgan Stanley", "Citibank", "Bank of America"};
-    private final String[] currencies = {"USD", "EUR", "GBP", "JPY", "AUD"};
-    private final BlockingQueue<Trade> tradeQueue;
-
-    public TradeGenerator(BlockingQueue<Trade> tradeQueue) {
-        this.tradeQueue = tradeQueue;
+    // Shared with the load generator
+    public static final String[] INSTRUMENTS = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "FB", "NFLX", "NVDA", "BABA", "INTC"};
+    public static final String[] COUNTERPARTIES = {"JP Morgan", "Goldman Sachs", "Morgan Stanley", "Citibank", "Bank of America"};
+    public static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "AUD"};
+    private final TradeIngestService tradeIngestService;
+
+    public TradeGenerator(TradeIngestService tradeIngestService) {
+        this.tradeIngestService = tradeIngestService;
     }
 
     public Trade createRandomTrade(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         return Trade.builder()
                 .status(Status.Queued)
                 .tradeDate(LocalDate.now())
-                .counterparty(counterParties[new Random().nextInt(counterParties.length)])
-                .createdAt(new Date().toInstant())
-                .currency(currencies[new Random().nextInt(currencies.length)])
-                .side(new Random().nextBoolean() ? "BUY" : "SELL")
-                .quantity(new java.math.BigDecimal(new Random().nextInt(10000)))
-                .price(new java.math.BigDecimal(new Random().nextInt(500)))
-                .instrument(instruments[new Random().nextInt(instruments.length)])
+                .counterparty(COUNTERPARTIES[random.nextInt(COUNTERPARTIES.length)])
+                .createdAt(Instant.now())
+                .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .side(random.nextBoolean() ? "BUY" : "SELL")
+                .quantity(BigDecimal.valueOf(random.nextInt(10000)))
+                .price(BigDecimal.valueOf(random.nextInt(500)))
+                .instrument(INSTRUMENTS[random.nextInt(INSTRUMENTS.length)])
                 .build();
     }
 
-    @Scheduled(initialDelay = 100, fixedRate = 250) // every 5 seconds
+    // Never blocks the shared scheduler thread: a full queue just skips this tick's trade
+    @Scheduled(initialDelay = 100, fixedRate = 250) // every 250 ms
     public void pushRandomTrade() {
         Trade randomTrade = createRandomTrade();
-        try {
-            tradeQueue.put(randomTrade);
+        IngestOutcome outcome = tradeIngestService.trySubmit(randomTrade);
+        if (outcome == IngestOutcome.ACCEPTED) {
             logger.debug("PRODUCER: Trade ID " + randomTrade.getId() + " pushed to queue.");
-        } catch (InterruptedException e) {
-            logger.error("Failed to enqueue trade: " + e.getMessage());
-            Thread.currentThread().interrupt();
+        } else {
+            logger.debug("PRODUCER: random trade not queued: " + outcome);
         }
     }
 }
@@ -0,0 +1,13 @@
+package com.trade.tradeprocessing.services;
+
+/**
+ * What the enrichment stage did with a trade.
+ */
+public enum EnrichmentOutcome {
+    // notionalUsd is set; the trade goes on to the next stage
+    ENRICHED,
+    // FAILED for want of a rate; later stages skip it
+    FAILED,
+    // Handed to the async enricher, which finishes the trade itself once the rate is in
+    DEFERRED
+}
@@ -0,0 +1,20 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.math.BigDecimal;
+
+/**
+ * One cached FX rate and when it was fetched (epoch millis). The rate is also kept in
+ * fixed-point units so enrichment does not convert it again for every trade.
+ */
+public record FxQuote(String currencyPair, BigDecimal rate, long rateUnits, long fetchedAtMillis) {
+
+    public FxQuote(String currencyPair, BigDecimal rate, long fetchedAtMillis) {
+        this(currencyPair, rate, FixedPoint.toUnits(rate, FixedPoint.FX_SCALE), fetchedAtMillis);
+    }
+
+    public long ageMillis(long nowMillis) {
+        return nowMillis - fetchedAtMillis;
+    }
+}
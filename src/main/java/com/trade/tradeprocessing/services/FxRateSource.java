@@ -0,0 +1,30 @@
+package com.trade.tradeprocessing.services;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where FX rates come from. The cache in {@link MarketDataService} only talks to this,
+ * so a real market data feed can replace the random stand-in without touching the pipeline.
+ */
+public interface FxRateSource {
+
+    /**
+     * Fetches the current rate for a pair such as "EURUSD" (units of USD per unit of EUR).
+     */
+    BigDecimal fetchRate(String currencyPair);
+
+    /**
+     * Fetches several pairs in one request. The default asks for them one at a time; a source
+     * with a batch API should override it so a batch costs one round trip.
+     */
+    default Map<String, BigDecimal> fetchRates(Collection<String> currencyPairs) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currencyPair : currencyPairs) {
+            rates.put(currencyPair, fetchRate(currencyPair));
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,120 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Trade;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trades from one bulk or streaming request, submitted in order through
+ * {@link TradeIngestService#trySubmitAll} in batches of up to {@link #CAPACITY} that share one journal fsync.
+ * Remembers each trade's index in the request, so once a trade is not queued the caller knows where
+ * the client should resend from. One per request; not thread-safe.
+ * <p>
+ * Counts cover only the records before that point: {@link #rejected()} is records that can never be
+ * accepted as sent, whether the caller could not parse them or ingest turned them away, and nothing
+ * from the resume point on is counted at all.
+ */
+public final class IngestBatch {
+
+    public static final int CAPACITY = 256;
+
+    private final TradeIngestService tradeIngestService;
+    private final List<Trade> trades = new ArrayList<>(CAPACITY);
+    // Each pending trade's index in the request, and the caller's rejects before it
+    private final int[] indexes = new int[CAPACITY];
+    private final int[] rejectedBefore = new int[CAPACITY];
+    private int accepted;
+    private int duplicates;
+    // Turned away by ingest validation
+    private int invalid;
+    // Rejected by the caller, e.g. malformed
+    private int unreadable;
+    private IngestOutcome stoppedBy;
+    private int resumeFrom = -1;
+
+    IngestBatch(TradeIngestService tradeIngestService) {
+        this.tradeIngestService = tradeIngestService;
+    }
+
+    /**
+     * Adds the trade found at the given index in the request. Call {@link #submit()} once {@link #isFull()}.
+     */
+    public void add(Trade trade, int index) {
+        indexes[trades.size()] = index;
+        rejectedBefore[trades.size()] = unreadable;
+        trades.add(trade);
+    }
+
+    /**
+     * Counts a record the caller could not turn into a trade.
+     */
+    public void reject() {
+        unreadable++;
+    }
+
+    public boolean isFull() {
+        return trades.size() == CAPACITY;
+    }
+
+    /**
+     * Submits the pending trades. Returns false once a trade was not queued; everything from that
+     * trade on is for the client to resend, starting at {@link #resumeFrom()}.
+     */
+    public boolean submit() {
+        if (trades.isEmpty()) {
+            return true;
+        }
+        List<IngestOutcome> outcomes = tradeIngestService.trySubmitAll(trades);
+        for (int i = 0; i < outcomes.size(); i++) {
+            IngestOutcome outcome = outcomes.get(i);
+            if (outcome == IngestOutcome.QUEUE_FULL || outcome == IngestOutcome.CLOSED) {
+                stoppedBy = outcome;
+                resumeFrom = indexes[i];
+                // Rejects the caller counted after this trade are past the resume point
+                unreadable = rejectedBefore[i];
+                trades.clear();
+                return false;
+            }
+            if (outcome == IngestOutcome.INVALID) {
+                invalid++;
+            } else if (outcome == IngestOutcome.DUPLICATE) {
+                duplicates++;
+            } else {
+                accepted++;
+            }
+        }
+        trades.clear();
+        return true;
+    }
+
+    public int accepted() {
+        return accepted;
+    }
+
+    public int duplicates() {
+        return duplicates;
+    }
+
+    public int rejected() {
+        return unreadable + invalid;
+    }
+
+    // Trades handed to ingest so far, whatever the outcome
+    public int submitted() {
+        return accepted + duplicates + invalid;
+    }
+
+    public int pending() {
+        return trades.size();
+    }
+
+    // QUEUE_FULL or CLOSED once submit() has returned false, null until then
+    public IngestOutcome stoppedBy() {
+        return stoppedBy;
+    }
+
+    public int resumeFrom() {
+        return resumeFrom;
+    }
+}
@@ -0,0 +1,16 @@
+package com.trade.tradeprocessing.services;
+
+/**
+ * What happened to a submitted trade.
+ */
+public enum IngestOutcome {
+    ACCEPTED,
+    // Its clientTradeId was already accepted; nothing was queued
+    DUPLICATE,
+    // The pipeline had no room; nothing was queued and the trade can be resent
+    QUEUE_FULL,
+    // Intake is closed while the pipeline drains for shutdown; nothing was queued
+    CLOSED,
+    // It can never be accepted as sent, e.g. a field is too long to store; nothing was queued
+    INVALID
+}
@@ -1,37 +1,301 @@
 package com.trade.tradeprocessing.services;
 
+import com.trade.tradeprocessing.configurations.FxCacheProperties;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+
 import java.math.BigDecimal;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class MarketDataService {
 
-    private final Random random = new Random();
+    private static final String BASE_CURRENCY = "USD";
+    private static final FxQuote BASE_QUOTE = new FxQuote(BASE_CURRENCY + BASE_CURRENCY, BigDecimal.ONE, 0L);
+
+    private final Logger log = LoggerFactory.getLogger(MarketDataService.class);
+    private final FxRateSource fxRateSource;
+    private final FxCacheProperties properties;
+    private final ReferenceData referenceData;
+    private final int baseCurrencyId;
+    // Immutable; replaced wholesale by the refresher so readers need a single volatile read
+    private volatile Map<String, FxQuote> snapshot = Map.of();
+    // The same quotes indexed by currency id, published together with the snapshot
+    private volatile FxQuote[] quotesByCurrency = new FxQuote[0];
+    // Configured pairs, always kept warm
+    private final Set<String> configuredPairs;
+    // Other pairs asked for, with when they were last asked for; bounded and pruned by the refresher
+    private final ConcurrentMap<String, Long> requestedPairs = new ConcurrentHashMap<>();
+    // The source can block, so the refresher has its own thread rather than sharing the scheduler's
+    private ScheduledExecutorService refresher;
+
+    public MarketDataService(FxRateSource fxRateSource, FxCacheProperties properties, ReferenceData referenceData) {
+        this.fxRateSource = fxRateSource;
+        this.properties = properties;
+        this.referenceData = referenceData;
+        this.baseCurrencyId = referenceData.currencies().intern(BASE_CURRENCY);
+        this.configuredPairs = Set.copyOf(properties.pairs());
+    }
+
+    // Warm the cache for the configured pairs before any trade needs them, then keep it warm
+    @PostConstruct
+    public void start() {
+        warmUp();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FX-Refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = Math.max(1, properties.refreshIntervalMs());
+        refresher.scheduleWithFixedDelay(this::refreshRates, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public void warmUp() {
+        refreshRates();
+        log.info("FX cache warmed with {} pairs.", snapshot.size());
+    }
 
     /**
-     * Simulates fetching a random FX rate for a given currency pair (e.g., EUR/USD).
-     * Since the trade only has quantity and price, we'll assume the price is in a
-     * foreign currency (FX) and we need the FXRate to convert it to USD.
-     * For simplicity, this method returns a rate between 1.05 and 1.15.
+     * Cached rate to convert the given currency into USD, or null if there is no quote fresh
+     * enough to use. Never fetches: a miss only asks the refresher to start tracking the pair,
+     * and only for a well-formed currency code.
      */
-    @Async
-    public CompletableFuture<BigDecimal> getFxRateAsync(String currencyPair) {
-        // Generate a rate between 1.05 and 1.15
-        double rate = 1.05 + (1.15 - 1.05) * random.nextDouble();
+    public BigDecimal getCachedFxRate(String currency) {
+        FxQuote quote = getCachedQuote(currency);
+        return quote == null ? null : quote.rate();
+    }
+
+    /**
+     * Same lookup as {@link #getCachedFxRate}, returning the whole quote (rate and fixed-point units).
+     */
+    public FxQuote getCachedQuote(String currency) {
+        if (BASE_CURRENCY.equals(currency)) {
+            return BASE_QUOTE;
+        }
+        if (!isCurrencyCode(currency)) {
+            return null;
+        }
+        String currencyPair = currency + BASE_CURRENCY;
+        FxQuote quote = snapshot.get(currencyPair);
+        long now = System.currentTimeMillis();
+        if (quote == null) {
+            track(currencyPair, now);
+            return null;
+        }
+        return fresh(quote, now);
+    }
 
-        // Return the rate rounded to 4 decimal places
-        return CompletableFuture
-                .completedFuture(BigDecimal.valueOf(rate).setScale(4, BigDecimal.ROUND_HALF_UP));
+    /**
+     * Same lookup keyed by an interned currency id, without building the pair string. Falls back to
+     * the string lookup on a miss, so the pair still gets tracked.
+     */
+    public FxQuote getCachedQuote(int currencyId) {
+        if (currencyId == baseCurrencyId) {
+            return BASE_QUOTE;
+        }
+        FxQuote[] quotes = quotesByCurrency;
+        FxQuote quote = currencyId >= 0 && currencyId < quotes.length ? quotes[currencyId] : null;
+        if (quote == null) {
+            return currencyId < 0 ? null : getCachedQuote(referenceData.currencies().symbol(currencyId));
+        }
+        return fresh(quote, System.currentTimeMillis());
     }
 
-    public BigDecimal getFxRate(String currencyPair) {
-        // Generate a rate between 1.05 and 1.15
-        double rate = 1.05 + (1.15 - 1.05) * random.nextDouble();
+    // The quote if it is still fresh enough to use; a hit on a requested pair keeps it tracked
+    private FxQuote fresh(FxQuote quote, long now) {
+        String currencyPair = quote.currencyPair();
+        Long lastRequested = requestedPairs.get(currencyPair);
+        // Only rewritten now and then, so hits on a hot pair do not all write to the map
+        if (lastRequested != null && now - lastRequested > properties.trackedPairIdleMs() / 4) {
+            requestedPairs.put(currencyPair, now);
+        }
+        if (quote.ageMillis(now) > properties.maxStalenessFor(currencyPair)) {
+            return null;
+        }
+        return quote;
+    }
+
+    // Starts tracking a pair that is not configured, unless the cap is reached
+    private void track(String currencyPair, long now) {
+        if (configuredPairs.contains(currencyPair) || requestedPairs.containsKey(currencyPair)) {
+            return;
+        }
+        if (requestedPairs.size() >= properties.maxTrackedPairs()) {
+            log.debug("Not tracking FX pair {}: already tracking {} requested pairs.", currencyPair, requestedPairs.size());
+            return;
+        }
+        requestedPairs.putIfAbsent(currencyPair, now);
+    }
+
+    /**
+     * Whether the string looks like an ISO 4217 code: three upper-case letters.
+     */
+    public static boolean isCurrencyCode(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUsdPair(String currencyPair) {
+        return currencyPair != null && currencyPair.length() == 6 && currencyPair.endsWith(BASE_CURRENCY)
+                && isCurrencyCode(currencyPair.substring(0, 3));
+    }
 
-        // Return the rate rounded to 4 decimal places
-        return BigDecimal.valueOf(rate).setScale(4, BigDecimal.ROUND_HALF_UP);
+    /**
+     * Pairs the refresher keeps warm: the configured ones plus those requested recently.
+     */
+    public Set<String> trackedPairs() {
+        Set<String> tracked = new TreeSet<>(configuredPairs);
+        tracked.addAll(requestedPairs.keySet());
+        return tracked;
+    }
+
+    /**
+     * Drops requested pairs nobody has asked for lately, then re-fetches every tracked pair whose
+     * quote is missing or past its TTL, in one batched request, and publishes a new snapshot.
+     * Runs every refresh-interval-ms on the FX-Refresher thread.
+     */
+    public void refreshRates() {
+        long now = System.currentTimeMillis();
+        List<String> idle = new ArrayList<>();
+        requestedPairs.forEach((currencyPair, lastRequested) -> {
+            if (now - lastRequested > properties.trackedPairIdleMs()) {
+                idle.add(currencyPair);
+            }
+        });
+        if (!idle.isEmpty()) {
+            forget(idle);
+        }
+
+        Map<String, FxQuote> current = snapshot;
+        List<String> due = new ArrayList<>();
+        for (String currencyPair : configuredPairs) {
+            addIfDue(due, current.get(currencyPair), currencyPair, now);
+        }
+        for (String currencyPair : requestedPairs.keySet()) {
+            addIfDue(due, current.get(currencyPair), currencyPair, now);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, BigDecimal> rates = fxRateSource.fetchRates(due);
+            long fetchedAt = System.currentTimeMillis();
+            List<FxQuote> quotes = new ArrayList<>(rates.size());
+            rates.forEach((currencyPair, rate) -> quotes.add(new FxQuote(currencyPair, rate, fetchedAt)));
+            cacheQuotes(quotes);
+        } catch (Exception e) {
+            log.warn("FX refresh failed for {}: {}", due, e.getMessage());
+        }
+    }
+
+    private void addIfDue(List<String> due, FxQuote quote, String currencyPair, long now) {
+        if (quote == null || quote.ageMillis(now) >= properties.ttlFor(currencyPair)) {
+            due.add(currencyPair);
+        }
+    }
+
+    // Stops refreshing the pairs and drops their quotes, so the snapshot stays as bounded as the tracking
+    private synchronized void forget(List<String> currencyPairs) {
+        Map<String, FxQuote> next = new HashMap<>(snapshot);
+        for (String currencyPair : currencyPairs) {
+            requestedPairs.remove(currencyPair);
+            next.remove(currencyPair);
+        }
+        publish(Map.copyOf(next));
+        log.debug("Stopped tracking idle FX pairs {}.", currencyPairs);
+    }
+
+    /**
+     * Adds quotes fetched outside the refresher (e.g. by the async enricher) to the cache, and
+     * tracks their pairs from now on, within the same cap as cache misses. Quotes for anything but
+     * a well-formed XXXUSD pair are dropped.
+     */
+    public void cacheQuotes(Collection<FxQuote> quotes) {
+        if (quotes.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Map<String, FxQuote> next = new HashMap<>(snapshot);
+            for (FxQuote quote : quotes) {
+                if (!isUsdPair(quote.currencyPair())) {
+                    log.debug("Not caching FX quote for malformed pair {}.", quote.currencyPair());
+                    continue;
+                }
+                track(quote.currencyPair(), now);
+                if (configuredPairs.contains(quote.currencyPair()) || requestedPairs.containsKey(quote.currencyPair())) {
+                    next.put(quote.currencyPair(), quote);
+                }
+            }
+            publish(Map.copyOf(next));
+        }
+    }
+
+    // Callers hold the monitor, so two writers cannot drop each other's quotes
+    private void publish(Map<String, FxQuote> quotes) {
+        FxQuote[] byCurrency = new FxQuote[referenceData.currencies().size()];
+        for (FxQuote quote : quotes.values()) {
+            String pair = quote.currencyPair();
+            if (!pair.endsWith(BASE_CURRENCY) || pair.length() <= BASE_CURRENCY.length()) {
+                continue;
+            }
+            int id = referenceData.currencies().intern(pair.substring(0, pair.length() - BASE_CURRENCY.length()));
+            if (id >= byCurrency.length) {
+                byCurrency = Arrays.copyOf(byCurrency, id + 1);
+            }
+            byCurrency[id] = quote;
+        }
+        quotesByCurrency = byCurrency;
+        snapshot = quotes;
+    }
+
+    public Map<String, FxQuote> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Fetches a rate straight from the source, bypassing the cache.
+     */
+    @Async("marketDataExecutor")
+    public CompletableFuture<BigDecimal> getFxRateAsync(String currencyPair) {
+        return CompletableFuture.completedFuture(fxRateSource.fetchRate(currencyPair));
+    }
+
+    public BigDecimal getFxRate(String currencyPair) {
+        return fxRateSource.fetchRate(currencyPair);
     }
 }
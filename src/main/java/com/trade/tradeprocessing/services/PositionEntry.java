@@ -0,0 +1,105 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.utils.FixedPoint;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals for one instrument in the position book. Fields are volatile so a single
+ * lock-free writer (a {@link PositionSlice}) is still safely visible to the flusher.
+ * <p>
+ * Totals are kept as fixed-point units. If a total overflows, or a trade arrives that has no
+ * exact long form, that total switches to BigDecimal for good.
+ * Public so the trade journal can keep a shadow book with the same arithmetic.
+ */
+public final class PositionEntry {
+    volatile long netQuantityUnits;
+    volatile long netNotionalUnits;
+    // Non-null once the total has left the long range
+    volatile BigDecimal netQuantityExact;
+    volatile BigDecimal netNotionalExact;
+    // Changed since the last flush / the last published snapshot; set after the change, cleared before the read
+    volatile boolean dirty;
+    volatile boolean unpublished;
+
+    public void seed(BigDecimal quantity, BigDecimal notional) {
+        netQuantityUnits = 0;
+        netNotionalUnits = 0;
+        netQuantityExact = null;
+        netNotionalExact = null;
+        addQuantity(FixedPoint.toUnits(quantity, FixedPoint.QUANTITY_SCALE), quantity);
+        addNotional(FixedPoint.toUnits(notional, FixedPoint.NOTIONAL_SCALE), notional);
+    }
+
+    /**
+     * Adds a DONE trade, BUY positive and SELL negative.
+     */
+    public void apply(Trade trade, boolean buy) {
+        long quantityUnits = trade.getQuantityUnits();
+        if (quantityUnits == FixedPoint.NOT_REPRESENTABLE) {
+            // Trades that never went through validation (e.g. loaded from the DB)
+            quantityUnits = FixedPoint.toUnits(trade.getQuantity(), FixedPoint.QUANTITY_SCALE);
+        }
+        long notionalUnits = trade.getNotionalUsd() == null ? 0 : trade.getNotionalUsdUnits();
+        if (notionalUnits == FixedPoint.NOT_REPRESENTABLE) {
+            notionalUnits = FixedPoint.toUnits(trade.getNotionalUsd(), FixedPoint.NOTIONAL_SCALE);
+        }
+
+        if (quantityUnits != FixedPoint.NOT_REPRESENTABLE) {
+            addQuantity(buy ? quantityUnits : -quantityUnits, null);
+        } else {
+            addQuantity(FixedPoint.NOT_REPRESENTABLE, buy ? trade.getQuantity() : trade.getQuantity().negate());
+        }
+        if (notionalUnits != FixedPoint.NOT_REPRESENTABLE) {
+            addNotional(buy ? notionalUnits : -notionalUnits, null);
+        } else {
+            addNotional(FixedPoint.NOT_REPRESENTABLE, buy ? trade.getNotionalUsd() : trade.getNotionalUsd().negate());
+        }
+    }
+
+    /**
+     * Adds another entry's totals, e.g. to merge partial sums computed in parallel.
+     */
+    public void add(PositionEntry other) {
+        BigDecimal quantity = other.netQuantityExact;
+        BigDecimal notional = other.netNotionalExact;
+        addQuantity(quantity == null ? other.netQuantityUnits : FixedPoint.NOT_REPRESENTABLE, quantity);
+        addNotional(notional == null ? other.netNotionalUnits : FixedPoint.NOT_REPRESENTABLE, notional);
+    }
+
+    public BigDecimal netQuantity() {
+        BigDecimal exact = netQuantityExact;
+        return exact != null ? exact : FixedPoint.toBigDecimal(netQuantityUnits, FixedPoint.QUANTITY_SCALE);
+    }
+
+    public BigDecimal netNotionalUsd() {
+        BigDecimal exact = netNotionalExact;
+        return exact != null ? exact : FixedPoint.toBigDecimal(netNotionalUnits, FixedPoint.NOTIONAL_SCALE);
+    }
+
+    // units is the signed amount, or NOT_REPRESENTABLE with the signed value in exact
+    private void addQuantity(long units, BigDecimal exact) {
+        if (netQuantityExact == null) {
+            long sum = FixedPoint.add(netQuantityUnits, units);
+            if (sum != FixedPoint.NOT_REPRESENTABLE) {
+                netQuantityUnits = sum;
+                return;
+            }
+            netQuantityExact = FixedPoint.toBigDecimal(netQuantityUnits, FixedPoint.QUANTITY_SCALE);
+        }
+        netQuantityExact = netQuantityExact.add(exact != null ? exact : FixedPoint.toBigDecimal(units, FixedPoint.QUANTITY_SCALE));
+    }
+
+    private void addNotional(long units, BigDecimal exact) {
+        if (netNotionalExact == null) {
+            long sum = FixedPoint.add(netNotionalUnits, units);
+            if (sum != FixedPoint.NOT_REPRESENTABLE) {
+                netNotionalUnits = sum;
+                return;
+            }
+            netNotionalExact = FixedPoint.toBigDecimal(netNotionalUnits, FixedPoint.NOTIONAL_SCALE);
+        }
+        netNotionalExact = netNotionalExact.add(exact != null ? exact : FixedPoint.toBigDecimal(units, FixedPoint.NOTIONAL_SCALE));
+    }
+}
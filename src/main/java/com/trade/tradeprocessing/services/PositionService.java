@@ -1,8 +1,13 @@
 package com.trade.tradeprocessing.services;
 
 import com.trade.tradeprocessing.models.Position;
+import com.trade.tradeprocessing.models.PositionSnapshot;
+import com.trade.tradeprocessing.models.PositionView;
+import com.trade.tradeprocessing.models.Side;
 import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
 import com.trade.tradeprocessing.repositories.PositionRepository;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,66 +15,181 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class PositionService {
 
+    private static final int INITIAL_INSTRUMENTS = 64;
+
     Logger log;
-    TradeService tradeService;
     PositionRepository positionRepository;
+    ReferenceData referenceData;
+
+    // In-memory position book, one mutable entry per instrument, indexed by instrument id.
+    // Copy-on-grow; a slot, once filled, keeps its entry for good.
+    private volatile PositionEntry[] book = new PositionEntry[INITIAL_INSTRUMENTS];
+    private final Object growLock = new Object();
+    // Tags snapshot versions with this boot, since they restart from 0 every time
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile PositionSnapshot snapshot = PositionSnapshot.empty(epoch);
 
-    public PositionService(TradeService tradeService, PositionRepository positionRepository) {
-        this.tradeService = tradeService;
+    public PositionService(PositionRepository positionRepository, ReferenceData referenceData) {
         this.positionRepository = positionRepository;
+        this.referenceData = referenceData;
         log = LoggerFactory.getLogger(PositionService.class);
     }
 
-    @Scheduled(fixedRate = 30000)
-    public void calculateAndPersistPositions() {
-        log.info("START: Calculating scheduled position aggregation for persistence.");
-        // 1. Retrieve all processed trades
-        List<Trade> processedTrades = tradeService.getTrades();
-
-        Map<String, BigDecimal> currentPositions = calculateNetQuantities(processedTrades); // Assume this method holds the aggregation logic
+    // Seed the book from whatever positions are already persisted
+    @PostConstruct
+    public void loadPositions() {
+        List<Position> positions = positionRepository.findAll();
+        for (Position position : positions) {
+            PositionEntry entry = entryFor(referenceData.instruments().intern(position.getInstrument()));
+            entry.seed(position.getNetQuantity() == null ? BigDecimal.ZERO : position.getNetQuantity(),
+                    position.getNetNotionalUsd() == null ? BigDecimal.ZERO : position.getNetNotionalUsd());
+            entry.unpublished = true;
+        }
+        publishSnapshot();
+        log.info("Position book seeded with {} instruments.", positions.size());
+    }
 
-        // 3. Convert Map results to Position entities and Persist (UPSERT)
-        for (Map.Entry<String, BigDecimal> entry : currentPositions.entrySet()) {
-            String instrument = entry.getKey();
-            BigDecimal netQuantity = entry.getValue();
+    /**
+     * Replaces the book entries for the given instruments, e.g. with positions rebuilt from the
+     * trade journal. Must run before trades start flowing; restored entries are flushed on the next cycle.
+     */
+    public void restorePositions(Map<String, PositionEntry> positions) {
+        positions.forEach((instrument, restored) -> {
+            PositionEntry entry = entryFor(referenceData.instruments().intern(instrument));
+            synchronized (entry) {
+                entry.seed(restored.netQuantity(), restored.netNotionalUsd());
+            }
+            markDirty(entry);
+        });
+        publishSnapshot();
+        log.info("Position book restored for {} instruments.", positions.size());
+    }
 
-            // Check if a Position record already exists (Optional optimization)
-            Position position = positionRepository.findById(instrument)
-                    .orElse(new Position()); // Create new if not found
+    /**
+     * Applies a single DONE trade to the in-memory book. Must be called exactly once per trade.
+     */
+    public void applyTrade(Trade trade) {
+        referenceData.intern(trade);
+        PositionEntry entry = entryFor(trade.getInstrumentId());
+        synchronized (entry) {
+            entry.apply(trade, trade.getSideCode() == Side.BUY);
+        }
+        markDirty(entry);
+    }
 
-            position.setInstrument(instrument);
-            position.setNetQuantity(netQuantity);
-            position.setLastUpdated(Instant.now());
-            // calculate and set netNotionalUsd
+    @Scheduled(fixedRateString = "${positions.flush-interval-ms:1000}")
+    public void calculateAndPersistPositions() {
+        // 1. Snapshot only the instruments that changed since the last flush
+        List<Position> changed = new ArrayList<>();
+        List<PositionEntry> flushed = new ArrayList<>();
+        Instant now = Instant.now();
+        PositionEntry[] entries = book;
+        for (int id = 0; id < entries.length; id++) {
+            PositionEntry entry = entries[id];
+            if (entry == null || !entry.dirty) {
+                continue;
+            }
+            // Clear before reading, so an update racing with this flush marks it dirty again
+            entry.dirty = false;
+            synchronized (entry) {
+                Position position = new Position(referenceData.instruments().symbol(id), entry.netQuantity(), entry.netNotionalUsd());
+                position.setLastUpdated(now);
+                changed.add(position);
+            }
+            flushed.add(entry);
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
 
-            positionRepository.save(position); // Saves new or updates existing (UPSERT)
+        // 2. Persist (UPSERT) the changed rows in one go
+        try {
+            positionRepository.saveAll(changed);
+        } catch (RuntimeException e) {
+            // Nothing else would write a quiet instrument again, so put every row back for the next cycle
+            flushed.forEach(entry -> entry.dirty = true);
+            log.warn("Position flush of {} instruments failed, retrying next cycle: {}", changed.size(), e.getMessage());
+            return;
         }
-        // log positions
-        log.info("Current Positions: " + currentPositions);
-        log.info("FINISH: Position Aggregation persisted to DB.");
+        log.debug("Flushed {} changed positions to DB.", changed.size());
     }
 
-    private Map<String, BigDecimal> calculateNetQuantities(List<Trade> trades) {
-        Map<String, BigDecimal> currentPositions = new ConcurrentHashMap<>();
-        // Calculate net quantity (BUY minus SELL)
-        for (Trade trade : trades) {
-            String instrument = trade.getInstrument(); // Assuming 'instrument' field exists on Trade
-            BigDecimal quantity = trade.getQuantity();
+    /**
+     * Latest published snapshot of the book. Never blocks and never touches the database.
+     */
+    public PositionSnapshot snapshot() {
+        return snapshot;
+    }
 
-            // Determine the sign for aggregation
-            BigDecimal netQuantity = trade.getSide().equalsIgnoreCase("BUY") ? quantity : quantity.negate();
+    /**
+     * Publishes a new snapshot if any instrument changed since the last one. Only the changed
+     * instruments are read from the book; the rest are carried over from the previous snapshot.
+     */
+    @Scheduled(fixedRateString = "${positions.snapshot-interval-ms:100}")
+    public synchronized void publishSnapshot() {
+        PositionSnapshot previous = snapshot;
+        long version = previous.version() + 1;
+        Instant now = Instant.now();
+        Map<String, PositionView> views = null;
+        PositionEntry[] entries = book;
+        for (int id = 0; id < entries.length; id++) {
+            PositionEntry entry = entries[id];
+            if (entry == null || !entry.unpublished) {
+                continue;
+            }
+            if (views == null) {
+                views = new TreeMap<>();
+                for (PositionView view : previous.positions()) {
+                    views.put(view.instrument(), view);
+                }
+            }
+            // Clear before reading, as in the flush, so a racing update lands in the next snapshot
+            entry.unpublished = false;
+            String instrument = referenceData.instruments().symbol(id);
+            synchronized (entry) {
+                views.put(instrument, new PositionView(instrument, entry.netQuantity(), entry.netNotionalUsd(), now, version));
+            }
+        }
+        if (views != null) {
+            snapshot = new PositionSnapshot(epoch, version, now, List.copyOf(views.values()));
+        }
+    }
 
-            // Atomically update the map
-            currentPositions.merge(instrument, netQuantity, BigDecimal::add);
+    /**
+     * Full rebuild of net quantities from a list of trades. No longer used on the scheduled path,
+     * kept for ad-hoc recomputation.
+     */
+    public Map<String, BigDecimal> calculateNetQuantities(List<Trade> trades) {
+        // Accumulate in fixed-point entries indexed by instrument id, BUY minus SELL, and convert once per instrument at the end
+        PositionEntry[] totals = new PositionEntry[referenceData.instruments().size()];
+        for (Trade trade : trades) {
+            referenceData.intern(trade);
+            int id = trade.getInstrumentId();
+            if (id >= totals.length) {
+                totals = Arrays.copyOf(totals, Math.max(id + 1, totals.length * 2));
+            }
+            if (totals[id] == null) {
+                totals[id] = new PositionEntry();
+            }
+            totals[id].apply(trade, trade.getSideCode() == Side.BUY);
         }
 
+        Map<String, BigDecimal> currentPositions = new ConcurrentHashMap<>();
+        for (int id = 0; id < totals.length; id++) {
+            if (totals[id] != null) {
+                currentPositions.put(referenceData.instruments().symbol(id), totals[id].netQuantity());
+            }
+        }
         return currentPositions;
     }
 
@@ -80,5 +200,43 @@ public class PositionService {
         return positionRepository.findAll();
     }
 
+    /**
+     * Single-writer view of the book for a thread that owns a fixed set of instruments
+     * (one shard of the partitioned pipeline). Updates skip the entry lock entirely.
+     */
+    public PositionSlice newSlice() {
+        return new PositionSlice(this, referenceData);
+    }
+
+    PositionEntry entryFor(int instrumentId) {
+        PositionEntry[] entries = book;
+        if (instrumentId < entries.length) {
+            PositionEntry entry = entries[instrumentId];
+            if (entry != null) {
+                return entry;
+            }
+        }
+        // First trade in this instrument; rare enough to take a lock
+        synchronized (growLock) {
+            entries = book;
+            if (instrumentId >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(instrumentId + 1, entries.length * 2));
+            }
+            if (entries[instrumentId] == null) {
+                entries[instrumentId] = new PositionEntry();
+            }
+            book = entries;
+            return entries[instrumentId];
+        }
+    }
 
+    void markDirty(PositionEntry entry) {
+        // Skip the stores when the flags are already up, so a hot instrument does not keep writing them
+        if (!entry.dirty) {
+            entry.dirty = true;
+        }
+        if (!entry.unpublished) {
+            entry.unpublished = true;
+        }
+    }
 }
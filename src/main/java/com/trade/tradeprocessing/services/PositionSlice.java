@@ -0,0 +1,39 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Side;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+
+import java.util.Arrays;
+
+/**
+ * The part of the position book owned by one thread. Only that thread may call {@link #applyTrade},
+ * and no other writer may touch the same instruments, so updates need no locking.
+ */
+public final class PositionSlice {
+
+    private final PositionService positionService;
+    private final ReferenceData referenceData;
+    // Thread-confined cache of the shared entries this slice owns, indexed by instrument id
+    private PositionEntry[] entries = new PositionEntry[16];
+
+    PositionSlice(PositionService positionService, ReferenceData referenceData) {
+        this.positionService = positionService;
+        this.referenceData = referenceData;
+    }
+
+    public void applyTrade(Trade trade) {
+        referenceData.intern(trade);
+        int id = trade.getInstrumentId();
+        if (id >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+        }
+        PositionEntry entry = entries[id];
+        if (entry == null) {
+            entry = positionService.entryFor(id);
+            entries[id] = entry;
+        }
+        entry.apply(trade, trade.getSideCode() == Side.BUY);
+        positionService.markDirty(entry);
+    }
+}
@@ -0,0 +1,148 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.PositionDelta;
+import com.trade.tradeprocessing.models.PositionSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes position snapshots to server-sent event subscribers, conflated per client.
+ * <p>
+ * Each subscriber remembers the last version it was sent. On every tick, a subscriber that is due
+ * (its rate limit allows it) and not still busy with an earlier send gets one event with everything
+ * that changed since then. A slow client therefore skips intermediate versions rather than queueing
+ * them, and the next event it does get carries the latest value of every instrument it missed.
+ */
+@Service
+public class PositionStreamService {
+
+    private static final String EVENT_NAME = "positions";
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final Logger log = LoggerFactory.getLogger(PositionStreamService.class);
+    private final PositionService positionService;
+    private final double maxRatePerSecond;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Sends can block on a slow client, so they run off the scheduler thread, one at a time per client
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PositionStreamService(PositionService positionService,
+                                 @Value("${positions.stream.max-rate-per-second:4}") double maxRatePerSecond) {
+        this.positionService = positionService;
+        this.maxRatePerSecond = maxRatePerSecond;
+    }
+
+    /**
+     * New subscriber. The first event has every position changed after lastEventId, or all of them
+     * if it is null or from before a restart. maxRate can only lower the configured rate.
+     */
+    public SseEmitter subscribe(String lastEventId, Double maxRate) {
+        double rate = maxRate == null || maxRate <= 0 ? maxRatePerSecond : Math.min(maxRate, maxRatePerSecond);
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, (long) (TimeUnit.SECONDS.toNanos(1) / rate),
+                positionService.snapshot().versionOf(lastEventId));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.debug("Position stream subscriber added, {} in total.", subscribers.size());
+        return emitter;
+    }
+
+    // Never times out; the stream ends when the client goes away or the service stops
+    SseEmitter newEmitter() {
+        return new SseEmitter(0L);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedRateString = "${positions.stream.tick-ms:50}")
+    public void push() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        PositionSnapshot snapshot = positionService.snapshot();
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            boolean changed = snapshot.version() != subscriber.sentVersion;
+            boolean heartbeat = now - subscriber.lastSentNanos >= HEARTBEAT_NANOS;
+            if ((!changed && !heartbeat) || now < subscriber.nextSendNanos
+                    || !subscriber.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            sender.execute(() -> send(subscriber, snapshot, changed));
+        }
+    }
+
+    private void send(Subscriber subscriber, PositionSnapshot snapshot, boolean changed) {
+        try {
+            if (changed) {
+                PositionDelta delta = snapshot.changedSince(subscriber.sentVersion);
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(snapshot.tag())
+                        .name(EVENT_NAME)
+                        .data(delta, MediaType.APPLICATION_JSON));
+                subscriber.sentVersion = snapshot.version();
+            } else {
+                // Keeps proxies from closing an idle stream, and finds clients that went away
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+            long sentAt = System.nanoTime();
+            subscriber.lastSentNanos = sentAt;
+            subscriber.nextSendNanos = sentAt + subscriber.intervalNanos;
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    // Before the web server stops: an open stream would otherwise hold up graceful shutdown
+    @EventListener(ContextClosedEvent.class)
+    public void completeStreams() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final long intervalNanos;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Written by the sending thread, read by the next tick after sending is released
+        private volatile long sentVersion;
+        private volatile long nextSendNanos = System.nanoTime();
+        private volatile long lastSentNanos = nextSendNanos;
+
+        Subscriber(SseEmitter emitter, long intervalNanos, long sentVersion) {
+            this.emitter = emitter;
+            this.intervalNanos = intervalNanos;
+            this.sentVersion = sentVersion;
+        }
+    }
+}
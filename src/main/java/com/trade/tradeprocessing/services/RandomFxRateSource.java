@@ -0,0 +1,62 @@
+package com.trade.tradeprocessing.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for a market data feed: a random rate between 1.05 and 1.15 for any pair.
+ * Every request, single or batched, can be made to take a fixed time to simulate a slow feed.
+ */
+@Component
+public class RandomFxRateSource implements FxRateSource {
+
+    private final long latencyMs;
+
+    public RandomFxRateSource(@Value("${marketdata.fx.source-latency-ms:0}") long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public BigDecimal fetchRate(String currencyPair) {
+        simulateLatency();
+        return randomRate();
+    }
+
+    // One round trip for the whole batch
+    @Override
+    public Map<String, BigDecimal> fetchRates(Collection<String> currencyPairs) {
+        simulateLatency();
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String currencyPair : currencyPairs) {
+            rates.put(currencyPair, randomRate());
+        }
+        return rates;
+    }
+
+    private static BigDecimal randomRate() {
+        // Generate a rate between 1.05 and 1.15
+        double rate = 1.05 + (1.15 - 1.05) * ThreadLocalRandom.current().nextDouble();
+
+        // Return the rate rounded to 4 decimal places
+        return BigDecimal.valueOf(rate).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching FX rates", e);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.dedup.TradeDeduplicator;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.utils.FixedPoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single way in for new trades, whichever producer they come from. Each trade is normalised from
+ * whatever the client sent, and turned away if it can never be accepted. Its reference data is
+ * interned, and a resubmission of a clientTradeId already accepted is dropped.
+ * <p>
+ * What is left is journaled, when the journal is enabled, and published into the processing pipeline.
+ */
+@Service
+public class TradeIngestService {
+
+    // Longest clientTradeId or side a client may send: the trades table's column length, and far
+    // inside the journal's limit, so a field too long fails here instead of in the journal or the database
+    public static final int MAX_FIELD_LENGTH = 255;
+    // Most significant digits in a quantity or price; more than the trades table can store
+    public static final int MAX_DECIMAL_DIGITS = 38;
+
+    private final TradePublisher tradePublisher;
+    private final PipelineMetrics pipelineMetrics;
+    private final ReferenceData referenceData;
+    // Null when trades.journal.enabled is off
+    private final TradeJournal tradeJournal;
+    // Null when trades.dedup.enabled is off
+    private final TradeDeduplicator tradeDeduplicator;
+    private volatile boolean intakeOpen = true;
+    // Submissions past the intake check and not yet returned; closeIntake() waits for these
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    public TradeIngestService(TradePublisher tradePublisher,
+                              PipelineMetrics pipelineMetrics,
+                              ReferenceData referenceData,
+                              ObjectProvider<TradeJournal> tradeJournal,
+                              ObjectProvider<TradeDeduplicator> tradeDeduplicator) {
+        this.tradePublisher = tradePublisher;
+        this.pipelineMetrics = pipelineMetrics;
+        this.referenceData = referenceData;
+        this.tradeJournal = tradeJournal.getIfAvailable();
+        this.tradeDeduplicator = tradeDeduplicator.getIfAvailable();
+    }
+
+    /**
+     * Publishes the trade, blocking while the pipeline is full. For internal producers.
+     */
+    public IngestOutcome submit(Trade trade) throws InterruptedException {
+        // Counted before the check, so closeIntake() either turns this away or waits for it
+        submitting.incrementAndGet();
+        try {
+            if (!intakeOpen) {
+                return IngestOutcome.CLOSED;
+            }
+            return publish(trade);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private IngestOutcome publish(Trade trade) throws InterruptedException {
+        if (!admissible(trade)) {
+            return IngestOutcome.INVALID;
+        }
+        prepare(trade);
+        if (!claim(trade)) {
+            return IngestOutcome.DUPLICATE;
+        }
+        boolean journaled = false;
+        try {
+            journal(trade);
+            journaled = true;
+            tradePublisher.publish(trade);
+        } catch (InterruptedException | RuntimeException e) {
+            abandon(trade, journaled);
+            throw e;
+        }
+        return IngestOutcome.ACCEPTED;
+    }
+
+    /**
+     * Publishes the trade only if the pipeline has room. Request threads use this so a full
+     * pipeline turns into a retryable response instead of a parked Tomcat thread.
+     */
+    public IngestOutcome trySubmit(Trade trade) {
+        submitting.incrementAndGet();
+        try {
+            if (!intakeOpen) {
+                return IngestOutcome.CLOSED;
+            }
+            return tryPublish(trade);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private IngestOutcome tryPublish(Trade trade) {
+        if (!admissible(trade)) {
+            return IngestOutcome.INVALID;
+        }
+        prepare(trade);
+        if (!claim(trade)) {
+            return IngestOutcome.DUPLICATE;
+        }
+        boolean journaled = false;
+        boolean published;
+        try {
+            journal(trade);
+            journaled = true;
+            published = tradePublisher.tryPublish(trade);
+        } catch (RuntimeException e) {
+            abandon(trade, journaled);
+            throw e;
+        }
+        if (!published) {
+            abandon(trade, true);
+            pipelineMetrics.rejectedQueueFull();
+            return IngestOutcome.QUEUE_FULL;
+        }
+        return IngestOutcome.ACCEPTED;
+    }
+
+    /**
+     * Submits a batch in order the way {@link #trySubmit} submits one trade, but journals all of it
+     * before publishing any, so the batch waits for a single fsync. Publishing stops at the first
+     * trade the pipeline has no room for: it and every trade after it come back QUEUE_FULL and are
+     * not queued. Returns one outcome per trade.
+     */
+    public List<IngestOutcome> trySubmitAll(List<Trade> trades) {
+        submitting.incrementAndGet();
+        try {
+            if (!intakeOpen) {
+                return Collections.nCopies(trades.size(), IngestOutcome.CLOSED);
+            }
+            return tryPublishAll(trades);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private List<IngestOutcome> tryPublishAll(List<Trade> trades) {
+        IngestOutcome[] outcomes = new IngestOutcome[trades.size()];
+        List<Trade> claimed = new ArrayList<>(trades.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            Trade trade = trades.get(i);
+            if (!admissible(trade)) {
+                outcomes[i] = IngestOutcome.INVALID;
+                continue;
+            }
+            prepare(trade);
+            if (claim(trade)) {
+                claimed.add(trade);
+            } else {
+                outcomes[i] = IngestOutcome.DUPLICATE;
+            }
+        }
+        try {
+            journal(claimed);
+        } catch (RuntimeException e) {
+            // The journal has already cancelled whatever it appended
+            for (Trade trade : claimed) {
+                abandon(trade, false);
+            }
+            throw e;
+        }
+        int next = 0;
+        boolean full = false;
+        try {
+            for (; next < claimed.size() && !full; next++) {
+                full = !tradePublisher.tryPublish(claimed.get(next));
+            }
+        } catch (RuntimeException e) {
+            for (Trade trade : claimed.subList(next, claimed.size())) {
+                abandon(trade, true);
+            }
+            throw e;
+        }
+        int firstNotQueued = full ? next - 1 : claimed.size();
+        for (Trade trade : claimed.subList(firstNotQueued, claimed.size())) {
+            abandon(trade, true);
+        }
+        if (full) {
+            pipelineMetrics.rejectedQueueFull();
+        }
+
+        // Outcomes in submission order; everything from the first trade not queued onwards is QUEUE_FULL
+        Trade stoppedAt = full ? claimed.get(firstNotQueued) : null;
+        boolean stopped = false;
+        for (int i = 0; i < outcomes.length; i++) {
+            stopped |= trades.get(i) == stoppedAt;
+            if (stopped) {
+                outcomes[i] = IngestOutcome.QUEUE_FULL;
+            } else if (outcomes[i] == null) {
+                outcomes[i] = IngestOutcome.ACCEPTED;
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * A batch for one bulk or streaming request, submitted through {@link #trySubmitAll}.
+     */
+    public IngestBatch newBatch() {
+        return new IngestBatch(this);
+    }
+
+    /**
+     * Turns away every further submission with CLOSED, so the pipeline can drain, then waits up to
+     * the timeout for submissions already past the check to finish publishing.
+     * Returns false if some were still in progress when the timeout ran out.
+     */
+    public boolean closeIntake(long timeoutMs) throws InterruptedException {
+        intakeOpen = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (submitting.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // Checked before anything is interned, claimed or journaled
+    private boolean admissible(Trade trade) {
+        if (!referenceData.admits(trade)
+                || !fits(trade.getClientTradeId()) || !fits(trade.getSide())
+                || !fits(trade.getQuantity()) || !fits(trade.getPrice())) {
+            pipelineMetrics.rejectedByValidation();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean fits(String value) {
+        return value == null || value.length() <= MAX_FIELD_LENGTH;
+    }
+
+    private static boolean fits(BigDecimal value) {
+        return value == null || value.precision() <= MAX_DECIMAL_DIGITS && Math.abs(value.scale()) <= MAX_DECIMAL_DIGITS;
+    }
+
+    private boolean claim(Trade trade) {
+        if (tradeDeduplicator == null || trade.getClientTradeId() == null) {
+            return true;
+        }
+        if (!tradeDeduplicator.claim(trade.getClientTradeId())) {
+            pipelineMetrics.rejectedDuplicate();
+            return false;
+        }
+        return true;
+    }
+
+    // Not queued after all: cancel its journal record, and free its clientTradeId so a retry is not a duplicate
+    private void abandon(Trade trade, boolean journaled) {
+        if (journaled && tradeJournal != null) {
+            tradeJournal.appendCancel(trade);
+        }
+        if (tradeDeduplicator != null && trade.getClientTradeId() != null) {
+            tradeDeduplicator.release(trade.getClientTradeId());
+        }
+    }
+
+    private void prepare(Trade trade) {
+        // Ids and lifecycle state belong to the pipeline, not to the caller
+        trade.setId(null);
+        trade.setStatus(Status.Queued);
+        trade.setTimeProcessed(null);
+        trade.setNotionalUsd(null);
+        trade.setNotionalUsdUnits(FixedPoint.NOT_REPRESENTABLE);
+        if (trade.getCreatedAt() == null) {
+            trade.setCreatedAt(Instant.now());
+        }
+        trade.setInstrumentId(SymbolDictionary.NO_ID);
+        referenceData.intern(trade);
+    }
+
+    // Durable before it is queued, so a restart can pick it up again
+    private void journal(Trade trade) {
+        if (tradeJournal != null) {
+            tradeJournal.appendIngest(trade);
+        }
+    }
+
+    private void journal(List<Trade> trades) {
+        if (tradeJournal != null) {
+            tradeJournal.appendIngest(trades);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.metrics.Stage;
+import com.trade.tradeprocessing.models.Trade;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind stage for trade status changes. Workers hand over the trade's status, processing time
+ * and notional as they are at that moment, and carry on; a single flusher thread collects changes
+ * from all workers and writes them as JDBC batches, either when the batch is full or when the flush
+ * window closes. A trade that changes state several times inside one window is written once, with its latest state.
+ * <p>
+ * A batch that fails is retried with exponential backoff, holding up the flusher (and, once the
+ * backlog is full, the workers) meanwhile. A batch that still fails after the last attempt is
+ * counted in {@link #failedChanges()} and logged with its trade ids.
+ */
+@Service
+public class TradePersister {
+
+    private static final String UPDATE_SQL =
+            "update trades set status = ?, time_processed = ?, notional_usd = ? where id = ?";
+
+    private final Logger log = LoggerFactory.getLogger(TradePersister.class);
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PipelineMetrics pipelineMetrics;
+    private final BlockingQueue<Change> pending;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failedChanges = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public TradePersister(EntityManager entityManager,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          PipelineMetrics pipelineMetrics,
+                          @Value("${trades.persister.batch-size:500}") int batchSize,
+                          @Value("${trades.persister.flush-interval-ms:50}") long flushIntervalMs,
+                          @Value("${trades.persister.max-attempts:5}") int maxAttempts,
+                          @Value("${trades.persister.retry-backoff-ms:100}") long retryBackoffMs) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.pipelineMetrics = pipelineMetrics;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        // Bounded so a slow database pushes back on the workers instead of growing the heap
+        this.pending = new LinkedBlockingQueue<>(batchSize * 10);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = new Thread(this::flushLoop, "Trade-Persister");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Records the trade's current status, processing time and notional for the next batch.
+     * Later changes to the trade are not picked up until it is saved again.
+     */
+    public void save(Trade trade) {
+        try {
+            pending.put(new Change(trade, trade.getStatus(), trade.getTimeProcessed(), trade.getNotionalUsd()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing trade ID {} for persistence.", trade.getId());
+        }
+    }
+
+    // Batch attempts that failed and were tried again
+    public long retries() {
+        return retries.get();
+    }
+
+    // Status changes given up on after the last attempt; these never reached the database
+    public long failedChanges() {
+        return failedChanges.get();
+    }
+
+    public int backlog() {
+        return pending.size();
+    }
+
+    // Backlog at which save() starts blocking the workers
+    public int capacity() {
+        return pending.remainingCapacity() + pending.size();
+    }
+
+    private void flushLoop() {
+        List<Change> drained = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                Change first = pending.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+
+                // Keep collecting until the batch is full or the window closes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (drained.size() < batchSize) {
+                    pending.drainTo(drained, batchSize - drained.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (drained.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Change next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drained.add(next);
+                }
+
+                flushWithRetry(drained);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void flushWithRetry(List<Change> drained) throws InterruptedException {
+        // Trade has identity equality and changes arrive in order, so each trade keeps its latest state
+        Map<Trade, Change> coalesced = new LinkedHashMap<>();
+        for (Change change : drained) {
+            coalesced.put(change.trade(), change);
+        }
+        List<Change> inserts = new ArrayList<>();
+        List<Change> updates = new ArrayList<>();
+        for (Change change : coalesced.values()) {
+            if (change.trade().getId() == null) {
+                inserts.add(change);
+            } else {
+                updates.add(change);
+            }
+        }
+
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long flushStart = System.nanoTime();
+                List<Long> ids = write(inserts, updates);
+                // Trade.id is volatile, so workers reading it later need no lock shared with this thread
+                for (int i = 0; i < ids.size(); i++) {
+                    inserts.get(i).trade().setId(ids.get(i));
+                }
+                pipelineMetrics.record(Stage.PERSIST_FLUSH, System.nanoTime() - flushStart);
+                log.debug("Flushed {} trade changes as {} inserts and {} updates.",
+                        drained.size(), inserts.size(), updates.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failedChanges.addAndGet(inserts.size() + updates.size());
+                    log.error("Gave up on {} trade changes after {} attempts: {} new trades and updates to ids {} were not written.",
+                            inserts.size() + updates.size(), attempt, inserts.size(),
+                            updates.stream().map(change -> change.trade().getId()).toList(), e);
+                    return;
+                }
+                retries.incrementAndGet();
+                log.warn("Failed to flush {} trade changes (attempt {} of {}), retrying in {} ms: {}",
+                        inserts.size() + updates.size(), attempt, maxAttempts, backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs *= 2;
+            }
+        }
+    }
+
+    /**
+     * Writes one coalesced batch in a single transaction and returns the ids of the inserted rows,
+     * in order. The caller hands them to the trades only once this returns, so a failed attempt
+     * leaves every trade ready to be inserted again.
+     */
+    List<Long> write(List<Change> inserts, List<Change> updates) {
+        List<Trade> rows = new ArrayList<>(inserts.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            // Ids come from the pooled sequence; Hibernate groups the inserts into JDBC batches
+            for (Change change : inserts) {
+                Trade row = change.row();
+                entityManager.persist(row);
+                rows.add(row);
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, change) -> {
+                    ps.setString(1, change.status());
+                    if (change.timeProcessed() == null) {
+                        ps.setNull(2, Types.TIMESTAMP_WITH_TIMEZONE);
+                    } else {
+                        ps.setObject(2, OffsetDateTime.ofInstant(change.timeProcessed(), ZoneOffset.UTC));
+                    }
+                    ps.setBigDecimal(3, change.notionalUsd());
+                    ps.setLong(4, change.trade().getId());
+                });
+            }
+        });
+        return rows.stream().map(Trade::getId).toList();
+    }
+
+    /**
+     * A trade's status, processing time and notional as they were when it was saved.
+     */
+    record Change(Trade trade, String status, Instant timeProcessed, BigDecimal notionalUsd) {
+
+        // Row to insert: the trade's fields, which are fixed from ingest on, with this change's state
+        Trade row() {
+            return Trade.builder()
+                    .clientTradeId(trade.getClientTradeId())
+                    .tradeDate(trade.getTradeDate())
+                    .instrument(trade.getInstrument())
+                    .side(trade.getSide())
+                    .quantity(trade.getQuantity())
+                    .price(trade.getPrice())
+                    .currency(trade.getCurrency())
+                    .counterparty(trade.getCounterparty())
+                    .createdAt(trade.getCreatedAt())
+                    .status(status)
+                    .timeProcessed(timeProcessed)
+                    .notionalUsd(notionalUsd)
+                    .build();
+        }
+    }
+}
@@ -1,175 +1,520 @@
 package com.trade.tradeprocessing.services;
 
+import com.trade.tradeprocessing.analytics.ExposureCube;
+import com.trade.tradeprocessing.analytics.TradeColumnStore;
+import com.trade.tradeprocessing.enrichment.AsyncFxEnricher;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.metrics.Stage;
 import com.trade.tradeprocessing.models.Status;
 import com.trade.tradeprocessing.models.Trade;
-import com.trade.tradeprocessing.repositories.TradeRepository;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.utils.FixedPoint;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.task.TaskExecutor;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class TradeProcessingService {
 
-    private final TradeRepository tradeRepository;
+    // How often an idle consumer looks up from the queue to see whether it should retire
+    private static final long RETIRE_CHECK_MS = 100;
+    // Start time for a trade whose latency the caller records itself
+    private static final long NOT_RECORDED = Long.MIN_VALUE;
+
+    private final TradePersister tradePersister;
     private final Logger log;
     private final BlockingQueue<Trade> tradeQueue;
     private final TaskExecutor tradeProcessingExecutor;
-    private final AtomicLong processedCount = new AtomicLong(0);
-    private final AtomicLong totalProcessingTimeNs = new AtomicLong(0);
-    private long startTime;
+    private final PipelineMetrics pipelineMetrics;
     private MarketDataService marketDataService;
+    private PositionService positionService;
+    private final ReferenceData referenceData;
+    // Null when trades.journal.enabled is off
+    private final TradeJournal tradeJournal;
+    // Null when trades.analytics.enabled is off
+    private final TradeColumnStore tradeColumnStore;
+    // Null when trades.exposure.enabled is off
+    private final ExposureCube exposureCube;
+    // Null when trades.enrichment.async.enabled is off
+    private final AsyncFxEnricher asyncFxEnricher;
+    private final String pipelineMode;
+    private final String executorMode;
+    private final int consumerCount;
+    private final int maxConcurrency;
+    private final boolean virtualThreadPerTrade;
+    // Bounds in-flight trades in virtual-thread mode, where there is no pool size to do it
+    private final Semaphore inFlightPermits;
+    // Queue consumers currently running, and how many of them have been asked to stop
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicInteger pendingRetirements = new AtomicInteger();
+    // Trades taken off the queue and not yet finished, including those waiting on an FX fetch
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Consumer and dispatcher loops that have not exited yet
+    private final AtomicInteger loopsRunning = new AtomicInteger();
+    // Set on shutdown once the pipeline has drained; consumers and the dispatcher exit their loops
+    private volatile boolean stopping;
 
-    TradeProcessingService(TradeRepository tradeRepository,
+    TradeProcessingService(TradePersister tradePersister,
                            BlockingQueue<Trade> tradeQueue,
                            TaskExecutor tradeProcessingExecutor,
-                           MarketDataService marketDataService) {
+                           MarketDataService marketDataService,
+                           PositionService positionService,
+                           ReferenceData referenceData,
+                           PipelineMetrics pipelineMetrics,
+                           ObjectProvider<TradeJournal> tradeJournal,
+                           ObjectProvider<TradeColumnStore> tradeColumnStore,
+                           ObjectProvider<ExposureCube> exposureCube,
+                           ObjectProvider<AsyncFxEnricher> asyncFxEnricher,
+                           @Value("${trades.pipeline.mode:queue}") String pipelineMode,
+                           @Value("${trades.executor.mode:platform}") String executorMode,
+                           @Value("${trades.consumers:5}") int consumerCount,
+                           @Value("${trades.executor.max-concurrency:64}") int maxConcurrency,
+                           @Value("${trades.executor.virtual-thread-per-trade:true}") boolean virtualThreadPerTrade) {
         log = LoggerFactory.getLogger(TradeProcessingService.class);
-        this.tradeRepository = tradeRepository;
+        this.tradePersister = tradePersister;
         this.tradeQueue = tradeQueue;
         this.tradeProcessingExecutor = tradeProcessingExecutor;
         this.marketDataService = marketDataService;
+        this.positionService = positionService;
+        this.referenceData = referenceData;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tradeJournal = tradeJournal.getIfAvailable();
+        this.tradeColumnStore = tradeColumnStore.getIfAvailable();
+        this.exposureCube = exposureCube.getIfAvailable();
+        this.asyncFxEnricher = asyncFxEnricher.getIfAvailable();
+        this.pipelineMode = pipelineMode;
+        this.executorMode = executorMode;
+        this.consumerCount = consumerCount;
+        this.maxConcurrency = maxConcurrency;
+        this.virtualThreadPerTrade = virtualThreadPerTrade;
+        this.inFlightPermits = new Semaphore(maxConcurrency);
     }
 
     // Starts the worker threads when the application starts
     @PostConstruct
     public void startConsumers() {
-        // Start measuring throughput
-        this.startTime = System.currentTimeMillis();
+        // Other pipeline modes run their own stage threads
+        if (!"queue".equals(pipelineMode)) {
+            log.info("Pipeline mode '{}', queue consumers not started.", pipelineMode);
+            return;
+        }
 
-        // Submit N consumer tasks to the thread pool (N = CorePoolSize from config)
-        int numWorkers = ((ThreadPoolTaskExecutor) tradeProcessingExecutor).getCorePoolSize();
+        if ("virtual".equals(executorMode) && virtualThreadPerTrade) {
+            // Dispatchers hand every trade to its own virtual thread, at most maxConcurrency at a time
+            for (int i = 0; i < consumerCount; i++) {
+                tradeProcessingExecutor.execute(this::dispatchTrades);
+            }
+            log.info("{} dispatchers started, one virtual thread per trade, at most {} in flight.",
+                    consumerCount, maxConcurrency);
+            return;
+        }
+
+        // Submit N consumer tasks (platform: trades.consumers, virtual: one virtual thread per permit)
+        int numWorkers = "virtual".equals(executorMode) ? maxConcurrency : consumerCount;
         for (int i = 0; i < numWorkers; i++) {
-            tradeProcessingExecutor.execute(this::consumeTrades);
+            startWorker();
         }
-        log.info("{} worker threads started for trade processing.", numWorkers);
+        log.info("{} {} worker threads started for trade processing.", numWorkers, executorMode);
+    }
 
-        // Optional: Schedule a thread to log throughput metrics periodically
-        tradeProcessingExecutor.execute(this::logThroughput);
+    /**
+     * Whether queue consumers can be added and retired at runtime: queue mode on the platform pool.
+     */
+    public boolean supportsWorkerScaling() {
+        return "queue".equals(pipelineMode) && "platform".equals(executorMode);
     }
 
-    private void logThroughput() {
-        while (!Thread.currentThread().isInterrupted()) {
-            try {
-                // Wait for 10 seconds
-                Thread.sleep(30000);
-
-                long duration = System.currentTimeMillis() - startTime;
-                if (duration > 0) {
-                    double durationSeconds = duration / 1000.0;
-                    double throughput = processedCount.get() / durationSeconds;
-
-                    log.info("--- METRICS ---");
-                    log.info("Total Trades Processed: {}", processedCount.get());
-                    log.info("Current Throughput: {:.2f} trades/second", throughput);
-                    log.info("Queue Size: {}", tradeQueue.size());
-                    log.info("--------------");
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Queue consumers running, not counting those already asked to retire.
+     */
+    public int workerCount() {
+        return runningWorkers.get() - pendingRetirements.get();
+    }
+
+    /**
+     * Adds one queue consumer, or takes back a retirement that has not happened yet.
+     * Returns false if the executor has no thread to spare.
+     */
+    public boolean addWorker() {
+        int pending = pendingRetirements.get();
+        while (pending > 0) {
+            if (pendingRetirements.compareAndSet(pending, pending - 1)) {
+                return true;
             }
+            pending = pendingRetirements.get();
+        }
+        try {
+            startWorker();
+            return true;
+        } catch (TaskRejectedException e) {
+            log.warn("No thread available for another consumer: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Asks one queue consumer to stop once it is done with its current trade.
+     */
+    public void retireWorker() {
+        pendingRetirements.incrementAndGet();
+    }
+
+    private void startWorker() {
+        runningWorkers.incrementAndGet();
+        try {
+            tradeProcessingExecutor.execute(this::consumeTrades);
+        } catch (TaskRejectedException e) {
+            runningWorkers.decrementAndGet();
+            throw e;
         }
     }
 
     // The continuous CONSUMER loop
     private void consumeTrades() {
         log.info("CONSUMER thread {} started.", Thread.currentThread().getName());
-        while (!Thread.currentThread().isInterrupted()) {
-            try {
-                // CONSUMER takes a trade from the queue. 'take' blocks until a trade is available.
-                Trade trade = tradeQueue.take();
-
-                long latencyStart = System.nanoTime();
-
-                // Execute the processing pipeline
-                processTradePipeline(trade);
+        loopsRunning.incrementAndGet();
+        boolean retired = false;
+        try {
+            while (!stopping && !Thread.currentThread().isInterrupted() && !(retired = claimRetirement())) {
+                try {
+                    // CONSUMER takes a trade from the queue, waking up now and then to check for retirement
+                    Trade trade = tradeQueue.poll(RETIRE_CHECK_MS, TimeUnit.MILLISECONDS);
+                    if (trade != null) {
+                        inFlight.incrementAndGet();
+                        processAndRecord(trade);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Consumer thread interrupted. Shutting down.");
+                } catch (Exception e) {
+                    log.error("Unhandled exception during trade processing.", e);
+                }
+            }
+        } finally {
+            if (!retired) {
+                runningWorkers.decrementAndGet();
+            }
+            loopsRunning.decrementAndGet();
+        }
+    }
 
-                long latencyEnd = System.nanoTime();
-                long latencyNs = latencyEnd - latencyStart;
+    // Takes one pending retirement, if there is one; counted off straight away so workerCount() never dips
+    private boolean claimRetirement() {
+        int pending = pendingRetirements.get();
+        while (pending > 0) {
+            if (pendingRetirements.compareAndSet(pending, pending - 1)) {
+                runningWorkers.decrementAndGet();
+                log.info("CONSUMER thread {} retired.", Thread.currentThread().getName());
+                return true;
+            }
+            pending = pendingRetirements.get();
+        }
+        return false;
+    }
 
-                // Log and update metrics
-                totalProcessingTimeNs.addAndGet(latencyNs); // <--- RECORD TIME
-                log.debug("Processed Trade ID {} in {} nanoseconds.", trade.getId(), latencyNs);
-                processedCount.incrementAndGet();
+    // Virtual-thread DISPATCHER loop: takes a trade, waits for a permit, processes it on a fresh virtual thread
+    private void dispatchTrades() {
+        log.info("DISPATCHER thread {} started.", Thread.currentThread());
+        loopsRunning.incrementAndGet();
+        try {
+            while (!stopping && !Thread.currentThread().isInterrupted()) {
+                try {
+                    Trade trade = tradeQueue.poll(RETIRE_CHECK_MS, TimeUnit.MILLISECONDS);
+                    if (trade != null) {
+                        dispatch(trade);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Dispatcher thread interrupted. Shutting down.");
+                }
+            }
+        } finally {
+            loopsRunning.decrementAndGet();
+        }
+    }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Consumer thread interrupted. Shutting down.");
-            } catch (Exception e) {
-                log.error("Unhandled exception during trade processing.", e);
+    // In flight from the moment it leaves the queue, including while waiting for a permit
+    private void dispatch(Trade trade) throws InterruptedException {
+        inFlight.incrementAndGet();
+        boolean handedOff = false;
+        try {
+            inFlightPermits.acquire();
+            try {
+                tradeProcessingExecutor.execute(() -> {
+                    try {
+                        processAndRecord(trade);
+                    } catch (Exception e) {
+                        log.error("Unhandled exception during trade processing.", e);
+                    } finally {
+                        inFlightPermits.release();
+                    }
+                });
+                handedOff = true;
+            } finally {
+                if (!handedOff) {
+                    inFlightPermits.release();
+                }
+            }
+        } finally {
+            // Not handed off: the trade is dropped here and stays pending in the journal for replay
+            if (!handedOff) {
+                inFlight.decrementAndGet();
             }
         }
     }
 
+    private void processAndRecord(Trade trade) {
+        // Execute the processing pipeline; the loop already counted the trade in flight.
+        // Its total latency is recorded when it finishes, which for a deferred trade is after its FX fetch
+        runPipeline(trade, System.nanoTime());
+    }
+
     public boolean isValid(Trade trade) {
-        if (trade.getQuantity() == null || trade.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
+        long quantityUnits = trade.getQuantityUnits();
+        if (quantityUnits != FixedPoint.NOT_REPRESENTABLE) {
+            if (quantityUnits <= 0) {
+                return false;
+            }
+        } else if (trade.getQuantity() == null || trade.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
             return false;
         }
-        String side = trade.getSide();
-        return side.equals("BUY") || side.equals("SELL");
+        return trade.getSideCode() != null;
     }
 
     public void processTradePipeline(Trade pendingTrade) {
+        inFlight.incrementAndGet();
+        runPipeline(pendingTrade, NOT_RECORDED);
+    }
+
+    // Runs a trade already counted in flight, and counts it off once it finishes, after its FX fetch if deferred
+    private void runPipeline(Trade pendingTrade, long latencyStart) {
+        boolean deferred = false;
+        try {
+            if (!beginProcessing(pendingTrade)) {
+                return;
+            }
+            switch (enrichOrDefer(pendingTrade, () -> finish(pendingTrade, latencyStart))) {
+                case ENRICHED -> completeAndApply(pendingTrade);
+                // The rest runs on the completion executor once the rate is in; this worker moves on
+                case DEFERRED -> deferred = true;
+                case FAILED -> { }
+            }
+        } finally {
+            if (!deferred) {
+                finish(pendingTrade, latencyStart);
+            }
+        }
+    }
+
+    private void finish(Trade trade, long latencyStart) {
+        if (latencyStart != NOT_RECORDED) {
+            long latencyNs = System.nanoTime() - latencyStart;
+            pipelineMetrics.tradeProcessed(latencyNs);
+            log.debug("Processed Trade ID {} in {} nanoseconds.", trade.getId(), latencyNs);
+        }
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * For pipeline modes that run the stages on their own threads: counts a trade in flight from
+     * when it leaves the mode's queue until inFlightFinished(), so a drain waits for it too.
+     */
+    public void inFlightStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void inFlightFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    // Consumer and dispatcher loops still running; 0 once they have all exited after stopConsumers()
+    public int consumersRunning() {
+        return loopsRunning.get();
+    }
+
+    /**
+     * Lets consumers and the dispatcher finish their current trade and exit, so the executor
+     * can shut down without waiting out its timeout. Call once the queue has drained.
+     */
+    public void stopConsumers() {
+        stopping = true;
+    }
+
+    // Persistence and position update, on the worker for a cache hit or on the completion executor after a fetch
+    private void completeAndApply(Trade pendingTrade) {
+        complete(pendingTrade);
+
+        // Fold the completed trade into the position book exactly once
+        positionService.applyTrade(pendingTrade);
+    }
+
+    /**
+     * Validation stage: marks the trade PROCESSING and rejects it if invalid.
+     * Returns false if the trade was FAILED and must not go further.
+     */
+    public boolean beginProcessing(Trade pendingTrade) {
         log.debug("START Processing Trade ID: {} by thread {}", pendingTrade.getId(), Thread.currentThread().getName());
+        if (pendingTrade.getCreatedAt() != null) {
+            long waitedMs = System.currentTimeMillis() - pendingTrade.getCreatedAt().toEpochMilli();
+            pipelineMetrics.record(Stage.QUEUE_WAIT, waitedMs * 1_000_000);
+        }
         pendingTrade.setStatus(Status.Processing);
-        tradeRepository.save(pendingTrade);
+        save(pendingTrade);
 
-        if (!isValid(pendingTrade)) {
+        long validationStart = System.nanoTime();
+        // Already done at ingest; trades re-queued from the journal arrive without ids
+        referenceData.intern(pendingTrade);
+        toFixedPoint(pendingTrade);
+        boolean valid = isValid(pendingTrade);
+        pipelineMetrics.record(Stage.VALIDATION, System.nanoTime() - validationStart);
+        if (!valid) {
+            pipelineMetrics.rejectedByValidation();
             pendingTrade.setStatus(Status.Failed);
             pendingTrade.setTimeProcessed(Instant.now());
-            tradeRepository.save(pendingTrade);
+            save(pendingTrade);
+            journalOutcome(pendingTrade);
             log.warn("Trade ID {} REJECTED: Failed validation (Side: {}, Qty: {}).",
                     pendingTrade.getId(), pendingTrade.getSide(), pendingTrade.getQuantity());
-            return;
+            return false;
         }
+        return true;
+    }
 
-        // --- ASYNCHRONOUS ENRICHMENT STAGE ---
-        try {
-            // 3. Kick off the asynchronous FX rate fetch
-            CompletableFuture<BigDecimal> fxFuture = marketDataService.getFxRateAsync("EURUSD");
+    /**
+     * Enrichment stage: looks up the cached FX rate for the trade's currency and sets notionalUsd.
+     * Never waits on a rate fetch; returns false if the trade was FAILED and must not go further.
+     */
+    public boolean enrich(Trade pendingTrade) {
+        long enrichmentStart = System.nanoTime();
+        return enrichWith(pendingTrade, marketDataService.getCachedQuote(pendingTrade.getCurrencyId()), enrichmentStart);
+    }
 
-            // Wait for the result from the async thread.
-            // This is the point where the consumer thread waits for the background task to complete.
-            BigDecimal fxRate = fxFuture.get();
+    /**
+     * Enrichment stage that does not hold the calling thread on a cache miss. With the async enricher
+     * on, a trade whose rate is not cached is handed over and DEFERRED: once the rate is in, it is
+     * enriched, completed and applied to the position book on the completion executor, and then
+     * whenResumed runs, whatever the outcome. Otherwise it behaves like {@link #enrich}.
+     */
+    public EnrichmentOutcome enrichOrDefer(Trade pendingTrade, Runnable whenResumed) {
+        long enrichmentStart = System.nanoTime();
+        FxQuote fxQuote = marketDataService.getCachedQuote(pendingTrade.getCurrencyId());
+        // The enricher always calls back, with null on a timeout, so whenResumed always runs
+        if (fxQuote == null && asyncFxEnricher != null
+                && asyncFxEnricher.defer(pendingTrade, quote -> resumeDeferred(pendingTrade, quote, enrichmentStart, whenResumed))) {
+            return EnrichmentOutcome.DEFERRED;
+        }
+        return enrichWith(pendingTrade, fxQuote, enrichmentStart) ? EnrichmentOutcome.ENRICHED : EnrichmentOutcome.FAILED;
+    }
 
-            // Calculate and enrich
-            enrichTrade(pendingTrade, fxRate);
+    private void resumeDeferred(Trade pendingTrade, FxQuote fxQuote, long enrichmentStart, Runnable whenResumed) {
+        try {
+            if (enrichWith(pendingTrade, fxQuote, enrichmentStart)) {
+                completeAndApply(pendingTrade);
+            }
+        } finally {
+            whenResumed.run();
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Trade ID {} FAILED during ASYNC enrichment: {}", pendingTrade.getId(), e.getMessage());
-            // Optionally: set status to FAILED and persist
-            pendingTrade.setStatus("FAILED");
-            tradeRepository.save(pendingTrade);
-            return;
+    private boolean enrichWith(Trade pendingTrade, FxQuote fxQuote, long enrichmentStart) {
+        if (fxQuote == null) {
+            pipelineMetrics.rejectedForFx();
+            pendingTrade.setStatus(Status.Failed);
+            pendingTrade.setTimeProcessed(Instant.now());
+            save(pendingTrade);
+            journalOutcome(pendingTrade);
+            log.warn("Trade ID {} REJECTED: No fresh FX rate for currency {}.",
+                    pendingTrade.getId(), pendingTrade.getCurrency());
+            return false;
         }
 
+        // Calculate and enrich
+        enrichTrade(pendingTrade, fxQuote);
+        pipelineMetrics.record(Stage.FX_ENRICHMENT, System.nanoTime() - enrichmentStart);
+        return true;
+    }
+
+    /**
+     * Persistence stage: marks the trade DONE and hands it to the persister.
+     */
+    public void complete(Trade pendingTrade) {
         pendingTrade.setStatus(Status.Done);
         pendingTrade.setTimeProcessed(Instant.now());
-        tradeRepository.save(pendingTrade);
+        save(pendingTrade);
+        journalOutcome(pendingTrade);
+        if (tradeColumnStore != null) {
+            tradeColumnStore.append(pendingTrade);
+        }
+        if (exposureCube != null) {
+            exposureCube.add(pendingTrade);
+        }
+    }
+
+    private void save(Trade trade) {
+        long saveStart = System.nanoTime();
+        tradePersister.save(trade);
+        pipelineMetrics.record(Stage.PERSIST_SAVE, System.nanoTime() - saveStart);
+    }
+
+    // DONE or FAILED is final, so the journal can stop treating the trade as pending
+    private void journalOutcome(Trade trade) {
+        if (tradeJournal != null) {
+            tradeJournal.appendCompletion(trade);
+        }
+    }
+
+    public long getProcessedCount() {
+        return pipelineMetrics.processedCount();
     }
 
     /**
-     * Performs the required enrichment calculation: notionalUsd = quantity × price × fxRate
+     * Records a trade that went through a pipeline other than the queue consumers.
      */
-    private void enrichTrade(Trade trade, BigDecimal fxRate) {
-        // Placeholder currency pair since the Trade object doesn't have it yet.
-        // In a real system, this would be based on the trade's currency.
+    public void recordProcessed(long latencyNs) {
+        pipelineMetrics.tradeProcessed(latencyNs);
+    }
 
-        // notionalUsd = quantity × price × fxRate
-        BigDecimal notional = trade.getQuantity()
-                .multiply(trade.getPrice())
-                .multiply(fxRate)
-                .setScale(2, 0); // Round to 2 decimal places for USD
+    /**
+     * Fills in the trade's fixed-point quantity and price. Done once, at the start of validation;
+     * values with no exact long form stay NOT_REPRESENTABLE and take the BigDecimal path.
+     */
+    void toFixedPoint(Trade trade) {
+        trade.setQuantityUnits(FixedPoint.toUnits(trade.getQuantity(), FixedPoint.QUANTITY_SCALE));
+        trade.setPriceUnits(FixedPoint.toUnits(trade.getPrice(), FixedPoint.PRICE_SCALE));
+    }
 
+    /**
+     * Performs the required enrichment calculation: notionalUsd = quantity × price × fxRate
+     */
+    void enrichTrade(Trade trade, FxQuote fxQuote) {
+        // notionalUsd = quantity × price × fxRate, rounded UP to 2 decimal places for USD
+        long notionalUnits = FixedPoint.notionalUnits(trade.getQuantityUnits(), trade.getPriceUnits(), fxQuote.rateUnits());
+        if (notionalUnits != FixedPoint.NOT_REPRESENTABLE) {
+            trade.setNotionalUsdUnits(notionalUnits);
+            trade.setNotionalUsd(FixedPoint.toBigDecimal(notionalUnits, FixedPoint.NOTIONAL_SCALE));
+            return;
+        }
+        // Too large or too precise for a long: same calculation in BigDecimal
+        BigDecimal notional = FixedPoint.notional(trade.getQuantity(), trade.getPrice(), fxQuote.rate());
         trade.setNotionalUsd(notional);
+        trade.setNotionalUsdUnits(FixedPoint.toUnits(notional, FixedPoint.NOTIONAL_SCALE));
     }
 
 }
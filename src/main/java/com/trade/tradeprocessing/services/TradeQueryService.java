@@ -0,0 +1,174 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import com.trade.tradeprocessing.models.TradePage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Read side for trades: keyset pages and bounded-memory streaming, both ordered by id.
+ * Only the filters actually given end up in the SQL, so each query can use its (column, id) index.
+ * When archiving is enabled, archived trades are merged in by id, so callers can't tell which tier a trade is in.
+ */
+@Service
+public class TradeQueryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectProvider<TradeArchive> tradeArchive;
+
+    public TradeQueryService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                             ObjectProvider<TradeArchive> tradeArchive) {
+        this.entityManager = entityManager;
+        this.tradeArchive = tradeArchive;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public TradePage findPage(TradeFilter filter, Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Trade> items = readOnlyTransaction.execute(status ->
+                buildQuery(filter, afterId).setMaxResults(pageSize).getResultList());
+        TradeArchive archive = tradeArchive.getIfAvailable();
+        if (archive != null) {
+            items = merge(archive.findPage(filter, afterId, pageSize), items, pageSize);
+        }
+        Long nextCursor = items.size() == pageSize ? items.get(items.size() - 1).getId() : null;
+        return new TradePage(items, nextCursor);
+    }
+
+    /**
+     * Walks every matching trade through a database cursor, handing each one to the consumer and
+     * detaching it straight away, so memory use doesn't depend on how many trades match.
+     */
+    public void streamTrades(TradeFilter filter, Long afterId, Consumer<Trade> consumer) {
+        TradeArchive archive = tradeArchive.getIfAvailable();
+        ArchiveCursor archived = archive == null ? null : new ArchiveCursor(archive, filter, afterId);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            TypedQuery<Trade> query = buildQuery(filter, afterId)
+                    .setHint(AvailableHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                    .setHint(AvailableHints.HINT_READ_ONLY, true);
+            try (Stream<Trade> trades = query.getResultStream()) {
+                trades.forEach(trade -> {
+                    entityManager.detach(trade);
+                    if (archived != null) {
+                        archived.emitBefore(trade.getId(), consumer);
+                    }
+                    consumer.accept(trade);
+                });
+            }
+        });
+        if (archived != null) {
+            archived.emitBefore(Long.MAX_VALUE, consumer);
+        }
+    }
+
+    // Both lists are in id order; a trade caught mid-move is in both and is returned once
+    static List<Trade> merge(List<Trade> archived, List<Trade> hot, int limit) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Trade> merged = new ArrayList<>(Math.min(limit, archived.size() + hot.size()));
+        int a = 0;
+        int h = 0;
+        while (merged.size() < limit && (a < archived.size() || h < hot.size())) {
+            if (h == hot.size() || a < archived.size() && archived.get(a).getId() < hot.get(h).getId()) {
+                merged.add(archived.get(a++));
+            } else {
+                if (a < archived.size() && archived.get(a).getId().equals(hot.get(h).getId())) {
+                    a++;
+                }
+                merged.add(hot.get(h++));
+            }
+        }
+        return merged;
+    }
+
+    private TypedQuery<Trade> buildQuery(TradeFilter filter, Long afterId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Trade> query = cb.createQuery(Trade.class);
+        Root<Trade> trade = query.from(Trade.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterId != null) {
+            predicates.add(cb.greaterThan(trade.get("id"), afterId));
+        }
+        if (filter.instrument() != null) {
+            predicates.add(cb.equal(trade.get("instrument"), filter.instrument()));
+        }
+        if (filter.status() != null) {
+            predicates.add(cb.equal(trade.get("status"), filter.status()));
+        }
+        if (filter.counterparty() != null) {
+            predicates.add(cb.equal(trade.get("counterparty"), filter.counterparty()));
+        }
+        if (filter.fromDate() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(trade.get("tradeDate"), filter.fromDate()));
+        }
+        if (filter.toDate() != null) {
+            predicates.add(cb.lessThanOrEqualTo(trade.get("tradeDate"), filter.toDate()));
+        }
+
+        query.select(trade).where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(trade.get("id")));
+        return entityManager.createQuery(query);
+    }
+
+    /**
+     * Archived side of a stream, read a page at a time so memory stays bounded.
+     */
+    static final class ArchiveCursor {
+        private final TradeArchive archive;
+        private final TradeFilter filter;
+        private final Deque<Trade> buffer = new ArrayDeque<>();
+        private Long lastId;
+        private boolean exhausted;
+
+        ArchiveCursor(TradeArchive archive, TradeFilter filter, Long afterId) {
+            this.archive = archive;
+            this.filter = filter;
+            this.lastId = afterId;
+        }
+
+        // Hands over archived trades with smaller ids, and drops one with the same id
+        void emitBefore(long id, Consumer<Trade> consumer) {
+            while (true) {
+                if (buffer.isEmpty() && !exhausted) {
+                    List<Trade> page = archive.findPage(filter, lastId, STREAM_FETCH_SIZE);
+                    exhausted = page.size() < STREAM_FETCH_SIZE;
+                    buffer.addAll(page);
+                    if (!page.isEmpty()) {
+                        lastId = page.get(page.size() - 1).getId();
+                    }
+                }
+                Trade next = buffer.peekFirst();
+                if (next == null || next.getId() > id) {
+                    return;
+                }
+                buffer.pollFirst();
+                if (next.getId() < id) {
+                    consumer.accept(next);
+                }
+            }
+        }
+    }
+}
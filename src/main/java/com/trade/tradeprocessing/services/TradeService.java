@@ -5,7 +5,6 @@ import org.springframework.stereotype.Service;
 import com.trade.tradeprocessing.models.Trade;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 @Service
 public class TradeService {
@@ -16,10 +15,6 @@ public class TradeService {
         this.tradeRepository = tradeRepository;
     }
 
-    public List<Trade> getTrades(){
-        return (List<Trade>) tradeRepository.findAll();
-    }
-
     public void postTrade(Trade trade) {
         tradeRepository.save(trade);
     }
@@ -0,0 +1,145 @@
+package com.trade.tradeprocessing.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimals held as scaled longs ("units"): 12.5 at scale 4 is 125000.
+ * Quantities, prices and FX rates use 4 decimal places, USD notionals use 2.
+ * <p>
+ * Nothing here allocates on the success path. Anything that does not fit exactly — too many
+ * decimals, too many digits, or an overflowing result — comes back as {@link #NOT_REPRESENTABLE},
+ * and the caller falls back to {@link BigDecimal} for that value.
+ */
+public final class FixedPoint {
+
+    public static final int QUANTITY_SCALE = 4;
+    public static final int PRICE_SCALE = 4;
+    public static final int FX_SCALE = 4;
+    public static final int NOTIONAL_SCALE = 2;
+
+    // Sentinel for "no exact long form"; also the value of units that have not been computed yet
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final long LOW_32_BITS = 0xFFFF_FFFFL;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Exact units of the value at the given scale, or NOT_REPRESENTABLE.
+     */
+    public static long toUnits(BigDecimal value, int scale) {
+        if (value == null) {
+            return NOT_REPRESENTABLE;
+        }
+        int valueScale = value.scale();
+        if (valueScale > scale) {
+            // 1.50000 still fits at scale 4; 1.00001 does not
+            value = value.stripTrailingZeros();
+            valueScale = value.scale();
+            if (valueScale > scale) {
+                return NOT_REPRESENTABLE;
+            }
+        }
+        if (value.precision() - valueScale > MAX_LONG_DIGITS - scale) {
+            return NOT_REPRESENTABLE;
+        }
+        if (valueScale <= 0) {
+            // Integral value, and the digit check above guarantees longValue() is exact
+            return multiply(value.longValue(), POWERS_OF_TEN[scale]);
+        }
+        long unscaled = value.movePointRight(valueScale).longValue();
+        return multiply(unscaled, POWERS_OF_TEN[scale - valueScale]);
+    }
+
+    public static BigDecimal toBigDecimal(long units, int scale) {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    /**
+     * USD notional in units at NOTIONAL_SCALE: quantity × price × fxRate rounded UP (away from zero),
+     * the same result as the BigDecimal product with setScale(2, RoundingMode.UP).
+     * Returns NOT_REPRESENTABLE if any input is, if quantity × price overflows (about $92bn), or if
+     * the notional does not fit in a long.
+     */
+    public static long notionalUnits(long quantityUnits, long priceUnits, long fxUnits) {
+        if (quantityUnits == NOT_REPRESENTABLE || priceUnits == NOT_REPRESENTABLE || fxUnits == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        long product = multiply(quantityUnits, priceUnits);
+        if (product == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        // At scale 12 the full product overflows a long from about $9.2m, so it is kept as 128 bits
+        boolean negative = (product < 0) != (fxUnits < 0);
+        long a = Math.abs(product);
+        long b = Math.abs(fxUnits);
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+
+        // Drop the extra decimals, at most 9 at a time: ceil(ceil(x / m) / n) == ceil(x / (m × n))
+        for (int digits = QUANTITY_SCALE + PRICE_SCALE + FX_SCALE - NOTIONAL_SCALE; digits > 0; digits -= 9) {
+            long divisor = POWERS_OF_TEN[Math.min(digits, 9)];
+            // Long division over 32-bit limbs; the remainder is below 2^30, so no step overflows
+            long limb = high >>> 32;
+            long q3 = limb / divisor;
+            limb = (limb % divisor) << 32 | (high & LOW_32_BITS);
+            long q2 = limb / divisor;
+            limb = (limb % divisor) << 32 | (low >>> 32);
+            long q1 = limb / divisor;
+            limb = (limb % divisor) << 32 | (low & LOW_32_BITS);
+            long q0 = limb / divisor;
+            high = q3 << 32 | q2;
+            low = q1 << 32 | q0;
+            if (limb % divisor != 0 && ++low == 0) {
+                high++;
+            }
+        }
+        if (high != 0 || low < 0) {
+            return NOT_REPRESENTABLE;
+        }
+        return negative ? -low : low;
+    }
+
+    /**
+     * BigDecimal version of {@link #notionalUnits} for values that have no long form.
+     */
+    public static BigDecimal notional(BigDecimal quantity, BigDecimal price, BigDecimal fxRate) {
+        return quantity.multiply(price).multiply(fxRate).setScale(NOTIONAL_SCALE, RoundingMode.UP);
+    }
+
+    /**
+     * a + b, or NOT_REPRESENTABLE if either side is or the sum overflows.
+     */
+    public static long add(long a, long b) {
+        if (a == NOT_REPRESENTABLE || b == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        long sum = a + b;
+        // Overflow iff both operands have the sign the result does not
+        if (((a ^ sum) & (b ^ sum)) < 0 || sum == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        return sum;
+    }
+
+    private static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        // The product fits iff the high word is just the sign extension of the low word
+        if ((high != 0 || low < 0) && (high != -1 || low >= 0) || low == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        return low;
+    }
+}
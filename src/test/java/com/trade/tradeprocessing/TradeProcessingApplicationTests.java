@@ -3,8 +3,10 @@ package com.trade.tradeprocessing;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("test")
 @EnableScheduling
 class TradeProcessingApplicationTests {
 
@@ -0,0 +1,101 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExposureCubeTests {
+
+    private static final String[] INSTRUMENTS = {"AAPL", "MSFT", "TSLA"};
+    private static final String[] COUNTERPARTIES = {"JP Morgan", "Citibank"};
+    private static final String[] CURRENCIES = {"USD", "EUR"};
+
+    @Test
+    void everyRollupAgreesWithTheCellsBelowIt() throws Exception {
+        ExposureCube cube = new ExposureCube(new ReferenceData());
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        for (int w = 0; w < 4; w++) {
+            workers.execute(() -> {
+                for (int i = 0; i < 3_000; i++) {
+                    cube.add(trade(i));
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        Exposure total = cube.exposure(null, null, null);
+        assertEquals(12_000, total.tradeCount());
+        assertEquals(total, sum(cube.breakdown(ExposureDimension.COUNTERPARTY, null, null, null)));
+
+        // AAPL / JP Morgan / USD is every i % 6 == 0: all BUYs, alternately of 1 and 3 at 10.00
+        Exposure cell = cube.exposure("AAPL", "JP Morgan", "USD");
+        assertEquals(2_000, cell.tradeCount());
+        assertEquals(0, new BigDecimal("4000").compareTo(cell.netQuantity()));
+        assertEquals(0, new BigDecimal("40000").compareTo(cell.grossNotionalUsd()));
+
+        Exposure aapl = cube.exposure("AAPL", null, null);
+        assertEquals(aapl.tradeCount(), sum(cube.breakdown(ExposureDimension.CURRENCY, "AAPL", null, null)).tradeCount());
+        assertEquals(0, cube.exposure("UNKNOWN", null, null).tradeCount());
+    }
+
+    @Test
+    void cellsAddedWhileACuboidGrowsAreNeitherLostNorDuplicated() throws Exception {
+        ExposureCube cube = new ExposureCube(new ReferenceData());
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        for (int w = 0; w < 4; w++) {
+            workers.execute(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    cube.add(Trade.builder().instrument("I" + i).counterparty("C" + i % 7).currency("USD")
+                            .side("BUY").quantity(BigDecimal.ONE).notionalUsd(BigDecimal.TEN).build());
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        List<Exposure> byInstrument = cube.breakdown(ExposureDimension.INSTRUMENT, null, null, null);
+        assertEquals(2_000, byInstrument.size());
+        for (Exposure exposure : byInstrument) {
+            assertEquals(4, exposure.tradeCount(), exposure.instrument());
+        }
+        assertEquals(4, cube.exposure("I1999", "C4", "USD").tradeCount());
+        assertEquals(2_000 / 7 + 1, cube.breakdown(ExposureDimension.INSTRUMENT, null, "C0", null).size());
+    }
+
+    private static Exposure sum(List<Exposure> exposures) {
+        long count = 0;
+        BigDecimal quantity = BigDecimal.ZERO;
+        BigDecimal gross = BigDecimal.ZERO;
+        BigDecimal net = BigDecimal.ZERO;
+        for (Exposure exposure : exposures) {
+            count += exposure.tradeCount();
+            quantity = quantity.add(exposure.netQuantity());
+            gross = gross.add(exposure.grossNotionalUsd());
+            net = net.add(exposure.netNotionalUsd());
+        }
+        return new Exposure(null, null, null, count, quantity, gross, net);
+    }
+
+    private static Trade trade(int i) {
+        BigDecimal quantity = BigDecimal.valueOf(1 + i % 4);
+        BigDecimal price = new BigDecimal("10.00");
+        return Trade.builder()
+                .instrument(INSTRUMENTS[i % INSTRUMENTS.length])
+                .counterparty(COUNTERPARTIES[i % COUNTERPARTIES.length])
+                .currency(CURRENCIES[i % CURRENCIES.length])
+                .side(i % 3 == 0 ? "BUY" : "SELL")
+                .quantity(quantity)
+                .price(price)
+                .notionalUsd(quantity.multiply(price))
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.trade.tradeprocessing.analytics;
+
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TradeColumnStoreTests {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 3);
+
+    @Test
+    void groupBySumsMatchTheTradesAcrossChunks() {
+        TradeColumnStore store = new TradeColumnStore(new ReferenceData(), 4, false, 1_000);
+        for (int i = 0; i < 10; i++) {
+            store.append(trade("AAPL", "JP Morgan", "BUY", "10", "100.50", DAY.plusDays(i % 2)));
+            store.append(trade("MSFT", "Citibank", "SELL", "3", "20", DAY));
+        }
+        store.append(trade("AAPL", "Citibank", "SELL", "4", "1", DAY.plusDays(1)));
+
+        AggregationResult byInstrument = store.aggregate(filter(null, null, null), GroupBy.INSTRUMENT, Measure.NET_QUANTITY);
+        assertEquals(21, byInstrument.rowsScanned());
+        assertEquals(0, new BigDecimal("96").compareTo(byInstrument.groups().get("AAPL")));
+        assertEquals(0, new BigDecimal("-30").compareTo(byInstrument.groups().get("MSFT")));
+
+        AggregationResult byCounterparty = store.aggregate(filter(null, null, null), GroupBy.COUNTERPARTY, Measure.NOTIONAL_USD);
+        assertEquals(0, new BigDecimal("10050").compareTo(byCounterparty.groups().get("JP Morgan")));
+        assertEquals(0, new BigDecimal("604").compareTo(byCounterparty.groups().get("Citibank")));
+
+        AggregationResult secondDay = store.aggregate(filter("AAPL", DAY.plusDays(1), DAY.plusDays(1)), GroupBy.TRADE_DATE, Measure.TRADE_COUNT);
+        assertEquals(6, secondDay.rowsMatched());
+        assertEquals(0, new BigDecimal("6").compareTo(secondDay.groups().get(DAY.plusDays(1).toString())));
+
+        assertEquals(0, store.aggregate(filter("UNKNOWN", null, null), GroupBy.INSTRUMENT, Measure.TRADE_COUNT).rowsMatched());
+    }
+
+    @Test
+    void groupingByDateOnlyHasGroupsForTheDaysPresent() {
+        TradeColumnStore store = new TradeColumnStore(new ReferenceData(), 4, false, 1_000);
+        LocalDate ancient = LocalDate.of(1, 1, 1);
+        store.append(trade("AAPL", "JP Morgan", "BUY", "1", "1", ancient));
+        for (int i = 0; i < 5; i++) {
+            store.append(trade("AAPL", "JP Morgan", "BUY", "1", "1", DAY));
+        }
+        store.append(trade("AAPL", "JP Morgan", "BUY", "1", "1", null));
+
+        AggregationResult byDate = store.aggregate(filter(null, null, null), GroupBy.TRADE_DATE, Measure.TRADE_COUNT);
+        assertEquals(3, byDate.groups().size());
+        assertEquals(0, BigDecimal.ONE.compareTo(byDate.groups().get(ancient.toString())));
+        assertEquals(0, new BigDecimal("5").compareTo(byDate.groups().get(DAY.toString())));
+        assertEquals(0, BigDecimal.ONE.compareTo(byDate.groups().get("NONE")));
+
+        AggregationResult recent = store.aggregate(filter(null, DAY, null), GroupBy.TRADE_DATE, Measure.TRADE_COUNT);
+        assertEquals(1, recent.groups().size());
+        assertEquals(5, recent.rowsMatched());
+    }
+
+    @Test
+    void evictedRowsAreReportedAlongsideTheSums() {
+        // Room for two chunks of four rows
+        TradeColumnStore store = new TradeColumnStore(new ReferenceData(), 4, false, 8);
+        for (int i = 0; i < 8; i++) {
+            store.append(trade("AAPL", "JP Morgan", "BUY", "1", "1", DAY));
+        }
+        AggregationResult full = store.aggregate(filter(null, null, null), GroupBy.INSTRUMENT, Measure.TRADE_COUNT);
+        assertEquals(0, full.rowsEvicted());
+        assertEquals(0, store.stats().evictedRows());
+
+        store.append(trade("AAPL", "JP Morgan", "BUY", "1", "1", DAY));
+        AggregationResult partial = store.aggregate(filter(null, null, null), GroupBy.INSTRUMENT, Measure.TRADE_COUNT);
+        assertEquals(4, partial.rowsEvicted());
+        assertEquals(5, partial.rowsScanned());
+        assertEquals(4, store.stats().evictedRows());
+        assertEquals(5, store.stats().rows());
+    }
+
+    @Test
+    void valuesWithoutAFixedPointFormAreSummedExactly() {
+        TradeColumnStore store = new TradeColumnStore(new ReferenceData(), 4, false, 1_000);
+        // More decimals than the quantity scale, on rows spread over two chunks
+        String fine = "0.000000001";
+        for (int i = 0; i < 6; i++) {
+            store.append(trade("AAPL", "JP Morgan", i % 2 == 0 ? "BUY" : "SELL", i < 3 ? fine : "2", "1", DAY));
+        }
+        store.append(trade("AAPL", "JP Morgan", "BUY", fine, "1", DAY));
+
+        AggregationResult net = store.aggregate(filter(null, null, null), GroupBy.INSTRUMENT, Measure.NET_QUANTITY);
+        // +fine -fine +fine -2 +2 -2 +fine
+        assertEquals(0, new BigDecimal("-1.999999998").compareTo(net.groups().get("AAPL")));
+    }
+
+    private static AnalyticsFilter filter(String instrument, LocalDate from, LocalDate to) {
+        return new AnalyticsFilter(instrument, null, null, from, to);
+    }
+
+    private static Trade trade(String instrument, String counterparty, String side, String quantity, String price, LocalDate day) {
+        BigDecimal notional = new BigDecimal(quantity).multiply(new BigDecimal(price));
+        return Trade.builder()
+                .instrument(instrument)
+                .counterparty(counterparty)
+                .currency("USD")
+                .side(side)
+                .quantity(new BigDecimal(quantity))
+                .price(new BigDecimal(price))
+                .notionalUsd(notional)
+                .tradeDate(day)
+                .build();
+    }
+}
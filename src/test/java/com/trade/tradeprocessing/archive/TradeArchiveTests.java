@@ -0,0 +1,112 @@
+package com.trade.tradeprocessing.archive;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeArchiveTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pagesThroughInterleavedSegmentsInIdOrderAfterReopening() throws Exception {
+        TradeArchive archive = new TradeArchive(directory.toString(), 100);
+        archive.open();
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        // Two dates with interleaved ids, so the segments' id ranges overlap; id 1 has no date
+        List<Trade> even = new ArrayList<>();
+        List<Trade> odd = new ArrayList<>();
+        for (long id = 2; id <= 2_000; id++) {
+            (id % 2 == 0 ? even : odd).add(trade(id, id % 2 == 0 ? monday : monday.plusDays(1)));
+        }
+        archive.complete(archive.append(even));
+        archive.complete(archive.append(odd));
+        archive.complete(archive.append(List.of(trade(1, null))));
+
+        TradeArchive reopened = new TradeArchive(directory.toString(), 100);
+        reopened.open();
+        TradeFilter all = new TradeFilter(null, null, null, null, null);
+        Long afterId = null;
+        long expected = 1;
+        List<Trade> page;
+        do {
+            page = reopened.findPage(all, afterId, 333);
+            for (Trade trade : page) {
+                assertEquals(expected++, trade.getId());
+            }
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (page.size() == 333);
+        assertEquals(2_001, expected);
+        assertEquals(0, reopened.stats().pendingSegments());
+        assertEquals(2_000, reopened.maxId());
+
+        // Values come back exactly as they went in
+        Trade restored = reopened.findPage(all, 40L, 1).get(0);
+        Trade original = trade(41, monday.plusDays(1));
+        assertEquals(original.getPrice(), restored.getPrice());
+        assertEquals(original.getQuantity(), restored.getQuantity());
+        assertNull(restored.getNotionalUsd());
+        assertEquals(original.getCreatedAt(), restored.getCreatedAt());
+        assertNull(reopened.findPage(all, null, 1).get(0).getTradeDate());
+
+        // A date filter leaves out the other partition and the undated one
+        List<Trade> mondays = reopened.findPage(new TradeFilter(null, null, null, monday, monday), null, 5_000);
+        assertEquals(1_000, mondays.size());
+        assertTrue(reopened.findPage(new TradeFilter("MSFT", null, null, null, null), null, 10).isEmpty());
+    }
+
+    @Test
+    void findsArchivedClientTradeIdsAfterReopening() throws Exception {
+        TradeArchive archive = new TradeArchive(directory.toString(), 100);
+        archive.open();
+        List<Trade> trades = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            Trade trade = trade(id, LocalDate.of(2025, 3, 3));
+            trade.setClientTradeId(id % 5 == 0 ? null : "client-" + id);
+            trades.add(trade);
+        }
+        archive.complete(archive.append(trades));
+        assertTrue(archive.containsClientTradeId("client-7"));
+        assertFalse(archive.containsClientTradeId("client-10"));
+
+        TradeArchive reopened = new TradeArchive(directory.toString(), 100);
+        reopened.open();
+        List<String> ids = new ArrayList<>();
+        reopened.forEachClientTradeId(ids::add);
+        assertEquals(400, ids.size());
+        assertTrue(reopened.containsClientTradeId("client-499"));
+        assertFalse(reopened.containsClientTradeId("client-501"));
+    }
+
+    private static Trade trade(long id, LocalDate tradeDate) {
+        return Trade.builder()
+                .id(id)
+                .tradeDate(tradeDate)
+                .instrument("AAPL")
+                .side(id % 3 == 0 ? "SELL" : "BUY")
+                .quantity(BigDecimal.valueOf(id))
+                .price(new BigDecimal("101.2500"))
+                .currency("EUR")
+                .counterparty("JP Morgan")
+                .status(id % 2 == 0 ? Status.Done : Status.Failed)
+                .notionalUsd(id % 2 == 0 ? new BigDecimal("123.45") : null)
+                .createdAt(Instant.ofEpochSecond(1_700_000_000L + id, 123_456_789))
+                .timeProcessed(Instant.ofEpochSecond(1_700_000_001L + id))
+                .build();
+    }
+}
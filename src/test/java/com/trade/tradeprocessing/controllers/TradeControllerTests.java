@@ -0,0 +1,166 @@
+package com.trade.tradeprocessing.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.dedup.TradeDeduplicator;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.repositories.TradeRepository;
+import com.trade.tradeprocessing.services.TradeIngestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TradeControllerTests {
+
+    private static final String TRADE = "{\"instrument\":\"AAPL\",\"side\":\"BUY\",\"quantity\":10,\"price\":1,\"currency\":\"USD\",\"counterparty\":\"JP Morgan\"}";
+
+    private final List<Trade> queued = new ArrayList<>();
+    private int room = Integer.MAX_VALUE;
+    private final TradeIngestService ingest = ingestService();
+    private final TradeController controller = new TradeController(ingest, null,
+            new ObjectMapper().registerModule(new JavaTimeModule()), beans().getBeanProvider(TradeDeduplicator.class),
+            beans().getBeanProvider(TradeArchive.class));
+
+    @Test
+    void singleTradeMapsEachOutcomeToItsStatus() throws Exception {
+        assertEquals(HttpStatus.ACCEPTED, controller.postTrade(trade("c-1")).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.postTrade(trade("c-1")).getStatusCode());
+
+        room = 0;
+        ResponseEntity<Void> full = controller.postTrade(trade("c-2"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, full.getStatusCode());
+        assertEquals("1", full.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        ingest.closeIntake(0);
+        ResponseEntity<Void> closed = controller.postTrade(trade("c-2"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, closed.getStatusCode());
+        assertEquals("1", closed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void bulkRejectsAnElementThatIsNotATradeWithItsIndex() throws Exception {
+        ResponseEntity<IngestResponse> response = controller.postTradesBulk(body("[" + TRADE + "," + TRADE + ",42," + TRADE + "]"));
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(2, response.getBody().accepted());
+        assertEquals(2, response.getBody().resumeFrom());
+        assertTrue(response.getBody().error().contains("index 2"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.postTradesBulk(body("[" + TRADE + ",[]]")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.postTradesBulk(body("[" + TRADE)).getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED, controller.postTradesBulk(body("[" + TRADE + "]")).getStatusCode());
+    }
+
+    @Test
+    void aTradeThatCanNeverBeAcceptedIsRejectedAndSkipped() throws Exception {
+        String tooLong = "A".repeat(SymbolDictionary.MAX_SYMBOL_LENGTH + 1);
+        String invalid = TRADE.replace("AAPL", tooLong);
+        ResponseEntity<IngestResponse> bulk = controller.postTradesBulk(body("[" + TRADE + "," + invalid + "," + TRADE + "]"));
+        assertEquals(HttpStatus.ACCEPTED, bulk.getStatusCode());
+        assertEquals(new IngestResponse(2, 0, 1, 3, null), bulk.getBody());
+
+        ResponseEntity<IngestResponse> stream = controller.postTradesStream(body(invalid + "\n{\n" + TRADE + "\n"));
+        assertEquals(new IngestResponse(1, 0, 2, 3, null), stream.getBody());
+
+        Trade single = trade("c-3");
+        single.setInstrument(tooLong);
+        assertEquals(HttpStatus.BAD_REQUEST, controller.postTrade(single).getStatusCode());
+        assertEquals(3, queued.size());
+    }
+
+    @Test
+    void anNdjsonLineTooLongIsRejectedWithoutReadingItIntoMemory() throws Exception {
+        String tooLong = "{\"clientTradeId\":\"" + "x".repeat(100_000) + "\"}";
+        ResponseEntity<IngestResponse> response = controller.postTradesStream(
+                body(TRADE + "\r\n" + tooLong + "\r\n" + TRADE.replace("AAPL", "MSFT") + "\r" + TRADE));
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(new IngestResponse(3, 0, 1, 4, null), response.getBody());
+        assertEquals("MSFT", queued.get(1).getInstrument());
+    }
+
+    @Test
+    void streamResumeOffsetCountsBlankLines() throws Exception {
+        room = 2;
+        ResponseEntity<IngestResponse> response = controller.postTradesStream(body(TRADE + "\n\n\n" + TRADE + "\n\n" + TRADE + "\n"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals(2, response.getBody().accepted());
+        // Lines 0 and 3 went in; line 5 is the one to resend from
+        assertEquals(5, response.getBody().resumeFrom());
+    }
+
+    @Test
+    void aRequestStoppedByAFullPipelineCountsOnlyTheRejectsBeforeTheResumePoint() throws Exception {
+        String invalid = TRADE.replace("AAPL", "A".repeat(SymbolDictionary.MAX_SYMBOL_LENGTH + 1));
+        room = 1;
+        ResponseEntity<IngestResponse> bulk = controller.postTradesBulk(body("[" + TRADE + "," + invalid + "," + TRADE + "," + invalid + "]"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, bulk.getStatusCode());
+        assertEquals(new IngestResponse(1, 0, 1, 2, "Processing queue is full"), bulk.getBody());
+
+        room = 1;
+        ResponseEntity<IngestResponse> stream = controller.postTradesStream(body(TRADE + "\n{\n" + TRADE + "\n{\n" + TRADE + "\n"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, stream.getStatusCode());
+        assertEquals(new IngestResponse(1, 0, 1, 2, "Processing queue is full"), stream.getBody());
+    }
+
+    private TradeIngestService ingestService() {
+        TradePublisher publisher = new TradePublisher() {
+            @Override
+            public void publish(Trade trade) {
+                queued.add(trade);
+            }
+
+            @Override
+            public boolean tryPublish(Trade trade) {
+                return room-- > 0 && queued.add(trade);
+            }
+
+            @Override
+            public int backlog() {
+                return queued.size();
+            }
+        };
+        StaticListableBeanFactory beans = beans();
+        beans.addBean("deduplicator", new TradeDeduplicator(mock(TradeRepository.class), null,
+                beans().getBeanProvider(TradeJournal.class), beans().getBeanProvider(TradeArchive.class), 1000, 0.01, 100, 600));
+        return new TradeIngestService(publisher, new PipelineMetrics(null, null, "queue", "platform"), new ReferenceData(),
+                beans().getBeanProvider(TradeJournal.class), beans.getBeanProvider(TradeDeduplicator.class));
+    }
+
+    private static StaticListableBeanFactory beans() {
+        return new StaticListableBeanFactory();
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Trade trade(String clientTradeId) {
+        return Trade.builder()
+                .clientTradeId(clientTradeId)
+                .instrument("AAPL")
+                .side("BUY")
+                .quantity(BigDecimal.TEN)
+                .price(BigDecimal.ONE)
+                .currency("USD")
+                .counterparty("JP Morgan")
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.trade.tradeprocessing.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTests {
+
+    @Test
+    void growsPastInitialCapacityWithoutFalseNegativesAndWithinTargetRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("T-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("T-" + i), "lost T-" + i);
+        }
+        assertTrue(filter.stageCount() > 1);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("U-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, "false positives " + falsePositives);
+        assertTrue(filter.estimatedFalsePositiveRate() < 0.01);
+    }
+}
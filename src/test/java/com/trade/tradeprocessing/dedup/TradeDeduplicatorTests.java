@@ -0,0 +1,54 @@
+package com.trade.tradeprocessing.dedup;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.repositories.TradeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TradeDeduplicatorTests {
+
+    @Test
+    void archivedIdsStayDuplicatesAfterARestart() {
+        Set<String> archived = new HashSet<>(List.of("a-1", "a-2"));
+        TradeArchive archive = new TradeArchive("unused", 100) {
+            @Override
+            public void forEachClientTradeId(Consumer<String> consumer) {
+                archived.forEach(consumer);
+            }
+
+            @Override
+            public boolean containsClientTradeId(String clientTradeId) {
+                return archived.contains(clientTradeId);
+            }
+        };
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("archive", archive);
+        // The trades table is empty, as after a restart with an in-memory database
+        TradeDeduplicator deduplicator = new TradeDeduplicator(mock(TradeRepository.class), mock(JdbcTemplate.class),
+                new StaticListableBeanFactory().getBeanProvider(TradeJournal.class),
+                beans.getBeanProvider(TradeArchive.class), 1000, 0.01, 100, 600);
+        deduplicator.rebuild();
+
+        assertFalse(deduplicator.claim("a-1"));
+        assertTrue(deduplicator.claim("new-1"));
+        assertEquals(1, deduplicator.stats().archiveHits());
+
+        // Archived once this run has claimed it and its cache entry has gone
+        deduplicator.release("new-1");
+        archived.add("new-1");
+        assertFalse(deduplicator.claim("new-1"));
+        assertEquals(2, deduplicator.stats().archiveHits());
+    }
+}
@@ -0,0 +1,195 @@
+package com.trade.tradeprocessing.enrichment;
+
+import com.trade.tradeprocessing.configurations.FxCacheProperties;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.services.FxQuote;
+import com.trade.tradeprocessing.services.FxRateSource;
+import com.trade.tradeprocessing.services.MarketDataService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Everything runs on the test thread: the batch window and the timeouts are tasks on a hand-driven
+ * scheduler, fetches wait in a queue until the test runs them, and continuations run inline.
+ */
+class AsyncFxEnricherTests {
+
+    private static final long BATCH_WINDOW_MS = 2;
+    private static final long TIMEOUT_MS = 2_000;
+
+    private final List<Set<String>> batches = new ArrayList<>();
+    private boolean sourceFails;
+    private final FxRateSource source = new FxRateSource() {
+        @Override
+        public BigDecimal fetchRate(String currencyPair) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, BigDecimal> fetchRates(Collection<String> currencyPairs) {
+            batches.add(Set.copyOf(currencyPairs));
+            if (sourceFails) {
+                throw new IllegalStateException("feed down");
+            }
+            Map<String, BigDecimal> rates = new HashMap<>();
+            // Never returns a rate for GBP
+            currencyPairs.stream().filter(pair -> !pair.startsWith("GBP"))
+                    .forEach(pair -> rates.put(pair, new BigDecimal("1.25")));
+            return rates;
+        }
+    };
+    private final MarketDataService marketData = new MarketDataService(source,
+            new FxCacheProperties(List.of(), 100, 60_000, 60_000, Map.of(), Map.of(), 16, 60_000), new ReferenceData());
+    private final Queue<Runnable> fetches = new ArrayDeque<>();
+    // Scheduled tasks by delay: the batch window and the timeouts differ, so each can be run on its own
+    private final Map<Long, Queue<Runnable>> scheduled = new HashMap<>();
+    private final ScheduledExecutorService batcher = mock(ScheduledExecutorService.class);
+    private final List<FxQuote> delivered = new ArrayList<>();
+
+    AsyncFxEnricherTests() {
+        when(batcher.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            long delayMs = invocation.<TimeUnit>getArgument(2).toMillis(invocation.getArgument(1));
+            scheduled.computeIfAbsent(delayMs, k -> new ArrayDeque<>()).add(invocation.getArgument(0));
+            return mock(ScheduledFuture.class);
+        });
+    }
+
+    @Test
+    void tradesWaitingOnTheSamePairShareOneRequestAndPairsShareOneBatch() {
+        AsyncFxEnricher enricher = enricher(100);
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        assertTrue(enricher.defer(trade("CHF"), this::deliver));
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        // One batch window for the two pairs
+        assertEquals(1, scheduled.get(BATCH_WINDOW_MS).size());
+        closeBatchWindow();
+        runFetches();
+
+        assertEquals(List.of(Set.of("EURUSD", "CHFUSD")), batches);
+        assertEquals(4, delivered.size());
+        delivered.forEach(quote -> assertEquals(0, new BigDecimal("1.25").compareTo(quote.rate())));
+        EnrichmentStats stats = enricher.stats();
+        assertEquals(4, stats.deferred());
+        assertEquals(2, stats.coalesced());
+        assertEquals(1, stats.batches());
+        assertEquals(2, stats.pairsFetched());
+        assertEquals(0, stats.inFlight());
+        // The batch also filled the cache, so the next trade needs no fetch
+        assertNotNull(marketData.getCachedQuote("CHF"));
+    }
+
+    @Test
+    void refusesTradesPastTheInFlightBoundAndMalformedCurrencies() {
+        AsyncFxEnricher enricher = enricher(2);
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        assertTrue(enricher.defer(trade("CHF"), this::deliver));
+        assertFalse(enricher.defer(trade("JPY"), this::deliver));
+        assertFalse(enricher.defer(trade("eur"), this::deliver));
+        assertEquals(2, enricher.stats().inFlight());
+        assertEquals(2, enricher.stats().rejected());
+
+        closeBatchWindow();
+        runFetches();
+        assertEquals(2, delivered.size());
+        // Permits come back once the continuations have run
+        assertEquals(0, enricher.stats().inFlight());
+        assertTrue(enricher.defer(trade("JPY"), this::deliver));
+    }
+
+    @Test
+    void aBatchPastTheTimeoutGivesNullButStillFillsTheCacheWhenItReturns() {
+        AsyncFxEnricher enricher = enricher(100);
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        closeBatchWindow();
+        expireTimeouts();
+        assertEquals(1, delivered.size());
+        assertNull(delivered.get(0));
+        assertEquals(1, enricher.stats().timedOut());
+        assertEquals(0, enricher.stats().inFlight());
+        assertNull(marketData.getCachedQuote("EUR"));
+
+        runFetches();
+        assertNotNull(marketData.getCachedQuote("EUR"));
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    void aFailedBatchOrAMissingRateGivesNull() {
+        AsyncFxEnricher enricher = enricher(100);
+        assertTrue(enricher.defer(trade("GBP"), this::deliver));
+        closeBatchWindow();
+        runFetches();
+        assertEquals(1, delivered.size());
+        assertNull(delivered.get(0));
+
+        sourceFails = true;
+        assertTrue(enricher.defer(trade("EUR"), this::deliver));
+        closeBatchWindow();
+        runFetches();
+        assertEquals(2, delivered.size());
+        assertNull(delivered.get(1));
+        assertEquals(2, enricher.stats().failed());
+        assertEquals(0, enricher.stats().timedOut());
+    }
+
+    private AsyncFxEnricher enricher(int maxInFlight) {
+        return new AsyncFxEnricher(marketData, source, fetches::add, Runnable::run, batcher,
+                BATCH_WINDOW_MS, TIMEOUT_MS, maxInFlight);
+    }
+
+    private void closeBatchWindow() {
+        runScheduled(BATCH_WINDOW_MS);
+    }
+
+    private void expireTimeouts() {
+        runScheduled(TIMEOUT_MS);
+    }
+
+    private void runScheduled(long delayMs) {
+        Queue<Runnable> tasks = scheduled.getOrDefault(delayMs, new ArrayDeque<>());
+        assertFalse(tasks.isEmpty(), "Nothing scheduled after " + delayMs + " ms");
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    private void runFetches() {
+        assertFalse(fetches.isEmpty(), "No fetch started");
+        for (Runnable fetch = fetches.poll(); fetch != null; fetch = fetches.poll()) {
+            fetch.run();
+        }
+    }
+
+    // Records what a continuation got, null included
+    private void deliver(FxQuote quote) {
+        delivered.add(quote);
+    }
+
+    private static Trade trade(String currency) {
+        return Trade.builder().currency(currency).build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.trade.tradeprocessing.journal;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.services.PositionEntry;
+import com.trade.tradeprocessing.services.PositionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeJournalTests {
+
+    @TempDir
+    Path directory;
+
+    private final Map<String, PositionEntry> restored = new HashMap<>();
+    private final List<Trade> requeued = new ArrayList<>();
+    private volatile boolean pipelineFull;
+
+    @Test
+    void replayRestoresPositionsAndPendingTradesAcrossSegmentsAndCheckpoints() throws Exception {
+        TradeJournal journal = open("async");
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            Trade trade = trade(i);
+            journal.appendIngest(trade);
+            trades.add(trade);
+            if (i == 20_000) {
+                journal.checkpoint();
+            }
+        }
+        BigDecimal expected = BigDecimal.ZERO;
+        // Everything but the last 100 completes, the odd ones as FAILED
+        for (Trade trade : trades.subList(0, trades.size() - 100)) {
+            boolean done = trade.getJournalSequence() % 2 == 0;
+            trade.setStatus(done ? Status.Done : Status.Failed);
+            trade.setNotionalUsd(done ? trade.getQuantity().multiply(trade.getPrice()) : null);
+            journal.appendCompletion(trade);
+            if (done) {
+                expected = trade.getSide().equals("BUY") ? expected.add(trade.getQuantity()) : expected.subtract(trade.getQuantity());
+            }
+        }
+        // No close(): like a crash, replay has to read everything after the checkpoint from the segments
+
+        restored.clear();
+        TradeJournal reopened = open("group");
+        reopened.requeueRecovered();
+        assertTrue(reopened.awaitRequeue(5_000));
+
+        assertEquals(0, expected.compareTo(restored.get("AAPL").netQuantity()));
+        assertEquals(100, requeued.size());
+        assertEquals(trades.get(trades.size() - 100).getJournalSequence(), requeued.get(0).getJournalSequence());
+        assertEquals(0, trades.get(trades.size() - 1).getPrice().compareTo(requeued.get(99).getPrice()));
+
+        // New records carry on after the recovered ones
+        Trade next = trade(1);
+        reopened.appendIngest(next);
+        assertEquals(trades.get(trades.size() - 1).getJournalSequence() + 1, next.getJournalSequence());
+        reopened.close();
+    }
+
+    @Test
+    void aBatchThatCannotBeWrittenWhollyLeavesNothingPending() throws Exception {
+        TradeJournal journal = open("group");
+        List<Trade> batch = List.of(trade(1), trade(2), trade(3));
+        journal.appendIngest(batch);
+        assertEquals(3, journal.pendingTrades());
+        assertEquals(batch.get(0).getJournalSequence() + 2, batch.get(2).getJournalSequence());
+
+        Trade tooLong = trade(5);
+        tooLong.setCounterparty("x".repeat(Short.MAX_VALUE + 1));
+        assertThrows(IllegalArgumentException.class, () -> journal.appendIngest(List.of(trade(4), tooLong, trade(6))));
+        assertEquals(3, journal.pendingTrades());
+        journal.close();
+
+        requeued.clear();
+        TradeJournal reopened = open("group");
+        reopened.requeueRecovered();
+        assertTrue(reopened.awaitRequeue(5_000));
+        assertEquals(3, requeued.size());
+    }
+
+    @Test
+    void recoveredTradesNotRequeuedBeforeShutdownStayPendingForTheNextStart() throws Exception {
+        TradeJournal journal = open("group");
+        journal.appendIngest(List.of(trade(1), trade(2), trade(3)));
+        journal.close();
+
+        // The pipeline is full the whole time, so nothing gets re-queued before the drain stops it
+        pipelineFull = true;
+        TradeJournal reopened = open("group");
+        reopened.requeueRecovered();
+        assertTrue(reopened.stopRequeue(5_000));
+        assertTrue(requeued.isEmpty());
+        assertEquals(3, reopened.pendingTrades());
+        reopened.close();
+
+        pipelineFull = false;
+        TradeJournal restarted = open("group");
+        restarted.requeueRecovered();
+        assertTrue(restarted.awaitRequeue(5_000));
+        assertEquals(3, requeued.size());
+        restarted.close();
+    }
+
+    private TradeJournal open(String fsyncMode) throws Exception {
+        PositionService positionService = new PositionService(null, new ReferenceData()) {
+            @Override
+            public void restorePositions(Map<String, PositionEntry> positions) {
+                restored.putAll(positions);
+            }
+        };
+        TradePublisher publisher = new TradePublisher() {
+            @Override
+            public void publish(Trade trade) {
+                requeued.add(trade);
+            }
+
+            @Override
+            public boolean tryPublish(Trade trade) {
+                return !pipelineFull && requeued.add(trade);
+            }
+
+            @Override
+            public int backlog() {
+                return 0;
+            }
+        };
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("publisher", publisher);
+        // 1 MB segments, so the run rolls through several of them
+        TradeJournal journal = new TradeJournal(positionService, beans.getBeanProvider(TradePublisher.class),
+                directory.toString(), 1, fsyncMode, 5);
+        journal.open();
+        return journal;
+    }
+
+    private static Trade trade(int i) {
+        return Trade.builder()
+                .tradeDate(LocalDate.now())
+                .instrument("AAPL")
+                .side(i % 3 == 0 ? "SELL" : "BUY")
+                .quantity(BigDecimal.valueOf(1 + i % 100))
+                .price(new BigDecimal("101.25"))
+                .currency("EUR")
+                .counterparty("JP Morgan")
+                .status(Status.Queued)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
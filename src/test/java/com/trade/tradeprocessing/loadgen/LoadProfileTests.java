@@ -0,0 +1,59 @@
+package com.trade.tradeprocessing.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoadProfileTests {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void rampClimbsLinearlyFromBaseToTargetAndThenHolds() {
+        LoadSpec spec = spec(LoadProfile.RAMP, 100, 10);
+        assertEquals(1_000, LoadProfile.RAMP.rateAt(spec, 0), DELTA);
+        assertEquals(5_500, LoadProfile.RAMP.rateAt(spec, 50), DELTA);
+        assertEquals(10_000, LoadProfile.RAMP.rateAt(spec, 100), DELTA);
+        assertEquals(10_000, LoadProfile.RAMP.rateAt(spec, 130), DELTA);
+    }
+
+    @Test
+    void burstRunsAtTargetForTheFirstTenthOfEveryPeriod() {
+        LoadSpec spec = spec(LoadProfile.BURST, 60, 10);
+        assertEquals(10_000, LoadProfile.BURST.rateAt(spec, 0), DELTA);
+        assertEquals(10_000, LoadProfile.BURST.rateAt(spec, 0.99), DELTA);
+        assertEquals(1_000, LoadProfile.BURST.rateAt(spec, 1.01), DELTA);
+        assertEquals(1_000, LoadProfile.BURST.rateAt(spec, 9.99), DELTA);
+        assertEquals(10_000, LoadProfile.BURST.rateAt(spec, 20.5), DELTA);
+        assertEquals(1_000, LoadProfile.BURST.rateAt(spec, 25), DELTA);
+    }
+
+    @Test
+    void squareWaveAlternatesEveryHalfPeriod() {
+        LoadSpec spec = spec(LoadProfile.SQUARE_WAVE, 60, 10);
+        assertEquals(10_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 0), DELTA);
+        assertEquals(10_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 4.99), DELTA);
+        assertEquals(1_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 5), DELTA);
+        assertEquals(1_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 9.99), DELTA);
+        assertEquals(10_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 10), DELTA);
+        assertEquals(1_000, LoadProfile.SQUARE_WAVE.rateAt(spec, 35), DELTA);
+    }
+
+    @Test
+    void aSpecNeedsAPositiveDurationAndPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> new LoadSpec(LoadProfile.RAMP, 1, 10_000, 0, 0, 10, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadSpec(LoadProfile.RAMP, 1, 10_000, 0, -5, 10, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadSpec(LoadProfile.BURST, 1, 10_000, 0, 60, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LoadSpec(LoadProfile.BURST, 1, 10_000, 0, 60, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LoadSpec(LoadProfile.BURST, 1, 10_000, 0, 60, Double.NaN, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LoadSpec(LoadProfile.BURST, 1, 10_000, 0, 60, Double.POSITIVE_INFINITY, 0, 0));
+    }
+
+    // 10,000 trades/sec target over a 1,000 base
+    private static LoadSpec spec(LoadProfile profile, long durationSeconds, double periodSeconds) {
+        return new LoadSpec(profile, 1, 10_000, 1_000, durationSeconds, periodSeconds, 0, 0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.trade.tradeprocessing.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipfDistributionTests {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void lowIndexesArePickedInProportionToTheirWeight() {
+        int[] counts = sample(new ZipfDistribution(10, 1.0));
+        // Weights 1, 1/2, ..., 1/10 sum to about 2.929, so index 0 gets about 34% and index 9 about 3.4%
+        assertEquals(0.341, counts[0] / (double) SAMPLES, 0.01);
+        assertEquals(0.171, counts[1] / (double) SAMPLES, 0.01);
+        assertEquals(0.034, counts[9] / (double) SAMPLES, 0.005);
+        for (int k = 1; k < counts.length; k++) {
+            assertTrue(counts[k] < counts[k - 1], "index " + k);
+        }
+    }
+
+    @Test
+    void aZeroExponentIsUniform() {
+        int[] counts = sample(new ZipfDistribution(10, 0));
+        for (int count : counts) {
+            assertEquals(0.1, count / (double) SAMPLES, 0.01);
+        }
+    }
+
+    private static int[] sample(ZipfDistribution distribution) {
+        Random random = new Random(42);
+        int[] counts = new int[10];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[distribution.sample(random)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,34 @@
+package com.trade.tradeprocessing.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTests {
+
+    @Test
+    void bucketsCoverEveryValueWithinRelativePrecision() {
+        for (long value : new long[]{0, 1, 63, 64, 127, 128, 1_000, 999_999, 123_456_789, Long.MAX_VALUE / 3}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(upper >= value, "upper bound below value " + value);
+            assertTrue(upper - value <= Math.max(1, value / 32), "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    void percentilesTrackRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.count());
+        assertEquals(10_000_000, snapshot.maxNanos());
+        assertEquals(5_000_000, snapshot.percentile(50), 5_000_000 * 0.02);
+        assertEquals(9_900_000, snapshot.percentile(99), 9_900_000 * 0.02);
+        assertEquals(10_000_000, snapshot.percentile(100));
+    }
+}
@@ -0,0 +1,44 @@
+package com.trade.tradeprocessing.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PositionSnapshotTests {
+
+    private final PositionSnapshot snapshot = new PositionSnapshot("boot", 5, Instant.EPOCH, List.of(
+            view("AAPL", 2), view("MSFT", 4), view("TSLA", 5)));
+
+    @Test
+    void aTagFromThisEpochOnlyGetsWhatChangedSince() {
+        assertEquals("boot-5", snapshot.tag());
+        PositionDelta delta = snapshot.changedSince("boot-3");
+        assertEquals("boot-5", delta.next());
+        assertEquals(3, delta.fromVersion());
+        assertEquals(5, delta.version());
+        assertEquals(List.of("MSFT", "TSLA"), instruments(delta));
+        assertEquals(List.of(), instruments(snapshot.changedSince("boot-5")));
+    }
+
+    @Test
+    void aTagFromAnotherEpochGetsEverything() {
+        // Versions from before a restart would otherwise look current, or hide changes
+        for (String since : new String[]{"earlier-3", "earlier-9", "3", "boot-", "boot-x", "boot-9"}) {
+            PositionDelta delta = snapshot.changedSince(since);
+            assertEquals(0, delta.fromVersion(), since);
+            assertEquals(List.of("AAPL", "MSFT", "TSLA"), instruments(delta), since);
+        }
+    }
+
+    static PositionView view(String instrument, long version) {
+        return new PositionView(instrument, BigDecimal.ONE, BigDecimal.TEN, Instant.EPOCH, version);
+    }
+
+    private static List<String> instruments(PositionDelta delta) {
+        return delta.positions().stream().map(PositionView::instrument).toList();
+    }
+}
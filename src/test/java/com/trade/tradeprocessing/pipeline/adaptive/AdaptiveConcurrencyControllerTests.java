@@ -0,0 +1,146 @@
+package com.trade.tradeprocessing.pipeline.adaptive;
+
+import com.trade.tradeprocessing.metrics.LatencyHistogram;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.metrics.Stage;
+import com.trade.tradeprocessing.services.TradePersister;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyControllerTests {
+
+    private static final int MIN_WORKERS = 2;
+    private static final int MAX_WORKERS = 10;
+    private static final int QUEUE_HIGH_WATER = 50;
+
+    private final TradeProcessingService tradeProcessingService = mock(TradeProcessingService.class);
+    private final PipelineMetrics pipelineMetrics = mock(PipelineMetrics.class);
+    private final TradePersister tradePersister = mock(TradePersister.class);
+    // What the stubs report: completed trades' latency, queue depth, persister backlog, workers
+    private final LatencyHistogram total = new LatencyHistogram();
+    private int queueDepth;
+    private int persisterBacklog;
+    private int workers;
+
+    AdaptiveConcurrencyControllerTests() {
+        when(pipelineMetrics.snapshot(Stage.TOTAL)).thenAnswer(invocation -> total.snapshot());
+        when(pipelineMetrics.queueDepth()).thenAnswer(invocation -> queueDepth);
+        when(tradePersister.backlog()).thenAnswer(invocation -> persisterBacklog);
+        when(tradePersister.capacity()).thenReturn(100);
+        when(tradeProcessingService.supportsWorkerScaling()).thenReturn(true);
+        when(tradeProcessingService.workerCount()).thenAnswer(invocation -> workers);
+        when(tradeProcessingService.addWorker()).thenAnswer(invocation -> {
+            workers++;
+            return true;
+        });
+        doAnswer(invocation -> {
+            workers--;
+            return null;
+        }).when(tradeProcessingService).retireWorker();
+    }
+
+    @Test
+    void aLatencyRegressionHalvesTheWorkers() {
+        workers = 8;
+        AdaptiveConcurrencyController controller = controller();
+        // Queue below the high-water mark but not empty, so only latency can move the count
+        queueDepth = 10;
+        complete(20, TimeUnit.MILLISECONDS.toNanos(1));
+        controller.adjust();
+        assertEquals(8, workers);
+
+        complete(20, TimeUnit.MILLISECONDS.toNanos(5));
+        controller.adjust();
+        assertEquals(4, workers);
+        assertTrue(lastDecision(controller).reason().startsWith("latency"), lastDecision(controller).reason());
+    }
+
+    @Test
+    void aGrowingQueueAddsOneWorker() {
+        workers = 4;
+        AdaptiveConcurrencyController controller = controller();
+        queueDepth = 100;
+        controller.adjust();
+        assertEquals(5, workers);
+        assertEquals("queue depth 100", lastDecision(controller).reason());
+
+        // Still above the high-water mark and not shrinking
+        controller.adjust();
+        assertEquals(6, workers);
+    }
+
+    @Test
+    void aBackedUpPersisterHoldsTheWorkersDespiteTheQueue() {
+        workers = 4;
+        AdaptiveConcurrencyController controller = controller();
+        queueDepth = 100;
+        persisterBacklog = 80;
+        controller.adjust();
+        assertEquals(4, workers);
+        assertTrue(controller.status().recentDecisions().isEmpty());
+
+        persisterBacklog = 10;
+        controller.adjust();
+        assertEquals(5, workers);
+    }
+
+    @Test
+    void anIdleQueueRetiresAWorkerOnlyWhenLittlesLawSaysFewerWouldDo() throws InterruptedException {
+        workers = 4;
+        AdaptiveConcurrencyController controller = controller();
+        queueDepth = 0;
+        // 20 trades of 100ms each in a fraction of a second: more than three workers busy on average
+        complete(20, TimeUnit.MILLISECONDS.toNanos(100));
+        controller.adjust();
+        assertEquals(4, workers);
+
+        // 20 trades of 1ms each over at least 100ms: a fraction of one worker busy
+        Thread.sleep(100);
+        complete(20, TimeUnit.MILLISECONDS.toNanos(1));
+        controller.adjust();
+        assertEquals(3, workers);
+        assertTrue(lastDecision(controller).reason().endsWith("workers busy"), lastDecision(controller).reason());
+
+        // Never below the minimum
+        for (int i = 0; i < 5; i++) {
+            controller.adjust();
+        }
+        assertEquals(MIN_WORKERS, workers);
+    }
+
+    @Test
+    void fewerWorkersThanTheMinimumAreToppedUp() {
+        workers = 1;
+        AdaptiveConcurrencyController controller = controller();
+        controller.adjust();
+        assertEquals(MIN_WORKERS, workers);
+        assertEquals("below minimum", lastDecision(controller).reason());
+    }
+
+    private AdaptiveConcurrencyController controller() {
+        return new AdaptiveConcurrencyController(tradeProcessingService, pipelineMetrics, tradePersister,
+                MIN_WORKERS, MAX_WORKERS, QUEUE_HIGH_WATER, 2.0, 0.5);
+    }
+
+    private void complete(int trades, long nanos) {
+        for (int i = 0; i < trades; i++) {
+            total.record(nanos);
+        }
+    }
+
+    private static ScalingDecision lastDecision(AdaptiveConcurrencyController controller) {
+        List<ScalingDecision> decisions = controller.status().recentDecisions();
+        assertFalse(decisions.isEmpty(), "No scaling decision");
+        return decisions.get(0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.trade.tradeprocessing.pipeline.lanes;
+
+import com.trade.tradeprocessing.configurations.TradeLaneProperties;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityLaneQueueTests {
+
+    private final PriorityLaneQueue queue = new PriorityLaneQueue(List.of(
+            new TradeLaneProperties.Lane("priority", 3, 100, new BigDecimal("1000000"), List.of("Goldman Sachs"), List.of()),
+            new TradeLaneProperties.Lane("standard", 1, 100, null, null, null)), new ReferenceData());
+
+    @Test
+    void routesByRulesAndSharesDequeuesByWeightWithoutStarvingTheLowLane() {
+        assertEquals(0, queue.laneOf(trade("JP Morgan", 10_000, 200)));
+        assertEquals(0, queue.laneOf(trade("Goldman Sachs", 1, 1)));
+        assertEquals(1, queue.laneOf(trade("JP Morgan", 10, 200)));
+
+        for (int i = 0; i < 80; i++) {
+            assertTrue(queue.offer(trade("JP Morgan", 10_000, 200)));
+            assertTrue(queue.offer(trade("JP Morgan", 10, 200)));
+        }
+        // While both lanes are backlogged, every 4 dequeues are 3 priority and 1 standard
+        int priority = 0;
+        for (int i = 0; i < 40; i++) {
+            if (queue.laneOf(queue.poll()) == 0) {
+                priority++;
+            }
+        }
+        assertEquals(30, priority);
+        assertEquals(120, queue.size());
+    }
+
+    @Test
+    void aFullLaneRejectsOnlyItsOwnTrades() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(queue.offer(trade("JP Morgan", 10, 200)));
+        }
+        assertFalse(queue.offer(trade("JP Morgan", 10, 200)));
+        assertTrue(queue.offer(trade("JP Morgan", 10_000, 200)));
+
+        LaneStats standard = queue.stats().get(1);
+        assertEquals(100, standard.depth());
+        assertEquals(1, standard.rejected());
+        assertEquals(1, queue.stats().get(0).depth());
+    }
+
+    private static Trade trade(String counterparty, long quantity, long price) {
+        return Trade.builder()
+                .instrument("AAPL")
+                .side("BUY")
+                .counterparty(counterparty)
+                .currency("EUR")
+                .quantity(BigDecimal.valueOf(quantity))
+                .price(BigDecimal.valueOf(price))
+                .build();
+    }
+}
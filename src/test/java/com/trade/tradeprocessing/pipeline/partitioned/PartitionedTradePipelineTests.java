@@ -0,0 +1,145 @@
+package com.trade.tradeprocessing.pipeline.partitioned;
+
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.services.PositionService;
+import com.trade.tradeprocessing.services.TradeProcessingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PartitionedTradePipelineTests {
+
+    private static final int SHARDS = 4;
+    private static final int INSTRUMENTS = 10;
+
+    private final ReferenceData referenceData = new ReferenceData();
+    private final TradeProcessingService tradeProcessingService = mock(TradeProcessingService.class);
+    // Per instrument: the sequence numbers in the order they were processed, and the threads that processed them
+    private final Map<String, List<Integer>> processedOrder = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> processedOn = new ConcurrentHashMap<>();
+    private final PartitionedTradePipeline pipeline = new PartitionedTradePipeline(tradeProcessingService,
+            new PositionService(null, referenceData), referenceData, SHARDS, 10_000);
+
+    PartitionedTradePipelineTests() {
+        when(tradeProcessingService.beginProcessing(any())).thenAnswer(invocation -> {
+            Trade trade = invocation.getArgument(0);
+            processedOrder.computeIfAbsent(trade.getInstrument(), k -> new CopyOnWriteArrayList<>())
+                    .add(trade.getQuantity().intValue());
+            processedOn.computeIfAbsent(trade.getInstrument(), k -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+            return true;
+        });
+        when(tradeProcessingService.enrich(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void everyTradeForAnInstrumentIsProcessedOnOneShardInPublishOrder() throws Exception {
+        pipeline.start();
+        int perInstrument = 500;
+        for (int sequence = 1; sequence <= perInstrument; sequence++) {
+            for (int i = 0; i < INSTRUMENTS; i++) {
+                pipeline.publish(trade("I" + i, sequence));
+            }
+        }
+        await(() -> processed() == INSTRUMENTS * perInstrument);
+
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            String instrument = "I" + i;
+            assertEquals(1, processedOn.get(instrument).size(), instrument);
+            List<Integer> order = processedOrder.get(instrument);
+            assertEquals(perInstrument, order.size());
+            for (int k = 0; k < perInstrument; k++) {
+                assertEquals(k + 1, order.get(k), instrument);
+            }
+        }
+    }
+
+    @Test
+    void backlogAndShardStatsFollowTheInstrumentRouting() throws Exception {
+        // Not started yet, so every trade is still waiting on its shard's queue
+        int[] expectedDepth = new int[SHARDS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            String instrument = "I" + i;
+            for (int sequence = 1; sequence <= i + 1; sequence++) {
+                assertTrue(pipeline.tryPublish(trade(instrument, sequence)));
+            }
+            expectedDepth[referenceData.instruments().intern(instrument) % SHARDS] += i + 1;
+        }
+        assertEquals(INSTRUMENTS * (INSTRUMENTS + 1) / 2, pipeline.backlog());
+        for (ShardStats stats : pipeline.shardStats()) {
+            assertEquals(expectedDepth[stats.shard()], stats.queueDepth());
+            assertEquals(0, stats.processed());
+        }
+
+        pipeline.start();
+        await(() -> processed() == INSTRUMENTS * (INSTRUMENTS + 1) / 2);
+        await(() -> pipeline.backlog() == 0);
+
+        List<String> seen = new ArrayList<>();
+        for (ShardStats stats : pipeline.shardStats()) {
+            assertEquals(0, stats.queueDepth());
+            assertEquals(expectedDepth[stats.shard()], stats.processed());
+            stats.topInstruments().forEach((instrument, count) -> {
+                assertEquals(stats.shard(), referenceData.instruments().intern(instrument) % SHARDS);
+                assertEquals(Integer.parseInt(instrument.substring(1)) + 1, count.longValue());
+                seen.add(instrument);
+            });
+        }
+        // At most three instruments per shard, so each one shows up in exactly one shard's top list
+        assertEquals(INSTRUMENTS, seen.size());
+        assertEquals(INSTRUMENTS, Set.copyOf(seen).size());
+    }
+
+    private long processed() {
+        long processed = 0;
+        for (ShardStats stats : pipeline.shardStats()) {
+            processed += stats.processed();
+        }
+        return processed;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+
+    // The quantity carries the trade's sequence within its instrument
+    private static Trade trade(String instrument, int sequence) {
+        return Trade.builder()
+                .tradeDate(LocalDate.now())
+                .instrument(instrument)
+                .side("BUY")
+                .quantity(BigDecimal.valueOf(sequence))
+                .price(BigDecimal.ONE)
+                .currency("USD")
+                .counterparty("JP Morgan")
+                .status(Status.Queued)
+                .build();
+    }
+}
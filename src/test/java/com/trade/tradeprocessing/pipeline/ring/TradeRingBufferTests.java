@@ -0,0 +1,68 @@
+package com.trade.tradeprocessing.pipeline.ring;
+
+import com.trade.tradeprocessing.models.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TradeRingBufferTests {
+
+    @Test
+    void everyPublishedTradeReachesTheLastStageExactlyOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        TradeRingBuffer ring = new TradeRingBuffer(64, WaitStrategy.YIELD);
+        AtomicLong firstStageSeen = new AtomicLong();
+        AtomicLong quantitySum = new AtomicLong();
+
+        RingStage first = new RingStage("first", ring, null,
+                event -> firstStageSeen.incrementAndGet(), WaitStrategy.YIELD);
+        RingStage last = new RingStage("last", ring, first.sequence(), event -> {
+            quantitySum.addAndGet(event.trade.getId());
+            event.clear();
+        }, WaitStrategy.YIELD);
+        ring.setGatingSequence(last.sequence());
+        Thread firstThread = new Thread(first);
+        Thread lastThread = new Thread(last);
+        firstThread.start();
+        lastThread.start();
+
+        List<Thread> producerThreads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 1; i <= perProducer; i++) {
+                    try {
+                        long sequence = ring.claim();
+                        ring.get(sequence).trade = Trade.builder().id((long) i).build();
+                        ring.publish(sequence);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            producerThreads.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producerThreads) {
+            producer.join();
+        }
+
+        long expected = (long) producers * perProducer;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (last.sequence().get() < expected - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        first.halt();
+        last.halt();
+        firstThread.join();
+        lastThread.join();
+
+        assertEquals(expected, firstStageSeen.get());
+        assertEquals(producers * ((long) perProducer * (perProducer + 1) / 2), quantitySum.get());
+        assertEquals(0, ring.backlog());
+    }
+}
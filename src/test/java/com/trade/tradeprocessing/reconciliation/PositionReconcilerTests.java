@@ -0,0 +1,101 @@
+package com.trade.tradeprocessing.reconciliation;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.models.Position;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.repositories.PositionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PositionReconcilerTests {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:reconciler;DB_CLOSE_DELAY=-1"));
+    private PositionReconciler reconciler;
+
+    @AfterEach
+    void close() {
+        reconciler.stop();
+        jdbcTemplate.execute("drop table trades");
+    }
+
+    @Test
+    void splitsTheIdRangeAndMergesTheTotalsCountingATradeInBothTiersOnce() throws Exception {
+        // Ids 1-45 archived, 41-101 still in the table: 41-45 were caught mid-move, and 101 FAILED
+        jdbcTemplate.execute("create table trades (id bigint primary key, instrument varchar(64), side varchar(8), "
+                + "quantity decimal(38, 2), notional_usd decimal(38, 2), status varchar(16))");
+        for (long id = 41; id <= 101; id++) {
+            jdbcTemplate.update("insert into trades values (?, ?, ?, ?, ?, ?)", id, instrument(id), side(id),
+                    BigDecimal.ONE, BigDecimal.TEN, id == 101 ? Status.Failed : Status.Done);
+        }
+        List<Trade> archived = new ArrayList<>();
+        for (long id = 1; id <= 45; id++) {
+            archived.add(Trade.builder().id(id).instrument(instrument(id)).side(side(id)).quantity(BigDecimal.ONE)
+                    .notionalUsd(BigDecimal.TEN).status(Status.Done).build());
+        }
+        TradeArchive archive = new TradeArchive("unused", 1) {
+            @Override
+            public long minId() {
+                return 1;
+            }
+
+            @Override
+            public long maxId() {
+                return 45;
+            }
+
+            @Override
+            public void scanRange(TradeFilter filter, long fromId, long toId, Consumer<Trade> consumer) {
+                archived.stream().filter(trade -> trade.getId() >= fromId && trade.getId() <= toId).forEach(consumer);
+            }
+        };
+
+        // AAPL (even ids) is 50 BUYs of 1 at 10; MSFT (odd ids) is 40 BUYs and 10 SELLs, and is persisted wrong
+        PositionRepository positions = mock(PositionRepository.class);
+        when(positions.findAll()).thenReturn(List.of(
+                new Position("AAPL", new BigDecimal("50"), new BigDecimal("500")),
+                new Position("MSFT", new BigDecimal("29"), new BigDecimal("290"))));
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("archive", archive);
+        reconciler = new PositionReconciler(jdbcTemplate, positions, new ReferenceData(),
+                beans.getBeanProvider(TradeArchive.class), 4, 10);
+
+        ReconciliationReport report = reconciler.reconcile();
+        assertEquals(1, report.fromId());
+        assertEquals(101, report.toId());
+        // 101 ids halved until each task has at most 10
+        assertEquals(16, report.tasks());
+        assertEquals(60, report.hotTrades());
+        assertEquals(40, report.archivedTrades());
+        assertEquals(2, report.instruments());
+        assertEquals(1, report.breaks().size());
+        PositionBreak msft = report.breaks().get(0);
+        assertEquals("MSFT", msft.instrument());
+        assertEquals(0, new BigDecimal("30").compareTo(msft.expectedNetQuantity()));
+        assertEquals(0, new BigDecimal("300").compareTo(msft.expectedNetNotionalUsd()));
+    }
+
+    private static String instrument(long id) {
+        return id % 2 == 0 ? "AAPL" : "MSFT";
+    }
+
+    // Ids ending in 3 are SELLs
+    private static String side(long id) {
+        return id % 10 == 3 ? "SELL" : "BUY";
+    }
+}
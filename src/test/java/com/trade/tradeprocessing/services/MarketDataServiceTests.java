@@ -0,0 +1,79 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.configurations.FxCacheProperties;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataServiceTests {
+
+    private final List<String> fetched = new ArrayList<>();
+    private final FxRateSource source = currencyPair -> {
+        fetched.add(currencyPair);
+        return new BigDecimal("1.25");
+    };
+
+    @Test
+    void aMissOnlyTracksWellFormedCurrenciesAndTheRefresherFillsItIn() {
+        MarketDataService marketData = marketData(2, 60_000);
+        marketData.warmUp();
+        assertNotNull(marketData.getCachedQuote("EUR"));
+        assertEquals(BigDecimal.ONE, marketData.getCachedFxRate("USD"));
+
+        assertNull(marketData.getCachedQuote((String) null));
+        assertNull(marketData.getCachedQuote("not a currency"));
+        assertNull(marketData.getCachedQuote("chf"));
+        assertEquals(Set.of("EURUSD"), marketData.trackedPairs());
+
+        assertNull(marketData.getCachedQuote("CHF"));
+        fetched.clear();
+        marketData.refreshRates();
+        assertEquals(List.of("CHFUSD"), fetched);
+        assertEquals(0, new BigDecimal("1.25").compareTo(marketData.getCachedFxRate("CHF")));
+    }
+
+    @Test
+    void requestedPairsAreCappedAndDroppedOnceIdle() throws Exception {
+        MarketDataService marketData = marketData(2, 50);
+        marketData.warmUp();
+        for (String currency : List.of("AAA", "BBB", "CCC", "DDD")) {
+            marketData.getCachedQuote(currency);
+        }
+        assertEquals(Set.of("EURUSD", "AAAUSD", "BBBUSD"), marketData.trackedPairs());
+
+        marketData.refreshRates();
+        Thread.sleep(100);
+        marketData.refreshRates();
+        // Configured pairs stay; requested ones nobody asked for again are gone, quotes and all
+        assertEquals(Set.of("EURUSD"), marketData.trackedPairs());
+        assertFalse(marketData.getSnapshot().containsKey("AAAUSD"));
+        assertTrue(marketData.getSnapshot().containsKey("EURUSD"));
+    }
+
+    @Test
+    void quotesFetchedElsewhereAreOnlyCachedForWellFormedPairs() {
+        MarketDataService marketData = marketData(4, 60_000);
+        marketData.cacheQuotes(List.of(new FxQuote("fooUSD", BigDecimal.TEN, System.currentTimeMillis()),
+                new FxQuote("USD", BigDecimal.TEN, System.currentTimeMillis()),
+                new FxQuote("CHFUSD", BigDecimal.TEN, System.currentTimeMillis())));
+        assertEquals(Set.of("EURUSD", "CHFUSD"), marketData.trackedPairs());
+        assertEquals(Set.of("CHFUSD"), marketData.getSnapshot().keySet());
+    }
+
+    private MarketDataService marketData(int maxTrackedPairs, long idleMs) {
+        FxCacheProperties properties = new FxCacheProperties(List.of("EURUSD"), 100, 1_000, 60_000,
+                Map.of(), Map.of(), maxTrackedPairs, idleMs);
+        return new MarketDataService(source, properties, new ReferenceData());
+    }
+}
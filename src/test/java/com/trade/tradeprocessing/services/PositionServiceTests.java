@@ -0,0 +1,90 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.Position;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.repositories.PositionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class PositionServiceTests {
+
+    private final PositionRepository repository = mock(PositionRepository.class);
+    private final PositionService positionService = new PositionService(repository, new ReferenceData());
+    private final List<Map<String, String>> flushes = new ArrayList<>();
+
+    @Test
+    void aFlushWritesOnlyTheInstrumentsThatChangedSinceTheLastOne() {
+        recordFlushes();
+        positionService.applyTrade(trade("AAPL", "BUY", 10));
+        positionService.applyTrade(trade("MSFT", "SELL", 4));
+        positionService.calculateAndPersistPositions();
+        assertEquals(Map.of("AAPL", "10", "MSFT", "-4"), flushes.get(0));
+
+        positionService.applyTrade(trade("AAPL", "SELL", 3));
+        positionService.calculateAndPersistPositions();
+        assertEquals(Map.of("AAPL", "7"), flushes.get(1));
+
+        // Nothing changed, so nothing is written
+        positionService.calculateAndPersistPositions();
+        assertEquals(2, flushes.size());
+    }
+
+    @Test
+    void aFailedFlushWritesTheSameInstrumentsAgainOnTheNextCycle() {
+        positionService.applyTrade(trade("AAPL", "BUY", 10));
+        positionService.applyTrade(trade("MSFT", "BUY", 5));
+        doThrow(new DataAccessResourceFailureException("db down")).when(repository).saveAll(anyList());
+        positionService.calculateAndPersistPositions();
+
+        // Neither instrument trades again, yet both are retried
+        recordFlushes();
+        positionService.calculateAndPersistPositions();
+        assertEquals(Map.of("AAPL", "10", "MSFT", "5"), flushes.get(0));
+
+        positionService.calculateAndPersistPositions();
+        assertEquals(1, flushes.size());
+    }
+
+    private void recordFlushes() {
+        doAnswer(invocation -> {
+            Map<String, String> flushed = new TreeMap<>();
+            for (Position position : invocation.<List<Position>>getArgument(0)) {
+                flushed.put(position.getInstrument(), position.getNetQuantity().stripTrailingZeros().toPlainString());
+            }
+            flushes.add(flushed);
+            return List.of();
+        }).when(repository).saveAll(anyList());
+    }
+
+    private static Trade trade(String instrument, String side, int quantity) {
+        Trade trade = Trade.builder()
+                .tradeDate(LocalDate.now())
+                .instrument(instrument)
+                .side(side)
+                .quantity(BigDecimal.valueOf(quantity))
+                .price(new BigDecimal("100"))
+                .currency("USD")
+                .counterparty("JP Morgan")
+                .status(Status.Done)
+                .createdAt(Instant.now())
+                .build();
+        trade.setNotionalUsd(trade.getQuantity().multiply(trade.getPrice()));
+        return trade;
+    }
+}
@@ -0,0 +1,97 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.models.PositionDelta;
+import com.trade.tradeprocessing.models.PositionSnapshot;
+import com.trade.tradeprocessing.models.PositionView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionStreamServiceTests {
+
+    private volatile PositionSnapshot snapshot = new PositionSnapshot("boot", 3, Instant.EPOCH, List.of(
+            view("AAPL", 1), view("MSFT", 3)));
+    private final List<String> ids = new CopyOnWriteArrayList<>();
+    private final List<PositionDelta> events = new CopyOnWriteArrayList<>();
+    private final PositionStreamService stream = new PositionStreamService(new PositionService(null, null) {
+        @Override
+        public PositionSnapshot snapshot() {
+            return snapshot;
+        }
+    }, 1000) {
+        @Override
+        SseEmitter newEmitter() {
+            return new SseEmitter(0L) {
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    for (var part : builder.build()) {
+                        if (part.getData() instanceof PositionDelta delta) {
+                            events.add(delta);
+                        } else if (part.getData() instanceof String text && text.startsWith("id:")) {
+                            ids.add(text.substring(3, text.indexOf('\n')));
+                        }
+                    }
+                }
+            };
+        }
+    };
+
+    @AfterEach
+    void close() {
+        stream.close();
+    }
+
+    @Test
+    void aSubscriberFromAnEarlierBootStartsOverAndMissedVersionsArriveAsOneEvent() throws Exception {
+        // Same version number as now, but from before a restart
+        stream.subscribe("earlier-3", null);
+        awaitEvents(1);
+        assertEquals(0, events.get(0).fromVersion());
+        assertEquals(2, events.get(0).positions().size());
+        assertEquals("boot-3", ids.get(0));
+
+        snapshot = new PositionSnapshot("boot", 4, Instant.EPOCH, List.of(view("AAPL", 4), view("MSFT", 3)));
+        snapshot = new PositionSnapshot("boot", 5, Instant.EPOCH, List.of(view("AAPL", 4), view("MSFT", 5)));
+        awaitEvents(2);
+        assertEquals(3, events.get(1).fromVersion());
+        assertEquals(5, events.get(1).version());
+        assertEquals(2, events.get(1).positions().size());
+        assertEquals("boot-5", ids.get(1));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void aSubscriberFromThisBootOnlyGetsWhatItMissed() throws Exception {
+        stream.subscribe("boot-2", null);
+        awaitEvents(1);
+        assertEquals(2, events.get(0).fromVersion());
+        assertEquals(List.of("MSFT"), events.get(0).positions().stream().map(PositionView::instrument).toList());
+    }
+
+    // Ticks the stream the way the scheduler would until the expected number of events went out
+    private void awaitEvents(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.size() < expected && System.nanoTime() < deadline) {
+            stream.push();
+            Thread.sleep(5);
+        }
+        // One more tick, to show nothing else was waiting
+        stream.push();
+        Thread.sleep(20);
+        assertTrue(events.size() >= expected, "events sent: " + events.size());
+    }
+
+    private static PositionView view(String instrument, long version) {
+        return new PositionView(instrument, BigDecimal.ONE, BigDecimal.TEN, Instant.EPOCH, version);
+    }
+}
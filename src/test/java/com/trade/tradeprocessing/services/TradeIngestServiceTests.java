@@ -0,0 +1,190 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.dedup.TradeDeduplicator;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import com.trade.tradeprocessing.refdata.SymbolDictionary;
+import com.trade.tradeprocessing.repositories.TradeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TradeIngestServiceTests {
+
+    private final List<Trade> queued = new ArrayList<>();
+    private final List<Trade> cancelled = new ArrayList<>();
+    private boolean journalFails;
+    private final List<Integer> journaledBatches = new ArrayList<>();
+    private int room = Integer.MAX_VALUE;
+    // When set, publish() blocks on it, like a full pipeline
+    private volatile CountDownLatch publishing;
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final TradeDeduplicator deduplicator = new TradeDeduplicator(mock(TradeRepository.class), null,
+            new StaticListableBeanFactory().getBeanProvider(TradeJournal.class),
+            new StaticListableBeanFactory().getBeanProvider(TradeArchive.class), 1000, 0.01, 100, 600);
+
+    private final ReferenceData referenceData = new ReferenceData();
+    private final TradeIngestService ingest = ingestService();
+
+    @Test
+    void aTradeThatFailsToJournalDoesNotLeaveItsClientTradeIdClaimed() {
+        journalFails = true;
+        assertThrows(IllegalArgumentException.class, () -> ingest.trySubmit(trade("c-1")));
+
+        journalFails = false;
+        assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade("c-1")));
+        assertEquals(IngestOutcome.DUPLICATE, ingest.trySubmit(trade("c-1")));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void aFullPipelineCancelsTheJournalRecordAndReleasesTheClaim() {
+        room = 0;
+        assertEquals(IngestOutcome.QUEUE_FULL, ingest.trySubmit(trade("c-2")));
+        assertEquals(1, cancelled.size());
+
+        room = 1;
+        assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade("c-2")));
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void aBatchIsJournaledOnceAndStopsAtTheFirstTradeThatFindsNoRoom() {
+        assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade("b-0")));
+        room = 2;
+        List<IngestOutcome> outcomes = ingest.trySubmitAll(
+                List.of(trade("b-1"), trade("b-0"), trade("b-2"), trade("b-3"), trade("b-0"), trade("b-4")));
+
+        assertEquals(List.of(IngestOutcome.ACCEPTED, IngestOutcome.DUPLICATE, IngestOutcome.ACCEPTED,
+                IngestOutcome.QUEUE_FULL, IngestOutcome.QUEUE_FULL, IngestOutcome.QUEUE_FULL), outcomes);
+        assertEquals(List.of(4), journaledBatches);
+        assertEquals(2, cancelled.size());
+        // Trades not queued were released, so resending them from the first one is not a duplicate
+        room = 2;
+        assertEquals(List.of(IngestOutcome.ACCEPTED, IngestOutcome.ACCEPTED),
+                ingest.trySubmitAll(List.of(trade("b-3"), trade("b-4"))));
+        assertEquals(5, queued.size());
+    }
+
+    @Test
+    void aTradeWithASymbolTooLongIsTurnedAwayBeforeItIsInternedOrClaimed() {
+        Trade invalid = trade("s-1");
+        invalid.setCounterparty("X".repeat(SymbolDictionary.MAX_SYMBOL_LENGTH + 1));
+        assertEquals(IngestOutcome.INVALID, ingest.trySubmit(invalid));
+        assertEquals(List.of(IngestOutcome.ACCEPTED, IngestOutcome.INVALID),
+                ingest.trySubmitAll(List.of(trade("s-2"), invalid)));
+
+        assertEquals(SymbolDictionary.NO_ID, referenceData.counterparties().lookup(invalid.getCounterparty()));
+        assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade("s-1")));
+        assertEquals(2, queued.size());
+    }
+
+    @Test
+    void fieldsTooLongToJournalOrStoreAreTurnedAwayInsteadOfFailingTheJournal() {
+        Trade longId = trade("i".repeat(TradeIngestService.MAX_FIELD_LENGTH + 1));
+        Trade longSide = trade("i-1");
+        longSide.setSide("B".repeat(Short.MAX_VALUE + 1));
+        Trade longQuantity = trade("i-2");
+        longQuantity.setQuantity(new BigDecimal("1".repeat(TradeIngestService.MAX_DECIMAL_DIGITS + 1)));
+
+        assertEquals(List.of(IngestOutcome.INVALID, IngestOutcome.INVALID, IngestOutcome.INVALID, IngestOutcome.ACCEPTED),
+                ingest.trySubmitAll(List.of(longId, longSide, longQuantity, trade("i-3"))));
+        assertEquals(List.of(1), journaledBatches);
+        assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade("i-2")));
+    }
+
+    @Test
+    void closingIntakeWaitsForASubmissionAlreadyUnderWay() throws Exception {
+        publishing = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                ingest.submit(trade("c-3"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertFalse(ingest.closeIntake(50));
+        assertEquals(IngestOutcome.CLOSED, ingest.trySubmit(trade("c-4")));
+        publishing.countDown();
+        assertTrue(ingest.closeIntake(5_000));
+        producer.join();
+        assertEquals(1, queued.size());
+    }
+
+    private TradeIngestService ingestService() {
+        TradePublisher publisher = new TradePublisher() {
+            @Override
+            public void publish(Trade trade) throws InterruptedException {
+                entered.countDown();
+                if (publishing != null) {
+                    publishing.await();
+                }
+                queued.add(trade);
+            }
+
+            @Override
+            public boolean tryPublish(Trade trade) {
+                return room-- > 0 && queued.add(trade);
+            }
+
+            @Override
+            public int backlog() {
+                return queued.size();
+            }
+        };
+        TradeJournal journal = new TradeJournal(null, null, "unused", 1, "async", 5) {
+            @Override
+            public void appendIngest(Trade trade) {
+                if (journalFails) {
+                    throw new IllegalArgumentException("Field too long to journal");
+                }
+            }
+
+            @Override
+            public void appendIngest(List<Trade> trades) {
+                journaledBatches.add(trades.size());
+            }
+
+            @Override
+            public void appendCancel(Trade trade) {
+                cancelled.add(trade);
+            }
+        };
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("journal", journal);
+        beans.addBean("deduplicator", deduplicator);
+        return new TradeIngestService(publisher, new PipelineMetrics(null, null, "queue", "platform"), referenceData,
+                beans.getBeanProvider(TradeJournal.class), beans.getBeanProvider(TradeDeduplicator.class));
+    }
+
+    private static Trade trade(String clientTradeId) {
+        return Trade.builder()
+                .clientTradeId(clientTradeId)
+                .instrument("AAPL")
+                .side("BUY")
+                .quantity(BigDecimal.TEN)
+                .price(BigDecimal.ONE)
+                .currency("EUR")
+                .counterparty("JP Morgan")
+                .build();
+    }
+}
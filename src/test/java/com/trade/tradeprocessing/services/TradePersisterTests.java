@@ -0,0 +1,126 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TradePersisterTests {
+
+    private final List<List<TradePersister.Change>> written = new CopyOnWriteArrayList<>();
+    private final List<Long> updateIds = new CopyOnWriteArrayList<>();
+
+    @Test
+    void coalescesToTheStateAtTheLastSaveNotTheLiveTrade() throws Exception {
+        TradePersister persister = persister(0, 3);
+        Trade trade = Trade.builder().status(Status.Processing).build();
+        persister.save(trade);
+        trade.setStatus(Status.Done);
+        trade.setNotionalUsd(new BigDecimal("10"));
+        persister.save(trade);
+        // A worker changing the trade after its last save must not leak into the batch
+        trade.setNotionalUsd(new BigDecimal("99"));
+
+        persister.start();
+        persister.stop();
+
+        assertEquals(1, written.size());
+        assertEquals(1, written.get(0).size());
+        TradePersister.Change change = written.get(0).get(0);
+        assertEquals(Status.Done, change.status());
+        assertEquals(0, new BigDecimal("10").compareTo(change.notionalUsd()));
+        assertEquals(0, new BigDecimal("10").compareTo(change.row().getNotionalUsd()));
+    }
+
+    @Test
+    void retriesAFailedBatchAndCountsOneThatNeverSucceeds() throws Exception {
+        TradePersister flaky = persister(2, 3);
+        flaky.save(Trade.builder().status(Status.Done).build());
+        flaky.start();
+        flaky.stop();
+        assertEquals(1, written.size());
+        assertEquals(2, flaky.retries());
+        assertEquals(0, flaky.failedChanges());
+
+        written.clear();
+        TradePersister broken = persister(Integer.MAX_VALUE, 3);
+        broken.save(Trade.builder().id(7L).status(Status.Done).build());
+        broken.save(Trade.builder().id(8L).status(Status.Failed).build());
+        broken.start();
+        broken.stop();
+        assertEquals(0, written.size());
+        assertEquals(2, broken.retries());
+        assertEquals(2, broken.failedChanges());
+    }
+
+    @Test
+    void anInsertOnlyTakesItsIdOnceTheBatchCommits() throws Exception {
+        Trade trade = Trade.builder().status(Status.Done).build();
+        TradePersister persister = new TradePersister(null, null, null, metrics(), 10, 5, 1, 0) {
+            @Override
+            List<Long> write(List<Change> inserts, List<Change> updates) {
+                throw new IllegalStateException("database down");
+            }
+        };
+        persister.save(trade);
+        persister.start();
+        persister.stop();
+        assertNull(trade.getId());
+        assertEquals(1, persister.failedChanges());
+    }
+
+    @Test
+    void aTradeSavedAgainAfterItsInsertCommittedIsWrittenAsAnUpdate() throws Exception {
+        TradePersister persister = persister(0, 1);
+        persister.start();
+        Trade trade = Trade.builder().status(Status.Processing).build();
+        persister.save(trade);
+        // The id is written by the flusher thread; the worker sees it through the volatile field
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (trade.getId() == null && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1L, trade.getId());
+        trade.setStatus(Status.Done);
+        persister.save(trade);
+        persister.stop();
+
+        assertEquals(2, written.size());
+        assertEquals(List.of(1L), updateIds);
+        assertEquals(Status.Done, written.get(1).get(0).status());
+    }
+
+    // Records each batch it is given, after failing the first `failures` attempts; inserts get ids 1, 2, ...
+    private TradePersister persister(int failures, int maxAttempts) {
+        int[] remaining = {failures};
+        long[] nextId = {1};
+        return new TradePersister(null, null, null, metrics(), 10, 5, maxAttempts, 1) {
+            @Override
+            List<Long> write(List<Change> inserts, List<Change> updates) {
+                if (remaining[0]-- > 0) {
+                    throw new IllegalStateException("database down");
+                }
+                written.add(List.copyOf(updates.isEmpty() ? inserts : updates));
+                updates.forEach(change -> updateIds.add(change.trade().getId()));
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < inserts.size(); i++) {
+                    ids.add(nextId[0]++);
+                }
+                return ids;
+            }
+        };
+    }
+
+    private static PipelineMetrics metrics() {
+        return new PipelineMetrics(null, null, "queue", "platform");
+    }
+}
@@ -0,0 +1,322 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.analytics.ExposureCube;
+import com.trade.tradeprocessing.analytics.TradeColumnStore;
+import com.trade.tradeprocessing.configurations.FxCacheProperties;
+import com.trade.tradeprocessing.dedup.TradeDeduplicator;
+import com.trade.tradeprocessing.enrichment.AsyncFxEnricher;
+import com.trade.tradeprocessing.journal.TradeJournal;
+import com.trade.tradeprocessing.metrics.PipelineMetrics;
+import com.trade.tradeprocessing.models.Status;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.pipeline.PipelineLifecycle;
+import com.trade.tradeprocessing.pipeline.QueueTradePublisher;
+import com.trade.tradeprocessing.pipeline.TradePublisher;
+import com.trade.tradeprocessing.pipeline.ring.RingBufferTradePipeline;
+import com.trade.tradeprocessing.pipeline.ring.WaitStrategy;
+import com.trade.tradeprocessing.refdata.ReferenceData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeProcessingServiceTests {
+
+    private final ReferenceData referenceData = new ReferenceData();
+    private final BlockingQueue<Trade> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger done = new AtomicInteger();
+    // The first PROCESSING save parks here until the test lets it go
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger saves = new AtomicInteger();
+
+    @Test
+    void aTradeWaitingForADispatchPermitStillCountsAsInFlight() throws Exception {
+        TradeProcessingService service = service("virtual", true);
+        service.startConsumers();
+        queue.add(trade());
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        queue.add(trade());
+
+        // The dispatcher holds the second trade while it waits for the only permit
+        await(() -> queue.isEmpty());
+        assertEquals(2, service.inFlight());
+
+        release.countDown();
+        await(() -> done.get() == 2);
+        assertEquals(0, service.inFlight());
+        service.stopConsumers();
+        await(() -> service.consumersRunning() == 0);
+    }
+
+    @Test
+    void platformConsumersDrainTheQueueBeforeTheFinalCheckpoint() throws Exception {
+        TradeProcessingService service = service("platform", false);
+        service.startConsumers();
+        queue.add(trade());
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 20; i++) {
+            queue.add(trade());
+        }
+        assertEquals(1, service.inFlight());
+
+        int[] doneAtCheckpoint = {-1};
+        TradeJournal journal = checkpointRecorder(doneAtCheckpoint);
+        TradePublisher publisher = new QueueTradePublisher(queue);
+        TradeIngestService ingest = new TradeIngestService(publisher, metrics(), referenceData,
+                absent(TradeJournal.class), absent(TradeDeduplicator.class));
+        PipelineLifecycle lifecycle = new PipelineLifecycle(ingest, service, present(TradePublisher.class, publisher),
+                positions(), present(TradeJournal.class, journal), 5_000, false);
+        lifecycle.start();
+
+        Thread stopper = new Thread(lifecycle::stop);
+        stopper.start();
+        Thread.sleep(50);
+        assertEquals(IngestOutcome.CLOSED, ingest.trySubmit(trade()));
+        release.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(21, doneAtCheckpoint[0]);
+        assertEquals(0, service.inFlight());
+        assertEquals(0, service.consumersRunning());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void ringModeWaitsForDeferredTradesBeforeHaltingAndTheFinalCheckpoint() throws Exception {
+        release.countDown();
+        CountDownLatch fxRelease = new CountDownLatch(1);
+        FxRateSource slowSource = currencyPair -> {
+            try {
+                fxRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new BigDecimal("1.25");
+        };
+        MarketDataService marketData = new MarketDataService(slowSource,
+                new FxCacheProperties(List.of(), 100, 60_000, 60_000, Map.of(), Map.of(), 16, 60_000), referenceData);
+        ExecutorService fetchPool = Executors.newCachedThreadPool();
+        AsyncFxEnricher enricher = new AsyncFxEnricher(marketData, slowSource, fetchPool::execute, Runnable::run, 1, 5_000, 100);
+        TradeProcessingService service = service("ring", "platform", false, marketData, present(AsyncFxEnricher.class, enricher),
+                absent(TradeJournal.class));
+        RingBufferTradePipeline pipeline = new RingBufferTradePipeline(service, positions(), 8, WaitStrategy.YIELD);
+        pipeline.start();
+
+        // USD needs no rate; EUR is not cached, so those two wait on the enricher off the ring
+        pipeline.publish(trade("USD"));
+        pipeline.publish(trade("EUR"));
+        pipeline.publish(trade("USD"));
+        pipeline.publish(trade("EUR"));
+        await(() -> done.get() == 2 && pipeline.backlog() == 0);
+        assertEquals(2, service.inFlight());
+
+        int[] doneAtCheckpoint = {-1};
+        TradeIngestService ingest = new TradeIngestService(pipeline, metrics(), referenceData,
+                absent(TradeJournal.class), absent(TradeDeduplicator.class));
+        PipelineLifecycle lifecycle = new PipelineLifecycle(ingest, service, present(TradePublisher.class, pipeline),
+                positions(), present(TradeJournal.class, checkpointRecorder(doneAtCheckpoint)), 5_000, false);
+        lifecycle.start();
+        Thread stopper = new Thread(lifecycle::stop);
+        stopper.start();
+        Thread.sleep(50);
+        assertTrue(stopper.isAlive());
+        fxRelease.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(4, doneAtCheckpoint[0]);
+        assertEquals(0, service.inFlight());
+        assertFalse(pipeline.tryPublish(trade("USD")));
+        enricher.stop();
+        fetchPool.shutdownNow();
+    }
+
+    @Test
+    void aDrainedShutdownLeavesACheckpointTheNextStartRestoresWithNothingToRequeue(@TempDir Path directory) throws Exception {
+        release.countDown();
+        TradeJournal journal = journal(directory, positions(), trade -> true);
+        TradeProcessingService service = service("queue", "platform", false,
+                new MarketDataService(currencyPair -> BigDecimal.ONE,
+                        new FxCacheProperties(List.of(), 100, 1_000, 60_000, Map.of(), Map.of(), 0, 0), referenceData),
+                absent(AsyncFxEnricher.class), present(TradeJournal.class, journal));
+        service.startConsumers();
+        TradePublisher publisher = new QueueTradePublisher(queue);
+        TradeIngestService ingest = new TradeIngestService(publisher, metrics(), referenceData,
+                present(TradeJournal.class, journal), absent(TradeDeduplicator.class));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(IngestOutcome.ACCEPTED, ingest.trySubmit(trade()));
+        }
+
+        PipelineLifecycle lifecycle = new PipelineLifecycle(ingest, service, present(TradePublisher.class, publisher),
+                positions(), present(TradeJournal.class, journal), 5_000, true);
+        lifecycle.start();
+        lifecycle.stop();
+        assertEquals(20, done.get());
+        assertEquals(0, journal.pendingTrades());
+        journal.close();
+
+        // Restart: the book comes back from the checkpoint, and nothing is left to re-queue
+        Map<String, PositionEntry> restored = new HashMap<>();
+        PositionService restarted = new PositionService(null, referenceData) {
+            @Override
+            public void restorePositions(Map<String, PositionEntry> positions) {
+                restored.putAll(positions);
+            }
+        };
+        TradeJournal reopened = journal(directory, restarted, trade -> false);
+        assertTrue(reopened.recoveredTrades().isEmpty());
+        assertEquals(0, new BigDecimal("200").compareTo(restored.get("AAPL").netQuantity()));
+        reopened.close();
+    }
+
+    @Test
+    void aWarmRestartWithoutTheJournalFailsAtStartup() {
+        TradeProcessingService service = service("platform", false);
+        TradePublisher publisher = new QueueTradePublisher(queue);
+        TradeIngestService ingest = new TradeIngestService(publisher, metrics(), referenceData,
+                absent(TradeJournal.class), absent(TradeDeduplicator.class));
+        PipelineLifecycle lifecycle = new PipelineLifecycle(ingest, service, present(TradePublisher.class, publisher),
+                positions(), absent(TradeJournal.class), 5_000, true);
+        assertThrows(IllegalStateException.class, lifecycle::start);
+    }
+
+    // A journal in the directory, opened and replayed; the publisher only sees re-queued trades
+    private static TradeJournal journal(Path directory, PositionService positions, Predicate<Trade> requeue)
+            throws IOException {
+        TradePublisher publisher = new TradePublisher() {
+            @Override
+            public void publish(Trade trade) {
+                requeue.test(trade);
+            }
+
+            @Override
+            public boolean tryPublish(Trade trade) {
+                return requeue.test(trade);
+            }
+
+            @Override
+            public int backlog() {
+                return 0;
+            }
+        };
+        TradeJournal journal = new TradeJournal(positions, present(TradePublisher.class, publisher),
+                directory.toString(), 1, "async", 5);
+        journal.open();
+        return journal;
+    }
+
+    // Records how many trades were DONE when the final checkpoint was written
+    private TradeJournal checkpointRecorder(int[] doneAtCheckpoint) {
+        return new TradeJournal(null, null, "unused", 1, "async", 5) {
+            @Override
+            public synchronized void checkpoint() {
+                doneAtCheckpoint[0] = done.get();
+            }
+
+            @Override
+            public int pendingTrades() {
+                return 0;
+            }
+        };
+    }
+
+    private TradeProcessingService service(String executorMode, boolean virtualThreadPerTrade) {
+        FxCacheProperties fx = new FxCacheProperties(List.of(), 100, 1_000, 60_000, Map.of(), Map.of(), 0, 0);
+        return service("queue", executorMode, virtualThreadPerTrade,
+                new MarketDataService(currencyPair -> BigDecimal.ONE, fx, referenceData), absent(AsyncFxEnricher.class),
+                absent(TradeJournal.class));
+    }
+
+    private TradeProcessingService service(String pipelineMode, String executorMode, boolean virtualThreadPerTrade,
+                                           MarketDataService marketData, ObjectProvider<AsyncFxEnricher> enricher,
+                                           ObjectProvider<TradeJournal> journal) {
+        TradePersister persister = new TradePersister(null, null, null, metrics(), 1, 1, 1, 0) {
+            @Override
+            public void save(Trade trade) {
+                if (Status.Processing.equals(trade.getStatus()) && saves.getAndIncrement() == 0) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if (Status.Done.equals(trade.getStatus())) {
+                    done.incrementAndGet();
+                }
+            }
+        };
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("test-");
+        executor.setVirtualThreads("virtual".equals(executorMode));
+        return new TradeProcessingService(persister, queue, executor, marketData, positions(), referenceData, metrics(),
+                journal, absent(TradeColumnStore.class), absent(ExposureCube.class), enricher,
+                pipelineMode, executorMode, 1, 1, virtualThreadPerTrade);
+    }
+
+    private PositionService positions() {
+        return new PositionService(null, referenceData) {
+            @Override
+            public void calculateAndPersistPositions() {
+            }
+        };
+    }
+
+    private static PipelineMetrics metrics() {
+        return new PipelineMetrics(null, null, "queue", "platform");
+    }
+
+    private static <T> ObjectProvider<T> absent(Class<T> type) {
+        return new StaticListableBeanFactory().getBeanProvider(type);
+    }
+
+    private static <T> ObjectProvider<T> present(Class<T> type, T bean) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean(type.getSimpleName(), bean);
+        return beans.getBeanProvider(type);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Trade trade() {
+        return trade("USD");
+    }
+
+    private static Trade trade(String currency) {
+        return Trade.builder()
+                .instrument("AAPL")
+                .side("BUY")
+                .quantity(BigDecimal.TEN)
+                .price(BigDecimal.ONE)
+                .currency(currency)
+                .counterparty("JP Morgan")
+                .status(Status.Queued)
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.trade.tradeprocessing.services;
+
+import com.trade.tradeprocessing.archive.TradeArchive;
+import com.trade.tradeprocessing.models.Trade;
+import com.trade.tradeprocessing.models.TradeFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TradeQueryServiceTests {
+
+    private static final TradeFilter ALL = new TradeFilter(null, null, null, null, null);
+
+    @Test
+    void mergesArchivedAndHotTradesInIdOrderReturningATradeInBothOnce() {
+        // Trade 4 was caught mid-move: archived, but not yet deleted from the table
+        List<Trade> merged = TradeQueryService.merge(trades(1, 4, 6), trades(2, 3, 4, 5, 7), 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), ids(merged));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(TradeQueryService.merge(trades(1, 4, 6), trades(2, 3, 4, 5, 7), 3)));
+        assertEquals(List.of(2L, 3L), ids(TradeQueryService.merge(List.of(), trades(2, 3), 3)));
+        assertEquals(List.of(1L, 2L), ids(TradeQueryService.merge(trades(1, 2), List.of(), 3)));
+    }
+
+    @Test
+    void aStreamInterleavesArchivedTradesAcrossPagesAndSkipsOnesStillInTheTable() {
+        // Odd ids are archived, ids divisible by 10 are in both tiers, the rest are only in the table
+        List<Trade> archived = new ArrayList<>();
+        List<Trade> hot = new ArrayList<>();
+        for (long id = 1; id <= 3 * TradeQueryService.STREAM_FETCH_SIZE; id++) {
+            if (id % 2 == 1 || id % 10 == 0) {
+                archived.add(trade(id));
+            }
+            if (id % 2 == 0) {
+                hot.add(trade(id));
+            }
+        }
+        AtomicInteger pagesRead = new AtomicInteger();
+        TradeArchive archive = new TradeArchive("unused", 1) {
+            @Override
+            public List<Trade> findPage(TradeFilter filter, Long afterId, int limit) {
+                pagesRead.incrementAndGet();
+                return archived.stream()
+                        .filter(trade -> afterId == null || trade.getId() > afterId)
+                        .limit(limit)
+                        .toList();
+            }
+        };
+
+        TradeQueryService.ArchiveCursor cursor = new TradeQueryService.ArchiveCursor(archive, ALL, null);
+        List<Trade> streamed = new ArrayList<>();
+        for (Trade trade : hot) {
+            cursor.emitBefore(trade.getId(), streamed::add);
+            streamed.add(trade);
+        }
+        cursor.emitBefore(Long.MAX_VALUE, streamed::add);
+
+        assertEquals(LongStream.rangeClosed(1, 3 * TradeQueryService.STREAM_FETCH_SIZE).boxed().toList(), ids(streamed));
+        // Read a page at a time, not all at once
+        assertEquals(archived.size() / TradeQueryService.STREAM_FETCH_SIZE + 1, pagesRead.get());
+    }
+
+    private static List<Trade> trades(long... ids) {
+        return LongStream.of(ids).mapToObj(TradeQueryServiceTests::trade).toList();
+    }
+
+    private static Trade trade(long id) {
+        return Trade.builder().id(id).build();
+    }
+
+    private static List<Long> ids(List<Trade> trades) {
+        return trades.stream().map(Trade::getId).toList();
+    }
+}
@@ -0,0 +1,74 @@
+package com.trade.tradeprocessing.utils;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointTests {
+
+    // quantity x price at scale 8 has to fit in a long
+    private static final BigDecimal MAX_FAST_QUANTITY_TIMES_PRICE = BigDecimal.valueOf(Long.MAX_VALUE, 8);
+
+    private final Logger log = LoggerFactory.getLogger(FixedPointTests.class);
+
+    @Test
+    void notionalMatchesBigDecimalRoundingUp() {
+        long seed = System.nanoTime();
+        log.info("FixedPointTests seed {}", seed);
+        Random random = new Random(seed);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal quantity = BigDecimal.valueOf(random.nextLong(1, 100_000_000), random.nextInt(0, 5));
+            BigDecimal price = BigDecimal.valueOf(random.nextLong(1, 10_000_000), random.nextInt(0, 5));
+            BigDecimal fxRate = BigDecimal.valueOf(random.nextLong(1, 200_000), 4);
+
+            long units = FixedPoint.notionalUnits(
+                    FixedPoint.toUnits(quantity, FixedPoint.QUANTITY_SCALE),
+                    FixedPoint.toUnits(price, FixedPoint.PRICE_SCALE),
+                    FixedPoint.toUnits(fxRate, FixedPoint.FX_SCALE));
+            BigDecimal expected = quantity.multiply(price).multiply(fxRate).setScale(2, RoundingMode.UP);
+            String trade = quantity + " x " + price + " x " + fxRate + " (seed " + seed + ")";
+            if (units == FixedPoint.NOT_REPRESENTABLE) {
+                // Only quantity x price beyond the long range may leave the fast path
+                assertTrue(quantity.multiply(price).compareTo(MAX_FAST_QUANTITY_TIMES_PRICE) > 0, trade);
+                assertEquals(expected, FixedPoint.notional(quantity, price, fxRate), trade);
+            } else {
+                assertEquals(expected, FixedPoint.toBigDecimal(units, FixedPoint.NOTIONAL_SCALE), trade);
+            }
+        }
+    }
+
+    @Test
+    void blockTradesWellAboveTenMillionStayOnTheFastPath() {
+        BigDecimal quantity = new BigDecimal("2500000");
+        BigDecimal price = new BigDecimal("4123.4567");
+        BigDecimal fxRate = new BigDecimal("1.2345");
+        long units = FixedPoint.notionalUnits(
+                FixedPoint.toUnits(quantity, FixedPoint.QUANTITY_SCALE),
+                FixedPoint.toUnits(price, FixedPoint.PRICE_SCALE),
+                FixedPoint.toUnits(fxRate, FixedPoint.FX_SCALE));
+        assertEquals(FixedPoint.notional(quantity, price, fxRate), FixedPoint.toBigDecimal(units, FixedPoint.NOTIONAL_SCALE));
+        // Rounding UP is away from zero for a negative product too
+        long negative = FixedPoint.notionalUnits(-FixedPoint.toUnits(quantity, FixedPoint.QUANTITY_SCALE),
+                FixedPoint.toUnits(price, FixedPoint.PRICE_SCALE), FixedPoint.toUnits(fxRate, FixedPoint.FX_SCALE));
+        assertEquals(-units, negative);
+    }
+
+    @Test
+    void valuesWithoutExactLongFormAreNotRepresentable() {
+        assertEquals(15_000, FixedPoint.toUnits(new BigDecimal("1.50000"), 4));
+        assertEquals(10_000_000, FixedPoint.toUnits(new BigDecimal("1E+3"), 4));
+        assertEquals(FixedPoint.NOT_REPRESENTABLE, FixedPoint.toUnits(new BigDecimal("1.00001"), 4));
+        assertEquals(FixedPoint.NOT_REPRESENTABLE, FixedPoint.toUnits(new BigDecimal("1E+20"), 4));
+        assertEquals(FixedPoint.NOT_REPRESENTABLE, FixedPoint.toUnits(null, 4));
+        assertEquals(FixedPoint.NOT_REPRESENTABLE, FixedPoint.notionalUnits(Long.MAX_VALUE / 2, 10_000, 10_000));
+        assertEquals(FixedPoint.NOT_REPRESENTABLE, FixedPoint.add(Long.MAX_VALUE, 1));
+        assertEquals(-3, FixedPoint.add(-1, -2));
+    }
+}